@@ -0,0 +1,185 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.edge.identity.app.ui
+
+import android.os.Bundle
+import android.util.Log
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.Button
+import android.widget.EditText
+import android.widget.TextView
+import androidx.fragment.app.Fragment
+import com.adobe.marketing.edge.identity.app.R
+import com.adobe.marketing.mobile.edge.identity.Identity
+import com.adobe.marketing.mobile.edge.identity.IdentityItem
+import com.adobe.marketing.mobile.edge.identity.IdentityMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReference
+
+private const val LOG_TAG = "Performance_Fragment"
+private const val CALLBACK_TIMEOUT_SECONDS = 60L
+private const val DEFAULT_BURST_SIZE = 1000
+private const val DEFAULT_DISTINCT_IDENTIFIERS = 100
+private const val DEFAULT_NAMESPACE = "PerfTest"
+
+/**
+ * Issues bursts of Edge Identity API calls and reports the throughput, the dispatch-to-callback latency percentiles,
+ * the number of identity map items and the size of the identity map JSON, to reproduce production load patterns
+ * on a device. For APIs without a callback the latency is the time to dispatch the call.
+ */
+class PerformanceFragment : Fragment() {
+
+    override fun onCreateView(
+        inflater: LayoutInflater,
+        container: ViewGroup?,
+        savedInstanceState: Bundle?
+    ): View? {
+        val root = inflater.inflate(R.layout.fragment_performance, container, false)
+
+        val burstSizeEditText = root.findViewById<EditText>(R.id.text_burst_size)
+        burstSizeEditText.setText(DEFAULT_BURST_SIZE.toString())
+        val distinctIdentifiersEditText = root.findViewById<EditText>(R.id.text_distinct_identifiers)
+        distinctIdentifiersEditText.setText(DEFAULT_DISTINCT_IDENTIFIERS.toString())
+        val namespaceEditText = root.findViewById<EditText>(R.id.text_performance_namespace)
+        namespaceEditText.setText(DEFAULT_NAMESPACE)
+        val resultsTextView = root.findViewById<TextView>(R.id.text_performance_results)
+
+        val burstSize = { burstSizeEditText.text.toString().toIntOrNull()?.coerceAtLeast(1) ?: DEFAULT_BURST_SIZE }
+        val distinctIdentifiers = {
+            distinctIdentifiersEditText.text.toString().toIntOrNull()?.coerceAtLeast(1) ?: DEFAULT_DISTINCT_IDENTIFIERS
+        }
+        val namespace = { namespaceEditText.text.toString().ifEmpty { DEFAULT_NAMESPACE } }
+
+        root.findViewById<Button>(R.id.btn_burst_update_identities).setOnClickListener {
+            val identifiers = distinctIdentifiers()
+            val burstNamespace = namespace()
+            runBurst("updateIdentities", burstSize(), resultsTextView) { index, onComplete ->
+                val map = IdentityMap()
+                map.addItem(IdentityItem("perf-${index % identifiers}"), burstNamespace)
+                Identity.updateIdentities(map)
+                onComplete()
+            }
+        }
+
+        root.findViewById<Button>(R.id.btn_burst_remove_identity).setOnClickListener {
+            val identifiers = distinctIdentifiers()
+            val burstNamespace = namespace()
+            runBurst("removeIdentity", burstSize(), resultsTextView) { index, onComplete ->
+                Identity.removeIdentity(IdentityItem("perf-${index % identifiers}"), burstNamespace)
+                onComplete()
+            }
+        }
+
+        root.findViewById<Button>(R.id.btn_burst_get_identities).setOnClickListener {
+            runBurst("getIdentities", burstSize(), resultsTextView) { _, onComplete ->
+                Identity.getIdentities { onComplete() }
+            }
+        }
+
+        root.findViewById<Button>(R.id.btn_burst_get_url_variables).setOnClickListener {
+            runBurst("getUrlVariables", burstSize(), resultsTextView) { _, onComplete ->
+                Identity.getUrlVariables { onComplete() }
+            }
+        }
+
+        return root
+    }
+
+    /**
+     * Runs [burstSize] calls of [call] on a background thread and shows the results in [resultsView].
+     * Each call must invoke its completion callback once the API call completed.
+     */
+    private fun runBurst(
+        name: String,
+        burstSize: Int,
+        resultsView: TextView,
+        call: (index: Int, onComplete: () -> Unit) -> Unit
+    ) {
+        resultsView.text = "Running $burstSize $name calls..."
+
+        Thread {
+            // callbacks completing after the timeout may still write their latency while the summary is built
+            val latencies = AtomicLongArray(burstSize)
+            val latch = CountDownLatch(burstSize)
+            val start = System.nanoTime()
+
+            for (index in 0 until burstSize) {
+                val dispatchTime = System.nanoTime()
+                call(index) {
+                    latencies.set(index, System.nanoTime() - dispatchTime)
+                    latch.countDown()
+                }
+            }
+
+            val completed = latch.await(CALLBACK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            val completedLatencies = (0 until burstSize).map { latencies.get(it) }.filter { it > 0 }
+
+            // events are handled in order, so the burst is fully handled once this request is answered
+            val identityMap = getIdentitiesSync()
+            val elapsedNanos = System.nanoTime() - start
+
+            val summary = buildSummary(name, burstSize, completed, completedLatencies, elapsedNanos, identityMap)
+            Log.d(LOG_TAG, summary)
+            activity?.runOnUiThread {
+                resultsView.text = summary
+            }
+        }.start()
+    }
+
+    private fun getIdentitiesSync(): IdentityMap? {
+        val latch = CountDownLatch(1)
+        val result = AtomicReference<IdentityMap?>()
+        Identity.getIdentities { identities ->
+            result.set(identities)
+            latch.countDown()
+        }
+        latch.await(CALLBACK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        return result.get()
+    }
+
+    private fun buildSummary(
+        name: String,
+        burstSize: Int,
+        completed: Boolean,
+        completedLatencies: List<Long>,
+        elapsedNanos: Long,
+        identityMap: IdentityMap?
+    ): String {
+        val sortedLatencies = completedLatencies.sorted()
+        val identityCount = identityMap?.namespaces?.sumOf { identityMap.getIdentityItemsForNamespace(it).size }
+
+        return StringBuilder()
+            .appendLine("$name: $burstSize calls in ${TimeUnit.NANOSECONDS.toMillis(elapsedNanos)} ms")
+            .appendLine("throughput: ${"%.0f".format(burstSize / (elapsedNanos / 1e9))} calls/s")
+            .appendLine("completed: ${sortedLatencies.size}/$burstSize${if (completed) "" else " (timed out)"}")
+            .appendLine("latency p50: ${percentileMicros(sortedLatencies, 0.50)} us")
+            .appendLine("latency p90: ${percentileMicros(sortedLatencies, 0.90)} us")
+            .appendLine("latency p99: ${percentileMicros(sortedLatencies, 0.99)} us")
+            .appendLine("latency max: ${percentileMicros(sortedLatencies, 1.0)} us")
+            .appendLine("identity map items: ${identityCount ?: "unknown"}")
+            .append("identity map JSON: ${identityMap?.toString()?.toByteArray(Charsets.UTF_8)?.size ?: 0} bytes")
+            .toString()
+    }
+
+    private fun percentileMicros(sortedLatencies: List<Long>, percentile: Double): Long {
+        if (sortedLatencies.isEmpty()) {
+            return 0
+        }
+
+        val index = (Math.ceil(percentile * sortedLatencies.size).toInt() - 1).coerceIn(0, sortedLatencies.size - 1)
+        return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[index])
+    }
+}
@@ -0,0 +1,114 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.AdobeCallbackWithError;
+import com.adobe.marketing.mobile.AdobeError;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completes the caller's callback of an {@link Identity} retrieval API call exactly once, either with the requested
+ * value, an error or a timeout, and records the latency of the call.
+ *
+ * @param <T> the type of the value returned to the caller
+ */
+final class ApiCallback<T> {
+
+	private final AdobeCallback<T> callback;
+	private final ApiLatencyMetrics.ApiCall apiCall;
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private volatile TimeoutWheel.Timeout timeout;
+
+	/**
+	 * @param apiName  the name of the {@link Identity} API, used to record its latency
+	 * @param callback the caller's {@link AdobeCallback}
+	 */
+	ApiCallback(final String apiName, final AdobeCallback<T> callback) {
+		this.callback = callback;
+		this.apiCall = ApiLatencyMetrics.start(apiName);
+	}
+
+	/**
+	 * Fails the call with {@link AdobeError#CALLBACK_TIMEOUT} if it did not complete within {@code timeoutMillis}.
+	 *
+	 * @param timeoutWheel  the {@link TimeoutWheel} running the timeout
+	 * @param timeoutMillis the timeout in milliseconds, no timeout is set if not greater than 0
+	 */
+	void setTimeout(final TimeoutWheel timeoutWheel, final long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			return;
+		}
+
+		timeout =
+			timeoutWheel.schedule(
+				new Runnable() {
+					@Override
+					public void run() {
+						fail(AdobeError.CALLBACK_TIMEOUT);
+					}
+				},
+				timeoutMillis
+			);
+	}
+
+	/**
+	 * Marks the time the response event was received.
+	 */
+	void responseReceived() {
+		apiCall.responseReceived();
+	}
+
+	/**
+	 * Calls the caller's callback with the value, unless the call already completed.
+	 *
+	 * @param value the value returned to the caller
+	 */
+	void succeed(final T value) {
+		if (!complete(ApiOutcome.SUCCESS)) {
+			return;
+		}
+
+		callback.call(value);
+	}
+
+	/**
+	 * When the caller provided an {@link AdobeCallbackWithError}, its fail method is called with the error,
+	 * unless the call already completed.
+	 *
+	 * @param error the {@link AdobeError} returned to the caller
+	 */
+	void fail(final AdobeError error) {
+		if (!complete(ApiLatencyMetrics.outcomeOf(error))) {
+			return;
+		}
+
+		if (callback instanceof AdobeCallbackWithError) {
+			((AdobeCallbackWithError<T>) callback).fail(error);
+		}
+	}
+
+	private boolean complete(final ApiOutcome outcome) {
+		if (!completed.compareAndSet(false, true)) {
+			return false;
+		}
+
+		final TimeoutWheel.Timeout currentTimeout = timeout;
+
+		if (currentTimeout != null) {
+			currentTimeout.cancel();
+		}
+
+		apiCall.complete(outcome);
+		return true;
+	}
+}
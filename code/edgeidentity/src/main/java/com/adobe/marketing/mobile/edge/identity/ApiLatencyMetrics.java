@@ -0,0 +1,208 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import com.adobe.marketing.mobile.AdobeError;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the latencies of the {@link Identity} retrieval APIs into fixed-bucket histograms.
+ * <p>
+ * For each API, the time from the dispatch of the request event to the caller's callback is recorded per
+ * {@link ApiOutcome}, and the time from the response event to the caller's callback is recorded separately,
+ * so the time spent in the extension can be told apart from the time spent handling the response.
+ * Recording is lock-free and safe to call from any thread.
+ */
+final class ApiLatencyMetrics {
+
+	static final String GET_EXPERIENCE_CLOUD_ID = "getExperienceCloudId";
+	static final String GET_IDENTITIES = "getIdentities";
+	static final String GET_URL_VARIABLES = "getUrlVariables";
+
+	// inclusive upper bounds of the histogram buckets, an additional last bucket holds larger latencies
+	private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+	private static final Map<String, Recorder> callRecorders;
+	private static final Map<String, Recorder> responseHandlingRecorders;
+
+	static {
+		final Map<String, Recorder> calls = new HashMap<>();
+		final Map<String, Recorder> responseHandling = new HashMap<>();
+
+		for (final String apiName : new String[] { GET_EXPERIENCE_CLOUD_ID, GET_IDENTITIES, GET_URL_VARIABLES }) {
+			for (final ApiOutcome outcome : ApiOutcome.values()) {
+				calls.put(key(apiName, outcome), new Recorder());
+			}
+
+			responseHandling.put(apiName, new Recorder());
+		}
+
+		callRecorders = Collections.unmodifiableMap(calls);
+		responseHandlingRecorders = Collections.unmodifiableMap(responseHandling);
+	}
+
+	private ApiLatencyMetrics() {}
+
+	/**
+	 * Starts timing a call of the given API. Must be called right before the request event is dispatched.
+	 *
+	 * @param apiName the name of the {@link Identity} API
+	 * @return the {@link ApiCall} to complete once the caller's callback is called
+	 */
+	static ApiCall start(final String apiName) {
+		return new ApiCall(apiName, System.nanoTime());
+	}
+
+	/**
+	 * Returns a snapshot of the dispatch-to-callback latency histogram of the given API and outcome.
+	 *
+	 * @param apiName the name of the {@link Identity} API
+	 * @param outcome the {@link ApiOutcome} of the calls
+	 * @return the {@link LatencyHistogram}, or null if no histogram is recorded for {@code apiName}
+	 */
+	static LatencyHistogram getHistogram(final String apiName, final ApiOutcome outcome) {
+		if (outcome == null) {
+			return null;
+		}
+
+		final Recorder recorder = callRecorders.get(key(apiName, outcome));
+		return recorder != null ? recorder.snapshot() : null;
+	}
+
+	/**
+	 * Returns a snapshot of the response-to-callback latency histogram of the given API.
+	 *
+	 * @param apiName the name of the {@link Identity} API
+	 * @return the {@link LatencyHistogram}, or null if no histogram is recorded for {@code apiName}
+	 */
+	static LatencyHistogram getResponseHandlingHistogram(final String apiName) {
+		final Recorder recorder = responseHandlingRecorders.get(apiName);
+		return recorder != null ? recorder.snapshot() : null;
+	}
+
+	/**
+	 * Clears all the recorded latencies.
+	 */
+	static void reset() {
+		for (final Recorder recorder : callRecorders.values()) {
+			recorder.reset();
+		}
+
+		for (final Recorder recorder : responseHandlingRecorders.values()) {
+			recorder.reset();
+		}
+	}
+
+	/**
+	 * @param error the {@link AdobeError} the call failed with
+	 * @return {@link ApiOutcome#TIMEOUT} for {@link AdobeError#CALLBACK_TIMEOUT}, otherwise {@link ApiOutcome#ERROR}
+	 */
+	static ApiOutcome outcomeOf(final AdobeError error) {
+		return error != null && error.getErrorCode() == AdobeError.CALLBACK_TIMEOUT.getErrorCode()
+			? ApiOutcome.TIMEOUT
+			: ApiOutcome.ERROR;
+	}
+
+	private static String key(final String apiName, final ApiOutcome outcome) {
+		return apiName + "." + outcome.getName();
+	}
+
+	/**
+	 * Times a single call of an {@link Identity} API.
+	 */
+	static final class ApiCall {
+
+		private final String apiName;
+		private final long dispatchNanos;
+		private volatile long responseNanos = -1;
+
+		private ApiCall(final String apiName, final long dispatchNanos) {
+			this.apiName = apiName;
+			this.dispatchNanos = dispatchNanos;
+		}
+
+		/**
+		 * Marks the time the response event was received.
+		 */
+		void responseReceived() {
+			responseNanos = System.nanoTime();
+		}
+
+		/**
+		 * Records the latency of this call for the given outcome. Must be called right before the caller's callback.
+		 *
+		 * @param outcome the {@link ApiOutcome} of this call
+		 */
+		void complete(final ApiOutcome outcome) {
+			final long now = System.nanoTime();
+			final Recorder callRecorder = callRecorders.get(key(apiName, outcome));
+
+			if (callRecorder != null) {
+				callRecorder.record(now - dispatchNanos);
+			}
+
+			final Recorder responseHandlingRecorder = responseHandlingRecorders.get(apiName);
+
+			if (responseHandlingRecorder != null && responseNanos >= 0) {
+				responseHandlingRecorder.record(now - responseNanos);
+			}
+		}
+	}
+
+	/**
+	 * A fixed-bucket histogram updated with atomic counters.
+	 */
+	static final class Recorder {
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length + 1);
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		void record(final long latencyNanos) {
+			final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, latencyNanos));
+			counts.incrementAndGet(bucketOf(latencyMillis));
+			totalNanos.addAndGet(Math.max(0, latencyNanos));
+		}
+
+		LatencyHistogram snapshot() {
+			final long[] snapshot = new long[counts.length()];
+
+			for (int i = 0; i < snapshot.length; i++) {
+				snapshot[i] = counts.get(i);
+			}
+
+			return new LatencyHistogram(BUCKET_UPPER_BOUNDS_MILLIS.clone(), snapshot, totalNanos.get());
+		}
+
+		void reset() {
+			for (int i = 0; i < counts.length(); i++) {
+				counts.set(i, 0);
+			}
+
+			totalNanos.set(0);
+		}
+
+		private static int bucketOf(final long latencyMillis) {
+			for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+				if (latencyMillis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+					return i;
+				}
+			}
+
+			return BUCKET_UPPER_BOUNDS_MILLIS.length;
+		}
+	}
+}
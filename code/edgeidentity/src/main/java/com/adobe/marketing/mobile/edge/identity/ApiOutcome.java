@@ -0,0 +1,42 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+/**
+ * Represents the outcome of an {@link Identity} API call, used to break down the API latency histograms
+ */
+public enum ApiOutcome {
+	/**
+	 * The callback was called with the requested value.
+	 */
+	SUCCESS("success"),
+
+	/**
+	 * The callback failed with an {@link com.adobe.marketing.mobile.AdobeError} other than a timeout.
+	 */
+	ERROR("error"),
+
+	/**
+	 * The callback failed with {@link com.adobe.marketing.mobile.AdobeError#CALLBACK_TIMEOUT}.
+	 */
+	TIMEOUT("timeout");
+
+	private String name;
+
+	private ApiOutcome(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
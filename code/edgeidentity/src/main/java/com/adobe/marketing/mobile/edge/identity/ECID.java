@@ -13,26 +13,33 @@ package com.adobe.marketing.mobile.edge.identity;
 
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
-import java.util.Locale;
-import java.util.Objects;
 import java.util.UUID;
 
 /**
  * This class represents an ECID
+ * <p>
+ * An ECID in the canonical format (38 digits) is stored as its two 64-bit halves and its string representation
+ * is only rendered when needed. Any other ECID value, such as a legacy non-canonical value, is stored as a string.
  */
 final class ECID {
 
-	private final String ecidString;
+	private static final int HALF_LENGTH = 19;
+	private static final int CANONICAL_LENGTH = HALF_LENGTH * 2;
+
+	private final long most;
+	private final long least;
+	private final boolean canonical; // true if this ECID is represented by most and least
+	private String ecidString; // rendered lazily for canonical ECIDs
 
 	/**
 	 * Initializes and generates a new ECID
 	 */
 	ECID() {
 		final UUID uuid = UUID.randomUUID();
-		final long most = uuid.getMostSignificantBits();
-		final long least = uuid.getLeastSignificantBits();
-		// return formatted string, flip negatives if they're set.
-		ecidString = String.format(Locale.US, "%019d%019d", most < 0 ? -most : most, least < 0 ? -least : least);
+		// flip negatives if they're set
+		this.most = abs(uuid.getMostSignificantBits());
+		this.least = abs(uuid.getLeastSignificantBits());
+		this.canonical = true;
 	}
 
 	/**
@@ -47,11 +54,27 @@ final class ECID {
 				IdentityConstants.LOG_TAG,
 				"Creating an ECID with null or empty ecidString is not allowed, generating a new ECID."
 			);
-			this.ecidString = new ECID().toString();
+			final ECID generated = new ECID();
+			this.most = generated.most;
+			this.least = generated.least;
+			this.canonical = true;
 			return;
 		}
 
-		this.ecidString = ecidString;
+		final long parsedMost = parseHalf(ecidString, 0);
+		final long parsedLeast = parseHalf(ecidString, HALF_LENGTH);
+
+		if (ecidString.length() == CANONICAL_LENGTH && parsedMost >= 0 && parsedLeast >= 0) {
+			this.most = parsedMost;
+			this.least = parsedLeast;
+			this.canonical = true;
+		} else {
+			this.most = 0;
+			this.least = 0;
+			this.canonical = false;
+		}
+
+		this.ecidString = ecidString; // keep the original string, equal to the rendered one for canonical ECIDs
 	}
 
 	/**
@@ -61,7 +84,14 @@ final class ECID {
 	 */
 	@Override
 	public String toString() {
-		return ecidString;
+		String result = ecidString;
+
+		if (result == null) {
+			result = render(most) + render(least);
+			ecidString = result;
+		}
+
+		return result;
 	}
 
 	/**
@@ -81,7 +111,16 @@ final class ECID {
 		}
 
 		ECID ecid = (ECID) o;
-		return Objects.equals(ecidString, ecid.ecidString);
+
+		if (canonical != ecid.canonical) {
+			return false; // a non-canonical string never matches the string form of a canonical ECID
+		}
+
+		if (canonical) {
+			return most == ecid.most && least == ecid.least;
+		}
+
+		return ecidString.equals(ecid.ecidString);
 	}
 
 	/**
@@ -91,6 +130,71 @@ final class ECID {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(ecidString);
+		if (canonical) {
+			return 31 * (int) (most ^ (most >>> 32)) + (int) (least ^ (least >>> 32));
+		}
+
+		return ecidString.hashCode();
+	}
+
+	/**
+	 * Parses the 19 decimal digits of {@code value} starting at {@code start} as a non-negative {@code long}.
+	 *
+	 * @param value the ECID string
+	 * @param start the index of the first digit
+	 * @return the parsed value, or -1 if {@code value} is too short, contains a non digit character or the value overflows
+	 */
+	private static long parseHalf(final String value, final int start) {
+		if (value.length() < start + HALF_LENGTH) {
+			return -1;
+		}
+
+		long result = 0;
+
+		for (int i = start; i < start + HALF_LENGTH; i++) {
+			final char c = value.charAt(i);
+
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+
+			final int digit = c - '0';
+
+			if (result > (Long.MAX_VALUE - digit) / 10) {
+				return -1; // overflow
+			}
+
+			result = result * 10 + digit;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param value a non-negative value
+	 * @return {@code value} as a zero padded string of 19 digits
+	 */
+	private static String render(final long value) {
+		final String digits = Long.toString(value);
+		final StringBuilder builder = new StringBuilder(HALF_LENGTH);
+
+		for (int i = digits.length(); i < HALF_LENGTH; i++) {
+			builder.append('0');
+		}
+
+		return builder.append(digits).toString();
+	}
+
+	/**
+	 * @param value the value to flip
+	 * @return the absolute value of {@code value}; {@link Long#MIN_VALUE} is clamped to {@link Long#MAX_VALUE}
+	 * so the value always fits in 19 digits
+	 */
+	private static long abs(final long value) {
+		if (value == Long.MIN_VALUE) {
+			return Long.MAX_VALUE;
+		}
+
+		return value < 0 ? -value : value;
 	}
 }
@@ -16,7 +16,11 @@ import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG
 import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class for Event / Event data specific helpers.
@@ -30,8 +34,17 @@ final class EventUtils {
 	 * @return {@code true} if key is present
 	 */
 	static boolean isAdIdEvent(final Event event) {
-		final Map<String, Object> data = event.getEventData();
-		return data.containsKey(IdentityConstants.EventDataKeys.ADVERTISING_IDENTIFIER);
+		return isAdIdEventData(event.getEventData());
+	}
+
+	/**
+	 * Checks if the provided event data contains the key {@link IdentityConstants.EventDataKeys#ADVERTISING_IDENTIFIER}
+	 *
+	 * @param eventData the event data to verify; should not be null
+	 * @return {@code true} if key is present
+	 */
+	static boolean isAdIdEventData(final Map<String, Object> eventData) {
+		return eventData.containsKey(IdentityConstants.EventDataKeys.ADVERTISING_IDENTIFIER);
 	}
 
 	/**
@@ -117,6 +130,20 @@ final class EventUtils {
 		return getUrlVariablesFlag;
 	}
 
+	/**
+	 * Reads the encoded identity map flag from the event data, returns false if not present
+	 * Note: This API needs to be used with isRequestIdentityEvent API to determine the correct event type and event source
+	 * @param event the event to verify
+	 * @return true if the returnencodedidentitymap key is present in the event data and has a value of true
+	 */
+	static boolean isEncodedIdentityMapRequestEvent(final Event event) {
+		return (
+			event != null &&
+			event.getEventData() != null &&
+			Boolean.TRUE.equals(event.getEventData().get(IdentityConstants.EventDataKeys.RETURN_ENCODED_IDENTITY_MAP))
+		);
+	}
+
 	/**
 	 * Checks if the provided {@code event} is of type {@link IdentityConstants.EventType#GENERIC_IDENTITY} and source {@link IdentityConstants.EventSource#REQUEST_RESET}
 	 *
@@ -154,6 +181,49 @@ final class EventUtils {
 		return stateOwnerName.equals(stateOwner);
 	}
 
+	/**
+	 * Checks if the provided shared state change event data is for a shared state owner handled by
+	 * {@link IdentityExtension#handleHubSharedState(Event)}: Configuration, EventHub or the direct Identity extension.
+	 * Does not allocate, so it can be used to filter the events on the EventHub thread.
+	 *
+	 * @param eventData the shared state change event data; should not be null
+	 * @return {@code boolean} indicating if the shared state owner is handled
+	 */
+	static boolean isHandledSharedStateUpdate(final Map<String, Object> eventData) {
+		final Object stateOwner = eventData.get(IdentityConstants.EventDataKeys.STATE_OWNER);
+
+		return (
+			IdentityConstants.SharedState.Configuration.NAME.equals(stateOwner) ||
+			IdentityConstants.SharedState.Hub.NAME.equals(stateOwner) ||
+			IdentityConstants.SharedState.IdentityDirect.NAME.equals(stateOwner)
+		);
+	}
+
+	/**
+	 * Reads the namespace to clear from a remove identity event, using the key {@link IdentityConstants.EventDataKeys#NAMESPACE}.
+	 * Note: This API needs to be used with isRemoveIdentityEvent API to determine the correct event type and event source
+	 *
+	 * @param event the remove identity event
+	 * @return the namespace for which all the identities should be removed, or null if not present or not a {@code String}
+	 */
+	static String getNamespaceToRemove(final Event event) {
+		if (event == null || event.getEventData() == null) {
+			return null;
+		}
+
+		try {
+			return (String) event.getEventData().get(IdentityConstants.EventDataKeys.NAMESPACE);
+		} catch (ClassCastException e) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"EventUtils - Failed to read namespace from remove identity event, expected String: " +
+				e.getLocalizedMessage()
+			);
+			return null;
+		}
+	}
+
 	/**
 	 * Gets the advertising ID from the event data using the key
 	 * {@link IdentityConstants.EventDataKeys#ADVERTISING_IDENTIFIER}.
@@ -214,6 +284,45 @@ final class EventUtils {
 		return legacyEcid;
 	}
 
+	/**
+	 * Extracts the names of the extensions registered with the EventHub from the Hub shared state.
+	 * Only extensions with registration details are included.
+	 *
+	 * @param hubSharedState the EventHub shared state data
+	 * @return an unmodifiable {@link Set} of registered extension names, empty if not found or unable to parse the payload
+	 */
+	static Set<String> getRegisteredExtensions(final Map<String, Object> hubSharedState) {
+		if (hubSharedState == null) {
+			return Collections.emptySet();
+		}
+
+		final Object extensions = hubSharedState.get(IdentityConstants.SharedState.Hub.EXTENSIONS);
+
+		if (!(extensions instanceof Map)) {
+			if (extensions != null) {
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					"EventUtils - Unable to fetch the registered extensions from Hub State due to invalid format, expected Map"
+				);
+			}
+
+			return Collections.emptySet();
+		}
+
+		final Set<String> registeredExtensions = new HashSet<>();
+
+		for (final Map.Entry<?, ?> extension : ((Map<?, ?>) extensions).entrySet()) {
+			final Object details = extension.getValue();
+
+			if (extension.getKey() instanceof String && details instanceof Map && !((Map<?, ?>) details).isEmpty()) {
+				registeredExtensions.add((String) extension.getKey());
+			}
+		}
+
+		return Collections.unmodifiableSet(registeredExtensions);
+	}
+
 	/**
 	 * Extracts the Experience Cloud Org Id from the Configuration shared state
 	 *
@@ -243,4 +352,175 @@ final class EventUtils {
 
 		return orgId;
 	}
+
+	/**
+	 * Extracts the time to live of the customer identifiers per namespace from the Configuration shared state,
+	 * using the key {@link IdentityConstants.SharedState.Configuration#NAMESPACE_TTL}.
+	 * Entries which are not a positive number of seconds are ignored.
+	 *
+	 * @param configurationSharedState the configuration shared state data
+	 * @return the time to live in seconds keyed by namespace; empty if not configured or unable to parse the payload
+	 */
+	static Map<String, Long> getNamespaceTimeToLive(final Map<String, Object> configurationSharedState) {
+		final Map<String, Long> timeToLive = new HashMap<>();
+
+		if (configurationSharedState == null) {
+			return timeToLive;
+		}
+
+		try {
+			final Map<String, Object> ttlConfig = (Map<String, Object>) configurationSharedState.get(
+				IdentityConstants.SharedState.Configuration.NAMESPACE_TTL
+			);
+
+			if (ttlConfig == null) {
+				return timeToLive;
+			}
+
+			for (final Map.Entry<String, Object> entry : ttlConfig.entrySet()) {
+				if (!(entry.getValue() instanceof Number) || ((Number) entry.getValue()).longValue() <= 0) {
+					MobileCore.log(
+						LoggingMode.DEBUG,
+						LOG_TAG,
+						"EventUtils - Ignoring invalid time to live for namespace '" + entry.getKey() + "', expected positive Number"
+					);
+					continue;
+				}
+
+				timeToLive.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+			}
+		} catch (ClassCastException e) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"EventUtils - Failed to extract namespace time to live from Configuration shared state, expected Map: " +
+				e.getLocalizedMessage()
+			);
+		}
+
+		return timeToLive;
+	}
+
+	/**
+	 * Extracts the hashing policy of the customer identifiers from the Configuration shared state,
+	 * using the key {@link IdentityConstants.SharedState.Configuration#HASHED_NAMESPACES}, which maps each namespace
+	 * to hash to the name of its {@link IdentityHasher.Normalization}.
+	 * Entries which are not a valid normalization name are ignored.
+	 *
+	 * @param configurationSharedState the configuration shared state data
+	 * @return the {@link IdentityHasher.Normalization} keyed by namespace; empty if not configured or unable to parse the payload
+	 */
+	static Map<String, IdentityHasher.Normalization> getHashedNamespaces(final Map<String, Object> configurationSharedState) {
+		final Map<String, IdentityHasher.Normalization> hashedNamespaces = new HashMap<>();
+
+		if (configurationSharedState == null) {
+			return hashedNamespaces;
+		}
+
+		try {
+			final Map<String, Object> hashingConfig = (Map<String, Object>) configurationSharedState.get(
+				IdentityConstants.SharedState.Configuration.HASHED_NAMESPACES
+			);
+
+			if (hashingConfig == null) {
+				return hashedNamespaces;
+			}
+
+			for (final Map.Entry<String, Object> entry : hashingConfig.entrySet()) {
+				final IdentityHasher.Normalization normalization = entry.getValue() instanceof String
+					? IdentityHasher.Normalization.fromName((String) entry.getValue())
+					: null;
+
+				if (normalization == null) {
+					MobileCore.log(
+						LoggingMode.DEBUG,
+						LOG_TAG,
+						"EventUtils - Ignoring invalid hashing normalization for namespace '" +
+						entry.getKey() +
+						"', expected one of 'none', 'trim', 'lowercase' or 'digits'"
+					);
+					continue;
+				}
+
+				hashedNamespaces.put(entry.getKey(), normalization);
+			}
+		} catch (ClassCastException e) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"EventUtils - Failed to extract hashed namespaces from Configuration shared state, expected Map: " +
+				e.getLocalizedMessage()
+			);
+		}
+
+		return hashedNamespaces;
+	}
+
+	/**
+	 * Checks if customer identifiers which already are a SHA-256 hex digest are kept as is in the hashed namespaces,
+	 * using the key {@link IdentityConstants.SharedState.Configuration#ACCEPT_HASHED_IDENTIFIERS}.
+	 *
+	 * @param configurationSharedState the configuration shared state data
+	 * @return true if hashed identifiers are accepted; false if not configured or not a boolean
+	 */
+	static boolean isAcceptingHashedIdentifiers(final Map<String, Object> configurationSharedState) {
+		return (
+			configurationSharedState != null &&
+			Boolean.TRUE.equals(
+				configurationSharedState.get(IdentityConstants.SharedState.Configuration.ACCEPT_HASHED_IDENTIFIERS)
+			)
+		);
+	}
+
+	/**
+	 * Extracts the capacity limits of the customer identifiers from the Configuration shared state, using the keys
+	 * {@link IdentityConstants.SharedState.Configuration#MAX_ITEMS_PER_NAMESPACE} and
+	 * {@link IdentityConstants.SharedState.Configuration#MAX_TOTAL_ITEMS}.
+	 * Limits which are missing or not a positive number are treated as unlimited.
+	 *
+	 * @param configurationSharedState the configuration shared state data
+	 * @return the {@link IdentityMapCapacity}; {@link IdentityMapCapacity#NO_LIMITS} if not configured
+	 */
+	static IdentityMapCapacity getIdentityMapCapacity(final Map<String, Object> configurationSharedState) {
+		if (configurationSharedState == null) {
+			return IdentityMapCapacity.NO_LIMITS;
+		}
+
+		final int maxItemsPerNamespace = getCapacityLimit(
+			configurationSharedState,
+			IdentityConstants.SharedState.Configuration.MAX_ITEMS_PER_NAMESPACE
+		);
+		final int maxTotalItems = getCapacityLimit(
+			configurationSharedState,
+			IdentityConstants.SharedState.Configuration.MAX_TOTAL_ITEMS
+		);
+
+		return new IdentityMapCapacity(maxItemsPerNamespace, maxTotalItems);
+	}
+
+	/**
+	 * Reads a capacity limit from the Configuration shared state.
+	 *
+	 * @param configurationSharedState the configuration shared state data; should not be null
+	 * @param key                      the configuration key of the limit
+	 * @return the limit, or {@link IdentityMapCapacity#UNLIMITED} if not found or not a positive {@code Number}
+	 */
+	private static int getCapacityLimit(final Map<String, Object> configurationSharedState, final String key) {
+		final Object value = configurationSharedState.get(key);
+
+		if (value == null) {
+			return IdentityMapCapacity.UNLIMITED;
+		}
+
+		if (!(value instanceof Number) || ((Number) value).intValue() <= 0) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"EventUtils - Ignoring invalid value for configuration '" + key + "', expected positive Number"
+			);
+			return IdentityMapCapacity.UNLIMITED;
+		}
+
+		return ((Number) value).intValue();
+	}
 }
@@ -24,12 +24,22 @@ import com.adobe.marketing.mobile.MobileCore;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Defines the public APIs for the AEP Edge Identity extension.
  */
 public class Identity {
 
+	static final RequestCoalescer requestCoalescer = new RequestCoalescer();
+	static final IdentityChangeRegistry changeRegistry = new IdentityChangeRegistry();
+	static final TimeoutWheel timeoutWheel = new TimeoutWheel(
+		TimeoutWheel.SYSTEM_CLOCK,
+		IdentityConstants.Default.TIMEOUT_WHEEL_TICK_MILLIS,
+		IdentityConstants.Default.TIMEOUT_WHEEL_SIZE,
+		true
+	);
+
 	private Identity() {}
 
 	/**
@@ -69,6 +79,19 @@ public class Identity {
 	 *                 eventuality of any error that occurred while getting the Experience Cloud ID
 	 */
 	public static void getExperienceCloudId(final AdobeCallback<String> callback) {
+		getExperienceCloudId(callback, 0);
+	}
+
+	/**
+	 * Returns the Experience Cloud ID, failing with {@link AdobeError#CALLBACK_TIMEOUT} if it is not returned within the given timeout.
+	 * An empty string is returned if the Experience Cloud ID was previously cleared.
+	 *
+	 * @param callback      {@link AdobeCallback} of {@code String} invoked with the Experience Cloud ID
+	 *                      If an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} is returned on timeout or
+	 *                      in the eventuality of any error that occurred while getting the Experience Cloud ID
+	 * @param timeoutMillis the maximum time to wait for the value in milliseconds; no timeout is applied if not greater than 0
+	 */
+	public static void getExperienceCloudId(final AdobeCallback<String> callback, final long timeoutMillis) {
 		if (callback == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
@@ -85,10 +108,13 @@ public class Identity {
 		)
 			.build();
 
+		final ApiCallback<String> apiCallback = new ApiCallback<>(ApiLatencyMetrics.GET_EXPERIENCE_CLOUD_ID, callback);
+		apiCallback.setTimeout(timeoutWheel, timeoutMillis);
+
 		final ExtensionErrorCallback<ExtensionError> errorCallback = new ExtensionErrorCallback<ExtensionError>() {
 			@Override
 			public void error(final ExtensionError extensionError) {
-				returnError(callback, extensionError);
+				apiCallback.fail(extensionError);
 				MobileCore.log(
 					LoggingMode.DEBUG,
 					LOG_TAG,
@@ -101,17 +127,20 @@ public class Identity {
 			}
 		};
 
-		MobileCore.dispatchEventWithResponseCallback(
+		dispatchRequestEvent(
+			ApiLatencyMetrics.GET_EXPERIENCE_CLOUD_ID,
 			event,
 			new AdobeCallback<Event>() {
 				@Override
 				public void call(Event responseEvent) {
+					apiCallback.responseReceived();
+
 					if (responseEvent == null || responseEvent.getEventData() == null) {
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 
-					final IdentityMap identityMap = IdentityMap.fromXDMMap(responseEvent.getEventData());
+					final IdentityMap identityMap = IdentityMap.fromEventData(responseEvent.getEventData());
 
 					if (identityMap == null) {
 						MobileCore.log(
@@ -119,7 +148,7 @@ public class Identity {
 							LOG_TAG,
 							"Identity - Failed to read IdentityMap from response event, invoking error callback with AdobeError.UNEXPECTED_ERROR"
 						);
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 
@@ -128,9 +157,9 @@ public class Identity {
 					);
 
 					if (ecidItems == null || ecidItems.isEmpty() || ecidItems.get(0).getId() == null) {
-						callback.call("");
+						apiCallback.succeed("");
 					} else {
-						callback.call(ecidItems.get(0).getId());
+						apiCallback.succeed(ecidItems.get(0).getId());
 					}
 				}
 			},
@@ -138,6 +167,29 @@ public class Identity {
 		);
 	}
 
+	/**
+	 * Returns an {@link IdentityFuture} completed with the Experience Cloud ID.
+	 * An empty string is returned if the Experience Cloud ID was previously cleared.
+	 *
+	 * @return the {@link IdentityFuture} of the Experience Cloud ID
+	 */
+	public static IdentityFuture<String> getExperienceCloudIdAsync() {
+		return getExperienceCloudIdAsync(0);
+	}
+
+	/**
+	 * Returns an {@link IdentityFuture} completed with the Experience Cloud ID, or failed with
+	 * {@link AdobeError#CALLBACK_TIMEOUT} if it is not returned within the given timeout.
+	 *
+	 * @param timeoutMillis the maximum time to wait for the value in milliseconds; no timeout is applied if not greater than 0
+	 * @return the {@link IdentityFuture} of the Experience Cloud ID
+	 */
+	public static IdentityFuture<String> getExperienceCloudIdAsync(final long timeoutMillis) {
+		final IdentityFuture<String> future = new IdentityFuture<>();
+		getExperienceCloudId(future.asCallback(), timeoutMillis);
+		return future;
+	}
+
 	/**
 	 * Returns the identifiers in URL query parameter format for consumption in hybrid mobile applications.
 	 * There is no leading &amp; or ? punctuation as the caller is responsible for placing the variables in their resulting URL in the correct locations.
@@ -156,6 +208,19 @@ public class Identity {
 	 *	               eventuality of any error that occurred while getting the identifiers query string
 	 */
 	public static void getUrlVariables(final AdobeCallback<String> callback) {
+		getUrlVariables(callback, 0);
+	}
+
+	/**
+	 * Returns the identifiers in URL query parameter format, failing with {@link AdobeError#CALLBACK_TIMEOUT} if they are
+	 * not returned within the given timeout. See {@link #getUrlVariables(AdobeCallback)} for the format of the returned value.
+	 *
+	 * @param callback      {@link AdobeCallback} of {@code String} invoked with the identifiers in query parameter format
+	 *                      If an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} is returned on timeout or
+	 *                      in the eventuality of any error that occurred while getting the identifiers query string
+	 * @param timeoutMillis the maximum time to wait for the value in milliseconds; no timeout is applied if not greater than 0
+	 */
+	public static void getUrlVariables(final AdobeCallback<String> callback, final long timeoutMillis) {
 		if (callback == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
@@ -179,10 +244,13 @@ public class Identity {
 			)
 			.build();
 
+		final ApiCallback<String> apiCallback = new ApiCallback<>(ApiLatencyMetrics.GET_URL_VARIABLES, callback);
+		apiCallback.setTimeout(timeoutWheel, timeoutMillis);
+
 		final ExtensionErrorCallback<ExtensionError> errorCallback = new ExtensionErrorCallback<ExtensionError>() {
 			@Override
 			public void error(final ExtensionError extensionError) {
-				returnError(callback, extensionError);
+				apiCallback.fail(extensionError);
 				MobileCore.log(
 					LoggingMode.DEBUG,
 					LOG_TAG,
@@ -195,13 +263,16 @@ public class Identity {
 			}
 		};
 
-		MobileCore.dispatchEventWithResponseCallback(
+		dispatchRequestEvent(
+			ApiLatencyMetrics.GET_URL_VARIABLES,
 			event,
 			new AdobeCallback<Event>() {
 				@Override
 				public void call(Event responseEvent) {
+					apiCallback.responseReceived();
+
 					if (responseEvent == null || responseEvent.getEventData() == null) {
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 
@@ -209,12 +280,12 @@ public class Identity {
 					try {
 						String urlVariableString = (String) data.get(IdentityConstants.EventDataKeys.URL_VARIABLES);
 						if (urlVariableString == null) {
-							returnError(callback, AdobeError.UNEXPECTED_ERROR);
+							apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 							return;
 						}
-						callback.call(urlVariableString);
+						apiCallback.succeed(urlVariableString);
 					} catch (ClassCastException e) {
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 				}
@@ -256,12 +327,14 @@ public class Identity {
 			}
 		};
 
+		requestCoalescer.sealPendingRequests();
+
 		final Event updateIdentitiesEvent = new Event.Builder(
 			IdentityConstants.EventNames.UPDATE_IDENTITIES,
 			IdentityConstants.EventType.EDGE_IDENTITY,
 			IdentityConstants.EventSource.UPDATE_IDENTITY
 		)
-			.setEventData(identityMap.asXDMMap(false))
+			.setEventData(identityMap.asEventData())
 			.build();
 		MobileCore.dispatchEvent(updateIdentitiesEvent, errorCallback);
 	}
@@ -291,29 +364,62 @@ public class Identity {
 		IdentityMap identityMap = new IdentityMap();
 		identityMap.addItem(item, namespace);
 
-		final ExtensionErrorCallback<ExtensionError> errorCallback = new ExtensionErrorCallback<ExtensionError>() {
-			@Override
-			public void error(final ExtensionError extensionError) {
-				MobileCore.log(
-					LoggingMode.DEBUG,
-					LOG_TAG,
-					String.format(
-						"Identity - removeIdentity API. Failed to dispatch %s event: Error : %s.",
-						IdentityConstants.EventNames.REMOVE_IDENTITIES,
-						extensionError.getErrorName()
-					)
-				);
-			}
-		};
+		dispatchRemoveIdentitiesEvent(
+			IdentityConstants.EventNames.REMOVE_IDENTITIES,
+			identityMap.asEventData(),
+			"removeIdentity"
+		);
+	}
 
-		final Event removeIdentitiesEvent = new Event.Builder(
+	/**
+	 * Removes all the identities contained in the given {@link IdentityMap} from the stored client-side {@code IdentityMap}.
+	 * All the identities are removed in a single operation. The Identity extension will stop sending these identifiers.
+	 * This does not clear the identifiers from the User Profile Graph.
+	 *
+	 * @param identityMap the identities to remove.
+	 */
+	public static void removeIdentities(final IdentityMap identityMap) {
+		if (identityMap == null || identityMap.isEmpty()) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"Identity - Unable to removeIdentities, IdentityMap is null or empty"
+			);
+			return;
+		}
+
+		dispatchRemoveIdentitiesEvent(
 			IdentityConstants.EventNames.REMOVE_IDENTITIES,
-			IdentityConstants.EventType.EDGE_IDENTITY,
-			IdentityConstants.EventSource.REMOVE_IDENTITY
-		)
-			.setEventData(identityMap.asXDMMap(false))
-			.build();
-		MobileCore.dispatchEvent(removeIdentitiesEvent, errorCallback);
+			identityMap.asEventData(),
+			"removeIdentities"
+		);
+	}
+
+	/**
+	 * Removes all the identities stored under the given namespace (case insensitive) from the stored client-side {@link IdentityMap}.
+	 * The Identity extension will stop sending these identifiers. This does not clear the identifiers from the User Profile Graph.
+	 * Identities in the ECID, GAID and IDFA namespaces cannot be removed using this API.
+	 *
+	 * @param namespace the namespace of the identities to remove.
+	 */
+	public static void removeAllIdentitiesForNamespace(final String namespace) {
+		if (Utils.isNullOrEmpty(namespace)) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"Identity - Unable to removeAllIdentitiesForNamespace, namespace is null or empty"
+			);
+			return;
+		}
+
+		final Map<String, Object> eventData = new HashMap<>();
+		eventData.put(IdentityConstants.EventDataKeys.NAMESPACE, namespace);
+
+		dispatchRemoveIdentitiesEvent(
+			IdentityConstants.EventNames.REMOVE_IDENTITIES_FOR_NAMESPACE,
+			eventData,
+			"removeAllIdentitiesForNamespace"
+		);
 	}
 
 	/**
@@ -324,6 +430,50 @@ public class Identity {
 	 *                 eventuality of any error that occurred while getting the stored identities.
 	 */
 	public static void getIdentities(final AdobeCallback<IdentityMap> callback) {
+		getIdentities(callback, 0);
+	}
+
+	/**
+	 * Returns all identifiers, including customer identifiers which were previously added, failing with
+	 * {@link AdobeError#CALLBACK_TIMEOUT} if they are not returned within the given timeout.
+	 *
+	 * @param callback      {@link AdobeCallback} invoked with the current {@link IdentityMap}
+	 *                      If an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} is returned on timeout or
+	 *                      in the eventuality of any error that occurred while getting the stored identities
+	 * @param timeoutMillis the maximum time to wait for the value in milliseconds; no timeout is applied if not greater than 0
+	 */
+	public static void getIdentities(final AdobeCallback<IdentityMap> callback, final long timeoutMillis) {
+		getIdentities(null, callback, timeoutMillis);
+	}
+
+	/**
+	 * Returns the identifiers matching the query. The query is applied by the extension, so only the matching
+	 * identifiers are returned.
+	 *
+	 * @param query    the {@link IdentityQuery} selecting the identifiers; all identifiers are returned if null
+	 * @param callback {@link AdobeCallback} invoked with an {@link IdentityMap} of the matching identifiers
+	 *                 If an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} can be returned in the
+	 *                 eventuality of any error that occurred while getting the stored identities.
+	 */
+	public static void getIdentities(final IdentityQuery query, final AdobeCallback<IdentityMap> callback) {
+		getIdentities(query, callback, 0);
+	}
+
+	/**
+	 * Returns the identifiers matching the query, failing with {@link AdobeError#CALLBACK_TIMEOUT} if they are not
+	 * returned within the given timeout. The query is applied by the extension, so only the matching identifiers are returned.
+	 *
+	 * @param query         the {@link IdentityQuery} selecting the identifiers; all identifiers are returned if null
+	 * @param callback      {@link AdobeCallback} invoked with an {@link IdentityMap} of the matching identifiers
+	 *                      If an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} is returned on timeout or
+	 *                      in the eventuality of any error that occurred while getting the stored identities
+	 * @param timeoutMillis the maximum time to wait for the value in milliseconds; no timeout is applied if not greater than 0
+	 */
+	public static void getIdentities(
+		final IdentityQuery query,
+		final AdobeCallback<IdentityMap> callback,
+		final long timeoutMillis
+	) {
 		if (callback == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
@@ -333,17 +483,25 @@ public class Identity {
 			return;
 		}
 
+		// the encoded identity map is only added to the response when requested, as it is read by this API only
+		final Map<String, Object> eventData = query != null ? query.toEventData() : new HashMap<String, Object>();
+		eventData.put(IdentityConstants.EventDataKeys.RETURN_ENCODED_IDENTITY_MAP, true);
+
 		final Event event = new Event.Builder(
 			IdentityConstants.EventNames.REQUEST_IDENTITIES,
 			IdentityConstants.EventType.EDGE_IDENTITY,
 			IdentityConstants.EventSource.REQUEST_IDENTITY
 		)
+			.setEventData(eventData)
 			.build();
 
+		final ApiCallback<IdentityMap> apiCallback = new ApiCallback<>(ApiLatencyMetrics.GET_IDENTITIES, callback);
+		apiCallback.setTimeout(timeoutWheel, timeoutMillis);
+
 		final ExtensionErrorCallback<ExtensionError> errorCallback = new ExtensionErrorCallback<ExtensionError>() {
 			@Override
 			public void error(final ExtensionError extensionError) {
-				returnError(callback, extensionError);
+				apiCallback.fail(extensionError);
 				MobileCore.log(
 					LoggingMode.DEBUG,
 					LOG_TAG,
@@ -356,17 +514,20 @@ public class Identity {
 			}
 		};
 
-		MobileCore.dispatchEventWithResponseCallback(
+		dispatchRequestEvent(
+			query != null ? ApiLatencyMetrics.GET_IDENTITIES + "?" + query.getRequestKey() : ApiLatencyMetrics.GET_IDENTITIES,
 			event,
 			new AdobeCallback<Event>() {
 				@Override
 				public void call(Event responseEvent) {
+					apiCallback.responseReceived();
+
 					if (responseEvent == null || responseEvent.getEventData() == null) {
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 
-					final IdentityMap identityMap = IdentityMap.fromXDMMap(responseEvent.getEventData());
+					final IdentityMap identityMap = IdentityMap.fromEventData(responseEvent.getEventData());
 
 					if (identityMap == null) {
 						MobileCore.log(
@@ -374,11 +535,11 @@ public class Identity {
 							LOG_TAG,
 							"Identity - Failed to read IdentityMap from response event, invoking error callback with AdobeError.UNEXPECTED_ERROR"
 						);
-						returnError(callback, AdobeError.UNEXPECTED_ERROR);
+						apiCallback.fail(AdobeError.UNEXPECTED_ERROR);
 						return;
 					}
 
-					callback.call(identityMap);
+					apiCallback.succeed(identityMap);
 				}
 			},
 			errorCallback
@@ -386,22 +547,219 @@ public class Identity {
 	}
 
 	/**
-	 * When an {@link AdobeCallbackWithError} is provided, the fail method will be called with provided {@link AdobeError}.
+	 * Returns an {@link IdentityFuture} completed with all identifiers, including customer identifiers which were previously added.
 	 *
-	 * @param callback should not be null, should be instance of {@code AdobeCallbackWithError}
-	 * @param error    the {@code AdobeError} returned back in the callback
+	 * @return the {@link IdentityFuture} of the current {@link IdentityMap}
 	 */
-	private static <T> void returnError(final AdobeCallback<T> callback, final AdobeError error) {
-		if (callback == null) {
+	public static IdentityFuture<IdentityMap> getIdentitiesAsync() {
+		return getIdentitiesAsync(0);
+	}
+
+	/**
+	 * Returns an {@link IdentityFuture} completed with all identifiers, or failed with
+	 * {@link AdobeError#CALLBACK_TIMEOUT} if they are not returned within the given timeout.
+	 *
+	 * @param timeoutMillis the maximum time to wait for the identities in milliseconds; no timeout is applied if not greater than 0
+	 * @return the {@link IdentityFuture} of the current {@link IdentityMap}
+	 */
+	public static IdentityFuture<IdentityMap> getIdentitiesAsync(final long timeoutMillis) {
+		return getIdentitiesAsync(null, timeoutMillis);
+	}
+
+	/**
+	 * Returns an {@link IdentityFuture} completed with the identifiers matching the query.
+	 *
+	 * @param query the {@link IdentityQuery} selecting the identifiers; all identifiers are returned if null
+	 * @return the {@link IdentityFuture} of the {@link IdentityMap} of the matching identifiers
+	 */
+	public static IdentityFuture<IdentityMap> getIdentitiesAsync(final IdentityQuery query) {
+		return getIdentitiesAsync(query, 0);
+	}
+
+	/**
+	 * Returns an {@link IdentityFuture} completed with the identifiers matching the query, or failed with
+	 * {@link AdobeError#CALLBACK_TIMEOUT} if they are not returned within the given timeout.
+	 *
+	 * @param query         the {@link IdentityQuery} selecting the identifiers; all identifiers are returned if null
+	 * @param timeoutMillis the maximum time to wait for the identities in milliseconds; no timeout is applied if not greater than 0
+	 * @return the {@link IdentityFuture} of the {@link IdentityMap} of the matching identifiers
+	 */
+	public static IdentityFuture<IdentityMap> getIdentitiesAsync(final IdentityQuery query, final long timeoutMillis) {
+		final IdentityFuture<IdentityMap> future = new IdentityFuture<>();
+		getIdentities(query, future.asCallback(), timeoutMillis);
+		return future;
+	}
+
+	/**
+	 * Returns a snapshot of the latency histogram of the given retrieval API and outcome. The latency of a call is the
+	 * time from the dispatch of its request event to the invocation of its callback, including the time the request
+	 * waits for the extension to boot.
+	 *
+	 * @param apiName the name of the API, one of {@code getExperienceCloudId}, {@code getIdentities} or {@code getUrlVariables}
+	 * @param outcome the {@link ApiOutcome} of the calls
+	 * @return the {@link LatencyHistogram} of the calls, or null if {@code apiName} is not a retrieval API
+	 */
+	public static LatencyHistogram getApiLatencyHistogram(final String apiName, final ApiOutcome outcome) {
+		return ApiLatencyMetrics.getHistogram(apiName, outcome);
+	}
+
+	/**
+	 * Returns a snapshot of the response handling latency histogram of the given retrieval API. The response handling
+	 * latency of a call is the time from the receipt of its response event to the invocation of its callback,
+	 * which includes reading the response data.
+	 *
+	 * @param apiName the name of the API, one of {@code getExperienceCloudId}, {@code getIdentities} or {@code getUrlVariables}
+	 * @return the {@link LatencyHistogram} of the calls, or null if {@code apiName} is not a retrieval API
+	 */
+	public static LatencyHistogram getResponseHandlingLatencyHistogram(final String apiName) {
+		return ApiLatencyMetrics.getResponseHandlingHistogram(apiName);
+	}
+
+	/**
+	 * Clears the latencies recorded for the retrieval APIs.
+	 */
+	public static void resetApiLatencyHistograms() {
+		ApiLatencyMetrics.reset();
+	}
+
+	/**
+	 * Returns the number of {@code getExperienceCloudId}, {@code getIdentities} and {@code getUrlVariables} calls
+	 * which were answered by an identical request already in flight instead of dispatching their own request.
+	 *
+	 * @return the number of coalesced calls
+	 */
+	public static long getCoalescedRequestCount() {
+		return requestCoalescer.getCoalescedCount();
+	}
+
+	/**
+	 * Registers a listener notified after each change to the identities, such as identities updated or removed,
+	 * expired identities, advertising identifier changes, legacy ECID syncs and identity resets.
+	 * Each notification carries a read-only snapshot of the {@link IdentityMap} after the change, shared by all the
+	 * listeners, and the {@link IdentityChangeType}. Updates which leave the identities unchanged are not notified.
+	 * Registering a listener again replaces the executor it is notified on.
+	 *
+	 * @param listener the {@link IdentityChangeListener} to register
+	 * @param executor the {@link Executor} the listener is notified on
+	 */
+	public static void registerIdentityChangeListener(final IdentityChangeListener listener, final Executor executor) {
+		if (listener == null || executor == null) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"Identity - Unable to registerIdentityChangeListener, listener or executor is null"
+			);
 			return;
 		}
 
-		final AdobeCallbackWithError<T> adobeCallbackWithError = callback instanceof AdobeCallbackWithError
-			? (AdobeCallbackWithError<T>) callback
-			: null;
+		changeRegistry.register(listener, executor);
+	}
 
-		if (adobeCallbackWithError != null) {
-			adobeCallbackWithError.fail(error);
+	/**
+	 * Unregisters a listener registered with {@link #registerIdentityChangeListener(IdentityChangeListener, Executor)}.
+	 * Notifications already handed to the listener's executor may still be delivered.
+	 *
+	 * @param listener the {@link IdentityChangeListener} to unregister
+	 */
+	public static void unregisterIdentityChangeListener(final IdentityChangeListener listener) {
+		if (listener == null) {
+			return;
 		}
+
+		changeRegistry.unregister(listener);
+	}
+
+	/**
+	 * Dispatches the request event, or joins the identical request in flight if there is one.
+	 * The response or error of the dispatched event is delivered to the callbacks of all the joined requests,
+	 * unless the identities changed while it was in flight, in which case the joined requests are made again.
+	 *
+	 * @param requestKey       identifies identical requests
+	 * @param event            the request {@link Event}
+	 * @param responseCallback the callback for the response event
+	 * @param errorCallback    the callback for dispatch errors
+	 */
+	private static void dispatchRequestEvent(
+		final String requestKey,
+		final Event event,
+		final AdobeCallback<Event> responseCallback,
+		final ExtensionErrorCallback<ExtensionError> errorCallback
+	) {
+		final RequestCoalescer.PendingRequest pendingRequest = requestCoalescer.join(
+			requestKey,
+			responseCallback,
+			errorCallback,
+			new Runnable() {
+				@Override
+				public void run() {
+					dispatchRequestEvent(requestKey, event, responseCallback, errorCallback);
+				}
+			}
+		);
+
+		if (pendingRequest == null) {
+			MobileCore.log(
+				LoggingMode.VERBOSE,
+				LOG_TAG,
+				"Identity - Joined the " + requestKey + " request in flight, not dispatching a new request event."
+			);
+			return;
+		}
+
+		MobileCore.dispatchEventWithResponseCallback(
+			event,
+			new AdobeCallback<Event>() {
+				@Override
+				public void call(final Event responseEvent) {
+					requestCoalescer.completeWithResponse(pendingRequest, responseEvent);
+				}
+			},
+			new ExtensionErrorCallback<ExtensionError>() {
+				@Override
+				public void error(final ExtensionError extensionError) {
+					requestCoalescer.completeWithError(pendingRequest, extensionError);
+				}
+			}
+		);
+	}
+
+	/**
+	 * Dispatches an Edge Identity remove identity event with the given event data.
+	 *
+	 * @param eventName the name of the event to dispatch
+	 * @param eventData the event data describing the identities to remove
+	 * @param apiName   the public API name, used for logging
+	 */
+	private static void dispatchRemoveIdentitiesEvent(
+		final String eventName,
+		final Map<String, Object> eventData,
+		final String apiName
+	) {
+		final ExtensionErrorCallback<ExtensionError> errorCallback = new ExtensionErrorCallback<ExtensionError>() {
+			@Override
+			public void error(final ExtensionError extensionError) {
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					String.format(
+						"Identity - %s API. Failed to dispatch %s event: Error : %s.",
+						apiName,
+						eventName,
+						extensionError.getErrorName()
+					)
+				);
+			}
+		};
+
+		requestCoalescer.sealPendingRequests();
+
+		final Event removeIdentitiesEvent = new Event.Builder(
+			eventName,
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REMOVE_IDENTITY
+		)
+			.setEventData(eventData)
+			.build();
+		MobileCore.dispatchEvent(removeIdentitiesEvent, errorCallback);
 	}
 }
@@ -0,0 +1,26 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+/**
+ * Listener notified of the changes made to the identities, registered with
+ * {@link Identity#registerIdentityChangeListener(IdentityChangeListener, java.util.concurrent.Executor)}.
+ */
+public interface IdentityChangeListener {
+	/**
+	 * Called after a change to the identities was committed and shared.
+	 *
+	 * @param identityMap a read-only snapshot of the {@link IdentityMap} after the change, shared by all the listeners
+	 * @param changeType  the {@link IdentityChangeType} of the change
+	 */
+	void onIdentitiesChanged(final IdentityMap identityMap, final IdentityChangeType changeType);
+}
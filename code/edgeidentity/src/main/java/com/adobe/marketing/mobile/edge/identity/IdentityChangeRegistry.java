@@ -0,0 +1,217 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG;
+
+import com.adobe.marketing.mobile.LoggingMode;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Holds the registered {@link IdentityChangeListener}s and delivers the identity changes to them.
+ * <p>
+ * Notifications are handed off from the extension thread to a single notification thread, which builds one read-only
+ * {@link IdentityMap} snapshot per change, shared by all the listeners, and passes it to each listener on the
+ * {@link Executor} it was registered with. Neither building the snapshot nor a listener running on a direct executor
+ * delays the extension's event processing. Changes which leave the identities unchanged are not notified.
+ */
+final class IdentityChangeRegistry {
+
+	private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+	private final Object executorMutex = new Object();
+	private Executor notificationExecutor; // guarded by executorMutex, created on the first notification
+	private Object notifiedIdentityMap; // identityMap of the last notified change, only accessed on the extension thread
+
+	/**
+	 * Registers the listener to be notified on the executor. A listener registered again is notified on the new executor.
+	 *
+	 * @param listener the {@link IdentityChangeListener} to register
+	 * @param executor the {@link Executor} the listener is notified on
+	 */
+	void register(final IdentityChangeListener listener, final Executor executor) {
+		synchronized (registrations) {
+			unregister(listener);
+			registrations.add(new Registration(listener, executor));
+		}
+	}
+
+	/**
+	 * @param listener the {@link IdentityChangeListener} to unregister
+	 * @return true if the listener was registered
+	 */
+	boolean unregister(final IdentityChangeListener listener) {
+		synchronized (registrations) {
+			for (final Registration registration : registrations) {
+				if (registration.listener == listener) {
+					registrations.remove(registration);
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of registered listeners
+	 */
+	int getListenerCount() {
+		return registrations.size();
+	}
+
+	/**
+	 * Notifies all the registered listeners of the change, unless the identities are the same as for the previously
+	 * notified change. Must be called on the extension thread.
+	 *
+	 * @param xdmData    the XDM formatted identities after the change, as shared in the XDM shared state;
+	 *                   must not be modified afterwards
+	 * @param changeType the {@link IdentityChangeType} of the change
+	 */
+	void notifyListeners(final Map<String, Object> xdmData, final IdentityChangeType changeType) {
+		final Object identityMap = xdmData != null ? xdmData.get(IdentityConstants.XDMKeys.IDENTITY_MAP) : null;
+
+		if (notifiedIdentityMap != null && notifiedIdentityMap.equals(identityMap)) {
+			return; // the change left the identities unchanged
+		}
+
+		notifiedIdentityMap = identityMap;
+
+		if (registrations.isEmpty()) {
+			return;
+		}
+
+		final List<Registration> recipients = new ArrayList<>(registrations);
+
+		getNotificationExecutor()
+			.execute(
+				new Runnable() {
+					@Override
+					public void run() {
+						deliver(xdmData, changeType, recipients);
+					}
+				}
+			);
+	}
+
+	/**
+	 * Records the identities shared at bootup as the last notified change, without notifying the listeners, so a
+	 * following change which leaves them unchanged is not notified. Must be called on the extension thread.
+	 *
+	 * @param xdmData the XDM formatted identities shared in the XDM shared state at bootup
+	 */
+	void setInitialIdentities(final Map<String, Object> xdmData) {
+		notifiedIdentityMap = xdmData != null ? xdmData.get(IdentityConstants.XDMKeys.IDENTITY_MAP) : null;
+	}
+
+	/**
+	 * Replaces the executor handing off the notifications from the extension thread, such as with a direct executor
+	 * in tests.
+	 *
+	 * @param executor the {@link Executor} building and delivering the notifications
+	 */
+	void setNotificationExecutor(final Executor executor) {
+		synchronized (executorMutex) {
+			notificationExecutor = executor;
+		}
+	}
+
+	/**
+	 * Unregisters all the listeners and forgets the identities of the last notified change.
+	 */
+	void clear() {
+		registrations.clear();
+		notifiedIdentityMap = null;
+	}
+
+	private Executor getNotificationExecutor() {
+		synchronized (executorMutex) {
+			if (notificationExecutor == null) {
+				notificationExecutor =
+					Executors.newSingleThreadExecutor(
+						new ThreadFactory() {
+							@Override
+							public Thread newThread(final Runnable runnable) {
+								final Thread thread = new Thread(runnable, "EdgeIdentityChangeNotifier");
+								thread.setDaemon(true);
+								return thread;
+							}
+						}
+					);
+			}
+
+			return notificationExecutor;
+		}
+	}
+
+	/**
+	 * Passes one read-only snapshot of the identities to each of the listeners, on their executors.
+	 *
+	 * @param xdmData    the XDM formatted identities after the change
+	 * @param changeType the {@link IdentityChangeType} of the change
+	 * @param recipients the {@link Registration}s of the listeners to notify
+	 */
+	private static void deliver(
+		final Map<String, Object> xdmData,
+		final IdentityChangeType changeType,
+		final List<Registration> recipients
+	) {
+		final IdentityMap snapshot = IdentityMap.fromXDMMap(xdmData);
+		final IdentityMap identityMap = snapshot != null ? snapshot : new IdentityMap();
+		identityMap.setReadOnly();
+
+		for (final Registration registration : recipients) {
+			try {
+				registration.executor.execute(
+					new Runnable() {
+						@Override
+						public void run() {
+							try {
+								registration.listener.onIdentitiesChanged(identityMap, changeType);
+							} catch (Exception e) {
+								MobileCore.log(
+									LoggingMode.WARNING,
+									LOG_TAG,
+									"IdentityChangeRegistry - Identity change listener failed: " + e.getLocalizedMessage()
+								);
+							}
+						}
+					}
+				);
+			} catch (RejectedExecutionException e) {
+				MobileCore.log(
+					LoggingMode.WARNING,
+					LOG_TAG,
+					"IdentityChangeRegistry - Unable to notify identity change listener, its executor rejected the notification."
+				);
+			}
+		}
+	}
+
+	private static final class Registration {
+
+		private final IdentityChangeListener listener;
+		private final Executor executor;
+
+		private Registration(final IdentityChangeListener listener, final Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+/**
+ * Represents the kind of change made to the identities, reported to the registered {@link IdentityChangeListener}s
+ */
+public enum IdentityChangeType {
+	/**
+	 * Customer identifiers were added or updated with {@link Identity#updateIdentities(IdentityMap)}.
+	 */
+	UPDATE("update"),
+
+	/**
+	 * Customer identifiers were removed with {@link Identity#removeIdentity(IdentityItem, String)}.
+	 */
+	REMOVE("remove"),
+
+	/**
+	 * Customer identifiers were removed because they exceeded their configured time to live.
+	 */
+	EXPIRY("expiry"),
+
+	/**
+	 * The advertising identifier was set, changed or removed.
+	 */
+	AD_ID("adId"),
+
+	/**
+	 * The legacy Experience Cloud ID was synced from the Identity direct extension.
+	 */
+	LEGACY_ECID("legacyEcid"),
+
+	/**
+	 * All the identities were reset and a new Experience Cloud ID was generated.
+	 */
+	RESET("reset");
+
+	private String name;
+
+	private IdentityChangeType(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -20,6 +20,13 @@ final class IdentityConstants {
 	final class Default {
 
 		static final String ZERO_ADVERTISING_ID = "00000000-0000-0000-0000-000000000000";
+		static final long EXPIRY_SWEEP_INTERVAL_SECONDS = 300;
+		static final int JSON_MAX_DEPTH = 64;
+		static final int JSON_MAX_ELEMENTS = 100000;
+		static final long COALESCED_REQUEST_MAX_AGE_MILLIS = 5000;
+		static final long TIMEOUT_WHEEL_TICK_MILLIS = 10;
+		static final int TIMEOUT_WHEEL_SIZE = 512;
+		static final int HASHED_IDENTITY_CACHE_SIZE = 256;
 
 		private Default() {}
 	}
@@ -60,6 +67,7 @@ final class IdentityConstants {
 		static final String IDENTITY_RESPONSE_URL_VARIABLES = "Edge Identity Response URL Variables";
 		static final String UPDATE_IDENTITIES = "Edge Identity Update Identities";
 		static final String REMOVE_IDENTITIES = "Edge Identity Remove Identities";
+		static final String REMOVE_IDENTITIES_FOR_NAMESPACE = "Edge Identity Remove Identities For Namespace";
 		static final String REQUEST_IDENTITIES = "Edge Identity Request Identities";
 		static final String RESET_IDENTITIES_COMPLETE = "Edge Identity Reset Identities Complete";
 
@@ -69,6 +77,13 @@ final class IdentityConstants {
 	final class EventDataKeys {
 
 		static final String ADVERTISING_IDENTIFIER = "advertisingidentifier";
+		static final String ENCODED_IDENTITY_MAP = "encodedidentitymap";
+		static final String NAMESPACE = "namespace";
+		static final String QUERY = "query";
+		static final String QUERY_AUTHENTICATED_STATES = "authenticatedstates";
+		static final String QUERY_NAMESPACES = "namespaces";
+		static final String QUERY_PRIMARY_ONLY = "primaryonly";
+		static final String RETURN_ENCODED_IDENTITY_MAP = "returnencodedidentitymap";
 		static final String STATE_OWNER = "stateowner";
 		static final String URL_VARIABLES = "urlvariables";
 
@@ -89,10 +104,23 @@ final class IdentityConstants {
 
 			static final String NAME = "com.adobe.module.configuration";
 			static final String EXPERIENCE_CLOUD_ORGID = "experienceCloud.org";
+			static final String NAMESPACE_TTL = "edgeIdentity.namespaceTTL";
+			static final String MAX_ITEMS_PER_NAMESPACE = "edgeIdentity.maxItemsPerNamespace";
+			static final String MAX_TOTAL_ITEMS = "edgeIdentity.maxTotalItems";
+			static final String HASHED_NAMESPACES = "edgeIdentity.hashedNamespaces";
+			static final String ACCEPT_HASHED_IDENTIFIERS = "edgeIdentity.acceptHashedIdentifiers";
 
 			private Configuration() {}
 		}
 
+		final class EdgeIdentity {
+
+			static final String NAME = EXTENSION_NAME;
+			static final String IDENTITY_MAP_JSON = "identitymapjson";
+
+			private EdgeIdentity() {}
+		}
+
 		final class IdentityDirect {
 
 			static final String NAME = "com.adobe.module.identity";
@@ -139,12 +167,24 @@ final class IdentityConstants {
 
 		static final String DATASTORE_NAME = EXTENSION_NAME;
 		static final String IDENTITY_PROPERTIES = "identity.properties";
+		static final String IDENTITY_LAST_UPDATED = "identity.lastupdated";
+		static final String IDENTITY_HASHED_NAMESPACES = "identity.hashednamespaces";
+		static final String LEGACY_ECID_MIGRATION_STATUS = "identity.legacyecid.migration";
 		static final String IDENTITY_DIRECT_DATASTORE_NAME = "visitorIDServiceDataStore";
 		static final String IDENTITY_DIRECT_ECID_KEY = "ADOBEMOBILE_PERSISTED_MID";
 
 		private DataStoreKey() {}
 	}
 
+	final class LegacyEcidMigrationStatus {
+
+		static final String MIGRATED = "migrated";
+		static final String NOT_PRESENT = "notPresent";
+		static final String PENDING = "pending"; // never persisted, returned when no status is stored
+
+		private LegacyEcidMigrationStatus() {}
+	}
+
 	final class UrlKeys {
 
 		static final String TS = "TS";
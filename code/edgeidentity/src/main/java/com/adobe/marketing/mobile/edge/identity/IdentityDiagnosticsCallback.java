@@ -0,0 +1,25 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+/**
+ * Callback for reporting diagnostics about the {@link IdentityMap} maintained by this extension.
+ */
+interface IdentityDiagnosticsCallback {
+	/**
+	 * Called when identity items are evicted from the {@link IdentityMap} because a capacity limit was exceeded.
+	 *
+	 * @param namespace    the namespace of the evicted items
+	 * @param evictedCount the number of items evicted from {@code namespace}
+	 */
+	void onIdentitiesEvicted(final String namespace, final int evictedCount);
+}
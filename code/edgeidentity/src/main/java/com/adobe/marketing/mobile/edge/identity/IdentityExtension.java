@@ -25,12 +25,26 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
 
 class IdentityExtension extends Extension {
 
-	private ExecutorService executorService;
+	private ScheduledExecutorService executorService;
+	private ScheduledFuture<?> expirySweepTask; // periodic removal of expired identifiers, only scheduled when a time to live is configured
 	private final Object executorMutex = new Object();
 	private final ConcurrentLinkedQueue<Event> cachedEvents; // cached events in memory until required shared states are resolved
+	private final AtomicLong evictedIdentitiesCount = new AtomicLong(); // identities evicted due to the configured capacity limits
+	private final AtomicLong droppedEventsCount = new AtomicLong(); // events dropped by the listeners without being queued to the executor
+	private String cachedOrgId; // Experience Cloud org ID from the latest Configuration shared state change
+	private long cachedOrgIdTimestamp = -1; // timestamp of the Configuration shared state change event cachedOrgId was read for, -1 if invalidated
+	private volatile String encodedIdentityMap; // IdentityMapCodec encoding of the current identities, cleared when they change
+	private String sharedIdentityMapJson; // value of the last identityMap JSON shared state, only accessed on the extension thread
+	private final IdentityHasher identityHasher = new IdentityHasher(IdentityConstants.Default.HASHED_IDENTITY_CACHE_SIZE); // hashes the identifiers of the configured namespaces
+	private final RequestCoalescer requestCoalescer; // coalesces the Identity read requests, sealed when the identities change
 
 	// package private for testing
 	IdentityState state = new IdentityState(new IdentityProperties());
@@ -65,8 +79,22 @@ class IdentityExtension extends Extension {
 	 * @param extensionApi {@link ExtensionApi} instance
 	 */
 	protected IdentityExtension(ExtensionApi extensionApi) {
+		this(extensionApi, Identity.requestCoalescer);
+	}
+
+	/**
+	 * Constructor, registering the same listeners as {@link #IdentityExtension(ExtensionApi)}.
+	 *
+	 * @param extensionApi     {@link ExtensionApi} instance
+	 * @param requestCoalescer the {@link RequestCoalescer} of the {@link Identity} read requests, sealed when the
+	 *                         identities change
+	 */
+	IdentityExtension(final ExtensionApi extensionApi, final RequestCoalescer requestCoalescer) {
 		super(extensionApi);
+		this.requestCoalescer = requestCoalescer;
 		cachedEvents = new ConcurrentLinkedQueue<>();
+		state.setDiagnosticsCallback(createDiagnosticsCallback());
+		state.setIdentityHasher(identityHasher);
 
 		ExtensionErrorCallback<ExtensionError> listenerErrorCallback = new ExtensionErrorCallback<ExtensionError>() {
 			@Override
@@ -196,9 +224,19 @@ class IdentityExtension extends Extension {
 	 * @return True if the bootup is complete
 	 */
 	boolean bootupIfReady() {
+		if (!state.hasBooted()) {
+			// load the latest configuration so expired identifiers are removed on bootup
+			applyConfiguration(getSharedState(IdentityConstants.SharedState.Configuration.NAME, null));
+		}
+
 		final SharedStateCallback callback = createSharedStateCallback();
 
-		return state.bootupIfReady(callback);
+		if (!state.bootupIfReady(callback)) {
+			return false;
+		}
+
+		updateExpirySweep();
+		return true;
 	}
 
 	/**
@@ -209,12 +247,7 @@ class IdentityExtension extends Extension {
 	void handleUrlVariablesRequest(final Event event) {
 		String urlVariablesString = null;
 
-		final Map<String, Object> configurationState = getSharedState(
-			IdentityConstants.SharedState.Configuration.NAME,
-			event
-		);
-
-		final String orgId = EventUtils.getOrgId(configurationState);
+		final String orgId = getOrgId(event);
 
 		if (Utils.isNullOrEmpty(orgId)) {
 			handleUrlVariableResponse(
@@ -243,6 +276,29 @@ class IdentityExtension extends Extension {
 		handleUrlVariableResponse(event, urlVariablesString);
 	}
 
+	/**
+	 * Gets the Experience Cloud org ID for the given request.
+	 * The org ID cached from the latest Configuration shared state change is used when the request was dispatched after
+	 * that change, otherwise, or when that change's shared state was pending, the org ID is read from the Configuration
+	 * shared state versioned by {@code event}.
+	 *
+	 * @param event the identity request {@link Event}
+	 * @return the Experience Cloud org ID, or null if not configured
+	 */
+	private String getOrgId(final Event event) {
+		// events dispatched within the same millisecond have no known order, so only later requests use the cached value
+		if (event != null && cachedOrgIdTimestamp >= 0 && event.getTimestamp() > cachedOrgIdTimestamp) {
+			return cachedOrgId;
+		}
+
+		final Map<String, Object> configurationState = getSharedState(
+			IdentityConstants.SharedState.Configuration.NAME,
+			event
+		);
+
+		return EventUtils.getOrgId(configurationState);
+	}
+
 	/**
 	 * Handles response event after processing the url variables request.
 	 *
@@ -298,12 +354,13 @@ class IdentityExtension extends Extension {
 
 	/**
 	 * Handles update identity requests to add/update customer identifiers.
+	 * The identifiers of the namespaces configured for hashing are hashed before being stored.
 	 *
 	 * @param event the edge update identity {@link Event}
 	 */
 	void handleUpdateIdentities(final Event event) {
 		final Map<String, Object> eventData = event.getEventData(); // do not need to null check on eventData, as they are done on listeners
-		final IdentityMap map = IdentityMap.fromXDMMap(eventData);
+		final IdentityMap map = identityHasher.hash(IdentityMap.fromEventData(eventData));
 
 		if (map == null) {
 			MobileCore.log(
@@ -315,17 +372,30 @@ class IdentityExtension extends Extension {
 		}
 
 		state.updateCustomerIdentifiers(map);
-		shareIdentityXDMSharedState(event);
+		shareIdentityXDMSharedState(event, IdentityChangeType.UPDATE);
 	}
 
 	/**
 	 * Handles remove identity requests to remove customer identifiers.
+	 * If the event contains a namespace, all the customer identifiers for that namespace are removed,
+	 * otherwise the identifiers in the event's {@link IdentityMap} are removed, after hashing the identifiers of the
+	 * namespaces configured for hashing the same way they were hashed when stored.
 	 *
 	 * @param event the edge remove identity request {@link Event}
 	 */
 	void handleRemoveIdentity(final Event event) {
+		final String namespace = EventUtils.getNamespaceToRemove(event);
+
+		if (namespace != null) {
+			if (state.removeCustomerIdentifiersForNamespace(namespace)) {
+				shareIdentityXDMSharedState(event, IdentityChangeType.REMOVE);
+			}
+
+			return;
+		}
+
 		final Map<String, Object> eventData = event.getEventData(); // do not need to null check on eventData, as they are done on listeners
-		final IdentityMap map = IdentityMap.fromXDMMap(eventData);
+		final IdentityMap map = identityHasher.hash(IdentityMap.fromEventData(eventData));
 
 		if (map == null) {
 			MobileCore.log(
@@ -337,22 +407,32 @@ class IdentityExtension extends Extension {
 		}
 
 		state.removeCustomerIdentifiers(map);
-		shareIdentityXDMSharedState(event);
+		shareIdentityXDMSharedState(event, IdentityChangeType.REMOVE);
 	}
 
 	/**
 	 * Handles events of type {@code com.adobe.eventType.hub} and source {@code com.adobe.eventSource.sharedState}.
 	 * If the state change event is for the direct Identity extension, get the direct Identity shared state and attempt
 	 * to update the legacy ECID with the direct Identity extension ECID.
+	 * If the state change event is for the Configuration extension, update the time to live of the customer identifiers.
+	 * If the state change event is for the EventHub, update the registered extensions used by the bootup checks.
 	 *
 	 * @param event an event of type {@code com.adobe.eventType.hub} and source {@code com.adobe.eventSource.sharedState};
 	 *              the event and its data should not be null, checked in listener
 	 */
 	void handleHubSharedState(final Event event) {
-		if (
-			!EventUtils.isSharedStateUpdateFor(IdentityConstants.SharedState.Hub.NAME, event) &&
-			!EventUtils.isSharedStateUpdateFor(IdentityConstants.SharedState.IdentityDirect.NAME, event)
-		) {
+		if (EventUtils.isSharedStateUpdateFor(IdentityConstants.SharedState.Configuration.NAME, event)) {
+			handleConfigurationUpdate(event);
+			return;
+		}
+
+		if (EventUtils.isSharedStateUpdateFor(IdentityConstants.SharedState.Hub.NAME, event)) {
+			final Map<String, Object> hubState = getSharedState(IdentityConstants.SharedState.Hub.NAME, event);
+
+			if (hubState != null) {
+				state.setRegisteredExtensions(EventUtils.getRegisteredExtensions(hubState));
+			}
+		} else if (!EventUtils.isSharedStateUpdateFor(IdentityConstants.SharedState.IdentityDirect.NAME, event)) {
 			return;
 		}
 
@@ -366,13 +446,113 @@ class IdentityExtension extends Extension {
 		}
 	}
 
+	/**
+	 * Handles Configuration shared state updates. Caches the Experience Cloud org ID for the URL variables requests,
+	 * or only invalidates the cached org ID while the Configuration shared state is pending,
+	 * reads the time to live, capacity limits and hashing policy of the customer identifiers,
+	 * hashes the stored identifiers of the namespaces newly configured for hashing,
+	 * removes the identifiers which already expired and schedules or cancels the periodic expiry sweep.
+	 *
+	 * @param event the Configuration shared state change {@link Event}
+	 */
+	void handleConfigurationUpdate(final Event event) {
+		// invalidate the cached org ID on every change, as it is unknown until the new shared state is resolved
+		cachedOrgId = null;
+		cachedOrgIdTimestamp = -1;
+
+		final Map<String, Object> configurationState = getSharedState(
+			IdentityConstants.SharedState.Configuration.NAME,
+			event
+		);
+
+		if (configurationState == null) {
+			return;
+		}
+
+		cachedOrgId = EventUtils.getOrgId(configurationState);
+		cachedOrgIdTimestamp = event.getTimestamp();
+		applyConfiguration(configurationState);
+
+		if (!state.hasBooted()) {
+			return; // expiry and hashing are applied on bootup
+		}
+
+		if (state.hashCustomerIdentifiers()) {
+			shareIdentityXDMSharedState(event, IdentityChangeType.UPDATE);
+		}
+
+		if (state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds())) {
+			shareIdentityXDMSharedState(event, IdentityChangeType.EXPIRY);
+		}
+
+		updateExpirySweep();
+	}
+
+	/**
+	 * @return the number of customer identifiers evicted since registration because a capacity limit was exceeded
+	 */
+	long getEvictedIdentitiesCount() {
+		return evictedIdentitiesCount.get();
+	}
+
+	/**
+	 * Called when an event changing the identities is received or handled, so the {@link Identity} read requests
+	 * in flight are not joined by requests made after the change.
+	 */
+	void invalidatePendingReads() {
+		requestCoalescer.sealPendingRequests();
+	}
+
+	/**
+	 * Called by listeners for each event they dropped on the EventHub thread because it is not handled by this extension.
+	 */
+	void onEventDropped() {
+		droppedEventsCount.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of events dropped by the listeners since registration instead of being queued to the executor
+	 */
+	long getDroppedEventsCount() {
+		return droppedEventsCount.get();
+	}
+
+	/**
+	 * Removes the customer identifiers which exceeded their time to live and shares the updated XDM shared state.
+	 * Runs periodically on this extension's executor while a time to live is configured.
+	 */
+	void handleExpirySweep() {
+		if (!state.hasBooted()) {
+			return;
+		}
+
+		if (state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds())) {
+			shareIdentityXDMSharedState(null, IdentityChangeType.EXPIRY);
+		}
+	}
+
 	/**
 	 * Handles events requesting for identifiers. Dispatches response event containing the identifiers. Called by listener registered with event hub.
+	 * If the event contains an {@link IdentityQuery}, only the identifiers matching it are returned.
+	 * Identifiers which exceeded their time to live are removed before responding.
+	 * The {@link IdentityMapCodec} encoding of the identifiers is added to the response only if the event requests it.
 	 *
 	 * @param event the identity request {@link Event}
 	 */
 	void handleIdentityRequest(final Event event) {
-		Map<String, Object> xdmData = state.getIdentityProperties().toXDMData(false);
+		if (state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds())) {
+			shareIdentityXDMSharedState(event, IdentityChangeType.EXPIRY);
+		}
+
+		final IdentityQuery query = IdentityQuery.fromEventData(event.getEventData());
+		Map<String, Object> xdmData = query != null
+			? state.getIdentityProperties().toXDMData(query)
+			: state.getIdentityProperties().toXDMData(false);
+
+		if (EventUtils.isEncodedIdentityMapRequestEvent(event)) {
+			xdmData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, getEncodedIdentityMap(query));
+		}
+
 		Event responseEvent = new Event.Builder(
 			IdentityConstants.EventNames.IDENTITY_RESPONSE_CONTENT_ONE_TIME,
 			IdentityConstants.EventType.EDGE_IDENTITY,
@@ -400,6 +580,28 @@ class IdentityExtension extends Extension {
 		);
 	}
 
+	/**
+	 * Returns the {@link IdentityMapCodec} encoding of the current identities matching the query.
+	 * The encoding of all the identities is cached until they change.
+	 *
+	 * @param query the {@link IdentityQuery} selecting the identities; may be null
+	 * @return the encoded identities
+	 */
+	private String getEncodedIdentityMap(final IdentityQuery query) {
+		if (query != null) {
+			return state.getIdentityProperties().toEncodedData(query);
+		}
+
+		String encoded = encodedIdentityMap;
+
+		if (encoded == null) {
+			encoded = state.getIdentityProperties().toEncodedData(null);
+			encodedIdentityMap = encoded;
+		}
+
+		return encoded;
+	}
+
 	/**
 	 * Handles Edge Identity request reset events.
 	 *
@@ -407,7 +609,7 @@ class IdentityExtension extends Extension {
 	 */
 	void handleRequestReset(final Event event) {
 		state.resetIdentifiers();
-		shareIdentityXDMSharedState(event);
+		shareIdentityXDMSharedState(event, IdentityChangeType.RESET);
 
 		// dispatch reset complete event
 		final Event responseEvent = new Event.Builder(
@@ -453,7 +655,7 @@ class IdentityExtension extends Extension {
 		final ECID legacyEcid = EventUtils.getECID(identityState);
 
 		if (state.updateLegacyExperienceCloudId(legacyEcid)) {
-			shareIdentityXDMSharedState(event);
+			shareIdentityXDMSharedState(event, IdentityChangeType.LEGACY_ECID);
 		}
 	}
 
@@ -467,7 +669,7 @@ class IdentityExtension extends Extension {
 			return;
 		}
 		// Doesn't need event dispatcher because MobileCore can be called directly
-		state.updateAdvertisingIdentifier(event, createSharedStateCallback());
+		state.updateAdvertisingIdentifier(event, createSharedStateCallback(IdentityChangeType.AD_ID));
 	}
 
 	/**
@@ -479,9 +681,51 @@ class IdentityExtension extends Extension {
 	 * @return this extension's instance of a single thread executor
 	 */
 	ExecutorService getExecutor() {
+		return getScheduledExecutor();
+	}
+
+	/**
+	 * Schedules the periodic expiry sweep on this extension's executor when a time to live is configured,
+	 * or cancels it when no time to live is configured.
+	 */
+	private void updateExpirySweep() {
+		synchronized (executorMutex) {
+			if (!state.hasNamespaceTimeToLive()) {
+				if (expirySweepTask != null) {
+					expirySweepTask.cancel(false);
+					expirySweepTask = null;
+				}
+
+				return;
+			}
+
+			if (expirySweepTask != null) {
+				return;
+			}
+
+			expirySweepTask =
+				getScheduledExecutor()
+					.scheduleWithFixedDelay(
+						new Runnable() {
+							@Override
+							public void run() {
+								handleExpirySweep();
+							}
+						},
+						IdentityConstants.Default.EXPIRY_SWEEP_INTERVAL_SECONDS,
+						IdentityConstants.Default.EXPIRY_SWEEP_INTERVAL_SECONDS,
+						TimeUnit.SECONDS
+					);
+		}
+	}
+
+	/**
+	 * @return this extension's instance of a single thread scheduled executor
+	 */
+	private ScheduledExecutorService getScheduledExecutor() {
 		synchronized (executorMutex) {
 			if (executorService == null) {
-				executorService = Executors.newSingleThreadExecutor();
+				executorService = Executors.newSingleThreadScheduledExecutor();
 			}
 
 			return executorService;
@@ -520,11 +764,15 @@ class IdentityExtension extends Extension {
 	}
 
 	/**
-	 * Fetches the latest Identity properties and shares the XDMSharedState.
+	 * Fetches the latest Identity properties, shares the XDMSharedState and, once it is shared, notifies the
+	 * {@link IdentityChangeListener}s.
 	 *
-	 * @param event the {@link Event} that triggered the XDM shared state change
+	 * @param event      the {@link Event} that triggered the XDM shared state change
+	 * @param changeType the {@link IdentityChangeType} reported to the listeners
 	 */
-	private void shareIdentityXDMSharedState(final Event event) {
+	private void shareIdentityXDMSharedState(final Event event, final IdentityChangeType changeType) {
+		encodedIdentityMap = null;
+		invalidatePendingReads();
 		final ExtensionApi extensionApi = super.getApi();
 
 		if (extensionApi == null) {
@@ -551,7 +799,102 @@ class IdentityExtension extends Extension {
 			}
 		};
 
-		extensionApi.setXDMSharedEventState(state.getIdentityProperties().toXDMData(false), event, errorCallback);
+		final Map<String, Object> xdmData = state.getIdentityProperties().toXDMData(false);
+
+		if (extensionApi.setXDMSharedEventState(xdmData, event, errorCallback)) {
+			shareIdentityMapJson(extensionApi, xdmData, event);
+			Identity.changeRegistry.notifyListeners(xdmData, changeType);
+		}
+	}
+
+	/**
+	 * Shares the identityMap of the XDM shared state serialized as a JSON object under
+	 * {@link IdentityConstants.SharedState.EdgeIdentity#IDENTITY_MAP_JSON} in the standard shared state,
+	 * so request builders can insert it as the {@code identityMap} value without serializing the identities again.
+	 * Must only be called after the XDM shared state was set successfully for the same event, so both states agree.
+	 * Nothing is shared if the JSON is the same as the last shared identityMap JSON, so consumers read the latest
+	 * standard shared state rather than the one of the XDM shared state event.
+	 *
+	 * @param extensionApi the {@link ExtensionApi} used to set the shared state
+	 * @param xdmData      the XDM shared state data
+	 * @param event        the {@link Event} that triggered the XDM shared state change
+	 */
+	private void shareIdentityMapJson(final ExtensionApi extensionApi, final Map<String, Object> xdmData, final Event event) {
+		final Object identityMap = xdmData != null ? xdmData.get(IdentityConstants.XDMKeys.IDENTITY_MAP) : null;
+		final String identityMapJson = identityMap instanceof Map
+			? new JSONObject((Map<?, ?>) identityMap).toString()
+			: null;
+
+		if (identityMapJson == null ? sharedIdentityMapJson == null : identityMapJson.equals(sharedIdentityMapJson)) {
+			return; // nothing shared yet and no identities, or the same identities as the last shared state
+		}
+
+		sharedIdentityMapJson = identityMapJson;
+		final Map<String, Object> sharedState = new HashMap<>();
+
+		if (identityMapJson != null) {
+			sharedState.put(IdentityConstants.SharedState.EdgeIdentity.IDENTITY_MAP_JSON, identityMapJson);
+		}
+
+		extensionApi.setSharedEventState(
+			sharedState,
+			event,
+			new ExtensionErrorCallback<ExtensionError>() {
+				@Override
+				public void error(final ExtensionError extensionError) {
+					MobileCore.log(
+						LoggingMode.DEBUG,
+						LOG_TAG,
+						String.format(
+							"IdentityExtension - Failed create identityMap JSON shared state. Error : %s.",
+							extensionError.getErrorName()
+						)
+					);
+				}
+			}
+		);
+	}
+
+	/**
+	 * Updates the {@link IdentityState} with the customer identifiers settings from the Configuration shared state.
+	 * The current settings are kept while the Configuration shared state is not set.
+	 *
+	 * @param configurationState the Configuration shared state data; may be null
+	 */
+	private void applyConfiguration(final Map<String, Object> configurationState) {
+		if (configurationState == null) {
+			return;
+		}
+
+		state.setHasConfiguration(true);
+		state.setNamespaceTimeToLive(EventUtils.getNamespaceTimeToLive(configurationState));
+		state.setIdentityMapCapacity(EventUtils.getIdentityMapCapacity(configurationState));
+		identityHasher.setPolicy(
+			EventUtils.getHashedNamespaces(configurationState),
+			EventUtils.isAcceptingHashedIdentifiers(configurationState)
+		);
+	}
+
+	/**
+	 * Creates the diagnostics callback which logs and counts the evicted customer identifiers
+	 * @return a new instance of {@link IdentityDiagnosticsCallback}
+	 */
+	private IdentityDiagnosticsCallback createDiagnosticsCallback() {
+		return new IdentityDiagnosticsCallback() {
+			@Override
+			public void onIdentitiesEvicted(final String namespace, final int evictedCount) {
+				evictedIdentitiesCount.addAndGet(evictedCount);
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					String.format(
+						"IdentityExtension - Evicted %d least recently updated identifier(s) in namespace '%s' as the configured capacity was exceeded.",
+						evictedCount,
+						namespace
+					)
+				);
+			}
+		};
 	}
 
 	/**
@@ -559,6 +902,16 @@ class IdentityExtension extends Extension {
 	 * @return a new instance of {@link SharedStateCallback}
 	 */
 	private SharedStateCallback createSharedStateCallback() {
+		return createSharedStateCallback(null);
+	}
+
+	/**
+	 * Creates standard shared state callback with functionality from {@link ExtensionApi}
+	 * @param changeType the {@link IdentityChangeType} reported to the {@link IdentityChangeListener}s when the
+	 *                   XDM shared state is set; null for the bootup shared state, which is not notified
+	 * @return a new instance of {@link SharedStateCallback}
+	 */
+	private SharedStateCallback createSharedStateCallback(final IdentityChangeType changeType) {
 		return new SharedStateCallback() {
 			@Override
 			public Map<String, Object> getSharedState(final String stateOwner, final Event event) {
@@ -587,13 +940,15 @@ class IdentityExtension extends Extension {
 
 			@Override
 			public boolean setXDMSharedEventState(final Map<String, Object> state, final Event event) {
+				encodedIdentityMap = null;
+				invalidatePendingReads();
 				ExtensionApi api = getApi();
 
 				if (api == null) {
 					return false;
 				}
 
-				return api.setXDMSharedEventState(
+				final boolean result = api.setXDMSharedEventState(
 					state,
 					event,
 					new ExtensionErrorCallback<ExtensionError>() {
@@ -608,6 +963,19 @@ class IdentityExtension extends Extension {
 						}
 					}
 				);
+
+				if (result) {
+					shareIdentityMapJson(api, state, event);
+
+					if (changeType != null) {
+						Identity.changeRegistry.notifyListeners(state, changeType);
+					} else {
+						// the bootup shared state, the identities the listeners are notified of changes from
+						Identity.changeRegistry.setInitialIdentities(state);
+					}
+				}
+
+				return result;
 			}
 		};
 	}
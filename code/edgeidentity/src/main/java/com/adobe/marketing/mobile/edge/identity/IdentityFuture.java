@@ -0,0 +1,409 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG;
+
+import com.adobe.marketing.mobile.AdobeCallbackWithError;
+import com.adobe.marketing.mobile.AdobeError;
+import com.adobe.marketing.mobile.LoggingMode;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending result of an asynchronous {@link Identity} retrieval API call, such as
+ * {@link Identity#getExperienceCloudIdAsync()}.
+ * <p>
+ * The result can be waited for with {@link #get()} or {@link #get(long, TimeUnit)}, observed with
+ * {@link #addListener(Listener)}, or transformed with {@link #thenApply(Function)} and {@link #thenCompose(Function)}.
+ * Waiting callers are blocked on this future, no thread is used per call.
+ * Cancelling the future does not cancel the underlying request, its result is ignored.
+ *
+ * @param <T> the type of the result
+ */
+public final class IdentityFuture<T> implements Future<T> {
+
+	/**
+	 * Listener notified once an {@link IdentityFuture} completes, is failed or is cancelled.
+	 *
+	 * @param <T> the type of the result
+	 */
+	public interface Listener<T> {
+		/**
+		 * @param future the completed {@link IdentityFuture}
+		 */
+		void onComplete(final IdentityFuture<T> future);
+	}
+
+	/**
+	 * Function applied to the result of an {@link IdentityFuture}.
+	 *
+	 * @param <T> the type of the result
+	 * @param <R> the type returned by the function
+	 */
+	public interface Function<T, R> {
+		/**
+		 * @param value the result of the {@link IdentityFuture}
+		 * @return the transformed value
+		 * @throws Exception if the value cannot be transformed, the returned future fails with
+		 * {@link AdobeError#UNEXPECTED_ERROR}
+		 */
+		R apply(final T value) throws Exception;
+	}
+
+	private enum State {
+		PENDING,
+		SUCCEEDED,
+		FAILED,
+		CANCELLED,
+	}
+
+	private State state = State.PENDING; // guarded by this
+	private T value; // guarded by this
+	private AdobeError error; // guarded by this
+	private List<Runnable> listeners = new ArrayList<>(); // guarded by this, null once done
+
+	IdentityFuture() {}
+
+	/**
+	 * Adds a listener notified on the thread completing this future, or on the calling thread if it is already done.
+	 *
+	 * @param listener the {@link Listener} to notify
+	 * @return this future, for chaining
+	 */
+	public IdentityFuture<T> addListener(final Listener<T> listener) {
+		return addListener(
+			listener,
+			new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					runnable.run();
+				}
+			}
+		);
+	}
+
+	/**
+	 * Adds a listener notified on the given executor once this future is done.
+	 *
+	 * @param listener the {@link Listener} to notify
+	 * @param executor the {@link Executor} the listener is notified on
+	 * @return this future, for chaining
+	 */
+	public IdentityFuture<T> addListener(final Listener<T> listener, final Executor executor) {
+		if (listener == null || executor == null) {
+			return this;
+		}
+
+		final Runnable notification = new Runnable() {
+			@Override
+			public void run() {
+				notifyListener(listener, executor);
+			}
+		};
+
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(notification);
+				return this;
+			}
+		}
+
+		notification.run();
+		return this;
+	}
+
+	/**
+	 * Returns a future completed with the result of this future transformed by the given function. The function is
+	 * called on the thread completing this future, or on the calling thread if it is already done.
+	 * If this future fails or is cancelled, the returned future fails with the same error or is cancelled.
+	 * Cancelling the returned future does not cancel this future.
+	 *
+	 * @param function the {@link Function} applied to the result
+	 * @param <R>      the type of the transformed result
+	 * @return the {@link IdentityFuture} of the transformed result
+	 */
+	public <R> IdentityFuture<R> thenApply(final Function<? super T, ? extends R> function) {
+		final IdentityFuture<R> transformed = new IdentityFuture<>();
+
+		addListener(
+			new Listener<T>() {
+				@Override
+				public void onComplete(final IdentityFuture<T> future) {
+					if (!transformed.completeIfNotSucceeded(future)) {
+						return;
+					}
+
+					final R result;
+
+					try {
+						result = function.apply(future.getValue());
+					} catch (Exception e) {
+						transformed.failWithException(e);
+						return;
+					}
+
+					transformed.complete(State.SUCCEEDED, result, null);
+				}
+			}
+		);
+
+		return transformed;
+	}
+
+	/**
+	 * Returns a future completed with the result of the future returned by the given function, such as another
+	 * {@link Identity} retrieval call depending on the result of this future. The function is called on the thread
+	 * completing this future, or on the calling thread if it is already done.
+	 * If this future or the future returned by the function fails or is cancelled, the returned future fails with the
+	 * same error or is cancelled. Cancelling the returned future does not cancel the other futures.
+	 *
+	 * @param function the {@link Function} returning the next {@link IdentityFuture}; returning null fails the
+	 *                 returned future with {@link AdobeError#UNEXPECTED_ERROR}
+	 * @param <R>      the type of the result of the next future
+	 * @return the {@link IdentityFuture} of the result of the next future
+	 */
+	public <R> IdentityFuture<R> thenCompose(final Function<? super T, IdentityFuture<R>> function) {
+		final IdentityFuture<R> composed = new IdentityFuture<>();
+
+		addListener(
+			new Listener<T>() {
+				@Override
+				public void onComplete(final IdentityFuture<T> future) {
+					if (!composed.completeIfNotSucceeded(future)) {
+						return;
+					}
+
+					final IdentityFuture<R> next;
+
+					try {
+						next = function.apply(future.getValue());
+					} catch (Exception e) {
+						composed.failWithException(e);
+						return;
+					}
+
+					if (next == null) {
+						composed.complete(State.FAILED, null, AdobeError.UNEXPECTED_ERROR);
+						return;
+					}
+
+					next.addListener(
+						new Listener<R>() {
+							@Override
+							public void onComplete(final IdentityFuture<R> nextFuture) {
+								if (composed.completeIfNotSucceeded(nextFuture)) {
+									composed.complete(State.SUCCEEDED, nextFuture.getValue(), null);
+								}
+							}
+						}
+					);
+				}
+			}
+		);
+
+		return composed;
+	}
+
+	/**
+	 * Attempts to cancel this future. Waiting callers fail with a {@link CancellationException} and the listeners
+	 * are notified. The underlying request is not cancelled, its result is ignored.
+	 *
+	 * @param mayInterruptIfRunning ignored, no thread runs the request on behalf of this future
+	 * @return false if this future was already done, true otherwise
+	 */
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		return complete(State.CANCELLED, null, null);
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return state == State.CANCELLED;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return state != State.PENDING;
+	}
+
+	/**
+	 * Waits for the result of the call.
+	 *
+	 * @return the result
+	 * @throws ExecutionException   if the call failed, the error is returned by {@link #getError()}
+	 * @throws CancellationException if this future was cancelled
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 */
+	@Override
+	public synchronized T get() throws InterruptedException, ExecutionException {
+		while (state == State.PENDING) {
+			wait();
+		}
+
+		return getResult();
+	}
+
+	/**
+	 * Waits at most the given time for the result of the call.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the {@link TimeUnit} of {@code timeout}
+	 * @return the result
+	 * @throws ExecutionException   if the call failed, the error is returned by {@link #getError()}
+	 * @throws CancellationException if this future was cancelled
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 * @throws TimeoutException     if the result was not available within the timeout; the call still completes later
+	 */
+	@Override
+	public synchronized T get(final long timeout, final TimeUnit unit)
+		throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+
+		while (state == State.PENDING) {
+			final long remainingNanos = deadlineNanos - System.nanoTime();
+
+			if (remainingNanos <= 0) {
+				throw new TimeoutException("IdentityFuture - Timed out waiting for the result");
+			}
+
+			TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+		}
+
+		return getResult();
+	}
+
+	/**
+	 * @return the {@link AdobeError} the call failed with, or null if it did not fail
+	 */
+	public synchronized AdobeError getError() {
+		return error;
+	}
+
+	/**
+	 * @return a callback completing this future with the value or the {@link AdobeError} of the call
+	 */
+	AdobeCallbackWithError<T> asCallback() {
+		return new AdobeCallbackWithError<T>() {
+			@Override
+			public void call(final T result) {
+				complete(State.SUCCEEDED, result, null);
+			}
+
+			@Override
+			public void fail(final AdobeError adobeError) {
+				complete(State.FAILED, null, adobeError != null ? adobeError : AdobeError.UNEXPECTED_ERROR);
+			}
+		};
+	}
+
+	private synchronized T getValue() {
+		return value;
+	}
+
+	/**
+	 * Fails or cancels this future if the given done future failed or was cancelled.
+	 *
+	 * @param source the done {@link IdentityFuture}
+	 * @return true if {@code source} succeeded, so this future is left to be completed with its result
+	 */
+	private boolean completeIfNotSucceeded(final IdentityFuture<?> source) {
+		final State sourceState;
+		final AdobeError sourceError;
+
+		synchronized (source) {
+			sourceState = source.state;
+			sourceError = source.error;
+		}
+
+		if (sourceState == State.SUCCEEDED) {
+			return true;
+		}
+
+		complete(sourceState, null, sourceError);
+		return false;
+	}
+
+	private void failWithException(final Exception e) {
+		MobileCore.log(LoggingMode.WARNING, LOG_TAG, "IdentityFuture - Function failed: " + e.getLocalizedMessage());
+		complete(State.FAILED, null, AdobeError.UNEXPECTED_ERROR);
+	}
+
+	private T getResult() throws ExecutionException {
+		switch (state) {
+			case SUCCEEDED:
+				return value;
+			case CANCELLED:
+				throw new CancellationException("IdentityFuture - The call was cancelled");
+			default:
+				throw new ExecutionException("IdentityFuture - The call failed with error " + error.getErrorName(), null);
+		}
+	}
+
+	private boolean complete(final State newState, final T newValue, final AdobeError newError) {
+		final List<Runnable> toNotify;
+
+		synchronized (this) {
+			if (state != State.PENDING) {
+				return false;
+			}
+
+			state = newState;
+			value = newValue;
+			error = newError;
+			toNotify = listeners;
+			listeners = null;
+			notifyAll();
+		}
+
+		for (final Runnable notification : toNotify) {
+			notification.run();
+		}
+
+		return true;
+	}
+
+	private void notifyListener(final Listener<T> listener, final Executor executor) {
+		try {
+			executor.execute(
+				new Runnable() {
+					@Override
+					public void run() {
+						try {
+							listener.onComplete(IdentityFuture.this);
+						} catch (Exception e) {
+							MobileCore.log(
+								LoggingMode.WARNING,
+								LOG_TAG,
+								"IdentityFuture - Listener failed: " + e.getLocalizedMessage()
+							);
+						}
+					}
+				}
+			);
+		} catch (RejectedExecutionException e) {
+			MobileCore.log(
+				LoggingMode.WARNING,
+				LOG_TAG,
+				"IdentityFuture - Unable to notify listener, its executor rejected the notification."
+			);
+		}
+	}
+}
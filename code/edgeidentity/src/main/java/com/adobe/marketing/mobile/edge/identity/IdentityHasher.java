@@ -0,0 +1,353 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG;
+
+import com.adobe.marketing.mobile.LoggingMode;
+import com.adobe.marketing.mobile.MobileCore;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashes the customer identifiers of the namespaces configured for hashing with SHA-256.
+ * <p>
+ * Each hashed namespace has a {@link Normalization} applied to the identifier before hashing, and the identifier is
+ * replaced by the lowercase hex encoding of its digest. Identifiers which already are a SHA-256 hex digest are only kept
+ * as is when accepting hashed identifiers is configured, so values hashed by the application are not hashed twice.
+ * The digests of the most recently hashed normalized values are kept in a bounded LRU cache, so identifiers sent again
+ * on every session are not hashed again.
+ */
+final class IdentityHasher {
+
+	private static final String ALGORITHM = "SHA-256";
+	private static final int DIGEST_HEX_LENGTH = 64;
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Normalization applied to an identifier before hashing it.
+	 */
+	enum Normalization {
+		/** The identifier is hashed as is. */
+		NONE("none"),
+		/** Leading and trailing whitespace is removed. */
+		TRIM("trim"),
+		/** Leading and trailing whitespace is removed and the identifier is lowercased, e.g. for email addresses. */
+		LOWERCASE("lowercase"),
+		/** All characters other than digits are removed, e.g. for phone numbers. */
+		DIGITS("digits");
+
+		private final String name;
+
+		Normalization(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @param name the name of the {@link Normalization} in the configuration
+		 * @return the {@link Normalization} with the given name, or null if {@code name} is not valid
+		 */
+		static Normalization fromName(final String name) {
+			for (final Normalization normalization : values()) {
+				if (normalization.name.equalsIgnoreCase(name)) {
+					return normalization;
+				}
+			}
+
+			return null;
+		}
+
+		private String apply(final String id) {
+			switch (this) {
+				case TRIM:
+					return id.trim();
+				case LOWERCASE:
+					return id.trim().toLowerCase(Locale.ROOT);
+				case DIGITS:
+					final StringBuilder digits = new StringBuilder(id.length());
+
+					for (int i = 0; i < id.length(); i++) {
+						final char c = id.charAt(i);
+
+						if (c >= '0' && c <= '9') {
+							digits.append(c);
+						}
+					}
+
+					return digits.toString();
+				default:
+					return id;
+			}
+		}
+	}
+
+	private final Map<String, String> digestCache; // guarded by this
+	private Map<String, Normalization> policy = Collections.emptyMap(); // guarded by this, keyed by lowercased namespace
+	private boolean acceptDigests; // guarded by this
+	private MessageDigest messageDigest; // guarded by this, created on first use
+
+	/**
+	 * @param cacheSize the maximum number of digests kept in the cache, the cache is disabled if not greater than 0
+	 */
+	IdentityHasher(final int cacheSize) {
+		final int maxSize = Math.max(0, cacheSize);
+		this.digestCache =
+			new LinkedHashMap<String, String>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+					return size() > maxSize;
+				}
+			};
+	}
+
+	/**
+	 * Replaces the hashing policy, without accepting identifiers which already are a digest.
+	 *
+	 * @param policy the {@link Normalization} of each namespace to hash; null or empty to not hash any namespace
+	 * @see #setPolicy(Map, boolean)
+	 */
+	void setPolicy(final Map<String, Normalization> policy) {
+		setPolicy(policy, false);
+	}
+
+	/**
+	 * Replaces the hashing policy. The cached digests are kept, as they do not depend on the namespace.
+	 *
+	 * @param policy        the {@link Normalization} of each namespace to hash; null or empty to not hash any namespace
+	 * @param acceptDigests true to keep the identifiers which already are a SHA-256 hex digest as is
+	 */
+	synchronized void setPolicy(final Map<String, Normalization> policy, final boolean acceptDigests) {
+		this.acceptDigests = acceptDigests;
+
+		if (policy == null || policy.isEmpty()) {
+			this.policy = Collections.emptyMap();
+			return;
+		}
+
+		final Map<String, Normalization> newPolicy = new HashMap<>();
+
+		for (final Map.Entry<String, Normalization> entry : policy.entrySet()) {
+			if (entry.getKey() != null && entry.getValue() != null) {
+				newPolicy.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+			}
+		}
+
+		this.policy = newPolicy;
+	}
+
+	/**
+	 * Hashes the identifiers of the namespaces configured for hashing.
+	 * Identifiers which are empty after normalization are dropped, as are all the identifiers of the hashed namespaces
+	 * if SHA-256 is not available, so they are never stored unhashed.
+	 *
+	 * @param map the {@link IdentityMap} to hash; may be null
+	 * @return a new {@link IdentityMap} with the hashed identifiers, or {@code map} itself if it has no namespace to hash
+	 */
+	synchronized IdentityMap hash(final IdentityMap map) {
+		if (map == null || policy.isEmpty() || !hasHashedNamespace(map)) {
+			return map;
+		}
+
+		final IdentityMap hashedMap = new IdentityMap();
+
+		for (final Map.Entry<String, List<IdentityItem>> entry : map.getItemsByNamespace().entrySet()) {
+			final String namespace = entry.getKey();
+			final Normalization normalization = policy.get(namespace.toLowerCase(Locale.ROOT));
+
+			if (normalization == null) {
+				hashedMap.setItemsForNamespace(namespace, new ArrayList<>(entry.getValue()));
+				continue;
+			}
+
+			for (final IdentityItem item : entry.getValue()) {
+				final String hashedId = hashId(item.getId(), normalization);
+
+				if (hashedId == null) {
+					MobileCore.log(
+						LoggingMode.WARNING,
+						LOG_TAG,
+						"IdentityHasher - Dropping identifier of namespace '" + namespace + "' as it could not be hashed."
+					);
+					continue;
+				}
+
+				hashedMap.addItem(new IdentityItem(hashedId, item.getAuthenticatedState(), item.isPrimary()), namespace);
+			}
+		}
+
+		return hashedMap;
+	}
+
+	/**
+	 * Hashes in place the stored identifiers of the namespaces configured for hashing, such as the identifiers stored
+	 * before their namespace was configured for hashing. The last updated timestamps of the identifiers are kept.
+	 * Identifiers which cannot be hashed are removed, so they are never kept unhashed.
+	 *
+	 * @param map               the stored {@link IdentityMap} to hash
+	 * @param skippedNamespaces the lowercased namespaces not to hash, such as the namespaces already hashed
+	 * @return true if any identifier was hashed or removed
+	 */
+	synchronized boolean hashStoredIdentifiers(final IdentityMap map, final Set<String> skippedNamespaces) {
+		if (map == null || policy.isEmpty()) {
+			return false;
+		}
+
+		boolean changed = false;
+
+		// copy the entries, as the namespaces are replaced while iterating
+		for (final Map.Entry<String, List<IdentityItem>> entry : new ArrayList<>(map.getItemsByNamespace().entrySet())) {
+			final String namespace = entry.getKey();
+			final String lowercasedNamespace = namespace.toLowerCase(Locale.ROOT);
+			final Normalization normalization = policy.get(lowercasedNamespace);
+
+			if (normalization == null || skippedNamespaces.contains(lowercasedNamespace)) {
+				continue;
+			}
+
+			final IdentityMap hashedMap = new IdentityMap(); // merges the identifiers with the same digest
+
+			for (final IdentityItem item : entry.getValue()) {
+				final String hashedId = hashId(item.getId(), normalization);
+
+				if (hashedId == null) {
+					MobileCore.log(
+						LoggingMode.WARNING,
+						LOG_TAG,
+						"IdentityHasher - Removing stored identifier of namespace '" +
+						namespace +
+						"' as it could not be hashed."
+					);
+					continue;
+				}
+
+				hashedMap.addItem(new IdentityItem(hashedId, item), namespace);
+			}
+
+			map.setItemsForNamespace(namespace, hashedMap.getIdentityItemsForNamespace(namespace));
+			changed = true;
+		}
+
+		return changed;
+	}
+
+	/**
+	 * @return the lowercased namespaces configured for hashing
+	 */
+	synchronized Set<String> getHashedNamespaces() {
+		return new HashSet<>(policy.keySet());
+	}
+
+	/**
+	 * @return the number of digests in the cache
+	 */
+	synchronized int getCacheSize() {
+		return digestCache.size();
+	}
+
+	private boolean hasHashedNamespace(final IdentityMap map) {
+		for (final String namespace : map.getItemsByNamespace().keySet()) {
+			if (policy.containsKey(namespace.toLowerCase(Locale.ROOT))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return the lowercase hex SHA-256 digest of the normalized identifier, or null if it is empty after
+	 * normalization or cannot be hashed
+	 */
+	private String hashId(final String id, final Normalization normalization) {
+		if (id == null) {
+			return null;
+		}
+
+		if (acceptDigests) {
+			final String trimmedId = id.trim();
+
+			if (isDigest(trimmedId)) {
+				return trimmedId.toLowerCase(Locale.ROOT);
+			}
+		}
+
+		final String normalizedId = normalization.apply(id);
+
+		if (normalizedId.isEmpty()) {
+			return null;
+		}
+
+		String digest = digestCache.get(normalizedId);
+
+		if (digest == null) {
+			digest = computeDigest(normalizedId);
+
+			if (digest != null) {
+				digestCache.put(normalizedId, digest);
+			}
+		}
+
+		return digest;
+	}
+
+	private String computeDigest(final String value) {
+		if (messageDigest == null) {
+			try {
+				messageDigest = MessageDigest.getInstance(ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				MobileCore.log(
+					LoggingMode.WARNING,
+					LOG_TAG,
+					"IdentityHasher - Unable to hash identifiers, " + ALGORITHM + " is not available: " + e.getLocalizedMessage()
+				);
+				return null;
+			}
+		}
+
+		// digest() resets the MessageDigest, so the instance is reused for the next value
+		final byte[] digest = messageDigest.digest(value.getBytes(StandardCharsets.UTF_8));
+		final char[] hex = new char[digest.length * 2];
+
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX_CHARS[(digest[i] >> 4) & 0x0f];
+			hex[i * 2 + 1] = HEX_CHARS[digest[i] & 0x0f];
+		}
+
+		return new String(hex);
+	}
+
+	private static boolean isDigest(final String id) {
+		if (id.length() != DIGEST_HEX_LENGTH) {
+			return false;
+		}
+
+		for (int i = 0; i < id.length(); i++) {
+			final char c = id.charAt(i);
+
+			if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -17,7 +17,6 @@ import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Identity is used to clearly distinguish people that are interacting with digital experiences.
@@ -30,6 +29,8 @@ public final class IdentityItem {
 	private final String id;
 	private final AuthenticatedState authenticatedState;
 	private final boolean primary;
+	private final long lastUpdated; // unix timestamp in seconds when this item was last added or updated, 0 if unknown
+	private final int hash; // case-folded hash of the id, consistent with the case insensitive equals
 
 	/**
 	 * Creates a new {@link IdentityItem}
@@ -40,13 +41,7 @@ public final class IdentityItem {
 	 * @throws IllegalArgumentException if id is null
 	 */
 	public IdentityItem(final String id, final AuthenticatedState authenticatedState, final boolean primary) {
-		if (id == null) {
-			throw new IllegalArgumentException("id must be non-null");
-		}
-
-		this.id = id;
-		this.authenticatedState = authenticatedState != null ? authenticatedState : AuthenticatedState.AMBIGUOUS;
-		this.primary = primary;
+		this(id, authenticatedState, primary, 0L);
 	}
 
 	/**
@@ -66,7 +61,44 @@ public final class IdentityItem {
 	 * @param item A {@link IdentityItem} to be copied
 	 */
 	public IdentityItem(final IdentityItem item) {
-		this(item.id, item.authenticatedState, item.primary);
+		this(item.id, item.authenticatedState, item.primary, item.lastUpdated);
+	}
+
+	/**
+	 * Creates a copy of item with the given last updated timestamp.
+	 *
+	 * @param item        A {@link IdentityItem} to be copied
+	 * @param lastUpdated unix timestamp in seconds when the item was last added or updated
+	 */
+	IdentityItem(final IdentityItem item, final long lastUpdated) {
+		this(item.id, item.authenticatedState, item.primary, lastUpdated);
+	}
+
+	/**
+	 * Creates a copy of item with the given id, such as the hashed id of the item.
+	 *
+	 * @param id   the new id of the item
+	 * @param item A {@link IdentityItem} to be copied
+	 */
+	IdentityItem(final String id, final IdentityItem item) {
+		this(id, item.authenticatedState, item.primary, item.lastUpdated);
+	}
+
+	private IdentityItem(
+		final String id,
+		final AuthenticatedState authenticatedState,
+		final boolean primary,
+		final long lastUpdated
+	) {
+		if (id == null) {
+			throw new IllegalArgumentException("id must be non-null");
+		}
+
+		this.id = id;
+		this.authenticatedState = authenticatedState != null ? authenticatedState : AuthenticatedState.AMBIGUOUS;
+		this.primary = primary;
+		this.lastUpdated = lastUpdated;
+		this.hash = caseInsensitiveHash(id);
 	}
 
 	/**
@@ -125,13 +157,22 @@ public final class IdentityItem {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id);
+		return hash;
 	}
 
 	// ========================================================================================
 	// package protected methods
 	// ========================================================================================
 
+	/**
+	 * The time this identity was last added or updated. Not part of the XDM representation.
+	 *
+	 * @return unix timestamp in seconds, or 0 if unknown
+	 */
+	long getLastUpdated() {
+		return lastUpdated;
+	}
+
 	/**
 	 * Converts this object into a map representation
 	 *
@@ -187,4 +228,21 @@ public final class IdentityItem {
 			return null;
 		}
 	}
+
+	/**
+	 * Computes a hash of {@code value} which is equal for strings that are equal ignoring case.
+	 * Each character is folded the same way as {@link String#equalsIgnoreCase(String)} compares characters.
+	 *
+	 * @param value the string to hash; should not be null
+	 * @return the case insensitive hash
+	 */
+	private static int caseInsensitiveHash(final String value) {
+		int result = 0;
+
+		for (int i = 0; i < value.length(); i++) {
+			result = 31 * result + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+		}
+
+		return result;
+	}
 }
@@ -15,10 +15,18 @@ import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG
 
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Defines a map containing a set of end user identities, keyed on either namespace integration
@@ -32,6 +40,7 @@ import java.util.Map;
 public class IdentityMap {
 
 	private final Map<String, List<IdentityItem>> identityItems = new HashMap<>();
+	private boolean readOnly; // true for the snapshots shared by the identity change listeners
 
 	/**
 	 * Gets the {@link IdentityItem}s for the namespace
@@ -77,6 +86,15 @@ public class IdentityMap {
 	 * @param namespace the namespace integration code or namespace ID of the identity
 	 */
 	public void addItem(final IdentityItem item, final String namespace) {
+		if (readOnly) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityMap add item ignored as this IdentityMap is read only."
+			);
+			return;
+		}
+
 		addItem(item, namespace, false);
 	}
 
@@ -87,6 +105,15 @@ public class IdentityMap {
 	 * @param namespace the namespace integration code or namespace ID of the identity
 	 */
 	public void removeItem(final IdentityItem item, final String namespace) {
+		if (readOnly) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityMap remove item ignored as this IdentityMap is read only."
+			);
+			return;
+		}
+
 		if (item == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
@@ -108,6 +135,14 @@ public class IdentityMap {
 		removeItemFromMap(item, namespace);
 	}
 
+	/**
+	 * Makes this {@link IdentityMap} read only, {@link #addItem(IdentityItem, String)} and
+	 * {@link #removeItem(IdentityItem, String)} are ignored afterwards.
+	 */
+	void setReadOnly() {
+		readOnly = true;
+	}
+
 	/**
 	 * Determines if this {@link IdentityMap} has no identities.
 	 *
@@ -179,6 +214,35 @@ public class IdentityMap {
 		addItemToMap(item, namespace, isFirstItem);
 	}
 
+	/**
+	 * @return an unmodifiable view of the {@link IdentityItem}s of this {@link IdentityMap} by namespace,
+	 * the items are not copied
+	 */
+	Map<String, List<IdentityItem>> getItemsByNamespace() {
+		return Collections.unmodifiableMap(identityItems);
+	}
+
+	/**
+	 * Replaces the items of the namespace without checking them for duplicates. Only used with items known to be
+	 * distinct, such as items decoded by {@link IdentityMapCodec}. The list is owned by this map after the call.
+	 * The namespace (case sensitive) is removed if {@code items} is empty.
+	 *
+	 * @param namespace the namespace of the items
+	 * @param items     the distinct {@link IdentityItem}s of the namespace
+	 */
+	void setItemsForNamespace(final String namespace, final List<IdentityItem> items) {
+		if (Utils.isNullOrEmpty(namespace) || items == null) {
+			return;
+		}
+
+		if (items.isEmpty()) {
+			identityItems.remove(namespace);
+			return;
+		}
+
+		identityItems.put(namespace, items);
+	}
+
 	/**
 	 * Merge the given map on to this {@link IdentityMap}. Any {@link IdentityItem} in map which shares the same
 	 * namespace and id as an item in this {@code IdentityMap} will replace that {@code IdentityItem}.
@@ -190,11 +254,74 @@ public class IdentityMap {
 			return;
 		}
 
-		for (final String namespace : map.identityItems.keySet()) {
-			for (IdentityItem identityItem : map.identityItems.get(namespace)) {
-				addItem(identityItem, namespace);
+		for (final Map.Entry<String, List<IdentityItem>> entry : map.identityItems.entrySet()) {
+			mergeItemsToMap(entry.getValue(), entry.getKey());
+		}
+	}
+
+	/**
+	 * Merge the given map on to this {@link IdentityMap} as in {@link #merge(IdentityMap)}, then evict the least recently
+	 * updated {@link IdentityItem}s until this {@code IdentityMap} is within the given {@code capacity}.
+	 * Items in the {@code protectedNamespaces} (case insensitive) are never evicted, but still count towards the total capacity.
+	 *
+	 * @param map                 {@link IdentityMap} to be merged into this object
+	 * @param capacity            the {@link IdentityMapCapacity} limits to enforce
+	 * @param protectedNamespaces namespaces for which items are never evicted
+	 * @param callback            {@link IdentityDiagnosticsCallback} notified with the evicted items count per namespace; may be null
+	 * @return the total number of evicted {@code IdentityItem}s
+	 */
+	int merge(
+		final IdentityMap map,
+		final IdentityMapCapacity capacity,
+		final List<String> protectedNamespaces,
+		final IdentityDiagnosticsCallback callback
+	) {
+		merge(map);
+
+		if (capacity == null || !capacity.isLimited()) {
+			return 0;
+		}
+
+		final Map<String, Integer> evictedCounts = new HashMap<>();
+
+		if (capacity.getMaxItemsPerNamespace() != IdentityMapCapacity.UNLIMITED) {
+			for (final Map.Entry<String, List<IdentityItem>> entry : identityItems.entrySet()) {
+				final int overflow = entry.getValue().size() - capacity.getMaxItemsPerNamespace();
+
+				if (overflow > 0 && !containsIgnoreCase(protectedNamespaces, entry.getKey())) {
+					evictLeastRecentlyUpdated(getEvictionCandidates(entry.getKey()), overflow, evictedCounts);
+				}
+			}
+		}
+
+		if (capacity.getMaxTotalItems() != IdentityMapCapacity.UNLIMITED) {
+			int totalCount = 0;
+			final List<Map.Entry<String, IdentityItem>> candidates = new ArrayList<>();
+
+			for (final Map.Entry<String, List<IdentityItem>> entry : identityItems.entrySet()) {
+				totalCount += entry.getValue().size();
+
+				if (!containsIgnoreCase(protectedNamespaces, entry.getKey())) {
+					candidates.addAll(getEvictionCandidates(entry.getKey()));
+				}
+			}
+
+			if (totalCount > capacity.getMaxTotalItems()) {
+				evictLeastRecentlyUpdated(candidates, totalCount - capacity.getMaxTotalItems(), evictedCounts);
 			}
 		}
+
+		int evictedTotal = 0;
+
+		for (final Map.Entry<String, Integer> entry : evictedCounts.entrySet()) {
+			evictedTotal += entry.getValue();
+
+			if (callback != null) {
+				callback.onIdentitiesEvicted(entry.getKey(), entry.getValue());
+			}
+		}
+
+		return evictedTotal;
 	}
 
 	/**
@@ -208,10 +335,8 @@ public class IdentityMap {
 			return;
 		}
 
-		for (final String namespace : map.identityItems.keySet()) {
-			for (IdentityItem identityItem : map.identityItems.get(namespace)) {
-				removeItem(identityItem, namespace);
-			}
+		for (final Map.Entry<String, List<IdentityItem>> entry : map.identityItems.entrySet()) {
+			removeItemsFromMap(entry.getValue(), entry.getKey());
 		}
 	}
 
@@ -242,6 +367,167 @@ public class IdentityMap {
 		return isRemoved;
 	}
 
+	/**
+	 * Removes all the {@link IdentityItem}s of the namespaces whose lowercased name is in {@code lowercasedNamespaces},
+	 * in a single pass over the namespaces of this {@link IdentityMap}.
+	 *
+	 * @param lowercasedNamespaces the namespaces to remove, lowercased with {@link Locale#ROOT}
+	 * @return the removed namespaces as they were named in this map; empty if none was removed
+	 */
+	List<String> removeNamespaces(final Set<String> lowercasedNamespaces) {
+		List<String> removedNamespaces = Collections.emptyList();
+		final Iterator<String> iterator = identityItems.keySet().iterator();
+
+		while (iterator.hasNext()) {
+			final String namespace = iterator.next();
+
+			if (lowercasedNamespaces.contains(namespace.toLowerCase(Locale.ROOT))) {
+				iterator.remove();
+
+				if (removedNamespaces.isEmpty()) {
+					removedNamespaces = new ArrayList<>(2);
+				}
+
+				removedNamespaces.add(namespace);
+			}
+		}
+
+		return removedNamespaces;
+	}
+
+	/**
+	 * Sets the last updated timestamp on the {@link IdentityItem}s in this {@link IdentityMap}.
+	 *
+	 * @param timestamp unix timestamp in seconds
+	 * @param overwrite if false, only the items without a last updated timestamp are updated
+	 * @return true if the timestamp was set on any {@code IdentityItem}
+	 */
+	boolean setLastUpdated(final long timestamp, final boolean overwrite) {
+		boolean isUpdated = false;
+
+		for (final List<IdentityItem> items : identityItems.values()) {
+			for (int i = 0; i < items.size(); i++) {
+				final IdentityItem item = items.get(i);
+
+				if (overwrite || item.getLastUpdated() <= 0) {
+					items.set(i, new IdentityItem(item, timestamp));
+					isUpdated = true;
+				}
+			}
+		}
+
+		return isUpdated;
+	}
+
+	/**
+	 * Removes the {@link IdentityItem}s linked to the specified namespace (case insensitive) which were last updated
+	 * before the given {@code cutoff}. Items without a last updated timestamp are never removed.
+	 *
+	 * @param namespace the namespace for which to remove the expired items
+	 * @param cutoff    unix timestamp in seconds; items last updated before this time are removed
+	 * @return the number of removed {@code IdentityItem}s
+	 */
+	int removeItemsUpdatedBefore(final String namespace, final long cutoff) {
+		if (namespace == null) {
+			return 0;
+		}
+
+		int removedCount = 0;
+		final Iterator<Map.Entry<String, List<IdentityItem>>> namespaceIterator = identityItems.entrySet().iterator();
+
+		while (namespaceIterator.hasNext()) {
+			final Map.Entry<String, List<IdentityItem>> entry = namespaceIterator.next();
+
+			if (!namespace.equalsIgnoreCase(entry.getKey())) {
+				continue;
+			}
+
+			final Iterator<IdentityItem> itemIterator = entry.getValue().iterator();
+
+			while (itemIterator.hasNext()) {
+				final long lastUpdated = itemIterator.next().getLastUpdated();
+
+				if (lastUpdated > 0 && lastUpdated < cutoff) {
+					itemIterator.remove();
+					removedCount++;
+				}
+			}
+
+			if (entry.getValue().isEmpty()) {
+				namespaceIterator.remove();
+			}
+		}
+
+		return removedCount;
+	}
+
+	/**
+	 * Returns the last updated timestamps of the {@link IdentityItem}s in this {@link IdentityMap},
+	 * in the format {@code {namespace: {id: timestamp}}}. Items without a timestamp are not included.
+	 *
+	 * @return {@code Map} of the last updated timestamps for each namespace and id
+	 */
+	Map<String, Object> getLastUpdatedData() {
+		final Map<String, Object> data = new HashMap<>();
+
+		for (final Map.Entry<String, List<IdentityItem>> entry : identityItems.entrySet()) {
+			final Map<String, Object> namespaceData = new HashMap<>();
+
+			for (final IdentityItem item : entry.getValue()) {
+				if (item.getLastUpdated() > 0) {
+					namespaceData.put(item.getId(), item.getLastUpdated());
+				}
+			}
+
+			if (!namespaceData.isEmpty()) {
+				data.put(entry.getKey(), namespaceData);
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Applies the last updated timestamps read from {@code data} to the matching {@link IdentityItem}s in this {@link IdentityMap}.
+	 *
+	 * @param data the last updated timestamps in the format returned by {@link #getLastUpdatedData()}
+	 */
+	void setLastUpdatedData(final Map<String, Object> data) {
+		if (data == null) {
+			return;
+		}
+
+		for (final Map.Entry<String, List<IdentityItem>> entry : identityItems.entrySet()) {
+			try {
+				final Map<String, Object> namespaceData = (Map<String, Object>) data.get(entry.getKey());
+
+				if (namespaceData == null) {
+					continue;
+				}
+
+				final List<IdentityItem> items = entry.getValue();
+
+				for (int i = 0; i < items.size(); i++) {
+					final Object lastUpdated = namespaceData.get(items.get(i).getId());
+
+					if (lastUpdated instanceof Number) {
+						items.set(i, new IdentityItem(items.get(i), ((Number) lastUpdated).longValue()));
+					}
+				}
+			} catch (ClassCastException e) {
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					String.format(
+						"IdentityMap - Failed to read last updated data for namespace (%s). Exception thrown: %s",
+						entry.getKey(),
+						e.getLocalizedMessage()
+					)
+				);
+			}
+		}
+	}
+
 	/**
 	 * Use this method to cast the {@link IdentityMap} as {@code Map<String, Object>} to be passed as EventData for an SDK Event.
 	 * This method returns an empty map if the {@code IdentityMap} contains no data
@@ -280,6 +566,91 @@ public class IdentityMap {
 		return xdmMap;
 	}
 
+	/**
+	 * Use this method to cast the identities matching the query as {@code Map<String,Object>} to be passed as EventData
+	 * for an SDK Event. Only the matching identities are converted.
+	 *
+	 * @param query the {@link IdentityQuery} selecting the identities
+	 * @return {@code Map} representation of the xdm formatted matching identities, with an empty identity map if none match
+	 */
+	Map<String, Object> asXDMMap(final IdentityQuery query) {
+		final Map<String, Object> xdmMap = new HashMap<>();
+		final Map<String, List<Map<String, Object>>> identityMap = new HashMap<>();
+
+		for (Map.Entry<String, List<IdentityItem>> entry : identityItems.entrySet()) {
+			if (!query.matchesNamespace(entry.getKey())) {
+				continue;
+			}
+
+			final List<Map<String, Object>> namespaceIds = new ArrayList<>();
+
+			for (IdentityItem identityItem : entry.getValue()) {
+				if (query.matchesItem(identityItem)) {
+					namespaceIds.add(identityItem.toObjectMap());
+				}
+			}
+
+			if (!namespaceIds.isEmpty()) {
+				identityMap.put(entry.getKey(), namespaceIds);
+			}
+		}
+
+		xdmMap.put(IdentityConstants.XDMKeys.IDENTITY_MAP, identityMap);
+		return xdmMap;
+	}
+
+	/**
+	 * Converts this {@link IdentityMap} into the data of an SDK Event. The data contains the XDM formatted identity map,
+	 * as returned by {@code asXDMMap(false)}, for compatibility with other listeners, and the {@link IdentityMapCodec}
+	 * encoding read by {@link #fromEventData(Map)}.
+	 *
+	 * @return the event data representation of this {@code IdentityMap}
+	 */
+	Map<String, Object> asEventData() {
+		final Map<String, Object> eventData = asXDMMap(false);
+		eventData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, IdentityMapCodec.encode(this));
+		return eventData;
+	}
+
+	/**
+	 * Creates an {@link IdentityMap} from the data of an SDK Event. Decodes the {@link IdentityMapCodec} encoding when
+	 * it is well formed and holds the same namespaces as the XDM formatted identity map, if any, otherwise reads the XDM
+	 * formatted identity map with {@link #fromXDMMap(Map)}.
+	 *
+	 * @param eventData the event data; may be null
+	 * @return the {@link IdentityMap}, or null if the event data does not contain a valid identity map
+	 */
+	static IdentityMap fromEventData(final Map<String, Object> eventData) {
+		if (eventData == null) {
+			return null;
+		}
+
+		final Object encoded = eventData.get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP);
+
+		if (encoded instanceof String) {
+			final IdentityMap identityMap = IdentityMapCodec.decode((String) encoded);
+			final Object xdmIdentityMap = eventData.get(IdentityConstants.XDMKeys.IDENTITY_MAP);
+
+			if (
+				identityMap != null &&
+				(
+					!(xdmIdentityMap instanceof Map) ||
+					((Map<?, ?>) xdmIdentityMap).keySet().equals(identityMap.identityItems.keySet())
+				)
+			) {
+				return identityMap;
+			}
+
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityMap - Encoded identity map is malformed or does not match the XDM form, reading the XDM form."
+			);
+		}
+
+		return fromXDMMap(eventData);
+	}
+
 	/**
 	 * Creates an {@link IdentityMap} from the given xdm formatted {@link Map}
 	 * Returns null if the provided map is null/empty.
@@ -368,6 +739,187 @@ public class IdentityMap {
 		identityItems.put(namespace, itemList);
 	}
 
+	/**
+	 * @param namespace the namespace for which to get the items
+	 * @return the {@link IdentityItem}s for the given namespace paired with the namespace, in list order
+	 */
+	private List<Map.Entry<String, IdentityItem>> getEvictionCandidates(final String namespace) {
+		final List<Map.Entry<String, IdentityItem>> candidates = new ArrayList<>();
+
+		for (final IdentityItem item : identityItems.get(namespace)) {
+			candidates.add(new AbstractMap.SimpleImmutableEntry<>(namespace, item));
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Removes the {@code count} least recently updated items in {@code candidates} from this {@link IdentityMap}.
+	 * Items without a last updated timestamp are considered the least recently updated; ties keep the list order,
+	 * so older items in a namespace are evicted first.
+	 *
+	 * @param candidates    the items which may be evicted, paired with their namespace
+	 * @param count         the number of items to evict
+	 * @param evictedCounts the evicted items count per namespace, updated with the evicted items
+	 */
+	private void evictLeastRecentlyUpdated(
+		final List<Map.Entry<String, IdentityItem>> candidates,
+		final int count,
+		final Map<String, Integer> evictedCounts
+	) {
+		// stable sort, items with the same timestamp keep their list order
+		Collections.sort(
+			candidates,
+			new Comparator<Map.Entry<String, IdentityItem>>() {
+				@Override
+				public int compare(final Map.Entry<String, IdentityItem> a, final Map.Entry<String, IdentityItem> b) {
+					final long aLastUpdated = a.getValue().getLastUpdated();
+					final long bLastUpdated = b.getValue().getLastUpdated();
+					return aLastUpdated < bLastUpdated ? -1 : (aLastUpdated == bLastUpdated ? 0 : 1);
+				}
+			}
+		);
+
+		// collect the evicted items first, so each namespace list is compacted once instead of once per item
+		final Map<String, Set<IdentityItem>> evictedItems = new HashMap<>();
+
+		for (int i = 0; i < count && i < candidates.size(); i++) {
+			final String namespace = candidates.get(i).getKey();
+			Set<IdentityItem> namespaceItems = evictedItems.get(namespace);
+
+			if (namespaceItems == null) {
+				namespaceItems = Collections.newSetFromMap(new IdentityHashMap<IdentityItem, Boolean>());
+				evictedItems.put(namespace, namespaceItems);
+			}
+
+			namespaceItems.add(candidates.get(i).getValue());
+			final Integer evicted = evictedCounts.get(namespace);
+			evictedCounts.put(namespace, evicted == null ? 1 : evicted + 1);
+		}
+
+		for (final Map.Entry<String, Set<IdentityItem>> entry : evictedItems.entrySet()) {
+			removeItemInstancesFromMap(entry.getValue(), entry.getKey());
+		}
+	}
+
+	private static boolean containsIgnoreCase(final List<String> values, final String value) {
+		if (values == null) {
+			return false;
+		}
+
+		for (final String each : values) {
+			if (each.equalsIgnoreCase(value)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds or replaces the given items in the list of {@code namespace}, keeping the same order as adding them one by one
+	 * with {@link #addItemToMap(IdentityItem, String, boolean)}. Existing items are looked up through a hash index of the
+	 * namespace list instead of a linear search for each added item.
+	 *
+	 * @param newItems  the {@link IdentityItem}s to merge; null items are ignored
+	 * @param namespace the namespace of the items
+	 */
+	private void mergeItemsToMap(final List<IdentityItem> newItems, final String namespace) {
+		if (newItems == null || newItems.isEmpty() || Utils.isNullOrEmpty(namespace)) {
+			return;
+		}
+
+		List<IdentityItem> itemList = identityItems.get(namespace);
+
+		if (itemList == null) {
+			itemList = new ArrayList<>(newItems.size());
+			identityItems.put(namespace, itemList);
+		}
+
+		final Map<IdentityItem, Integer> indexByItem = new HashMap<>((itemList.size() + newItems.size()) * 4 / 3 + 1);
+
+		for (int i = 0; i < itemList.size(); i++) {
+			indexByItem.put(itemList.get(i), i);
+		}
+
+		for (final IdentityItem newItem : newItems) {
+			if (newItem == null) {
+				continue;
+			}
+
+			final Integer index = indexByItem.get(newItem);
+
+			if (index != null) {
+				itemList.set(index, newItem);
+			} else {
+				indexByItem.put(newItem, itemList.size());
+				itemList.add(newItem);
+			}
+		}
+
+		if (itemList.isEmpty()) {
+			identityItems.remove(namespace);
+		}
+	}
+
+	/**
+	 * Removes the given items from the list of {@code namespace} in a single pass over the namespace list.
+	 *
+	 * @param items     the {@link IdentityItem}s to remove
+	 * @param namespace the namespace of the items
+	 */
+	private void removeItemsFromMap(final List<IdentityItem> items, final String namespace) {
+		final List<IdentityItem> itemList = identityItems.get(namespace);
+
+		if (itemList == null || items == null || items.isEmpty()) {
+			return;
+		}
+
+		final Set<IdentityItem> itemsToRemove = new HashSet<>(items);
+		final List<IdentityItem> remainingItems = new ArrayList<>(itemList.size());
+
+		for (final IdentityItem item : itemList) {
+			if (!itemsToRemove.contains(item)) {
+				remainingItems.add(item);
+			}
+		}
+
+		if (remainingItems.isEmpty()) {
+			identityItems.remove(namespace);
+		} else {
+			identityItems.put(namespace, remainingItems);
+		}
+	}
+
+	/**
+	 * Removes the given {@link IdentityItem} instances from the list of {@code namespace} in a single pass, keeping the
+	 * order of the remaining items. The namespace is removed if no items remain.
+	 *
+	 * @param items     the {@code IdentityItem} instances to remove, compared by identity
+	 * @param namespace the namespace of the items
+	 */
+	private void removeItemInstancesFromMap(final Set<IdentityItem> items, final String namespace) {
+		final List<IdentityItem> itemList = identityItems.get(namespace);
+
+		if (itemList == null) {
+			return;
+		}
+
+		int remaining = 0;
+
+		for (final IdentityItem item : itemList) {
+			if (!items.contains(item)) {
+				itemList.set(remaining++, item);
+			}
+		}
+
+		itemList.subList(remaining, itemList.size()).clear();
+
+		if (itemList.isEmpty()) {
+			identityItems.remove(namespace);
+		}
+	}
+
 	private void removeItemFromMap(final IdentityItem item, final String namespace) {
 		// check if namespace exists
 		if (!identityItems.containsKey(namespace)) {
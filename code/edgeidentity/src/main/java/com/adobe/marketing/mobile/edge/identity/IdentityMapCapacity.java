@@ -0,0 +1,57 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+/**
+ * Capacity limits for the customer identifiers in an {@link IdentityMap}.
+ * A limit of {@link #UNLIMITED} means the number of items is not bounded.
+ */
+final class IdentityMapCapacity {
+
+	static final int UNLIMITED = 0;
+	static final IdentityMapCapacity NO_LIMITS = new IdentityMapCapacity(UNLIMITED, UNLIMITED);
+
+	private final int maxItemsPerNamespace;
+	private final int maxTotalItems;
+
+	/**
+	 * Creates a new {@link IdentityMapCapacity}. Negative values are treated as {@link #UNLIMITED}.
+	 *
+	 * @param maxItemsPerNamespace the maximum number of items in a single namespace
+	 * @param maxTotalItems        the maximum number of items across all the namespaces
+	 */
+	IdentityMapCapacity(final int maxItemsPerNamespace, final int maxTotalItems) {
+		this.maxItemsPerNamespace = Math.max(maxItemsPerNamespace, UNLIMITED);
+		this.maxTotalItems = Math.max(maxTotalItems, UNLIMITED);
+	}
+
+	/**
+	 * @return the maximum number of items in a single namespace, or {@link #UNLIMITED}
+	 */
+	int getMaxItemsPerNamespace() {
+		return maxItemsPerNamespace;
+	}
+
+	/**
+	 * @return the maximum number of items across all the namespaces, or {@link #UNLIMITED}
+	 */
+	int getMaxTotalItems() {
+		return maxTotalItems;
+	}
+
+	/**
+	 * @return true if at least one of the limits is set
+	 */
+	boolean isLimited() {
+		return maxItemsPerNamespace != UNLIMITED || maxTotalItems != UNLIMITED;
+	}
+}
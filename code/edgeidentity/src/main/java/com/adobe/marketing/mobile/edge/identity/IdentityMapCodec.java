@@ -0,0 +1,245 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG;
+
+import com.adobe.marketing.mobile.LoggingMode;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact string encoding of an {@link IdentityMap}, sent in event data next to the XDM form so the receiver can
+ * rebuild the {@code IdentityMap} in a single pass, without walking nested maps, casting and validating each item.
+ * <p>
+ * The encoding starts with the format version followed by {@code ;}, then for each namespace its length prefixed name,
+ * its item count followed by {@code ;}, and for each item its length prefixed id, its authenticated state code and
+ * its primary flag ({@code 1} or {@code 0}). A length prefixed string is written as {@code <length>:<string>}.
+ * For example, {@code 1;5:Email1;13:user@test.coma1}.
+ * <p>
+ * Decoding returns null for an unknown version or a malformed encoding, in which case the XDM form must be used.
+ */
+final class IdentityMapCodec {
+
+	static final int VERSION = 1;
+
+	private static final char SEPARATOR = ';';
+	private static final char LENGTH_SEPARATOR = ':';
+	private static final char AUTHENTICATED = 'a';
+	private static final char LOGGED_OUT = 'l';
+	private static final char AMBIGUOUS = 'u';
+	private static final int MIN_ITEM_LENGTH = 4; // empty length prefixed id, authenticated state and primary flag
+
+	private IdentityMapCodec() {}
+
+	/**
+	 * Encodes the identities of the map.
+	 *
+	 * @param identityMap the {@link IdentityMap} to encode
+	 * @return the encoded identities
+	 */
+	static String encode(final IdentityMap identityMap) {
+		return encode(identityMap, null);
+	}
+
+	/**
+	 * Encodes the identities of the map matching the query.
+	 *
+	 * @param identityMap the {@link IdentityMap} to encode
+	 * @param query       the {@link IdentityQuery} selecting the identities to encode; all identities are encoded if null
+	 * @return the encoded identities
+	 */
+	static String encode(final IdentityMap identityMap, final IdentityQuery query) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(VERSION).append(SEPARATOR);
+
+		for (final Map.Entry<String, List<IdentityItem>> entry : identityMap.getItemsByNamespace().entrySet()) {
+			if (query != null && !query.matchesNamespace(entry.getKey())) {
+				continue;
+			}
+
+			final List<IdentityItem> items = new ArrayList<>(entry.getValue().size());
+
+			for (final IdentityItem item : entry.getValue()) {
+				if (query == null || query.matchesItem(item)) {
+					items.add(item);
+				}
+			}
+
+			if (items.isEmpty()) {
+				continue;
+			}
+
+			appendString(builder, entry.getKey());
+			builder.append(items.size()).append(SEPARATOR);
+
+			for (final IdentityItem item : items) {
+				appendString(builder, item.getId());
+				builder.append(encodeAuthenticatedState(item.getAuthenticatedState()));
+				builder.append(item.isPrimary() ? '1' : '0');
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Decodes identities encoded with {@link #encode(IdentityMap)}.
+	 *
+	 * @param encoded the encoded identities; may be null
+	 * @return the decoded {@link IdentityMap}, or null if {@code encoded} is null, malformed or of an unknown version
+	 */
+	static IdentityMap decode(final String encoded) {
+		if (encoded == null) {
+			return null;
+		}
+
+		try {
+			final Reader reader = new Reader(encoded);
+
+			if (reader.readInt(SEPARATOR) != VERSION) {
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					"IdentityMapCodec - Unable to decode identities of unknown version."
+				);
+				return null;
+			}
+
+			final IdentityMap identityMap = new IdentityMap();
+			final Set<String> namespaces = new HashSet<>();
+
+			while (reader.hasMore()) {
+				final String namespace = reader.readString();
+				final int itemCount = reader.readInt(SEPARATOR);
+
+				if (namespace.isEmpty() || itemCount == 0 || !namespaces.add(namespace)) {
+					throw new IllegalArgumentException("empty or duplicate namespace '" + namespace + "'");
+				}
+
+				// each item takes at least MIN_ITEM_LENGTH characters, so a count the input cannot hold is malformed
+				if (itemCount > reader.remaining() / MIN_ITEM_LENGTH) {
+					throw new IllegalArgumentException("item count " + itemCount + " exceeds the encoded length");
+				}
+
+				final List<IdentityItem> items = new ArrayList<>(itemCount);
+
+				for (int i = 0; i < itemCount; i++) {
+					final String id = reader.readString();
+					final AuthenticatedState authenticatedState = decodeAuthenticatedState(reader.readChar());
+					final boolean primary = decodePrimary(reader.readChar());
+					items.add(new IdentityItem(id, authenticatedState, primary));
+				}
+
+				identityMap.setItemsForNamespace(namespace, items);
+			}
+
+			return identityMap;
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			// NumberFormatException is an IllegalArgumentException
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityMapCodec - Unable to decode malformed identities: " + e.getLocalizedMessage()
+			);
+			return null;
+		}
+	}
+
+	private static void appendString(final StringBuilder builder, final String value) {
+		builder.append(value.length()).append(LENGTH_SEPARATOR).append(value);
+	}
+
+	private static char encodeAuthenticatedState(final AuthenticatedState authenticatedState) {
+		if (authenticatedState == AuthenticatedState.AUTHENTICATED) {
+			return AUTHENTICATED;
+		} else if (authenticatedState == AuthenticatedState.LOGGED_OUT) {
+			return LOGGED_OUT;
+		} else {
+			return AMBIGUOUS;
+		}
+	}
+
+	private static AuthenticatedState decodeAuthenticatedState(final char code) {
+		switch (code) {
+			case AUTHENTICATED:
+				return AuthenticatedState.AUTHENTICATED;
+			case LOGGED_OUT:
+				return AuthenticatedState.LOGGED_OUT;
+			case AMBIGUOUS:
+				return AuthenticatedState.AMBIGUOUS;
+			default:
+				throw new IllegalArgumentException("unknown authenticated state code " + code);
+		}
+	}
+
+	private static boolean decodePrimary(final char code) {
+		switch (code) {
+			case '1':
+				return true;
+			case '0':
+				return false;
+			default:
+				throw new IllegalArgumentException("unknown primary flag " + code);
+		}
+	}
+
+	private static final class Reader {
+
+		private final String encoded;
+		private int position;
+
+		private Reader(final String encoded) {
+			this.encoded = encoded;
+		}
+
+		private boolean hasMore() {
+			return position < encoded.length();
+		}
+
+		private int remaining() {
+			return encoded.length() - position;
+		}
+
+		private int readInt(final char terminator) {
+			final int end = encoded.indexOf(terminator, position);
+
+			if (end < 0) {
+				throw new IllegalArgumentException("missing separator at " + position);
+			}
+
+			final int value = Integer.parseInt(encoded.substring(position, end));
+
+			if (value < 0) {
+				throw new IllegalArgumentException("negative value at " + position);
+			}
+
+			position = end + 1;
+			return value;
+		}
+
+		private String readString() {
+			final int length = readInt(LENGTH_SEPARATOR);
+			final String value = encoded.substring(position, position + length);
+			position += length;
+			return value;
+		}
+
+		private char readChar() {
+			return encoded.charAt(position++);
+		}
+	}
+}
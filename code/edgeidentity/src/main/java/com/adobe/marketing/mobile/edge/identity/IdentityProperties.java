@@ -16,8 +16,12 @@ import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a type which contains instances variables for this Identity extension
@@ -31,8 +35,19 @@ class IdentityProperties {
 			add(IdentityConstants.Namespaces.IDFA);
 		}
 	};
+	// reserved namespaces keyed by their lowercased name, for case insensitive lookups
+	private static final Map<String, String> reservedNamespacesByLowercasedName = new HashMap<String, String>() {
+		{
+			for (final String reservedNamespace : reservedNamespaces) {
+				put(reservedNamespace.toLowerCase(Locale.ROOT), reservedNamespace);
+			}
+		}
+	};
 
 	private final IdentityMap identityMap;
+	// ECIDs held by the identity map, cached so they are not parsed from the map on every read
+	private ECID ecid;
+	private ECID ecidSecondary;
 
 	IdentityProperties() {
 		this.identityMap = new IdentityMap();
@@ -46,6 +61,7 @@ class IdentityProperties {
 	IdentityProperties(final Map<String, Object> xdmData) {
 		IdentityMap map = IdentityMap.fromXDMMap(xdmData);
 		this.identityMap = map == null ? new IdentityMap() : map; // always keep an empty identity map so there is no need for null check
+		refreshCachedECIDs();
 	}
 
 	/**
@@ -98,7 +114,7 @@ class IdentityProperties {
 	 */
 	void setECID(final ECID newEcid) {
 		// delete the previous ECID from the identity map if exist
-		final ECID currentECID = getECID();
+		final ECID currentECID = readECIDFromMap(0);
 
 		if (currentECID != null) {
 			final IdentityItem previousECIDItem = new IdentityItem(currentECID.toString());
@@ -113,7 +129,10 @@ class IdentityProperties {
 			// And add the new primary Ecid as a first element of Identity map
 			final IdentityItem newECIDItem = new IdentityItem(newEcid.toString(), AuthenticatedState.AMBIGUOUS, false);
 			identityMap.addItem(newECIDItem, IdentityConstants.Namespaces.ECID, true);
+			ecid = newEcid;
 		}
+
+		refreshCachedECIDs();
 	}
 
 	/**
@@ -122,20 +141,7 @@ class IdentityProperties {
 	 * @return current {@code ECID}
 	 */
 	ECID getECID() {
-		final List<IdentityItem> ecidItems = identityMap.getIdentityItemsForNamespace(
-			IdentityConstants.Namespaces.ECID
-		);
-
-		if (
-			ecidItems != null &&
-			!ecidItems.isEmpty() &&
-			ecidItems.get(0) != null &&
-			!Utils.isNullOrEmpty(ecidItems.get(0).getId())
-		) {
-			return new ECID(ecidItems.get(0).getId());
-		}
-
-		return null;
+		return ecid;
 	}
 
 	/**
@@ -145,16 +151,17 @@ class IdentityProperties {
 	 */
 	void setECIDSecondary(final ECID newSecondaryEcid) {
 		// delete the previous secondary ECID from the identity map if exist
-		final ECID ecidSecondary = getECIDSecondary();
+		final ECID currentSecondaryECID = readECIDFromMap(1);
 
-		if (ecidSecondary != null) {
-			final IdentityItem previousECIDItem = new IdentityItem(ecidSecondary.toString());
+		if (currentSecondaryECID != null) {
+			final IdentityItem previousECIDItem = new IdentityItem(currentSecondaryECID.toString());
 			identityMap.removeItem(previousECIDItem, IdentityConstants.Namespaces.ECID);
 		}
 
 		// do not set secondary ECID if primary ECID is not set
-		if (getECID() == null) {
+		if (readECIDFromMap(0) == null) {
 			MobileCore.log(LoggingMode.DEBUG, LOG_TAG, "Cannot set secondary ECID value as no primary ECID exists.");
+			refreshCachedECIDs();
 			return;
 		}
 
@@ -166,7 +173,10 @@ class IdentityProperties {
 				false
 			);
 			identityMap.addItem(newSecondaryECIDItem, IdentityConstants.Namespaces.ECID);
+			ecidSecondary = newSecondaryEcid;
 		}
+
+		refreshCachedECIDs();
 	}
 
 	/**
@@ -175,20 +185,7 @@ class IdentityProperties {
 	 * @return secondary {@code ECID}
 	 */
 	ECID getECIDSecondary() {
-		final List<IdentityItem> ecidItems = identityMap.getIdentityItemsForNamespace(
-			IdentityConstants.Namespaces.ECID
-		);
-
-		if (
-			ecidItems != null &&
-			ecidItems.size() > 1 &&
-			ecidItems.get(1) != null &&
-			!Utils.isNullOrEmpty(ecidItems.get(1).getId())
-		) {
-			return new ECID(ecidItems.get(1).getId());
-		}
-
-		return null;
+		return ecidSecondary;
 	}
 
 	/**
@@ -205,8 +202,26 @@ class IdentityProperties {
 	 * @param map the {@code IdentityMap} containing customer identifiers to add or update with the current customer identifiers
 	 */
 	void updateCustomerIdentifiers(final IdentityMap map) {
+		updateCustomerIdentifiers(map, IdentityMapCapacity.NO_LIMITS, null);
+	}
+
+	/**
+	 * Update the customer identifiers as in {@link #updateCustomerIdentifiers(IdentityMap)}, then evict the least recently
+	 * updated customer identifiers which exceed the given {@code capacity}. Identifiers in the reserved namespaces are never evicted.
+	 *
+	 * @param map      the {@code IdentityMap} containing customer identifiers to add or update with the current customer identifiers
+	 * @param capacity the {@link IdentityMapCapacity} limits to enforce
+	 * @param callback {@link IdentityDiagnosticsCallback} notified of the evicted identifiers; may be null
+	 * @return the number of evicted identifiers
+	 */
+	int updateCustomerIdentifiers(
+		final IdentityMap map,
+		final IdentityMapCapacity capacity,
+		final IdentityDiagnosticsCallback callback
+	) {
 		removeIdentitiesWithReservedNamespaces(map);
-		identityMap.merge(map);
+		map.setLastUpdated(Utils.getUnixTimeInSeconds(), true);
+		return identityMap.merge(map, capacity, reservedNamespaces, callback);
 	}
 
 	/**
@@ -224,6 +239,94 @@ class IdentityProperties {
 		identityMap.remove(map);
 	}
 
+	/**
+	 * Remove all the customer identifiers in the given namespace (case insensitive) from the current identifiers.
+	 * <p>
+	 * Identifiers with following namespaces are prohibited from removing using the API
+	 * - ECID
+	 * - IDFA
+	 * - GAID
+	 *
+	 * @param namespace the namespace for which to remove all identifiers
+	 * @return true if any identifiers were removed
+	 */
+	boolean removeCustomerIdentifiersForNamespace(final String namespace) {
+		if (isReservedNamespace(namespace)) {
+			logReservedNamespaceNotAllowed(namespace);
+			return false;
+		}
+
+		return identityMap.clearItemsForNamespace(namespace);
+	}
+
+	/**
+	 * Remove the customer identifiers which were not updated within the time to live configured for their namespace.
+	 * Identifiers in the reserved namespaces (ECID, IDFA, GAID) never expire.
+	 *
+	 * @param timeToLiveByNamespace the time to live in seconds, keyed by namespace (case insensitive)
+	 * @param now                   the current unix timestamp in seconds
+	 * @return the number of removed identifiers
+	 */
+	int removeExpiredCustomerIdentifiers(final Map<String, Long> timeToLiveByNamespace, final long now) {
+		if (timeToLiveByNamespace == null) {
+			return 0;
+		}
+
+		int removedCount = 0;
+
+		for (final Map.Entry<String, Long> entry : timeToLiveByNamespace.entrySet()) {
+			if (entry.getValue() == null || isReservedNamespace(entry.getKey())) {
+				continue;
+			}
+
+			removedCount += identityMap.removeItemsUpdatedBefore(entry.getKey(), now - entry.getValue());
+		}
+
+		return removedCount;
+	}
+
+	/**
+	 * Hashes the stored customer identifiers of the namespaces configured for hashing in the given
+	 * {@link IdentityHasher}, except the namespaces which are already hashed.
+	 * Identifiers in the reserved namespaces (ECID, IDFA, GAID) are never hashed.
+	 *
+	 * @param hasher           the {@code IdentityHasher} with the current hashing policy
+	 * @param hashedNamespaces the lowercased namespaces whose stored identifiers are already hashed
+	 * @return true if any identifier was hashed or removed
+	 */
+	boolean hashCustomerIdentifiers(final IdentityHasher hasher, final Set<String> hashedNamespaces) {
+		final Set<String> skippedNamespaces = new HashSet<>(reservedNamespacesByLowercasedName.keySet());
+		skippedNamespaces.addAll(hashedNamespaces);
+		return hasher.hashStoredIdentifiers(identityMap, skippedNamespaces);
+	}
+
+	/**
+	 * Sets the last updated timestamp on the identifiers which do not have one, such as identifiers
+	 * persisted before the last updated timestamps were tracked.
+	 *
+	 * @param timestamp unix timestamp in seconds
+	 * @return true if the timestamp was set on any identifier
+	 */
+	boolean setLastUpdatedIfMissing(final long timestamp) {
+		return identityMap.setLastUpdated(timestamp, false);
+	}
+
+	/**
+	 * @return the last updated timestamps of the identifiers, in the format {@code {namespace: {id: timestamp}}}
+	 */
+	Map<String, Object> getLastUpdatedData() {
+		return identityMap.getLastUpdatedData();
+	}
+
+	/**
+	 * Applies the last updated timestamps, as returned by {@link #getLastUpdatedData()}, to the identifiers.
+	 *
+	 * @param data the last updated timestamps in the format {@code {namespace: {id: timestamp}}}
+	 */
+	void setLastUpdatedData(final Map<String, Object> data) {
+		identityMap.setLastUpdatedData(data);
+	}
+
 	/**
 	 * Converts this into an event data representation in XDM format
 	 *
@@ -235,37 +338,135 @@ class IdentityProperties {
 	}
 
 	/**
-	 * Filter out any items contained in reserved namespaces from the given {@link IdentityMap}.
-	 * The list of reserved namespaces can be found at {@link #reservedNamespaces}.
+	 * Converts the identities matching the query into an event data representation in XDM format
+	 *
+	 * @param query the {@link IdentityQuery} selecting the identities
+	 * @return A {@link Map} representing the matching identities in XDM format
+	 */
+	Map<String, Object> toXDMData(final IdentityQuery query) {
+		return identityMap.asXDMMap(query);
+	}
+
+	/**
+	 * Encodes the identities matching the query with {@link IdentityMapCodec}
+	 *
+	 * @param query the {@link IdentityQuery} selecting the identities; all identities are encoded if null
+	 * @return the encoded identities
+	 */
+	String toEncodedData(final IdentityQuery query) {
+		return IdentityMapCodec.encode(identityMap, query);
+	}
+
+	/**
+	 * Filter out any items contained in reserved namespaces (case insensitive) from the given {@link IdentityMap},
+	 * in a single pass over its namespaces. The list of reserved namespaces can be found at {@link #reservedNamespaces}.
+	 * A message is logged once for each reserved namespace which was filtered out.
 	 *
 	 * @param identityMap the {@code IdentityMap} to filter out items contained in reserved namespaces.
+	 * @return the filtered out namespaces as they were named in {@code identityMap}; empty if none was filtered out
 	 */
-	private void removeIdentitiesWithReservedNamespaces(final IdentityMap identityMap) {
-		for (final String reservedNamespace : reservedNamespaces) {
-			if (identityMap.clearItemsForNamespace(reservedNamespace)) {
-				if (
-					reservedNamespace.equalsIgnoreCase(IdentityConstants.Namespaces.GAID) ||
-					reservedNamespace.equalsIgnoreCase(IdentityConstants.Namespaces.IDFA)
-				) {
-					MobileCore.log(
-						LoggingMode.DEBUG,
-						LOG_TAG,
-						String.format(
-							"IdentityProperties - Operation not allowed for namespace %s; use MobileCore.setAdvertisingIdentifier instead.",
-							reservedNamespace
-						)
-					);
-				} else {
-					MobileCore.log(
-						LoggingMode.DEBUG,
-						LOG_TAG,
-						String.format(
-							"IdentityProperties - Updating/Removing identifiers in namespace %s is not allowed.",
-							reservedNamespace
-						)
-					);
-				}
+	private List<String> removeIdentitiesWithReservedNamespaces(final IdentityMap identityMap) {
+		final List<String> removedNamespaces = identityMap.removeNamespaces(reservedNamespacesByLowercasedName.keySet());
+
+		if (removedNamespaces.isEmpty()) {
+			return removedNamespaces;
+		}
+
+		final Set<String> loggedNamespaces = new HashSet<>();
+
+		for (final String removedNamespace : removedNamespaces) {
+			final String reservedNamespace = reservedNamespacesByLowercasedName.get(
+				removedNamespace.toLowerCase(Locale.ROOT)
+			);
+
+			if (loggedNamespaces.add(reservedNamespace)) {
+				logReservedNamespaceNotAllowed(reservedNamespace);
 			}
 		}
+
+		return removedNamespaces;
+	}
+
+	/**
+	 * Reads the {@link ECID} at the given position of the ECID namespace in {@link #identityMap}.
+	 *
+	 * @param index the position in the ECID namespace; 0 for the primary ECID, 1 for the secondary ECID
+	 * @return the {@code ECID} or null if not present
+	 */
+	private ECID readECIDFromMap(final int index) {
+		final List<IdentityItem> ecidItems = identityMap.getIdentityItemsForNamespace(
+			IdentityConstants.Namespaces.ECID
+		);
+
+		if (
+			ecidItems != null &&
+			ecidItems.size() > index &&
+			ecidItems.get(index) != null &&
+			!Utils.isNullOrEmpty(ecidItems.get(index).getId())
+		) {
+			return new ECID(ecidItems.get(index).getId());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Updates the cached {@link #ecid} and {@link #ecidSecondary} from {@link #identityMap}, keeping the cached
+	 * instances when they still match the map.
+	 * Must be called after any change to the ECID namespace; the reserved namespaces are not changed by any other operation.
+	 */
+	private void refreshCachedECIDs() {
+		ecid = refreshCachedECID(ecid, 0);
+		ecidSecondary = refreshCachedECID(ecidSecondary, 1);
+	}
+
+	private ECID refreshCachedECID(final ECID cached, final int index) {
+		final ECID current = readECIDFromMap(index);
+
+		if (current == null) {
+			return null;
+		}
+
+		return current.equals(cached) ? cached : current;
+	}
+
+	/**
+	 * Checks if the given namespace is one of the {@link #reservedNamespaces} (case insensitive).
+	 *
+	 * @param namespace the namespace to check
+	 * @return true if {@code namespace} is a reserved namespace
+	 */
+	private static boolean isReservedNamespace(final String namespace) {
+		return namespace != null && reservedNamespacesByLowercasedName.containsKey(namespace.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Logs that updating or removing identifiers in the given reserved namespace is not allowed.
+	 *
+	 * @param reservedNamespace the reserved namespace which was part of the operation
+	 */
+	private void logReservedNamespaceNotAllowed(final String reservedNamespace) {
+		if (
+			reservedNamespace.equalsIgnoreCase(IdentityConstants.Namespaces.GAID) ||
+			reservedNamespace.equalsIgnoreCase(IdentityConstants.Namespaces.IDFA)
+		) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				String.format(
+					"IdentityProperties - Operation not allowed for namespace %s; use MobileCore.setAdvertisingIdentifier instead.",
+					reservedNamespace
+				)
+			);
+		} else {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				String.format(
+					"IdentityProperties - Updating/Removing identifiers in namespace %s is not allowed.",
+					reservedNamespace
+				)
+			);
+		}
 	}
 }
@@ -0,0 +1,225 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Selects the identities returned by {@link Identity#getIdentities(IdentityQuery, com.adobe.marketing.mobile.AdobeCallback)}.
+ * <p>
+ * The query is sent with the request and applied by the extension, so only the matching identities are returned and
+ * parsed. An identity matches if its namespace is one of the queried namespaces, its authenticated state is one of
+ * the queried authenticated states and, when only primary identities are queried, it is primary.
+ * Criteria which are not set match all identities. Namespaces are matched case insensitively.
+ */
+public final class IdentityQuery {
+
+	private final Set<String> namespaces; // lower case, null matches all namespaces
+	private final Set<AuthenticatedState> authenticatedStates; // null matches all authenticated states
+	private final boolean primaryOnly;
+
+	private IdentityQuery(
+		final Set<String> namespaces,
+		final Set<AuthenticatedState> authenticatedStates,
+		final boolean primaryOnly
+	) {
+		this.namespaces = namespaces;
+		this.authenticatedStates = authenticatedStates;
+		this.primaryOnly = primaryOnly;
+	}
+
+	/**
+	 * Builder for {@link IdentityQuery}.
+	 */
+	public static final class Builder {
+
+		private Set<String> namespaces;
+		private Set<AuthenticatedState> authenticatedStates;
+		private boolean primaryOnly;
+
+		/**
+		 * Only match identities in the given namespaces. Null or empty namespaces are ignored.
+		 *
+		 * @param namespaces the namespaces to match
+		 * @return this {@link Builder}
+		 */
+		public Builder setNamespaces(final String... namespaces) {
+			this.namespaces = new TreeSet<>();
+
+			if (namespaces != null) {
+				for (final String namespace : namespaces) {
+					if (!Utils.isNullOrEmpty(namespace)) {
+						this.namespaces.add(namespace.toLowerCase(Locale.ROOT));
+					}
+				}
+			}
+
+			return this;
+		}
+
+		/**
+		 * Only match identities with one of the given authenticated states.
+		 *
+		 * @param authenticatedStates the {@link AuthenticatedState}s to match
+		 * @return this {@link Builder}
+		 */
+		public Builder setAuthenticatedStates(final AuthenticatedState... authenticatedStates) {
+			this.authenticatedStates = EnumSet.noneOf(AuthenticatedState.class);
+
+			if (authenticatedStates != null) {
+				for (final AuthenticatedState authenticatedState : authenticatedStates) {
+					if (authenticatedState != null) {
+						this.authenticatedStates.add(authenticatedState);
+					}
+				}
+			}
+
+			return this;
+		}
+
+		/**
+		 * @param primaryOnly true to only match primary identities
+		 * @return this {@link Builder}
+		 */
+		public Builder setPrimaryOnly(final boolean primaryOnly) {
+			this.primaryOnly = primaryOnly;
+			return this;
+		}
+
+		/**
+		 * @return the {@link IdentityQuery}
+		 */
+		public IdentityQuery build() {
+			return new IdentityQuery(
+				namespaces != null ? Collections.unmodifiableSet(new TreeSet<>(namespaces)) : null,
+				authenticatedStates != null ? Collections.unmodifiableSet(EnumSet.copyOf(authenticatedStates)) : null,
+				primaryOnly
+			);
+		}
+	}
+
+	/**
+	 * @param namespace the namespace of an identity
+	 * @return true if the identities of the namespace may match this query
+	 */
+	boolean matchesNamespace(final String namespace) {
+		return namespaces == null || (namespace != null && namespaces.contains(namespace.toLowerCase(Locale.ROOT)));
+	}
+
+	/**
+	 * @param item the {@link IdentityItem} in a namespace matched by {@link #matchesNamespace(String)}
+	 * @return true if the item matches this query
+	 */
+	boolean matchesItem(final IdentityItem item) {
+		return (
+			(!primaryOnly || item.isPrimary()) &&
+			(authenticatedStates == null || authenticatedStates.contains(item.getAuthenticatedState()))
+		);
+	}
+
+	/**
+	 * @return a key identifying this query, equal for queries matching the same identities
+	 */
+	String getRequestKey() {
+		return (
+			"namespaces=" +
+			(namespaces != null ? namespaces.toString() : "*") +
+			";authenticatedStates=" +
+			(authenticatedStates != null ? authenticatedStates.toString() : "*") +
+			";primaryOnly=" +
+			primaryOnly
+		);
+	}
+
+	/**
+	 * @return this query as event data, to be sent with the request event
+	 */
+	Map<String, Object> toEventData() {
+		final Map<String, Object> query = new HashMap<>();
+
+		if (namespaces != null) {
+			query.put(IdentityConstants.EventDataKeys.QUERY_NAMESPACES, new ArrayList<>(namespaces));
+		}
+
+		if (authenticatedStates != null) {
+			final List<String> states = new ArrayList<>();
+
+			for (final AuthenticatedState authenticatedState : authenticatedStates) {
+				states.add(authenticatedState.getName());
+			}
+
+			query.put(IdentityConstants.EventDataKeys.QUERY_AUTHENTICATED_STATES, states);
+		}
+
+		query.put(IdentityConstants.EventDataKeys.QUERY_PRIMARY_ONLY, primaryOnly);
+
+		final Map<String, Object> eventData = new HashMap<>();
+		eventData.put(IdentityConstants.EventDataKeys.QUERY, query);
+		return eventData;
+	}
+
+	/**
+	 * Reads the query from the event data of a request event.
+	 *
+	 * @param eventData the request event data; may be null
+	 * @return the {@link IdentityQuery}, or null if the event data has no query
+	 */
+	static IdentityQuery fromEventData(final Map<String, Object> eventData) {
+		if (eventData == null || !(eventData.get(IdentityConstants.EventDataKeys.QUERY) instanceof Map)) {
+			return null;
+		}
+
+		final Map<?, ?> query = (Map<?, ?>) eventData.get(IdentityConstants.EventDataKeys.QUERY);
+		final Builder builder = new Builder();
+		final Object namespaces = query.get(IdentityConstants.EventDataKeys.QUERY_NAMESPACES);
+		final Object authenticatedStates = query.get(IdentityConstants.EventDataKeys.QUERY_AUTHENTICATED_STATES);
+		final Object primaryOnly = query.get(IdentityConstants.EventDataKeys.QUERY_PRIMARY_ONLY);
+
+		if (namespaces instanceof List) {
+			final List<String> values = new ArrayList<>();
+
+			for (final Object namespace : (List<?>) namespaces) {
+				if (namespace instanceof String) {
+					values.add((String) namespace);
+				}
+			}
+
+			builder.setNamespaces(values.toArray(new String[0]));
+		}
+
+		if (authenticatedStates instanceof List) {
+			final List<AuthenticatedState> values = new ArrayList<>();
+
+			for (final Object authenticatedState : (List<?>) authenticatedStates) {
+				if (authenticatedState instanceof String) {
+					values.add(AuthenticatedState.fromString((String) authenticatedState));
+				}
+			}
+
+			builder.setAuthenticatedStates(values.toArray(new AuthenticatedState[0]));
+		}
+
+		if (primaryOnly instanceof Boolean) {
+			builder.setPrimaryOnly((Boolean) primaryOnly);
+		}
+
+		return builder.build();
+	}
+}
@@ -19,7 +19,9 @@ import com.adobe.marketing.mobile.ExtensionErrorCallback;
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages the business logic of this Identity extension
@@ -27,7 +29,14 @@ import java.util.Map;
 class IdentityState {
 
 	private IdentityProperties identityProperties;
-	private boolean hasBooted;
+	private volatile boolean hasBooted; // volatile so the bootup status is visible to any thread checking it
+	private boolean hasConfiguration; // true once the settings were read from the Configuration shared state
+	private Map<String, Long> namespaceTimeToLive = new HashMap<>();
+	private IdentityMapCapacity identityMapCapacity = IdentityMapCapacity.NO_LIMITS;
+	private IdentityDiagnosticsCallback diagnosticsCallback;
+	private IdentityHasher identityHasher;
+	private Set<String> hashedNamespaces = new HashSet<>(); // lowercased namespaces of the hashed stored identifiers
+	private Set<String> registeredExtensions; // extensions registered with the EventHub, null until the Hub shared state is read
 
 	/**
 	 * Creates a new {@link IdentityState} with the given {@link IdentityProperties}
@@ -45,6 +54,23 @@ class IdentityState {
 		return hasBooted;
 	}
 
+	/**
+	 * Sets the names of the extensions registered with the EventHub, as read from the latest Hub shared state.
+	 *
+	 * @param registeredExtensions the registered extension names; should not be null
+	 */
+	void setRegisteredExtensions(final Set<String> registeredExtensions) {
+		this.registeredExtensions = registeredExtensions;
+	}
+
+	/**
+	 * @param extensionName the name of the extension
+	 * @return true if the extension is known to be registered with the EventHub
+	 */
+	boolean isExtensionRegistered(final String extensionName) {
+		return registeredExtensions != null && registeredExtensions.contains(extensionName);
+	}
+
 	/**
 	 * @return The current {@link IdentityProperties} for this identity state
 	 */
@@ -52,12 +78,79 @@ class IdentityState {
 		return identityProperties;
 	}
 
+	/**
+	 * Sets the time to live of the customer identifiers per namespace, as read from the Configuration shared state.
+	 *
+	 * @param namespaceTimeToLive the time to live in seconds keyed by namespace; null clears the configured values
+	 */
+	void setNamespaceTimeToLive(final Map<String, Long> namespaceTimeToLive) {
+		this.namespaceTimeToLive = namespaceTimeToLive != null ? namespaceTimeToLive : new HashMap<String, Long>();
+
+		// Identifiers added before the time to live was configured start their time to live now
+		if (
+			hasBooted() &&
+			!this.namespaceTimeToLive.isEmpty() &&
+			identityProperties.setLastUpdatedIfMissing(Utils.getUnixTimeInSeconds())
+		) {
+			savePropertiesToPersistence(null);
+		}
+	}
+
+	/**
+	 * Sets the capacity limits enforced when customer identifiers are updated.
+	 *
+	 * @param identityMapCapacity the {@link IdentityMapCapacity}; null removes the limits
+	 */
+	void setIdentityMapCapacity(final IdentityMapCapacity identityMapCapacity) {
+		this.identityMapCapacity =
+			identityMapCapacity != null ? identityMapCapacity : IdentityMapCapacity.NO_LIMITS;
+	}
+
+	/**
+	 * Sets whether the customer identifiers settings were read from the Configuration shared state.
+	 * The hashing policy is only applied to the stored customer identifiers, and their last updated timestamps are
+	 * only removed from persistence, once they were.
+	 *
+	 * @param hasConfiguration true once the Configuration shared state was read
+	 */
+	void setHasConfiguration(final boolean hasConfiguration) {
+		this.hasConfiguration = hasConfiguration;
+	}
+
+	/**
+	 * Sets the callback notified with diagnostics about the customer identifiers, such as evicted identifiers.
+	 *
+	 * @param diagnosticsCallback the {@link IdentityDiagnosticsCallback}; may be null
+	 */
+	void setDiagnosticsCallback(final IdentityDiagnosticsCallback diagnosticsCallback) {
+		this.diagnosticsCallback = diagnosticsCallback;
+	}
+
+	/**
+	 * Sets the {@link IdentityHasher} whose hashing policy is applied to the stored customer identifiers.
+	 *
+	 * @param identityHasher the {@code IdentityHasher}; may be null to not hash the stored identifiers
+	 */
+	void setIdentityHasher(final IdentityHasher identityHasher) {
+		this.identityHasher = identityHasher;
+	}
+
+	/**
+	 * @return true if a time to live is configured for at least one namespace
+	 */
+	boolean hasNamespaceTimeToLive() {
+		return !namespaceTimeToLive.isEmpty();
+	}
+
 	/**
 	 * Completes init for this Identity extension.
 	 * Attempts to load the already persisted identities from persistence into {@link #identityProperties}
 	 * If no ECID is loaded from persistence (ideally meaning first launch), attempts to migrate existing ECID
 	 * from the direct Identity Extension, either from its persisted store or from its shared state if the
 	 * direct Identity extension is registered. If no ECID is found for migration, then a new ECID is generated.
+	 * The direct Identity persisted ECID is always looked up, but the wait for the direct Identity shared state is
+	 * skipped when a previous launch persisted that the migration completed or that there was no direct Identity ECID
+	 * to migrate.
 	 * Stores the {@code identityProperties} once an ECID is set and creates the first shared state.
 	 *
 	 * @param callback {@link SharedStateCallback} used to get the EventHub and/or Identity direct shared state
@@ -76,13 +169,33 @@ class IdentityState {
 			identityProperties = new IdentityProperties();
 		}
 
+		// Identifiers stored before their namespace was configured for hashing are hashed now
+		hashedNamespaces = IdentityStorageService.loadHashedNamespaces();
+		boolean shouldSave = hashStoredIdentifiers();
+
+		if (!namespaceTimeToLive.isEmpty()) {
+			// Identifiers persisted before the time to live was configured start their time to live now
+			final long now = Utils.getUnixTimeInSeconds();
+			shouldSave = identityProperties.setLastUpdatedIfMissing(now);
+			shouldSave |= identityProperties.removeExpiredCustomerIdentifiers(namespaceTimeToLive, now) > 0;
+		}
+
+		String migrationStatus = null; // the resolved direct Identity ECID migration status to persist, null if unchanged
+
 		// Reuse the ECID from Identity Direct (if registered) or generate new ECID on first launch
 		if (identityProperties.getECID() == null) {
+			final String previousMigrationStatus = IdentityStorageService.loadLegacyEcidMigrationStatus();
+
 			// Attempt to get ECID from direct Identity persistence to migrate an existing ECID
 			final ECID directIdentityEcid = IdentityStorageService.loadEcidFromDirectIdentityPersistence();
 
 			if (directIdentityEcid != null) {
 				identityProperties.setECID(directIdentityEcid);
+
+				if (!IdentityConstants.LegacyEcidMigrationStatus.MIGRATED.equals(previousMigrationStatus)) {
+					migrationStatus = IdentityConstants.LegacyEcidMigrationStatus.MIGRATED;
+				}
+
 				MobileCore.log(
 					LoggingMode.DEBUG,
 					LOG_TAG,
@@ -91,6 +204,22 @@ class IdentityState {
 					"'"
 				);
 			}
+			// The direct Identity ECID was already migrated or found absent on a previous launch, do not wait for the direct Identity shared state
+			else if (
+				IdentityConstants.LegacyEcidMigrationStatus.MIGRATED.equals(previousMigrationStatus) ||
+				IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT.equals(previousMigrationStatus)
+			) {
+				identityProperties.setECID(new ECID());
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					"IdentityState - Direct Identity ECID migration status is '" +
+					previousMigrationStatus +
+					"', generating new ECID on bootup '" +
+					identityProperties.getECID() +
+					"'"
+				);
+			}
 			// If direct Identity has no persisted ECID, check if direct Identity is registered with the SDK
 			else if (isIdentityDirectRegistered(callback)) {
 				final Map<String, Object> identityDirectSharedState = callback.getSharedState(
@@ -100,7 +229,12 @@ class IdentityState {
 
 				// If the direct Identity extension is registered, attempt to get its shared state
 				if (identityDirectSharedState != null) { // identity direct shared state is set
-					handleECIDFromIdentityDirect(EventUtils.getECID(identityDirectSharedState));
+					final ECID legacyEcid = EventUtils.getECID(identityDirectSharedState);
+					handleECIDFromIdentityDirect(legacyEcid);
+					migrationStatus =
+						legacyEcid != null
+							? IdentityConstants.LegacyEcidMigrationStatus.MIGRATED
+							: IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT;
 				}
 				// If there is no direct Identity shared state, abort boot-up and try again when direct Identity shares its state
 				else {
@@ -115,6 +249,7 @@ class IdentityState {
 			// Generate a new ECID as the direct Identity extension is not registered with the SDK and there was no direct Identity persisted ECID
 			else {
 				identityProperties.setECID(new ECID());
+				migrationStatus = IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT;
 				MobileCore.log(
 					LoggingMode.DEBUG,
 					LOG_TAG,
@@ -122,9 +257,14 @@ class IdentityState {
 				);
 			}
 
-			IdentityStorageService.savePropertiesToPersistence(identityProperties);
+			shouldSave = true;
+		}
+
+		if (shouldSave) {
+			savePropertiesToPersistence(migrationStatus);
 		}
 
+		saveHashedNamespaces();
 		hasBooted = true;
 		MobileCore.log(LoggingMode.DEBUG, LOG_TAG, "IdentityState - Edge Identity has successfully booted up");
 		callback.setXDMSharedEventState(identityProperties.toXDMData(false), null);
@@ -139,17 +279,18 @@ class IdentityState {
 		identityProperties = new IdentityProperties();
 		identityProperties.setECID(new ECID());
 		identityProperties.setECIDSecondary(null);
-		IdentityStorageService.savePropertiesToPersistence(identityProperties);
+		savePropertiesToPersistence(null);
 	}
 
 	/**
 	 * Update the customer identifiers by merging the passed in {@link IdentityMap} with the current identifiers present in {@link #identityProperties}.
+	 * The least recently updated identifiers are evicted when the configured {@link IdentityMapCapacity} is exceeded.
 	 *
 	 * @param map the {@code IdentityMap} containing customer identifiers to add or update with the current customer identifiers
 	 */
 	void updateCustomerIdentifiers(final IdentityMap map) {
-		identityProperties.updateCustomerIdentifiers(map);
-		IdentityStorageService.savePropertiesToPersistence(identityProperties);
+		identityProperties.updateCustomerIdentifiers(map, identityMapCapacity, diagnosticsCallback);
+		savePropertiesToPersistence(null);
 	}
 
 	/**
@@ -159,7 +300,77 @@ class IdentityState {
 	 */
 	void removeCustomerIdentifiers(final IdentityMap map) {
 		identityProperties.removeCustomerIdentifiers(map);
-		IdentityStorageService.savePropertiesToPersistence(identityProperties);
+		savePropertiesToPersistence(null);
+	}
+
+	/**
+	 * Remove all customer identifiers in the given namespace from the current identifiers present in {@link #identityProperties}.
+	 * Persistence is only updated if identifiers were removed.
+	 *
+	 * @param namespace the namespace for which to remove all identifiers
+	 * @return true if any identifiers were removed
+	 */
+	boolean removeCustomerIdentifiersForNamespace(final String namespace) {
+		if (!identityProperties.removeCustomerIdentifiersForNamespace(namespace)) {
+			return false;
+		}
+
+		savePropertiesToPersistence(null);
+		return true;
+	}
+
+	/**
+	 * Hashes the stored customer identifiers of the namespaces newly configured for hashing, as set in the
+	 * {@link IdentityHasher}. Persistence is only updated if identifiers were hashed or removed,
+	 * or if the hashed namespaces changed.
+	 *
+	 * @return true if any identifiers were hashed or removed
+	 */
+	boolean hashCustomerIdentifiers() {
+		if (identityProperties == null || !hasBooted) {
+			return false;
+		}
+
+		final boolean changed = hashStoredIdentifiers();
+
+		if (changed) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityState - Hashed the stored customer identifiers of the namespaces configured for hashing"
+			);
+			savePropertiesToPersistence(null);
+		}
+
+		saveHashedNamespaces();
+		return changed;
+	}
+
+	/**
+	 * Remove the customer identifiers which exceeded the time to live configured for their namespace.
+	 * Persistence is only updated if identifiers were removed.
+	 *
+	 * @param now the current unix timestamp in seconds
+	 * @return true if any identifiers were removed
+	 */
+	boolean removeExpiredIdentifiers(final long now) {
+		if (identityProperties == null || namespaceTimeToLive.isEmpty()) {
+			return false;
+		}
+
+		final int removedCount = identityProperties.removeExpiredCustomerIdentifiers(namespaceTimeToLive, now);
+
+		if (removedCount == 0) {
+			return false;
+		}
+
+		MobileCore.log(
+			LoggingMode.DEBUG,
+			LOG_TAG,
+			"IdentityState - Removed " + removedCount + " customer identifier(s) which exceeded their time to live"
+		);
+		savePropertiesToPersistence(null);
+		return true;
 	}
 
 	/**
@@ -198,7 +409,7 @@ class IdentityState {
 		}
 
 		// Save to persistence
-		IdentityStorageService.savePropertiesToPersistence(identityProperties);
+		savePropertiesToPersistence(null);
 		callback.setXDMSharedEventState(identityProperties.toXDMData(false), event);
 	}
 
@@ -223,7 +434,7 @@ class IdentityState {
 		}
 
 		identityProperties.setECIDSecondary(legacyEcid);
-		IdentityStorageService.savePropertiesToPersistence(identityProperties);
+		savePropertiesToPersistence(null);
 		MobileCore.log(
 			LoggingMode.DEBUG,
 			LOG_TAG,
@@ -262,39 +473,24 @@ class IdentityState {
 	}
 
 	/**
-	 * Check if the Identity direct extension is registered by checking the EventHub's shared state list of registered extensions.
+	 * Check if the Identity direct extension is registered by checking the EventHub's list of registered extensions.
+	 * The list is read from the EventHub shared state only if it was not set through {@link #setRegisteredExtensions(Set)}.
 	 *
 	 * @param callback the {@link SharedStateCallback} to be used for fetching the EventHub Shared state; should not be null
 	 * @return true if the Identity direct extension is registered with the EventHub
 	 */
 	private boolean isIdentityDirectRegistered(final SharedStateCallback callback) {
-		Map<String, Object> registeredExtensionsWithHub = callback.getSharedState(
-			IdentityConstants.SharedState.Hub.NAME,
-			null
-		);
-
-		Map<String, Object> identityDirectInfo = null;
-
-		if (registeredExtensionsWithHub != null) {
-			try {
-				final Map<String, Object> extensions = (HashMap<String, Object>) registeredExtensionsWithHub.get(
-					IdentityConstants.SharedState.Hub.EXTENSIONS
-				);
+		if (registeredExtensions == null) {
+			final Map<String, Object> hubSharedState = callback.getSharedState(IdentityConstants.SharedState.Hub.NAME, null);
 
-				if (extensions != null) {
-					identityDirectInfo =
-						(HashMap<String, Object>) extensions.get(IdentityConstants.SharedState.IdentityDirect.NAME);
-				}
-			} catch (ClassCastException e) {
-				MobileCore.log(
-					LoggingMode.DEBUG,
-					LOG_TAG,
-					"IdentityState - Unable to fetch com.adobe.module.identity info from Hub State due to invalid format, expected Map"
-				);
+			if (hubSharedState == null) {
+				return false; // read again on the next bootup attempt
 			}
+
+			registeredExtensions = EventUtils.getRegisteredExtensions(hubSharedState);
 		}
 
-		return !Utils.isNullOrEmpty(identityDirectInfo);
+		return registeredExtensions.contains(IdentityConstants.SharedState.IdentityDirect.NAME);
 	}
 
 	/**
@@ -317,6 +513,52 @@ class IdentityState {
 		return consentMap;
 	}
 
+	/**
+	 * Hashes the stored customer identifiers of the namespaces configured for hashing
+	 * which are not in {@link #hashedNamespaces}, once the Configuration shared state was read.
+	 *
+	 * @return true if any identifiers were hashed or removed
+	 */
+	private boolean hashStoredIdentifiers() {
+		return (
+			hasConfiguration &&
+			identityHasher != null &&
+			identityProperties.hashCustomerIdentifiers(identityHasher, hashedNamespaces)
+		);
+	}
+
+	/**
+	 * Saves the namespaces configured for hashing as the namespaces of the hashed stored identifiers, if they changed.
+	 * Only called once the hashed identifiers are saved, so identifiers are never marked as hashed before being stored.
+	 */
+	private void saveHashedNamespaces() {
+		if (!hasConfiguration || identityHasher == null) {
+			return;
+		}
+
+		final Set<String> configuredNamespaces = identityHasher.getHashedNamespaces();
+
+		if (!configuredNamespaces.equals(hashedNamespaces)) {
+			hashedNamespaces = configuredNamespaces;
+			IdentityStorageService.saveHashedNamespaces(configuredNamespaces);
+		}
+	}
+
+	/**
+	 * Saves {@link #identityProperties} to persistence, with the last updated timestamps of the customer identifiers.
+	 * The timestamps are only removed from persistence once the Configuration shared state was read and configures
+	 * neither a time to live nor capacity limits, as nothing else reads them.
+	 *
+	 * @param legacyEcidMigrationStatus the direct Identity ECID migration status to persist, or null to keep the stored status
+	 */
+	private void savePropertiesToPersistence(final String legacyEcidMigrationStatus) {
+		IdentityStorageService.savePropertiesToPersistence(
+			identityProperties,
+			legacyEcidMigrationStatus,
+			!hasConfiguration || !namespaceTimeToLive.isEmpty() || identityMapCapacity.isLimited()
+		);
+	}
+
 	/**
 	 * Dispatches a consent request event with the consent value passed
 	 *
@@ -18,7 +18,10 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -27,6 +30,8 @@ import org.json.JSONObject;
  */
 class IdentityStorageService {
 
+	private static final long NANOSECONDS_PER_MICROSECOND = 1000L;
+
 	private IdentityStorageService() {}
 
 	/**
@@ -58,9 +63,21 @@ class IdentityStorageService {
 		}
 
 		try {
+			final long conversionStart = System.nanoTime();
 			final JSONObject jsonObject = new JSONObject(jsonString);
 			final Map<String, Object> propertyMap = Utils.toMap(jsonObject);
-			return new IdentityProperties(propertyMap);
+			MobileCore.log(
+				LoggingMode.VERBOSE,
+				LOG_TAG,
+				"IdentityStorageService - Converted identity properties from persistence (" +
+				jsonString.length() +
+				" characters) in " +
+				(System.nanoTime() - conversionStart) / NANOSECONDS_PER_MICROSECOND +
+				" microseconds."
+			);
+			final IdentityProperties properties = new IdentityProperties(propertyMap);
+			loadLastUpdatedFromPersistence(sharedPreferences, properties);
+			return properties;
 		} catch (JSONException exception) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
@@ -77,6 +94,26 @@ class IdentityStorageService {
 	 * @param properties properties to be stored
 	 */
 	static void savePropertiesToPersistence(final IdentityProperties properties) {
+		savePropertiesToPersistence(properties, null, true);
+	}
+
+	/**
+	 * Saves the properties and the status of the direct Identity ECID migration to local storage.
+	 * The last updated timestamps of the customer identifiers are only written when they changed, and are removed
+	 * from local storage when {@code saveLastUpdated} is false.
+	 *
+	 * @param properties                properties to be stored
+	 * @param legacyEcidMigrationStatus one of the {@link IdentityConstants.LegacyEcidMigrationStatus} values,
+	 *                                  or null to keep the stored status
+	 * @param saveLastUpdated           false only if the last updated timestamps are known to be unused, as the
+	 *                                  configuration sets neither a time to live nor capacity limits of the
+	 *                                  customer identifiers
+	 */
+	static void savePropertiesToPersistence(
+		final IdentityProperties properties,
+		final String legacyEcidMigrationStatus,
+		final boolean saveLastUpdated
+	) {
 		final SharedPreferences sharedPreferences = getSharedPreference(IdentityConstants.DataStoreKey.DATASTORE_NAME);
 
 		if (sharedPreferences == null) {
@@ -106,6 +143,7 @@ class IdentityStorageService {
 				"IdentityStorageService - Identity Properties are null, removing them from persistence."
 			);
 			editor.remove(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES);
+			editor.remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
 			editor.apply();
 			return;
 		}
@@ -113,6 +151,141 @@ class IdentityStorageService {
 		final JSONObject jsonObject = new JSONObject(properties.toXDMData(false));
 		final String jsonString = jsonObject.toString();
 		editor.putString(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES, jsonString);
+		// last updated timestamps are kept apart from the identity properties so the persisted XDM stays unchanged
+		if (saveLastUpdated) {
+			final String lastUpdatedString = new JSONObject(properties.getLastUpdatedData()).toString();
+
+			if (
+				!lastUpdatedString.equals(
+					sharedPreferences.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null)
+				)
+			) {
+				editor.putString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, lastUpdatedString);
+			}
+		} else if (sharedPreferences.contains(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED)) {
+			editor.remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
+		}
+
+		if (legacyEcidMigrationStatus != null) {
+			editor.putString(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS, legacyEcidMigrationStatus);
+		}
+
+		editor.apply();
+	}
+
+	/**
+	 * Loads the last updated timestamps of the customer identifiers from local storage and applies them to the
+	 * given {@code properties}. Identifiers without a stored timestamp are left unchanged.
+	 *
+	 * @param sharedPreferences the Edge Identity {@link SharedPreferences}
+	 * @param properties        the {@link IdentityProperties} loaded from persistence
+	 */
+	private static void loadLastUpdatedFromPersistence(
+		final SharedPreferences sharedPreferences,
+		final IdentityProperties properties
+	) {
+		final String jsonString = sharedPreferences.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null);
+
+		if (jsonString == null) {
+			return;
+		}
+
+		try {
+			properties.setLastUpdatedData(Utils.toMap(new JSONObject(jsonString)));
+		} catch (JSONException exception) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Serialization error while reading last updated timestamps from persistence, ignoring them."
+			);
+		}
+	}
+
+	/**
+	 * Loads the lowercased namespaces whose stored customer identifiers are hashed from local storage.
+	 *
+	 * @return the namespaces stored in local storage; empty if none are stored or they cannot be read
+	 */
+	static Set<String> loadHashedNamespaces() {
+		final Set<String> hashedNamespaces = new HashSet<>();
+		final SharedPreferences sharedPreferences = getSharedPreference(IdentityConstants.DataStoreKey.DATASTORE_NAME);
+
+		if (sharedPreferences == null) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Shared Preference value is null. Unable to load hashed namespaces from persistence."
+			);
+			return hashedNamespaces;
+		}
+
+		final String jsonString = sharedPreferences.getString(
+			IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES,
+			null
+		);
+
+		if (jsonString == null) {
+			return hashedNamespaces;
+		}
+
+		try {
+			final JSONArray jsonArray = new JSONArray(jsonString);
+
+			for (int i = 0; i < jsonArray.length(); i++) {
+				hashedNamespaces.add(jsonArray.getString(i));
+			}
+		} catch (JSONException exception) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Serialization error while reading hashed namespaces from persistence, ignoring them."
+			);
+			hashedNamespaces.clear();
+		}
+
+		return hashedNamespaces;
+	}
+
+	/**
+	 * Saves the lowercased namespaces whose stored customer identifiers are hashed to local storage.
+	 *
+	 * @param hashedNamespaces the hashed namespaces; the stored namespaces are removed if null or empty
+	 */
+	static void saveHashedNamespaces(final Set<String> hashedNamespaces) {
+		final SharedPreferences sharedPreferences = getSharedPreference(IdentityConstants.DataStoreKey.DATASTORE_NAME);
+
+		if (sharedPreferences == null) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Shared Preference value is null. Unable to write hashed namespaces to persistence."
+			);
+			return;
+		}
+
+		final SharedPreferences.Editor editor = sharedPreferences.edit();
+
+		if (editor == null) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Shared Preference Editor is null. Unable to write hashed namespaces to persistence."
+			);
+			return;
+		}
+
+		if (hashedNamespaces == null || hashedNamespaces.isEmpty()) {
+			editor.remove(IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES);
+		} else {
+			final JSONArray jsonArray = new JSONArray();
+
+			for (final String namespace : hashedNamespaces) {
+				jsonArray.put(namespace);
+			}
+
+			editor.putString(IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES, jsonArray.toString());
+		}
+
 		editor.apply();
 	}
 
@@ -147,6 +320,30 @@ class IdentityStorageService {
 		return new ECID(ecidString);
 	}
 
+	/**
+	 * Loads the status of the direct Identity ECID migration from local storage.
+	 *
+	 * @return one of the {@link IdentityConstants.LegacyEcidMigrationStatus} values,
+	 * {@link IdentityConstants.LegacyEcidMigrationStatus#PENDING} if no status is stored
+	 */
+	static String loadLegacyEcidMigrationStatus() {
+		final SharedPreferences sharedPreferences = getSharedPreference(IdentityConstants.DataStoreKey.DATASTORE_NAME);
+
+		if (sharedPreferences == null) {
+			MobileCore.log(
+				LoggingMode.DEBUG,
+				LOG_TAG,
+				"IdentityStorageService - Shared Preference value is null. Unable to load legacy ECID migration status from persistence."
+			);
+			return IdentityConstants.LegacyEcidMigrationStatus.PENDING;
+		}
+
+		return sharedPreferences.getString(
+			IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+			IdentityConstants.LegacyEcidMigrationStatus.PENDING
+		);
+	}
+
 	/**
 	 * Getter for the applications {@link SharedPreferences}
 	 * <p>
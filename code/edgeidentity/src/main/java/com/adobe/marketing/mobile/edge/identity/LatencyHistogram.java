@@ -0,0 +1,120 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a fixed-bucket latency histogram recorded for an {@link Identity} API.
+ * Bucket {@code i} counts the latencies greater than the upper bound of bucket {@code i - 1} and
+ * lower than or equal to its own upper bound; the last bucket has no upper bound.
+ */
+public final class LatencyHistogram {
+
+	private final long[] bucketUpperBoundsMillis;
+	private final long[] counts;
+	private final long totalCount;
+	private final long totalNanos;
+
+	LatencyHistogram(final long[] bucketUpperBoundsMillis, final long[] counts, final long totalNanos) {
+		this.bucketUpperBoundsMillis = bucketUpperBoundsMillis;
+		this.counts = counts;
+		this.totalNanos = totalNanos;
+
+		long total = 0;
+
+		for (final long count : counts) {
+			total += count;
+		}
+
+		this.totalCount = total;
+	}
+
+	/**
+	 * @return the number of buckets in this histogram
+	 */
+	public int getBucketCount() {
+		return counts.length;
+	}
+
+	/**
+	 * @param bucket the bucket index, between 0 and {@link #getBucketCount()} - 1
+	 * @return the inclusive upper bound of the bucket in milliseconds, {@link Long#MAX_VALUE} for the last bucket
+	 */
+	public long getBucketUpperBoundMillis(final int bucket) {
+		return bucket < bucketUpperBoundsMillis.length ? bucketUpperBoundsMillis[bucket] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param bucket the bucket index, between 0 and {@link #getBucketCount()} - 1
+	 * @return the number of latencies recorded in the bucket
+	 */
+	public long getCount(final int bucket) {
+		return counts[bucket];
+	}
+
+	/**
+	 * @return the number of latencies recorded in all buckets
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * @return the mean of the recorded latencies in milliseconds, 0 if no latency was recorded
+	 */
+	public double getMeanMillis() {
+		return totalCount == 0 ? 0 : totalNanos / 1e6 / totalCount;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket containing the given percentile of the recorded latencies.
+	 *
+	 * @param percentile the percentile, between 0 and 1
+	 * @return the upper bound in milliseconds, {@link Long#MAX_VALUE} if the percentile is in the last bucket,
+	 * 0 if no latency was recorded
+	 */
+	public long getPercentileUpperBoundMillis(final double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(percentile * totalCount));
+		long cumulative = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			cumulative += counts[i];
+
+			if (cumulative >= rank) {
+				return getBucketUpperBoundMillis(i);
+			}
+		}
+
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return (
+			"LatencyHistogram{" +
+			"bucketUpperBoundsMillis=" +
+			Arrays.toString(bucketUpperBoundsMillis) +
+			", counts=" +
+			Arrays.toString(counts) +
+			", totalCount=" +
+			totalCount +
+			", meanMillis=" +
+			getMeanMillis() +
+			'}'
+		);
+	}
+}
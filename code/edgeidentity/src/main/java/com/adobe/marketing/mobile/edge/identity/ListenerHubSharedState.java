@@ -16,6 +16,7 @@ import com.adobe.marketing.mobile.ExtensionApi;
 import com.adobe.marketing.mobile.ExtensionListener;
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.Map;
 
 class ListenerHubSharedState extends ExtensionListener {
 
@@ -38,7 +39,9 @@ class ListenerHubSharedState extends ExtensionListener {
 	 */
 	@Override
 	public void hear(final Event event) {
-		if (event == null || event.getEventData() == null) {
+		final Map<String, Object> eventData = event != null ? event.getEventData() : null;
+
+		if (eventData == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
 				IdentityConstants.LOG_TAG,
@@ -58,6 +61,13 @@ class ListenerHubSharedState extends ExtensionListener {
 			return;
 		}
 
+		// shared state changes of other extensions are frequent and ignored by the extension, so they are dropped here
+		// instead of being queued to the executor
+		if (!EventUtils.isHandledSharedStateUpdate(eventData)) {
+			parentExtension.onEventDropped();
+			return;
+		}
+
 		parentExtension
 			.getExecutor()
 			.execute(
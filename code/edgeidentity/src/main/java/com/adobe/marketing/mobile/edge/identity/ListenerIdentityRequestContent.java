@@ -16,6 +16,7 @@ import com.adobe.marketing.mobile.ExtensionApi;
 import com.adobe.marketing.mobile.ExtensionListener;
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.Map;
 
 class ListenerIdentityRequestContent extends ExtensionListener {
 
@@ -38,7 +39,9 @@ class ListenerIdentityRequestContent extends ExtensionListener {
 	 */
 	@Override
 	public void hear(final Event event) {
-		if (event == null || event.getEventData() == null) {
+		final Map<String, Object> eventData = event != null ? event.getEventData() : null;
+
+		if (eventData == null) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
 				IdentityConstants.LOG_TAG,
@@ -58,6 +61,16 @@ class ListenerIdentityRequestContent extends ExtensionListener {
 			return;
 		}
 
+		// only advertising identifier events are handled by the extension, so other events are dropped here
+		// instead of being queued to the executor
+		if (!EventUtils.isAdIdEventData(eventData)) {
+			parentExtension.onEventDropped();
+			return;
+		}
+
+		// the advertising identifier changes the identities, read requests made from now on must not join the ones in flight
+		parentExtension.invalidatePendingReads();
+
 		parentExtension
 			.getExecutor()
 			.execute(
@@ -58,6 +58,9 @@ class ListenerIdentityRequestReset extends ExtensionListener {
 			return;
 		}
 
+		// the reset changes the identities, read requests made from now on must not join the ones in flight
+		parentExtension.invalidatePendingReads();
+
 		parentExtension
 			.getExecutor()
 			.execute(
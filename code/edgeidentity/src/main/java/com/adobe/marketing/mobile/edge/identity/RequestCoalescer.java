@@ -0,0 +1,198 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.Event;
+import com.adobe.marketing.mobile.ExtensionError;
+import com.adobe.marketing.mobile.ExtensionErrorCallback;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent identical read requests into a single request event.
+ * <p>
+ * The first caller of a request creates a {@link PendingRequest} and dispatches its event; callers making the same
+ * request while it is in flight are added to it instead, and the response or error of the single event is fanned out
+ * to all of them. A pending request older than {@link IdentityConstants.Default#COALESCED_REQUEST_MAX_AGE_MILLIS}
+ * is not joined anymore, so callers are not held on a request which may never be answered.
+ * <p>
+ * Every change to the identities must call {@link #sealPendingRequests()}, which starts a new generation.
+ * A request completing in a later generation than the one it was created in only answers the caller which
+ * dispatched it; the callers which joined it are retried, as the change may have been made before they joined.
+ */
+final class RequestCoalescer {
+
+	private final Map<String, PendingRequest> pendingRequests = new HashMap<>(); // guarded by itself
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong generation = new AtomicLong(); // incremented on every change to the identities
+
+	/**
+	 * Adds the callbacks to the pending request with the given key, or creates a new pending request if there is
+	 * no joinable request in flight.
+	 *
+	 * @param requestKey       identifies identical requests
+	 * @param responseCallback the caller's callback for the response event
+	 * @param errorCallback    the caller's callback for dispatch errors
+	 * @param retry            makes the caller's request again, run instead of the callbacks if the caller joined
+	 *                         a request in flight which completed after a change to the identities
+	 * @return the new {@link PendingRequest} whose event must be dispatched by the caller,
+	 * or null if the callbacks joined a request in flight
+	 */
+	PendingRequest join(
+		final String requestKey,
+		final AdobeCallback<Event> responseCallback,
+		final ExtensionErrorCallback<ExtensionError> errorCallback,
+		final Runnable retry
+	) {
+		final Waiter waiter = new Waiter(responseCallback, errorCallback, retry);
+		final long now = System.nanoTime();
+
+		synchronized (pendingRequests) {
+			final PendingRequest pendingRequest = pendingRequests.get(requestKey);
+
+			if (
+				pendingRequest != null &&
+				now - pendingRequest.createdNanos <=
+				TimeUnit.MILLISECONDS.toNanos(IdentityConstants.Default.COALESCED_REQUEST_MAX_AGE_MILLIS)
+			) {
+				pendingRequest.waiters.add(waiter);
+				coalescedCount.incrementAndGet();
+				return null;
+			}
+
+			final PendingRequest newRequest = new PendingRequest(requestKey, now, generation.get());
+			newRequest.waiters.add(waiter);
+			pendingRequests.put(requestKey, newRequest);
+			return newRequest;
+		}
+	}
+
+	/**
+	 * Starts a new generation and stops all the requests in flight from being joined, so requests made after this call
+	 * dispatch a new event. Must be called when an event which changes the identities is dispatched or handled,
+	 * so a request made after the change is not answered with the identities from before it.
+	 * The requests in flight still answer the callers which dispatched them, their joined callers are retried.
+	 */
+	void sealPendingRequests() {
+		synchronized (pendingRequests) {
+			generation.incrementAndGet();
+			pendingRequests.clear();
+		}
+	}
+
+	/**
+	 * Completes the pending request with the response event, calling the response callbacks of all its waiters.
+	 *
+	 * @param pendingRequest the {@link PendingRequest} to complete
+	 * @param responseEvent  the response {@link Event}
+	 */
+	void completeWithResponse(final PendingRequest pendingRequest, final Event responseEvent) {
+		final List<Waiter> waiters = complete(pendingRequest);
+		final boolean isStale = pendingRequest.generation != generation.get();
+
+		for (int i = 0; i < waiters.size(); i++) {
+			final Waiter waiter = waiters.get(i);
+
+			// the first waiter dispatched the request event, which was ordered before the change
+			if (i > 0 && isStale && waiter.retry != null) {
+				waiter.retry.run();
+			} else {
+				waiter.responseCallback.call(responseEvent);
+			}
+		}
+	}
+
+	/**
+	 * Completes the pending request with the error, calling the error callbacks of all its waiters.
+	 *
+	 * @param pendingRequest the {@link PendingRequest} to complete
+	 * @param error          the {@link ExtensionError}
+	 */
+	void completeWithError(final PendingRequest pendingRequest, final ExtensionError error) {
+		for (final Waiter waiter : complete(pendingRequest)) {
+			waiter.errorCallback.error(error);
+		}
+	}
+
+	/**
+	 * @return the number of requests which joined a request in flight instead of dispatching their own event
+	 */
+	long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Forgets all the requests in flight without completing them and resets the coalesced requests count.
+	 */
+	void clear() {
+		synchronized (pendingRequests) {
+			pendingRequests.clear();
+		}
+
+		coalescedCount.set(0);
+	}
+
+	/**
+	 * Removes the request from the requests in flight and returns its waiters. A request is only completed once,
+	 * subsequent calls return an empty list.
+	 */
+	private List<Waiter> complete(final PendingRequest pendingRequest) {
+		synchronized (pendingRequests) {
+			if (pendingRequests.get(pendingRequest.requestKey) == pendingRequest) {
+				pendingRequests.remove(pendingRequest.requestKey);
+			}
+
+			final List<Waiter> waiters = new ArrayList<>(pendingRequest.waiters);
+			pendingRequest.waiters.clear();
+			return waiters;
+		}
+	}
+
+	/**
+	 * A request in flight and the callbacks waiting for it.
+	 */
+	static final class PendingRequest {
+
+		private final String requestKey;
+		private final long createdNanos;
+		private final long generation;
+		private final List<Waiter> waiters = new ArrayList<>(); // guarded by RequestCoalescer.pendingRequests
+
+		private PendingRequest(final String requestKey, final long createdNanos, final long generation) {
+			this.requestKey = requestKey;
+			this.createdNanos = createdNanos;
+			this.generation = generation;
+		}
+	}
+
+	private static final class Waiter {
+
+		private final AdobeCallback<Event> responseCallback;
+		private final ExtensionErrorCallback<ExtensionError> errorCallback;
+		private final Runnable retry;
+
+		private Waiter(
+			final AdobeCallback<Event> responseCallback,
+			final ExtensionErrorCallback<ExtensionError> errorCallback,
+			final Runnable retry
+		) {
+			this.responseCallback = responseCallback;
+			this.errorCallback = errorCallback;
+			this.retry = retry;
+		}
+	}
+}
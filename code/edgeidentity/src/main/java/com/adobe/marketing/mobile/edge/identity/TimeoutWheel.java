@@ -0,0 +1,280 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG;
+
+import com.adobe.marketing.mobile.LoggingMode;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timer wheel running the timeouts of the {@link Identity} API calls.
+ * <p>
+ * Timeouts are placed in the wheel bucket of the tick they expire at, and each tick runs the expired timeouts of
+ * the buckets passed since the previous tick. All timeouts share a single ticker thread, which only runs while
+ * timeouts are pending. A wheel without a ticker is advanced by calling {@link #tick()}, which lets tests drive it
+ * with a fake {@link Clock}, set at creation or with {@link #setClock(Clock, boolean)}.
+ */
+class TimeoutWheel {
+
+	/**
+	 * Source of the current time.
+	 */
+	interface Clock {
+		/**
+		 * @return the current time in nanoseconds, only meaningful relative to other values from the same clock
+		 */
+		long nanoTime();
+	}
+
+	static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	private final long tickNanos;
+	private final List<Timeout>[] buckets; // guarded by itself
+	private Clock clock; // guarded by buckets
+	private long startNanos; // guarded by buckets
+	private boolean useTicker; // guarded by buckets
+	private long lastTick; // guarded by buckets
+	private int pendingCount; // guarded by buckets
+	private ScheduledExecutorService tickerExecutor; // guarded by buckets
+	private ScheduledFuture<?> tickerFuture; // guarded by buckets
+
+	/**
+	 * @param clock      the {@link Clock} used to compute the deadlines
+	 * @param tickMillis the duration of a tick in milliseconds, the resolution of the timeouts
+	 * @param wheelSize  the number of buckets in the wheel
+	 * @param useTicker  true to run the ticks on a shared ticker thread, false to run them by calling {@link #tick()}
+	 */
+	@SuppressWarnings("unchecked")
+	TimeoutWheel(final Clock clock, final long tickMillis, final int wheelSize, final boolean useTicker) {
+		this.clock = clock;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+		this.startNanos = clock.nanoTime();
+		this.buckets = new List[Math.max(1, wheelSize)];
+		this.useTicker = useTicker;
+
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Schedules the task to run once the delay elapsed, unless the returned {@link Timeout} is cancelled first.
+	 * The task runs on the ticker thread, or on the thread calling {@link #tick()}; it must not block.
+	 *
+	 * @param task        the task to run on timeout
+	 * @param delayMillis the delay in milliseconds
+	 * @return the scheduled {@link Timeout}
+	 */
+	Timeout schedule(final Runnable task, final long delayMillis) {
+		synchronized (buckets) {
+			final long deadlineTick = toTick(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+			// a timeout cannot expire before its deadline, so it is placed at the end of the deadline tick
+			final Timeout timeout = new Timeout(this, task, deadlineTick + 1);
+			buckets[(int) (timeout.deadlineTick % buckets.length)].add(timeout);
+			pendingCount++;
+
+			if (useTicker && tickerFuture == null) {
+				startTicker();
+			}
+
+			return timeout;
+		}
+	}
+
+	/**
+	 * Replaces the {@link Clock} and whether the ticks run on the ticker thread, such as with a fake clock advanced by
+	 * calling {@link #tick()} in tests. The pending timeouts are dropped without running.
+	 *
+	 * @param clock     the {@link Clock} used to compute the deadlines
+	 * @param useTicker true to run the ticks on the ticker thread, false to run them by calling {@link #tick()}
+	 */
+	void setClock(final Clock clock, final boolean useTicker) {
+		synchronized (buckets) {
+			for (final List<Timeout> bucket : buckets) {
+				bucket.clear();
+			}
+
+			pendingCount = 0;
+			stopTickerIfIdle();
+			this.clock = clock;
+			this.useTicker = useTicker;
+			startNanos = clock.nanoTime();
+			lastTick = 0;
+		}
+	}
+
+	/**
+	 * Runs the tasks of all the timeouts which expired since the previous tick.
+	 */
+	void tick() {
+		final List<Timeout> expired = new ArrayList<>();
+
+		synchronized (buckets) {
+			final long currentTick = toTick(clock.nanoTime());
+			final long ticksToProcess = Math.min(currentTick - lastTick, buckets.length);
+
+			for (long tick = currentTick - ticksToProcess + 1; tick <= currentTick; tick++) {
+				final Iterator<Timeout> iterator = buckets[(int) (tick % buckets.length)].iterator();
+
+				while (iterator.hasNext()) {
+					final Timeout timeout = iterator.next();
+
+					if (timeout.cancelled.get()) {
+						iterator.remove();
+						pendingCount--;
+					} else if (timeout.deadlineTick <= currentTick) {
+						iterator.remove();
+						pendingCount--;
+						expired.add(timeout);
+					}
+				}
+			}
+
+			lastTick = Math.max(lastTick, currentTick);
+			stopTickerIfIdle();
+		}
+
+		for (final Timeout timeout : expired) {
+			timeout.expire();
+		}
+	}
+
+	/**
+	 * @return the number of timeouts which neither expired nor were cancelled
+	 */
+	int getPendingCount() {
+		synchronized (buckets) {
+			return pendingCount;
+		}
+	}
+
+	/**
+	 * @return true if the ticker thread is scheduled to run the ticks
+	 */
+	boolean isTickerRunning() {
+		synchronized (buckets) {
+			return tickerFuture != null;
+		}
+	}
+
+	/**
+	 * Removes a cancelled timeout from its bucket, so the ticker stops once no other timeouts are pending.
+	 * Has no effect if a tick already removed the timeout, which then was not counted as pending anymore.
+	 *
+	 * @param timeout the cancelled {@link Timeout}
+	 */
+	private void remove(final Timeout timeout) {
+		synchronized (buckets) {
+			if (buckets[(int) (timeout.deadlineTick % buckets.length)].remove(timeout)) {
+				pendingCount--;
+				stopTickerIfIdle();
+			}
+		}
+	}
+
+	// must be called while holding the buckets lock
+	private void stopTickerIfIdle() {
+		if (pendingCount == 0 && tickerFuture != null) {
+			tickerFuture.cancel(false);
+			tickerFuture = null;
+		}
+	}
+
+	// must be called while holding the buckets lock
+	private long toTick(final long nanos) {
+		return Math.max(0, (nanos - startNanos) / tickNanos);
+	}
+
+	private void startTicker() {
+		if (tickerExecutor == null) {
+			tickerExecutor =
+				Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(final Runnable runnable) {
+							final Thread thread = new Thread(runnable, "EdgeIdentityTimeoutWheel");
+							thread.setDaemon(true);
+							return thread;
+						}
+					}
+				);
+		}
+
+		tickerFuture =
+			tickerExecutor.scheduleAtFixedRate(
+				new Runnable() {
+					@Override
+					public void run() {
+						try {
+							tick();
+						} catch (Exception e) {
+							MobileCore.log(
+								LoggingMode.WARNING,
+								LOG_TAG,
+								"TimeoutWheel - Failed to run expired timeouts: " + e.getLocalizedMessage()
+							);
+						}
+					}
+				},
+				tickNanos,
+				tickNanos,
+				TimeUnit.NANOSECONDS
+			);
+	}
+
+	/**
+	 * A timeout scheduled in a {@link TimeoutWheel}.
+	 */
+	static final class Timeout {
+
+		private final TimeoutWheel wheel;
+		private final Runnable task;
+		private final long deadlineTick;
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+
+		private Timeout(final TimeoutWheel wheel, final Runnable task, final long deadlineTick) {
+			this.wheel = wheel;
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		/**
+		 * Cancels this timeout and removes it from its wheel. Has no effect if the task already ran.
+		 */
+		void cancel() {
+			if (cancelled.compareAndSet(false, true)) {
+				wheel.remove(this);
+			}
+		}
+
+		private void expire() {
+			if (!cancelled.get()) {
+				task.run();
+			}
+		}
+	}
+}
@@ -15,18 +15,21 @@ import static com.adobe.marketing.mobile.edge.identity.IdentityConstants.LOG_TAG
 
 import com.adobe.marketing.mobile.LoggingMode;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 class Utils {
 
 	private static final long MILLISECONDS_PER_SECOND = 1000L;
+	private static final int MAX_DEEP_COPY_DEPTH = 64;
 
 	private Utils() {}
 
@@ -64,107 +67,82 @@ class Utils {
 	// TODO: check what should be the expected behavior with the konductor team (e.g. don't add the null nodes or add them with null values)
 
 	/**
-	 * Converts provided {@link JSONObject} into {@link Map} for any number of levels, which can be used as event data
-	 * This method is recursive.
+	 * Converts provided {@link JSONObject} into {@link Map} for any number of levels, which can be used as event data.
 	 * The elements for which the conversion fails will be skipped.
+	 * The conversion is limited to {@link IdentityConstants.Default#JSON_MAX_DEPTH} levels and
+	 * {@link IdentityConstants.Default#JSON_MAX_ELEMENTS} elements.
 	 *
 	 * @param jsonObject to be converted
-	 * @return {@link Map} containing the elements from the provided json, null if {@code jsonObject} is null
+	 * @return {@link Map} containing the elements from the provided json, null if {@code jsonObject} is null or exceeds the limits
+	 * @see #toMap(JSONObject, int, int)
 	 */
 	static Map<String, Object> toMap(final JSONObject jsonObject) {
+		return toMap(jsonObject, IdentityConstants.Default.JSON_MAX_DEPTH, IdentityConstants.Default.JSON_MAX_ELEMENTS);
+	}
+
+	/**
+	 * Converts provided {@link JSONObject} into {@link Map} for up to {@code maxDepth} levels, which can be used as event data.
+	 * The conversion uses an explicit stack instead of recursion and pre-sizes the collections from the json lengths.
+	 * The elements for which the conversion fails will be skipped.
+	 *
+	 * @param jsonObject  to be converted
+	 * @param maxDepth    the maximum number of nested levels, including {@code jsonObject} itself
+	 * @param maxElements the maximum number of elements over all levels
+	 * @return {@link Map} containing the elements from the provided json, null if {@code jsonObject} is null or exceeds the limits
+	 */
+	static Map<String, Object> toMap(final JSONObject jsonObject, final int maxDepth, final int maxElements) {
 		if (jsonObject == null) {
 			return null;
 		}
 
-		Map<String, Object> jsonAsMap = new HashMap<>();
-		Iterator<String> keysIterator = jsonObject.keys();
-
-		while (keysIterator.hasNext()) {
-			String nextKey = keysIterator.next();
-			Object value = null;
-			Object returnValue;
-
-			try {
-				value = jsonObject.get(nextKey);
-			} catch (JSONException e) {
-				MobileCore.log(
-					LoggingMode.DEBUG,
-					LOG_TAG,
-					"Utils(toMap) - Unable to convert jsonObject to Map for key " + nextKey + ", skipping."
-				);
-			}
-
-			if (value == null) {
-				continue;
-			}
-
-			if (value instanceof JSONObject) {
-				returnValue = toMap((JSONObject) value);
-			} else if (value instanceof JSONArray) {
-				returnValue = toList((JSONArray) value);
-			} else {
-				returnValue = value;
-			}
-
-			jsonAsMap.put(nextKey, returnValue);
-		}
-
-		return jsonAsMap;
+		final Map<String, Object> jsonAsMap = createMap(jsonObject.length());
+		return convertJson(new JsonFrame(jsonObject, jsonAsMap, 1), maxDepth, maxElements) ? jsonAsMap : null;
 	}
 
 	/**
-	 * Converts provided {@link JSONArray} into {@link List} for any number of levels which can be used as event data
-	 * This method is recursive.
+	 * Converts provided {@link JSONArray} into {@link List} for any number of levels which can be used as event data.
 	 * The elements for which the conversion fails will be skipped.
+	 * The conversion is limited to {@link IdentityConstants.Default#JSON_MAX_DEPTH} levels and
+	 * {@link IdentityConstants.Default#JSON_MAX_ELEMENTS} elements.
 	 *
 	 * @param jsonArray to be converted
-	 * @return {@link List} containing the elements from the provided json, null if {@code jsonArray} is null
+	 * @return {@link List} containing the elements from the provided json, null if {@code jsonArray} is null or exceeds the limits
+	 * @see #toList(JSONArray, int, int)
 	 */
 	static List<Object> toList(final JSONArray jsonArray) {
+		return toList(jsonArray, IdentityConstants.Default.JSON_MAX_DEPTH, IdentityConstants.Default.JSON_MAX_ELEMENTS);
+	}
+
+	/**
+	 * Converts provided {@link JSONArray} into {@link List} for up to {@code maxDepth} levels which can be used as event data.
+	 * The conversion uses an explicit stack instead of recursion and pre-sizes the collections from the json lengths.
+	 * The elements for which the conversion fails will be skipped.
+	 *
+	 * @param jsonArray   to be converted
+	 * @param maxDepth    the maximum number of nested levels, including {@code jsonArray} itself
+	 * @param maxElements the maximum number of elements over all levels
+	 * @return {@link List} containing the elements from the provided json, null if {@code jsonArray} is null or exceeds the limits
+	 */
+	static List<Object> toList(final JSONArray jsonArray, final int maxDepth, final int maxElements) {
 		if (jsonArray == null) {
 			return null;
 		}
 
-		List<Object> jsonArrayAsList = new ArrayList<>();
-		int size = jsonArray.length();
-
-		for (int i = 0; i < size; i++) {
-			Object value = null;
-			Object returnValue = null;
-
-			try {
-				value = jsonArray.get(i);
-			} catch (JSONException e) {
-				MobileCore.log(
-					LoggingMode.DEBUG,
-					LOG_TAG,
-					"Utils(toList) - Unable to convert jsonObject to List for index " + i + ", skipping."
-				);
-			}
-
-			if (value == null) {
-				continue;
-			}
-
-			if (value instanceof JSONObject) {
-				returnValue = toMap((JSONObject) value);
-			} else if (value instanceof JSONArray) {
-				returnValue = toList((JSONArray) value);
-			} else {
-				returnValue = value;
-			}
-
-			jsonArrayAsList.add(returnValue);
-		}
-
-		return jsonArrayAsList;
+		final List<Object> jsonArrayAsList = new ArrayList<>(jsonArray.length());
+		return convertJson(new JsonFrame(jsonArray, jsonArrayAsList, 1), maxDepth, maxElements) ? jsonArrayAsList : null;
 	}
 
 	/**
 	 * Creates a deep copy of the provided {@link Map}.
+	 * <p>
+	 * Nested {@link Map} and {@link List} values are copied into new collections; {@link String}, {@link Number},
+	 * {@link Boolean} and {@link Character} values are immutable and kept as they are, without any type conversion.
+	 * Null values are kept. The copy fails if {@code map} contains a null or non {@code String} key, a value of any
+	 * other type, a reference cycle, or is nested deeper than {@value #MAX_DEEP_COPY_DEPTH} levels.
 	 *
 	 * @param map to be copied
-	 * @return {@link Map} containing a deep copy of all the elements in {@code map}
+	 * @return {@link Map} containing a deep copy of all the elements in {@code map}, null if {@code map} is null or
+	 * cannot be copied
 	 */
 	static Map<String, Object> deepCopy(final Map<String, Object> map) {
 		if (map == null) {
@@ -172,12 +150,12 @@ class Utils {
 		}
 
 		try {
-			return Utils.toMap(new JSONObject(map));
-		} catch (NullPointerException e) {
+			return copyMap(map, 0, new IdentityHashMap<Object, Boolean>());
+		} catch (IllegalArgumentException e) {
 			MobileCore.log(
 				LoggingMode.DEBUG,
 				LOG_TAG,
-				"Utils(deepCopy) - Unable to deep copy map, json string invalid."
+				"Utils(deepCopy) - Unable to deep copy map, " + e.getMessage()
 			);
 		}
 
@@ -196,7 +174,7 @@ class Utils {
 			return null;
 		}
 
-		List<Map<String, Object>> deepCopy = new ArrayList<>();
+		List<Map<String, Object>> deepCopy = new ArrayList<>(listOfMaps.size());
 
 		for (Map<String, Object> map : listOfMaps) {
 			deepCopy.add(deepCopy(map));
@@ -205,6 +183,248 @@ class Utils {
 		return deepCopy;
 	}
 
+	/**
+	 * Copies the given {@code map} and its nested collections.
+	 *
+	 * @param map      the {@link Map} to copy
+	 * @param depth    the nesting level of {@code map}
+	 * @param ancestors the collections currently being copied which contain {@code map}, used to detect cycles
+	 * @return a copy of {@code map}
+	 * @throws IllegalArgumentException if {@code map} cannot be copied
+	 */
+	private static Map<String, Object> copyMap(
+		final Map<?, ?> map,
+		final int depth,
+		final IdentityHashMap<Object, Boolean> ancestors
+	) {
+		enterCollection(map, depth, ancestors);
+		// size the map so it does not rehash while copying, given the default load factor of 0.75
+		final Map<String, Object> copy = new HashMap<>((int) (map.size() / 0.75f) + 1);
+
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			if (!(entry.getKey() instanceof String)) {
+				throw new IllegalArgumentException("map contains a key which is not a String: " + entry.getKey());
+			}
+
+			copy.put((String) entry.getKey(), copyValue(entry.getValue(), depth, ancestors));
+		}
+
+		ancestors.remove(map);
+		return copy;
+	}
+
+	/**
+	 * Copies the given {@code list} and its nested collections.
+	 *
+	 * @param list      the {@link List} to copy
+	 * @param depth     the nesting level of {@code list}
+	 * @param ancestors the collections currently being copied which contain {@code list}, used to detect cycles
+	 * @return a copy of {@code list}
+	 * @throws IllegalArgumentException if {@code list} cannot be copied
+	 */
+	private static List<Object> copyList(
+		final List<?> list,
+		final int depth,
+		final IdentityHashMap<Object, Boolean> ancestors
+	) {
+		enterCollection(list, depth, ancestors);
+		final List<Object> copy = new ArrayList<>(list.size());
+
+		for (final Object value : list) {
+			copy.add(copyValue(value, depth, ancestors));
+		}
+
+		ancestors.remove(list);
+		return copy;
+	}
+
+	private static Object copyValue(
+		final Object value,
+		final int parentDepth,
+		final IdentityHashMap<Object, Boolean> ancestors
+	) {
+		if (
+			value == null ||
+			value instanceof String ||
+			value instanceof Number ||
+			value instanceof Boolean ||
+			value instanceof Character
+		) {
+			return value;
+		} else if (value instanceof Map) {
+			return copyMap((Map<?, ?>) value, parentDepth + 1, ancestors);
+		} else if (value instanceof List) {
+			return copyList((List<?>) value, parentDepth + 1, ancestors);
+		}
+
+		throw new IllegalArgumentException("unsupported value type " + value.getClass().getName());
+	}
+
+	private static void enterCollection(
+		final Object collection,
+		final int depth,
+		final IdentityHashMap<Object, Boolean> ancestors
+	) {
+		if (depth >= MAX_DEEP_COPY_DEPTH) {
+			throw new IllegalArgumentException("maximum depth of " + MAX_DEEP_COPY_DEPTH + " exceeded");
+		}
+
+		if (ancestors.put(collection, Boolean.TRUE) != null) {
+			throw new IllegalArgumentException("a collection contains itself");
+		}
+	}
+
+	/**
+	 * Converts the json container of {@code root} and all its nested json containers into the collections held by
+	 * their {@link JsonFrame}s, using an explicit stack.
+	 *
+	 * @param root        the frame of the json container to convert
+	 * @param maxDepth    the maximum number of nested levels
+	 * @param maxElements the maximum number of elements over all levels
+	 * @return true if the conversion completed, false if it exceeded {@code maxDepth} or {@code maxElements}
+	 */
+	private static boolean convertJson(final JsonFrame root, final int maxDepth, final int maxElements) {
+		if (root.depth > maxDepth) {
+			logJsonLimitExceeded("maximum depth of " + maxDepth);
+			return false;
+		}
+
+		final Deque<JsonFrame> stack = new ArrayDeque<>();
+		stack.push(root);
+		int elementCount = 0;
+
+		while (!stack.isEmpty()) {
+			final JsonFrame frame = stack.peek();
+
+			if (!frame.hasNext()) {
+				stack.pop();
+				continue;
+			}
+
+			final String key = frame.nextKey();
+			final Object value = frame.nextValue(key);
+
+			if (value == null) {
+				MobileCore.log(
+					LoggingMode.DEBUG,
+					LOG_TAG,
+					"Utils(toMap) - Unable to convert json element " + (key != null ? key : frame.index - 1) + ", skipping."
+				);
+				continue;
+			}
+
+			if (++elementCount > maxElements) {
+				logJsonLimitExceeded("maximum of " + maxElements + " elements");
+				return false;
+			}
+
+			JsonFrame child = null;
+
+			if (value instanceof JSONObject) {
+				final JSONObject jsonObject = (JSONObject) value;
+				child = new JsonFrame(jsonObject, createMap(jsonObject.length()), frame.depth + 1);
+			} else if (value instanceof JSONArray) {
+				final JSONArray jsonArray = (JSONArray) value;
+				child = new JsonFrame(jsonArray, new ArrayList<>(jsonArray.length()), frame.depth + 1);
+			}
+
+			frame.add(key, child != null ? child.target() : value);
+
+			if (child != null) {
+				if (child.depth > maxDepth) {
+					logJsonLimitExceeded("maximum depth of " + maxDepth);
+					return false;
+				}
+
+				stack.push(child);
+			}
+		}
+
+		return true;
+	}
+
+	private static void logJsonLimitExceeded(final String limit) {
+		MobileCore.log(
+			LoggingMode.WARNING,
+			LOG_TAG,
+			"Utils(toMap) - Unable to convert json as it exceeds the " + limit + ", ignoring it."
+		);
+	}
+
+	/**
+	 * Creates a {@link HashMap} which holds {@code size} entries without rehashing, given the default load factor of 0.75
+	 *
+	 * @param size the number of entries to hold
+	 * @return a new empty {@code HashMap}
+	 */
+	private static Map<String, Object> createMap(final int size) {
+		return new HashMap<>((int) (size / 0.75f) + 1);
+	}
+
+	/**
+	 * A json container being converted by {@link #convertJson(JsonFrame, int, int)}, with the collection it is
+	 * converted into and the conversion position.
+	 */
+	private static final class JsonFrame {
+
+		private final JSONObject jsonObject;
+		private final JSONArray jsonArray;
+		private final Map<String, Object> map;
+		private final List<Object> list;
+		private final Iterator<String> keys;
+		private final int depth;
+		private int index;
+
+		JsonFrame(final JSONObject jsonObject, final Map<String, Object> map, final int depth) {
+			this.jsonObject = jsonObject;
+			this.jsonArray = null;
+			this.map = map;
+			this.list = null;
+			this.keys = jsonObject.keys();
+			this.depth = depth;
+		}
+
+		JsonFrame(final JSONArray jsonArray, final List<Object> list, final int depth) {
+			this.jsonObject = null;
+			this.jsonArray = jsonArray;
+			this.map = null;
+			this.list = list;
+			this.keys = null;
+			this.depth = depth;
+		}
+
+		boolean hasNext() {
+			return keys != null ? keys.hasNext() : index < jsonArray.length();
+		}
+
+		/**
+		 * @return the next key of a json object, null for a json array
+		 */
+		String nextKey() {
+			return keys != null ? keys.next() : null;
+		}
+
+		/**
+		 * @param key the key returned by {@link #nextKey()}
+		 * @return the next value of the json container, null if it cannot be read
+		 */
+		Object nextValue(final String key) {
+			return jsonObject != null ? jsonObject.opt(key) : jsonArray.opt(index++);
+		}
+
+		void add(final String key, final Object value) {
+			if (map != null) {
+				map.put(key, value);
+			} else {
+				list.add(value);
+			}
+		}
+
+		Object target() {
+			return map != null ? map : list;
+		}
+	}
+
 	/**
 	 * Gets current unix timestamp in seconds.
 	 *
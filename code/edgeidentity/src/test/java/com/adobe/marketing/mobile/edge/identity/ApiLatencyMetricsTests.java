@@ -0,0 +1,124 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+
+import com.adobe.marketing.mobile.AdobeError;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ApiLatencyMetricsTests {
+
+	@Before
+	public void setup() {
+		ApiLatencyMetrics.reset();
+	}
+
+	@Test
+	public void testRecorder_recordsIntoBuckets() {
+		// setup
+		final ApiLatencyMetrics.Recorder recorder = new ApiLatencyMetrics.Recorder();
+
+		// test
+		recorder.record(TimeUnit.MICROSECONDS.toNanos(500)); // 0 ms
+		recorder.record(TimeUnit.MILLISECONDS.toNanos(1));
+		recorder.record(TimeUnit.MILLISECONDS.toNanos(3));
+		recorder.record(TimeUnit.MILLISECONDS.toNanos(10));
+		recorder.record(TimeUnit.SECONDS.toNanos(60));
+		recorder.record(-1);
+
+		// verify
+		final LatencyHistogram histogram = recorder.snapshot();
+		assertEquals(6, histogram.getTotalCount());
+		assertEquals(3, histogram.getCount(0)); // <= 1 ms, includes the negative latency
+		assertEquals(0, histogram.getCount(1)); // <= 2 ms
+		assertEquals(1, histogram.getCount(2)); // <= 5 ms
+		assertEquals(1, histogram.getCount(3)); // <= 10 ms
+		assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+		assertEquals(Long.MAX_VALUE, histogram.getBucketUpperBoundMillis(histogram.getBucketCount() - 1));
+	}
+
+	@Test
+	public void testHistogram_percentileUpperBound() {
+		// setup
+		final ApiLatencyMetrics.Recorder recorder = new ApiLatencyMetrics.Recorder();
+
+		for (int i = 0; i < 90; i++) {
+			recorder.record(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			recorder.record(TimeUnit.MILLISECONDS.toNanos(200));
+		}
+
+		// test
+		final LatencyHistogram histogram = recorder.snapshot();
+
+		// verify
+		assertEquals(1, histogram.getPercentileUpperBoundMillis(0.5));
+		assertEquals(1, histogram.getPercentileUpperBoundMillis(0.9));
+		assertEquals(250, histogram.getPercentileUpperBoundMillis(0.91));
+		assertEquals(250, histogram.getPercentileUpperBoundMillis(1.0));
+		assertEquals(20.9, histogram.getMeanMillis(), 0.001);
+	}
+
+	@Test
+	public void testHistogram_empty() {
+		final LatencyHistogram histogram = new ApiLatencyMetrics.Recorder().snapshot();
+
+		assertEquals(0, histogram.getTotalCount());
+		assertEquals(0, histogram.getPercentileUpperBoundMillis(0.99));
+		assertEquals(0, histogram.getMeanMillis(), 0);
+	}
+
+	@Test
+	public void testRecorder_reset() {
+		final ApiLatencyMetrics.Recorder recorder = new ApiLatencyMetrics.Recorder();
+		recorder.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+		recorder.reset();
+
+		assertEquals(0, recorder.snapshot().getTotalCount());
+	}
+
+	@Test
+	public void testApiCall_complete_recordsPerOutcome() {
+		// test
+		ApiLatencyMetrics.start(ApiLatencyMetrics.GET_IDENTITIES).complete(ApiOutcome.SUCCESS);
+		ApiLatencyMetrics.start(ApiLatencyMetrics.GET_IDENTITIES).complete(ApiOutcome.TIMEOUT);
+		final ApiLatencyMetrics.ApiCall call = ApiLatencyMetrics.start(ApiLatencyMetrics.GET_IDENTITIES);
+		call.responseReceived();
+		call.complete(ApiOutcome.ERROR);
+
+		// verify
+		assertEquals(
+			1,
+			ApiLatencyMetrics.getHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.SUCCESS).getTotalCount()
+		);
+		assertEquals(1, ApiLatencyMetrics.getHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.ERROR).getTotalCount());
+		assertEquals(
+			1,
+			ApiLatencyMetrics.getHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.TIMEOUT).getTotalCount()
+		);
+		// only the call which received a response records the response handling latency
+		assertEquals(1, ApiLatencyMetrics.getResponseHandlingHistogram(ApiLatencyMetrics.GET_IDENTITIES).getTotalCount());
+	}
+
+	@Test
+	public void testOutcomeOf() {
+		assertEquals(ApiOutcome.TIMEOUT, ApiLatencyMetrics.outcomeOf(AdobeError.CALLBACK_TIMEOUT));
+		assertEquals(ApiOutcome.ERROR, ApiLatencyMetrics.outcomeOf(AdobeError.UNEXPECTED_ERROR));
+		assertEquals(ApiOutcome.ERROR, ApiLatencyMetrics.outcomeOf(null));
+	}
+}
@@ -123,6 +123,52 @@ public class ECIDTests {
 		assertFalse(a.equals(new NotECID(a.toString())));
 	}
 
+	@Test
+	public void testECID_leadingZeros_roundTrip() {
+		String ecidString = "0000000000000000001" + "0000000000000000002";
+		ECID ecid = new ECID(ecidString);
+
+		assertEquals(ecidString, ecid.toString());
+		assertEquals(new ECID(ecidString), ecid);
+	}
+
+	@Test
+	public void testECID_legacyValue_keepsString() {
+		ECID ecid = new ECID("legacyEcid");
+
+		assertEquals("legacyEcid", ecid.toString());
+		assertEquals(new ECID("legacyEcid"), ecid);
+		assertEquals(new ECID("legacyEcid").hashCode(), ecid.hashCode());
+		assertFalse(ecid.equals(new ECID("legacyECID")));
+	}
+
+	@Test
+	public void testECID_overflowingValue_keepsString() {
+		// each half is larger than Long.MAX_VALUE
+		String ecidString = "9999999999999999999" + "9999999999999999999";
+		ECID ecid = new ECID(ecidString);
+
+		assertEquals(ecidString, ecid.toString());
+		assertEquals(new ECID(ecidString), ecid);
+	}
+
+	@Test
+	public void testECID_nonDigitValueOfCanonicalLength_keepsString() {
+		String ecidString = "123456789012345678901234567890123456a8";
+		ECID ecid = new ECID(ecidString);
+
+		assertEquals(38, ecidString.length());
+		assertEquals(ecidString, ecid.toString());
+		assertEquals(new ECID(ecidString), ecid);
+	}
+
+	@Test
+	public void testECID_toString_returnsSameInstance() {
+		ECID ecid = new ECID();
+
+		assertTrue(ecid.toString() == ecid.toString());
+	}
+
 	private class NotECID {
 
 		private final String ecidString;
@@ -18,6 +18,8 @@ import static org.junit.Assert.assertTrue;
 
 import com.adobe.marketing.mobile.Event;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
 public class EventUtilsTests {
@@ -174,6 +176,256 @@ public class EventUtilsTests {
 		);
 	}
 
+	// ======================================================================================================================
+	// Tests for method : getRegisteredExtensions(final Map<String, Object> hubSharedState)
+	// ======================================================================================================================
+
+	@Test
+	public void test_getRegisteredExtensions_validHubState_returnsExtensionNames() {
+		Map<String, Object> extensions = new HashMap<>();
+		extensions.put(
+			"com.adobe.module.identity",
+			new HashMap<String, Object>() {
+				{
+					put("friendlyName", "Identity");
+					put("version", "1.2.2");
+				}
+			}
+		);
+		extensions.put(
+			"com.adobe.edge.identity",
+			new HashMap<String, Object>() {
+				{
+					put("version", "1.1.0");
+				}
+			}
+		);
+		extensions.put("com.adobe.module.empty", new HashMap<String, Object>()); // no registration details
+		Map<String, Object> hubState = new HashMap<>();
+		hubState.put("extensions", extensions);
+
+		Set<String> registeredExtensions = EventUtils.getRegisteredExtensions(hubState);
+
+		assertEquals(2, registeredExtensions.size());
+		assertTrue(registeredExtensions.contains("com.adobe.module.identity"));
+		assertTrue(registeredExtensions.contains("com.adobe.edge.identity"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void test_getRegisteredExtensions_returnsUnmodifiableSet() {
+		EventUtils.getRegisteredExtensions(new HashMap<String, Object>()).add("com.adobe.module.identity");
+	}
+
+	@Test
+	public void test_getRegisteredExtensions_nullOrInvalidHubState_returnsEmptySet() {
+		assertTrue(EventUtils.getRegisteredExtensions(null).isEmpty());
+		assertTrue(
+			EventUtils
+				.getRegisteredExtensions(
+					new HashMap<String, Object>() {
+						{
+							put("extensions", "com.adobe.module.identity");
+						}
+					}
+				)
+				.isEmpty()
+		);
+	}
+
+	// ======================================================================================================================
+	// Tests for method : isHandledSharedStateUpdate(final Map<String, Object> eventData)
+	// ======================================================================================================================
+
+	@Test
+	public void test_isHandledSharedStateUpdate() {
+		assertTrue(EventUtils.isHandledSharedStateUpdate(stateOwnerData("com.adobe.module.configuration")));
+		assertTrue(EventUtils.isHandledSharedStateUpdate(stateOwnerData("com.adobe.module.eventhub")));
+		assertTrue(EventUtils.isHandledSharedStateUpdate(stateOwnerData("com.adobe.module.identity")));
+		assertFalse(EventUtils.isHandledSharedStateUpdate(stateOwnerData("com.adobe.edge.identity")));
+		assertFalse(EventUtils.isHandledSharedStateUpdate(stateOwnerData(null)));
+		assertFalse(EventUtils.isHandledSharedStateUpdate(new HashMap<String, Object>()));
+	}
+
+	// ======================================================================================================================
+	// Tests for method : getNamespaceTimeToLive(final Map<String, Object> configurationSharedState)
+	// ======================================================================================================================
+
+	@Test
+	public void test_getNamespaceTimeToLive_validConfig_returnsMap() {
+		Map<String, Long> timeToLive = EventUtils.getNamespaceTimeToLive(
+			new HashMap<String, Object>() {
+				{
+					put(
+						"edgeIdentity.namespaceTTL",
+						new HashMap<String, Object>() {
+							{
+								put("SessionId", 3600);
+								put("PushId", 86400L);
+							}
+						}
+					);
+				}
+			}
+		);
+
+		assertEquals(2, timeToLive.size());
+		assertEquals(3600L, (long) timeToLive.get("SessionId"));
+		assertEquals(86400L, (long) timeToLive.get("PushId"));
+	}
+
+	@Test
+	public void test_getNamespaceTimeToLive_invalidValues_ignored() {
+		Map<String, Long> timeToLive = EventUtils.getNamespaceTimeToLive(
+			new HashMap<String, Object>() {
+				{
+					put(
+						"edgeIdentity.namespaceTTL",
+						new HashMap<String, Object>() {
+							{
+								put("SessionId", "3600");
+								put("PushId", 0);
+								put("UserId", -1);
+								put("Email", 60);
+							}
+						}
+					);
+				}
+			}
+		);
+
+		assertEquals(1, timeToLive.size());
+		assertEquals(60L, (long) timeToLive.get("Email"));
+	}
+
+	@Test
+	public void test_getNamespaceTimeToLive_missingOrInvalidConfig_returnsEmpty() {
+		assertTrue(EventUtils.getNamespaceTimeToLive(null).isEmpty());
+		assertTrue(EventUtils.getNamespaceTimeToLive(new HashMap<String, Object>()).isEmpty());
+		assertTrue(
+			EventUtils
+				.getNamespaceTimeToLive(
+					new HashMap<String, Object>() {
+						{
+							put("edgeIdentity.namespaceTTL", "invalid");
+						}
+					}
+				)
+				.isEmpty()
+		);
+	}
+
+	// ======================================================================================================================
+	// Tests for method : getHashedNamespaces(final Map<String, Object> configurationSharedState)
+	// ======================================================================================================================
+
+	@Test
+	public void test_getHashedNamespaces_validConfig_returnsMap() {
+		Map<String, IdentityHasher.Normalization> hashedNamespaces = EventUtils.getHashedNamespaces(
+			new HashMap<String, Object>() {
+				{
+					put(
+						"edgeIdentity.hashedNamespaces",
+						new HashMap<String, Object>() {
+							{
+								put("Email", "lowercase");
+								put("Phone", "DIGITS");
+								put("UserId", "none");
+							}
+						}
+					);
+				}
+			}
+		);
+
+		assertEquals(3, hashedNamespaces.size());
+		assertEquals(IdentityHasher.Normalization.LOWERCASE, hashedNamespaces.get("Email"));
+		assertEquals(IdentityHasher.Normalization.DIGITS, hashedNamespaces.get("Phone"));
+		assertEquals(IdentityHasher.Normalization.NONE, hashedNamespaces.get("UserId"));
+	}
+
+	@Test
+	public void test_getHashedNamespaces_invalidValues_ignored() {
+		Map<String, IdentityHasher.Normalization> hashedNamespaces = EventUtils.getHashedNamespaces(
+			new HashMap<String, Object>() {
+				{
+					put(
+						"edgeIdentity.hashedNamespaces",
+						new HashMap<String, Object>() {
+							{
+								put("Email", "sha256");
+								put("Phone", 1);
+								put("UserId", null);
+								put("PushId", "trim");
+							}
+						}
+					);
+				}
+			}
+		);
+
+		assertEquals(1, hashedNamespaces.size());
+		assertEquals(IdentityHasher.Normalization.TRIM, hashedNamespaces.get("PushId"));
+	}
+
+	@Test
+	public void test_getHashedNamespaces_missingOrInvalidConfig_returnsEmpty() {
+		assertTrue(EventUtils.getHashedNamespaces(null).isEmpty());
+		assertTrue(EventUtils.getHashedNamespaces(new HashMap<String, Object>()).isEmpty());
+		assertTrue(
+			EventUtils
+				.getHashedNamespaces(
+					new HashMap<String, Object>() {
+						{
+							put("edgeIdentity.hashedNamespaces", "invalid");
+						}
+					}
+				)
+				.isEmpty()
+		);
+	}
+
+	// ======================================================================================================================
+	// Tests for method : getIdentityMapCapacity(final Map<String, Object> configurationSharedState)
+	// ======================================================================================================================
+
+	@Test
+	public void test_getIdentityMapCapacity_validConfig() {
+		IdentityMapCapacity capacity = EventUtils.getIdentityMapCapacity(
+			new HashMap<String, Object>() {
+				{
+					put("edgeIdentity.maxItemsPerNamespace", 10);
+					put("edgeIdentity.maxTotalItems", 50L);
+				}
+			}
+		);
+
+		assertEquals(10, capacity.getMaxItemsPerNamespace());
+		assertEquals(50, capacity.getMaxTotalItems());
+		assertTrue(capacity.isLimited());
+	}
+
+	@Test
+	public void test_getIdentityMapCapacity_invalidValues_unlimited() {
+		IdentityMapCapacity capacity = EventUtils.getIdentityMapCapacity(
+			new HashMap<String, Object>() {
+				{
+					put("edgeIdentity.maxItemsPerNamespace", "10");
+					put("edgeIdentity.maxTotalItems", -1);
+				}
+			}
+		);
+
+		assertEquals(IdentityMapCapacity.UNLIMITED, capacity.getMaxItemsPerNamespace());
+		assertEquals(IdentityMapCapacity.UNLIMITED, capacity.getMaxTotalItems());
+		assertFalse(capacity.isLimited());
+	}
+
+	@Test
+	public void test_getIdentityMapCapacity_missingConfig_noLimits() {
+		assertFalse(EventUtils.getIdentityMapCapacity(null).isLimited());
+		assertFalse(EventUtils.getIdentityMapCapacity(new HashMap<String, Object>()).isLimited());
+	}
+
 	// ======================================================================================================================
 	// Tests for method : isAdIdEvent(final Event event)
 	// ======================================================================================================================
@@ -305,4 +557,15 @@ public class EventUtilsTests {
 			.setEventData(data)
 			.build();
 	}
+
+	/**
+	 * Creates shared state change event data for the given state owner.
+	 * @param stateOwner the shared state owner name
+	 * @return the event data
+	 */
+	private Map<String, Object> stateOwnerData(final String stateOwner) {
+		final Map<String, Object> data = new HashMap<>();
+		data.put(IdentityConstants.EventDataKeys.STATE_OWNER, stateOwner);
+		return data;
+	}
 }
@@ -0,0 +1,261 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentityChangeRegistryTests {
+
+	private IdentityChangeRegistry registry;
+	private List<Runnable> queuedNotifications;
+	private Executor queueingExecutor;
+
+	@Before
+	public void setup() {
+		registry = new IdentityChangeRegistry();
+		registry.setNotificationExecutor(directExecutor());
+		queuedNotifications = new ArrayList<>();
+		queueingExecutor =
+			new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					queuedNotifications.add(runnable);
+				}
+			};
+	}
+
+	@Test
+	public void testNotifyListeners_deliversOnRegisteredExecutor() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), queueingExecutor);
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+
+		// verify nothing delivered until the executor runs the notification
+		assertTrue(changeTypes.isEmpty());
+		assertEquals(1, queuedNotifications.size());
+		queuedNotifications.get(0).run();
+		assertEquals(1, changeTypes.size());
+		assertEquals(IdentityChangeType.UPDATE, changeTypes.get(0));
+	}
+
+	@Test
+	public void testNotifyListeners_listenersShareReadOnlySnapshot() {
+		// setup
+		final List<IdentityMap> snapshots = new ArrayList<>();
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(snapshots, changeTypes), directExecutor());
+		registry.register(recordingListener(snapshots, changeTypes), directExecutor());
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.REMOVE);
+
+		// verify
+		assertEquals(2, snapshots.size());
+		assertSame(snapshots.get(0), snapshots.get(1));
+		assertEquals("id1", snapshots.get(0).getIdentityItemsForNamespace("UserId").get(0).getId());
+		snapshots.get(0).removeItem(snapshots.get(0).getIdentityItemsForNamespace("UserId").get(0), "UserId");
+		snapshots.get(0).addItem(new IdentityItem("id2"), "UserId");
+		assertEquals(1, snapshots.get(1).getIdentityItemsForNamespace("UserId").size());
+	}
+
+	@Test
+	public void testNotifyListeners_handedOffToNotificationExecutor() {
+		// setup
+		final List<Runnable> handedOff = new ArrayList<>();
+		registry.setNotificationExecutor(
+			new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					handedOff.add(runnable);
+				}
+			}
+		);
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), directExecutor());
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+
+		// verify the listener is only notified once the notification executor runs the notification
+		assertTrue(changeTypes.isEmpty());
+		assertEquals(1, handedOff.size());
+		handedOff.get(0).run();
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void testNotifyListeners_identitiesUnchanged_notNotifiedAgain() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), directExecutor());
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+		registry.notifyListeners(createXDMData("UserId", "id2"), IdentityChangeType.UPDATE);
+
+		// verify
+		assertEquals(2, changeTypes.size());
+	}
+
+	@Test
+	public void testSetInitialIdentities_sameIdentitiesNotNotified() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), directExecutor());
+
+		// test
+		registry.setInitialIdentities(createXDMData("UserId", "id1"));
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+		registry.notifyListeners(createXDMData("UserId", "id2"), IdentityChangeType.UPDATE);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void testClear_forgetsNotifiedIdentities() {
+		// setup
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+		registry.clear();
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), directExecutor());
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void testRegister_sameListenerTwice_notifiedOnceOnNewExecutor() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		final IdentityChangeListener listener = recordingListener(new ArrayList<IdentityMap>(), changeTypes);
+		registry.register(listener, queueingExecutor);
+
+		// test
+		registry.register(listener, directExecutor());
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.RESET);
+
+		// verify
+		assertEquals(1, registry.getListenerCount());
+		assertTrue(queuedNotifications.isEmpty());
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void testUnregister_stopsNotifications() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		final IdentityChangeListener listener = recordingListener(new ArrayList<IdentityMap>(), changeTypes);
+		registry.register(listener, directExecutor());
+
+		// test
+		assertTrue(registry.unregister(listener));
+		assertFalse(registry.unregister(listener));
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.UPDATE);
+
+		// verify
+		assertTrue(changeTypes.isEmpty());
+		assertEquals(0, registry.getListenerCount());
+	}
+
+	@Test
+	public void testNotifyListeners_failingListenerOrExecutor_otherListenersStillNotified() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		registry.register(
+			new IdentityChangeListener() {
+				@Override
+				public void onIdentitiesChanged(final IdentityMap identityMap, final IdentityChangeType changeType) {
+					throw new IllegalStateException("listener failure");
+				}
+			},
+			directExecutor()
+		);
+		registry.register(
+			recordingListener(new ArrayList<IdentityMap>(), new ArrayList<IdentityChangeType>()),
+			new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					throw new RejectedExecutionException("executor shut down");
+				}
+			}
+		);
+		registry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), directExecutor());
+
+		// test
+		registry.notifyListeners(createXDMData("UserId", "id1"), IdentityChangeType.EXPIRY);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void testNotifyListeners_emptyIdentities_deliversEmptyIdentityMap() {
+		// setup
+		final List<IdentityMap> snapshots = new ArrayList<>();
+		registry.register(recordingListener(snapshots, new ArrayList<IdentityChangeType>()), directExecutor());
+
+		// test
+		registry.notifyListeners(new HashMap<String, Object>(), IdentityChangeType.RESET);
+
+		// verify
+		assertEquals(1, snapshots.size());
+		assertTrue(snapshots.get(0).isEmpty());
+	}
+
+	private Map<String, Object> createXDMData(final String namespace, final String id) {
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem(id), namespace);
+		return identityMap.asXDMMap(false);
+	}
+
+	private Executor directExecutor() {
+		return new Executor() {
+			@Override
+			public void execute(final Runnable runnable) {
+				runnable.run();
+			}
+		};
+	}
+
+	private IdentityChangeListener recordingListener(
+		final List<IdentityMap> snapshots,
+		final List<IdentityChangeType> changeTypes
+	) {
+		return new IdentityChangeListener() {
+			@Override
+			public void onIdentitiesChanged(final IdentityMap identityMap, final IdentityChangeType changeType) {
+				snapshots.add(identityMap);
+				changeTypes.add(changeType);
+			}
+		};
+	}
+}
@@ -0,0 +1,395 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+
+import android.app.Application;
+import android.content.Context;
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.Event;
+import com.adobe.marketing.mobile.ExtensionApi;
+import com.adobe.marketing.mobile.ExtensionErrorCallback;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * Stress tests calling the public {@link Identity} APIs from many threads while the extension boots.
+ * {@link MobileCore} is replaced by a fake event hub which delivers the dispatched events to the
+ * {@link IdentityExtension} the same way its listeners do, and routes response events back to the request callbacks.
+ * The API call throughput is written to the {@link PerformanceReport}.
+ * Excluded from the default unit test run, see {@link PerformanceTests}.
+ */
+@Category(PerformanceTests.class)
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ MobileCore.class })
+public class IdentityConcurrencyStressTests {
+
+	private static final int THREAD_COUNT = 8;
+	private static final int OPERATIONS_PER_THREAD = 250;
+	private static final String NAMESPACE = "Stress";
+	private static final long TIMEOUT_SECONDS = 30;
+
+	@Rule
+	public final PerformanceReport report = new PerformanceReport();
+
+	@Mock
+	Application mockApplication;
+
+	@Mock
+	Context mockContext;
+
+	private IdentityExtension extension;
+	private final Map<String, AdobeCallback<Event>> pendingResponses = new ConcurrentHashMap<>();
+	private final AtomicInteger unansweredResponses = new AtomicInteger();
+	private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>(); // failures on other threads
+
+	@Before
+	public void setup() {
+		PowerMockito.mockStatic(MobileCore.class);
+
+		Mockito.when(MobileCore.getApplication()).thenReturn(mockApplication);
+		Mockito.when(mockApplication.getApplicationContext()).thenReturn(mockContext);
+		Mockito
+			.when(mockContext.getSharedPreferences(IdentityConstants.DataStoreKey.DATASTORE_NAME, 0))
+			.thenReturn(new InMemorySharedPreferences());
+
+		// stub only, as recording the invocations of every event would skew the test
+		extension = new IdentityExtension(Mockito.mock(ExtensionApi.class, Mockito.withSettings().stubOnly()));
+		setupFakeEventHub();
+	}
+
+	@Test(timeout = 60000)
+	public void test_concurrentUpdateRemoveGet_duringBoot_noLostUpdates() throws Exception {
+		final ConcurrentLinkedQueue<IdentityMap> responses = new ConcurrentLinkedQueue<>();
+		final CountDownLatch responsesLatch = new CountDownLatch(THREAD_COUNT * OPERATIONS_PER_THREAD / 10);
+
+		// test
+		final long elapsedNanos = runConcurrently(
+			new ThreadOperation() {
+				@Override
+				public void run(final int thread, final int operation) {
+					final String id = "thread" + thread + "-" + operation;
+					IdentityMap map = new IdentityMap();
+					map.addItem(new IdentityItem(id), NAMESPACE);
+					Identity.updateIdentities(map);
+
+					if (operation % 2 == 1) {
+						// dispatched after the update from the same thread, so it is handled after the update
+						Identity.removeIdentity(new IdentityItem(id), NAMESPACE);
+					}
+
+					if (operation % 10 == 0) {
+						Identity.getIdentities(collectInto(responses, responsesLatch));
+					}
+				}
+			}
+		);
+
+		// verify every request is answered
+		assertTrue(
+			"unanswered getIdentities requests: " + responsesLatch.getCount(),
+			responsesLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+		);
+		assertNoFailures();
+		assertEquals(0, unansweredResponses.get());
+		assertTrue(pendingResponses.isEmpty());
+
+		// verify the ECID is generated once and always first
+		final IdentityMap finalMap = getIdentitiesSync();
+		final String ecid = finalMap.getIdentityItemsForNamespace(IdentityConstants.Namespaces.ECID).get(0).getId();
+
+		for (final IdentityMap response : responses) {
+			assertEquals(ecid, response.getIdentityItemsForNamespace(IdentityConstants.Namespaces.ECID).get(0).getId());
+		}
+
+		// verify no lost updates: every even operation is kept, every odd operation was removed
+		final Set<String> expectedIds = new HashSet<>();
+
+		for (int thread = 0; thread < THREAD_COUNT; thread++) {
+			for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation += 2) {
+				expectedIds.add("thread" + thread + "-" + operation);
+			}
+		}
+
+		final Set<String> actualIds = new HashSet<>();
+
+		for (final IdentityItem item : finalMap.getIdentityItemsForNamespace(NAMESPACE)) {
+			actualIds.add(item.getId());
+		}
+
+		assertEquals(expectedIds, actualIds);
+		report.recordThroughput("update/remove/get", THREAD_COUNT * OPERATIONS_PER_THREAD * 2, elapsedNanos);
+	}
+
+	@Test(timeout = 60000)
+	public void test_concurrentApiCalls_withReset_duringBoot_everyRequestAnswered() throws Exception {
+		final ConcurrentLinkedQueue<IdentityMap> responses = new ConcurrentLinkedQueue<>();
+		final CountDownLatch responsesLatch = new CountDownLatch(THREAD_COUNT * OPERATIONS_PER_THREAD / 5);
+		final AtomicInteger resetCount = new AtomicInteger();
+
+		// test
+		final long elapsedNanos = runConcurrently(
+			new ThreadOperation() {
+				@Override
+				public void run(final int thread, final int operation) {
+					final String id = "thread" + thread + "-" + operation;
+					IdentityMap map = new IdentityMap();
+					map.addItem(new IdentityItem(id), NAMESPACE);
+					Identity.updateIdentities(map);
+					Identity.removeIdentity(new IdentityItem(id), NAMESPACE);
+
+					if (operation % 5 == 0) {
+						Identity.getIdentities(collectInto(responses, responsesLatch));
+					}
+
+					if (thread == 0 && operation % 50 == 0) {
+						// the generic reset request dispatched by MobileCore.resetIdentities
+						deliver(
+							new Event.Builder(
+								"Reset Identities Request",
+								IdentityConstants.EventType.GENERIC_IDENTITY,
+								IdentityConstants.EventSource.REQUEST_RESET
+							)
+								.build()
+						);
+						resetCount.incrementAndGet();
+					}
+				}
+			}
+		);
+
+		// verify every request is answered
+		assertTrue(
+			"unanswered getIdentities requests: " + responsesLatch.getCount(),
+			responsesLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+		);
+		assertNoFailures();
+		assertEquals(0, unansweredResponses.get());
+		assertTrue(pendingResponses.isEmpty());
+
+		// verify every response has exactly one ECID, as reset replaces it
+		final Set<String> ecids = new HashSet<>();
+
+		for (final IdentityMap response : responses) {
+			final List<IdentityItem> ecidItems = response.getIdentityItemsForNamespace(IdentityConstants.Namespaces.ECID);
+			assertEquals(1, ecidItems.size());
+			ecids.add(ecidItems.get(0).getId());
+		}
+
+		assertTrue(ecids.size() <= resetCount.get() + 1);
+
+		// verify all identifiers were removed
+		assertTrue(getIdentitiesSync().getIdentityItemsForNamespace(NAMESPACE).isEmpty());
+		report.recordThroughput("update/remove/get/reset", THREAD_COUNT * OPERATIONS_PER_THREAD * 2, elapsedNanos);
+	}
+
+	/**
+	 * An operation run by each stress thread.
+	 */
+	private interface ThreadOperation {
+		void run(final int thread, final int operation);
+	}
+
+	/**
+	 * Runs {@code operation} {@link #OPERATIONS_PER_THREAD} times on each of {@link #THREAD_COUNT} threads,
+	 * booting the extension while the threads are running.
+	 *
+	 * @return the elapsed time in nanoseconds until all threads completed
+	 */
+	private long runConcurrently(final ThreadOperation operation) throws Exception {
+		final CyclicBarrier startBarrier = new CyclicBarrier(THREAD_COUNT + 1);
+		final List<Thread> threads = new ArrayList<>();
+
+		for (int i = 0; i < THREAD_COUNT; i++) {
+			final int thread = i;
+			threads.add(
+				new Thread(
+					new Runnable() {
+						@Override
+						public void run() {
+							try {
+								startBarrier.await();
+
+								for (int operationIndex = 0; operationIndex < OPERATIONS_PER_THREAD; operationIndex++) {
+									operation.run(thread, operationIndex);
+								}
+							} catch (Throwable t) {
+								failures.add(t);
+							}
+						}
+					}
+				)
+			);
+		}
+
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+
+		startBarrier.await();
+		final long start = System.nanoTime();
+
+		// boot while the API calls are being dispatched, as the Hub shared state listener does
+		Thread.sleep(5);
+		extension
+			.getExecutor()
+			.execute(
+				new Runnable() {
+					@Override
+					public void run() {
+						if (extension.bootupIfReady()) {
+							extension.processCachedEvents();
+						}
+					}
+				}
+			);
+
+		for (final Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+			assertFalse(thread.isAlive());
+		}
+
+		final long elapsedNanos = System.nanoTime() - start;
+		assertNoFailures();
+		return elapsedNanos;
+	}
+
+	private void assertNoFailures() {
+		assertTrue("failures: " + failures, failures.isEmpty());
+	}
+
+	private AdobeCallback<IdentityMap> collectInto(
+		final ConcurrentLinkedQueue<IdentityMap> responses,
+		final CountDownLatch latch
+	) {
+		return new AdobeCallback<IdentityMap>() {
+			@Override
+			public void call(final IdentityMap identityMap) {
+				// called on the response thread, so a failure is recorded rather than thrown
+				if (identityMap == null) {
+					failures.add(new AssertionError("getIdentities returned a null IdentityMap"));
+				} else {
+					responses.add(identityMap);
+				}
+
+				latch.countDown();
+			}
+		};
+	}
+
+	private IdentityMap getIdentitiesSync() throws Exception {
+		final ConcurrentLinkedQueue<IdentityMap> responses = new ConcurrentLinkedQueue<>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		Identity.getIdentities(collectInto(responses, latch));
+		assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertNoFailures();
+		return responses.peek();
+	}
+
+	/**
+	 * Routes the events dispatched through {@link MobileCore} to {@link #extension}, and the response events
+	 * back to the callbacks of their request events.
+	 */
+	private void setupFakeEventHub() {
+		PowerMockito
+			.when(MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						deliver((Event) invocation.getArgument(0));
+						return true;
+					}
+				}
+			);
+		PowerMockito
+			.when(
+				MobileCore.dispatchEventWithResponseCallback(
+					any(Event.class),
+					any(AdobeCallback.class),
+					any(ExtensionErrorCallback.class)
+				)
+			)
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						final Event event = invocation.getArgument(0);
+						pendingResponses.put(event.getUniqueIdentifier(), (AdobeCallback<Event>) invocation.getArgument(1));
+						deliver(event);
+						return true;
+					}
+				}
+			);
+		PowerMockito
+			.when(MobileCore.dispatchResponseEvent(any(Event.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						final Event requestEvent = invocation.getArgument(1);
+						final AdobeCallback<Event> callback = pendingResponses.remove(requestEvent.getUniqueIdentifier());
+
+						if (callback == null) {
+							unansweredResponses.incrementAndGet(); // response without a pending request
+							return false;
+						}
+
+						callback.call((Event) invocation.getArgument(0));
+						return true;
+					}
+				}
+			);
+	}
+
+	/**
+	 * Delivers the event to the extension the same way the extension's listeners do.
+	 */
+	private void deliver(final Event event) {
+		extension
+			.getExecutor()
+			.execute(
+				new Runnable() {
+					@Override
+					public void run() {
+						extension.processAddEvent(event);
+					}
+				}
+			);
+	}
+}
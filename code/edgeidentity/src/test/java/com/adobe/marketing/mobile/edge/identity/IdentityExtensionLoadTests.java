@@ -0,0 +1,161 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.Event;
+import com.adobe.marketing.mobile.MobileCore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * Load tests running a large number of events through the {@link IdentityExtension} registered with an
+ * {@link InMemoryEventHub}, verifying every event is handled and answered. The event throughput and the per-event
+ * latency are written to the {@link PerformanceReport}.
+ * Excluded from the default unit test run, see {@link PerformanceTests}.
+ */
+@Category(PerformanceTests.class)
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ MobileCore.class })
+public class IdentityExtensionLoadTests {
+
+	private static final int EVENT_COUNT = 100000;
+	private static final int DISTINCT_IDENTIFIERS = 100;
+	private static final String NAMESPACE = "Load";
+	private static final long TIMEOUT_MILLISECONDS = TimeUnit.MINUTES.toMillis(2);
+
+	@Rule
+	public final PerformanceReport report = new PerformanceReport();
+
+	@Mock
+	Application mockApplication;
+
+	@Mock
+	Context mockContext;
+
+	private InMemoryEventHub eventHub;
+
+	@Before
+	public void setup() {
+		PowerMockito.mockStatic(MobileCore.class);
+
+		Mockito.when(MobileCore.getApplication()).thenReturn(mockApplication);
+		Mockito.when(mockApplication.getApplicationContext()).thenReturn(mockContext);
+		Mockito
+			.when(mockContext.getSharedPreferences(IdentityConstants.DataStoreKey.DATASTORE_NAME, 0))
+			.thenReturn(new InMemorySharedPreferences());
+
+		eventHub = new InMemoryEventHub();
+		eventHub.registerExtension();
+
+		final Map<String, Object> configuration = new HashMap<>();
+		configuration.put(IdentityConstants.SharedState.Configuration.EXPERIENCE_CLOUD_ORGID, "test-org-id@AdobeOrg");
+		eventHub.setSharedState(IdentityConstants.SharedState.Configuration.NAME, configuration);
+		eventHub.boot();
+	}
+
+	@Test(timeout = 300000)
+	public void test_updateAndRemoveIdentities_load() throws Exception {
+		// test
+		final long start = System.nanoTime();
+
+		for (int i = 0; i < EVENT_COUNT; i++) {
+			final IdentityItem item = new IdentityItem("load-" + (i % DISTINCT_IDENTIFIERS));
+
+			if (i % 2 == 0) {
+				final IdentityMap map = new IdentityMap();
+				map.addItem(item, NAMESPACE);
+				Identity.updateIdentities(map);
+			} else {
+				Identity.removeIdentity(item, NAMESPACE);
+			}
+		}
+
+		// events are handled in order, so all updates and removes are handled once this request is answered
+		final Event response = eventHub.dispatchAndWait(buildGetIdentitiesRequest(), TIMEOUT_MILLISECONDS);
+		final long elapsedNanos = System.nanoTime() - start;
+
+		// verify
+		assertNotNull(response);
+		assertEquals(0, eventHub.getUnmatchedResponseCount());
+		assertEquals(0, eventHub.getPendingResponseCount());
+		assertTrue(IdentityMap.fromXDMMap(response.getEventData()).getIdentityItemsForNamespace(NAMESPACE).isEmpty());
+		reportEvents("updateIdentities/removeIdentity", EVENT_COUNT, elapsedNanos);
+	}
+
+	@Test(timeout = 300000)
+	public void test_getIdentities_load() throws Exception {
+		final IdentityMap map = new IdentityMap();
+
+		for (int i = 0; i < DISTINCT_IDENTIFIERS; i++) {
+			map.addItem(new IdentityItem("load-" + i), NAMESPACE);
+		}
+
+		Identity.updateIdentities(map);
+
+		final AdobeCallback<Event> ignoreResponse = new AdobeCallback<Event>() {
+			@Override
+			public void call(final Event event) {}
+		};
+
+		// test
+		final long start = System.nanoTime();
+
+		for (int i = 0; i < EVENT_COUNT - 1; i++) {
+			eventHub.dispatch(buildGetIdentitiesRequest(), ignoreResponse);
+		}
+
+		final Event response = eventHub.dispatchAndWait(buildGetIdentitiesRequest(), TIMEOUT_MILLISECONDS);
+		final long elapsedNanos = System.nanoTime() - start;
+
+		// verify
+		assertNotNull(response);
+		assertEquals(0, eventHub.getUnmatchedResponseCount());
+		assertEquals(0, eventHub.getPendingResponseCount());
+		assertEquals(
+			DISTINCT_IDENTIFIERS,
+			IdentityMap.fromXDMMap(response.getEventData()).getIdentityItemsForNamespace(NAMESPACE).size()
+		);
+		reportEvents("getIdentities", EVENT_COUNT, elapsedNanos);
+	}
+
+	private static Event buildGetIdentitiesRequest() {
+		return new Event.Builder(
+			IdentityConstants.EventNames.REQUEST_IDENTITIES,
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.build();
+	}
+
+	private void reportEvents(final String name, final int eventCount, final long elapsedNanos) {
+		report.recordThroughput(name, eventCount, elapsedNanos);
+		report.recordLatencies(name, eventHub.getLatenciesNanos());
+	}
+}
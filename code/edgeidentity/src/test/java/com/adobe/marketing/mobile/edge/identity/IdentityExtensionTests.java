@@ -14,6 +14,7 @@ package com.adobe.marketing.mobile.edge.identity;
 import static com.adobe.marketing.mobile.edge.identity.IdentityTestUtil.*;
 import static com.adobe.marketing.mobile.edge.identity.IdentityTestUtil.buildUpdateIdentityRequest;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -33,8 +34,12 @@ import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.ExtensionApi;
 import com.adobe.marketing.mobile.ExtensionErrorCallback;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Before;
@@ -78,6 +83,8 @@ public class IdentityExtensionTests {
 			.when(mockContext.getSharedPreferences(IdentityConstants.DataStoreKey.DATASTORE_NAME, 0))
 			.thenReturn(mockSharedPreference);
 		Mockito.when(mockSharedPreference.edit()).thenReturn(mockSharedPreferenceEditor);
+		Identity.changeRegistry.clear();
+		Identity.changeRegistry.setNotificationExecutor(DIRECT_EXECUTOR);
 
 		extension = new IdentityExtension(mockExtensionApi);
 
@@ -301,6 +308,169 @@ public class IdentityExtensionTests {
 		assertTrue(identityMap.isEmpty());
 	}
 
+	@Test
+	public void test_handleIdentityRequest_withQuery_returnsOnlyMatchingIdentifiers() {
+		// setup
+		final IdentityMap identities = new IdentityMap();
+		identities.addItem(new IdentityItem("secretID", AuthenticatedState.AUTHENTICATED, true), "UserId");
+		identities.addItem(new IdentityItem("otherID", AuthenticatedState.LOGGED_OUT, false), "UserId");
+		identities.addItem(new IdentityItem("token"), "PushId");
+		extension.state.getIdentityProperties().updateCustomerIdentifiers(identities);
+		final IdentityQuery query = new IdentityQuery.Builder()
+			.setNamespaces("userid")
+			.setAuthenticatedStates(AuthenticatedState.AUTHENTICATED)
+			.build();
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.setEventData(query.toEventData())
+			.build();
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		extension.handleIdentityRequest(event);
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchResponseEvent(responseEventCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		Map<String, String> responseData = flattenMap(responseEventCaptor.getValue().getEventData());
+		assertEquals("secretID", responseData.get("identityMap.UserId[0].id"));
+		assertNull(responseData.get("identityMap.UserId[1].id"));
+		assertNull(responseData.get("identityMap.PushId[0].id"));
+		assertNull(responseData.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_handleIdentityRequest_withQuery_noMatch_returnsEmptyIdentityMap() {
+		// setup
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces("UserId").build();
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.setEventData(query.toEventData())
+			.build();
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		extension.handleIdentityRequest(event);
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchResponseEvent(responseEventCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		IdentityMap identityMap = IdentityMap.fromXDMMap(responseEventCaptor.getValue().getEventData());
+		assertNotNull(identityMap);
+		assertTrue(identityMap.isEmpty());
+	}
+
+	@Test
+	public void test_handleIdentityRequest_encodedIdentityMapNotRequested_responseWithoutEncodedIdentityMap() {
+		// setup
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.build();
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		extension.handleIdentityRequest(event);
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchResponseEvent(responseEventCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		assertFalse(
+			responseEventCaptor.getValue().getEventData().containsKey(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP)
+		);
+	}
+
+	@Test
+	public void test_handleIdentityRequest_responseContainsEncodedIdentityMap_updatedAfterChange() {
+		// setup
+		final Map<String, Object> eventData = new HashMap<>();
+		eventData.put(IdentityConstants.EventDataKeys.RETURN_ENCODED_IDENTITY_MAP, true);
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.setEventData(eventData)
+			.build();
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		extension.handleIdentityRequest(event);
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+		extension.handleIdentityRequest(event);
+
+		// verify the encoded identities match the XDM identities in each response
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchResponseEvent(responseEventCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+
+		for (final Event responseEvent : responseEventCaptor.getAllValues()) {
+			final Map<String, Object> responseData = responseEvent.getEventData();
+			final IdentityMap decoded = IdentityMapCodec.decode(
+				(String) responseData.get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP)
+			);
+			assertNotNull(decoded);
+			assertEquals(IdentityMap.fromXDMMap(responseData).asXDMMap(), decoded.asXDMMap());
+		}
+
+		final IdentityMap latest = IdentityMapCodec.decode(
+			(String) responseEventCaptor
+				.getAllValues()
+				.get(1)
+				.getEventData()
+				.get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP)
+		);
+		assertEquals("secretID", latest.getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void test_handleIdentityRequest_removesExpiredIdentifiers_updatesSharedState() {
+		// setup
+		final long now = Utils.getUnixTimeInSeconds();
+		addCustomerIdentifierUpdatedAt(now - 120, "SessionId", "session");
+		addCustomerIdentifierUpdatedAt(now, "UserId", "secretID");
+		extension.state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("SessionId", 60L);
+					put("UserId", 60L);
+				}
+			}
+		);
+
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.build();
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		extension.handleIdentityRequest(event);
+
+		// verify shared state is updated
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(any(Map.class), eq(event), any(ExtensionErrorCallback.class));
+
+		// verify response event does not contain the expired identifier
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchResponseEvent(responseEventCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		Map<String, String> responseData = flattenMap(responseEventCaptor.getValue().getEventData());
+		assertNull(responseData.get("identityMap.SessionId[0].id"));
+		assertEquals("secretID", responseData.get("identityMap.UserId[0].id"));
+		assertNotNull(responseData.get("identityMap.ECID[0].id"));
+	}
+
 	@Test
 	public void test_handleIdentityResetRequest() {
 		// setup
@@ -364,6 +534,57 @@ public class IdentityExtensionTests {
 		assertTrue(eventCaptor.getAllValues().isEmpty());
 	}
 
+	@Test
+	public void test_handleHubSharedState_hubStateChange_updatesRegisteredExtensions() {
+		// setup
+		final Map<String, Object> hubState = new HashMap<>();
+		hubState.put(
+			"extensions",
+			new HashMap<String, Object>() {
+				{
+					put(
+						IdentityConstants.SharedState.IdentityDirect.NAME,
+						new HashMap<String, Object>() {
+							{
+								put("version", "1.2.2");
+							}
+						}
+					);
+				}
+			}
+		);
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Hub.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(hubState);
+
+		Event event = new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.HUB,
+			IdentityConstants.EventSource.SHARED_STATE
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.STATE_OWNER, IdentityConstants.SharedState.Hub.NAME);
+					}
+				}
+			)
+			.build();
+
+		// test
+		extension.handleHubSharedState(event);
+
+		// verify
+		assertTrue(extension.state.isExtensionRegistered(IdentityConstants.SharedState.IdentityDirect.NAME));
+		verify(mockExtensionApi, times(0))
+			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
 	@Test
 	public void test_handleHubSharedState_noOpNullEvent() {
 		setIdentityDirectSharedState("1234");
@@ -415,6 +636,125 @@ public class IdentityExtensionTests {
 			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
 	}
 
+	@Test
+	public void test_handleHubSharedState_configurationUpdate_removesExpiredIdentifiers_updatesSharedState() {
+		// setup
+		final long now = Utils.getUnixTimeInSeconds();
+		addCustomerIdentifierUpdatedAt(now - 120, "SessionId", "session");
+		addCustomerIdentifierUpdatedAt(now - 120, "UserId", "secretID");
+		setNamespaceTimeToLiveConfiguration(
+			new HashMap<String, Object>() {
+				{
+					put("SessionId", 60);
+				}
+			}
+		);
+
+		Event event = buildConfigurationSharedStateEvent();
+
+		// test
+		extension.handleHubSharedState(event);
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		Map<String, String> sharedState = flattenMap(sharedStateCaptor.getValue());
+		assertNull(sharedState.get("identityMap.SessionId[0].id"));
+		assertEquals("secretID", sharedState.get("identityMap.UserId[0].id"));
+		assertNotNull(sharedState.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_handleHubSharedState_configurationUpdate_whenNoneExpired_doesNotShareState() {
+		// setup
+		addCustomerIdentifierUpdatedAt(Utils.getUnixTimeInSeconds(), "SessionId", "session");
+		setNamespaceTimeToLiveConfiguration(
+			new HashMap<String, Object>() {
+				{
+					put("SessionId", 60);
+				}
+			}
+		);
+
+		// test
+		extension.handleHubSharedState(buildConfigurationSharedStateEvent());
+
+		// verify
+		verify(mockExtensionApi, times(0))
+			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+		assertEquals(
+			"session",
+			flattenMap(extension.state.getIdentityProperties().toXDMData(false)).get("identityMap.SessionId[0].id")
+		);
+	}
+
+	@Test
+	public void test_handleHubSharedState_configurationUpdate_hashesStoredIdentifiers_updatesSharedStateOnce() {
+		// setup
+		addCustomerIdentifierUpdatedAt(Utils.getUnixTimeInSeconds(), "Email", "User@Example.com");
+		addCustomerIdentifierUpdatedAt(Utils.getUnixTimeInSeconds(), "UserId", "secretID");
+		setHashedNamespacesConfiguration(
+			new HashMap<String, Object>() {
+				{
+					put("Email", "lowercase");
+				}
+			}
+		);
+
+		// test
+		final Event event = buildConfigurationSharedStateEvent();
+		extension.handleHubSharedState(event);
+		extension.handleHubSharedState(buildConfigurationSharedStateEvent());
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), eq(event), any(ExtensionErrorCallback.class));
+		Map<String, String> sharedState = flattenMap(sharedStateCaptor.getValue());
+		// SHA-256 of "user@example.com"
+		assertEquals(
+			"b4c9a289323b21a01c3e940f150eb9b8c542587f1abfd8f0e1cc1ffc5e475514",
+			sharedState.get("identityMap.Email[0].id")
+		);
+		assertEquals("secretID", sharedState.get("identityMap.UserId[0].id"));
+		verify(mockSharedPreferenceEditor, times(1))
+			.putString(IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES, "[\"email\"]");
+	}
+
+	@Test
+	public void test_bootup_configurationNotSet_keepsHashedNamespaces() {
+		// setup boots without a Configuration shared state
+		extension.handleHubSharedState(buildConfigurationSharedStateEvent());
+
+		// verify
+		verify(mockSharedPreferenceEditor, times(0)).remove(IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES);
+		verify(mockSharedPreferenceEditor, times(0))
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_HASHED_NAMESPACES), anyString());
+	}
+
+	@Test
+	public void test_handleExpirySweep_removesExpiredIdentifiers_updatesSharedState() {
+		// setup
+		addCustomerIdentifierUpdatedAt(Utils.getUnixTimeInSeconds() - 120, "SessionId", "session");
+		extension.state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("SessionId", 60L);
+				}
+			}
+		);
+
+		// test
+		extension.handleExpirySweep();
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), nullable(Event.class), any(ExtensionErrorCallback.class));
+		assertNull(flattenMap(sharedStateCaptor.getValue()).get("identityMap.SessionId[0].id"));
+	}
+
 	@Test
 	public void test_handleHubSharedState_noOpNoDirectIdentitySharedState() {
 		when(
@@ -651,6 +991,103 @@ public class IdentityExtensionTests {
 		assertNull(urlvariables);
 	}
 
+	@Test
+	public void test_handleUrlVariablesRequest_afterConfigurationUpdate_usesCachedOrgId() {
+		// setup
+		ECID testECID = new ECID();
+		extension.state.getIdentityProperties().setECID(testECID);
+		setConfigurationSharedState("test-org-id@AdobeOrg");
+		extension.handleConfigurationUpdate(withTimestamp(buildConfigurationSharedStateEvent(), 1000));
+		setConfigurationSharedState("other-org-id@AdobeOrg");
+
+		// test
+		extension.handleUrlVariablesRequest(withTimestamp(buildUrlVariablesRequest(), 1001));
+
+		// verify configuration shared state is read only for the configuration change
+		verify(mockExtensionApi, times(1))
+			.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			);
+		assertTrue(getDispatchedUrlVariables().contains("%7CMCORGID%3Dtest-org-id%40AdobeOrg"));
+	}
+
+	@Test
+	public void test_handleUrlVariablesRequest_beforeConfigurationUpdate_readsVersionedSharedState() {
+		// setup
+		ECID testECID = new ECID();
+		extension.state.getIdentityProperties().setECID(testECID);
+		Event requestEvent = withTimestamp(buildUrlVariablesRequest(), 1000);
+		setConfigurationSharedState("new-org-id@AdobeOrg");
+		extension.handleConfigurationUpdate(withTimestamp(buildConfigurationSharedStateEvent(), 1001));
+		setConfigurationSharedState("test-org-id@AdobeOrg");
+
+		// test
+		extension.handleUrlVariablesRequest(requestEvent);
+
+		// verify the shared state versioned by the request is used
+		verify(mockExtensionApi, times(2))
+			.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			);
+		assertTrue(getDispatchedUrlVariables().contains("%7CMCORGID%3Dtest-org-id%40AdobeOrg"));
+	}
+
+	@Test
+	public void test_handleUrlVariablesRequest_sameTimestampAsConfigurationUpdate_readsVersionedSharedState() {
+		// setup
+		ECID testECID = new ECID();
+		extension.state.getIdentityProperties().setECID(testECID);
+		setConfigurationSharedState("new-org-id@AdobeOrg");
+		extension.handleConfigurationUpdate(withTimestamp(buildConfigurationSharedStateEvent(), 1000));
+		setConfigurationSharedState("test-org-id@AdobeOrg");
+
+		// test
+		extension.handleUrlVariablesRequest(withTimestamp(buildUrlVariablesRequest(), 1000));
+
+		// verify the order is unknown, so the shared state versioned by the request is used
+		verify(mockExtensionApi, times(2))
+			.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			);
+		assertTrue(getDispatchedUrlVariables().contains("%7CMCORGID%3Dtest-org-id%40AdobeOrg"));
+	}
+
+	@Test
+	public void test_handleUrlVariablesRequest_afterPendingConfigurationUpdate_readsVersionedSharedState() {
+		// setup
+		ECID testECID = new ECID();
+		extension.state.getIdentityProperties().setECID(testECID);
+		setConfigurationSharedState("old-org-id@AdobeOrg");
+		extension.handleConfigurationUpdate(withTimestamp(buildConfigurationSharedStateEvent(), 1000));
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(null, Collections.<String, Object>singletonMap("experienceCloud.org", "test-org-id@AdobeOrg"));
+		extension.handleConfigurationUpdate(withTimestamp(buildConfigurationSharedStateEvent(), 1000));
+
+		// test
+		extension.handleUrlVariablesRequest(withTimestamp(buildUrlVariablesRequest(), 1001));
+
+		// verify the org ID cached before the pending configuration change is not used
+		verify(mockExtensionApi, times(3))
+			.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			);
+		assertTrue(getDispatchedUrlVariables().contains("%7CMCORGID%3Dtest-org-id%40AdobeOrg"));
+	}
+
 	// ========================================================================================
 	// handleUpdateIdentities
 	// ========================================================================================
@@ -679,21 +1116,239 @@ public class IdentityExtensionTests {
 	}
 
 	@Test
-	public void test_handleUpdateIdentities_nullEventData_returns() {
+	public void test_handleUpdateIdentities_whenEncodedData_decodesEncodedForm() {
 		// setup
 		MockIdentityState mockIdentityState = new MockIdentityState(new IdentityProperties());
 		extension.state = mockIdentityState;
+		IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("secretID", AuthenticatedState.AUTHENTICATED, true), "UserId");
+		Map<String, Object> eventData = identityMap.asEventData();
+		// the XDM form is changed to verify the encoded form is used
+		eventData.put(IdentityConstants.XDMKeys.IDENTITY_MAP, new HashMap<String, Object>());
 
 		// test
-		Event updateIdentityEvent = buildUpdateIdentityRequest(null);
-		extension.handleUpdateIdentities(updateIdentityEvent);
+		extension.handleUpdateIdentities(buildUpdateIdentityRequest(eventData));
 
-		// verify identifiers not updated
-		assertEquals(0, mockIdentityState.updateCustomerIdentifiersCalledTimes);
+		// verify
+		assertEquals(1, mockIdentityState.updateCustomerIdentifiersCalledTimes);
+		assertEquals(identityMap.asXDMMap(), mockIdentityState.updateCustomerIdentifiersParams.get(0).asXDMMap());
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_whenCapacityConfigured_evictsLeastRecentlyUpdated() {
+		// setup
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.SharedState.Configuration.MAX_ITEMS_PER_NAMESPACE, 1);
+					}
+				}
+			);
+		extension.handleHubSharedState(buildConfigurationSharedStateEvent());
+		addCustomerIdentifierUpdatedAt(Utils.getUnixTimeInSeconds() - 10, "UserId", "oldID");
+
+		// test
+		Event updateIdentityEvent = buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "newID")));
+		extension.handleUpdateIdentities(updateIdentityEvent);
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), eq(updateIdentityEvent), any(ExtensionErrorCallback.class));
+		Map<String, String> sharedState = flattenMap(sharedStateCaptor.getValue());
+		assertEquals("newID", sharedState.get("identityMap.UserId[0].id"));
+		assertNull(sharedState.get("identityMap.UserId[1].id"));
+		assertNotNull(sharedState.get("identityMap.ECID[0].id"));
+		assertEquals(1, extension.getEvictedIdentitiesCount());
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_nullEventData_returns() {
+		// setup
+		MockIdentityState mockIdentityState = new MockIdentityState(new IdentityProperties());
+		extension.state = mockIdentityState;
+
+		// test
+		Event updateIdentityEvent = buildUpdateIdentityRequest(null);
+		extension.handleUpdateIdentities(updateIdentityEvent);
+
+		// verify identifiers not updated
+		assertEquals(0, mockIdentityState.updateCustomerIdentifiersCalledTimes);
 
 		// verify shared state
 		verify(mockExtensionApi, times(0))
 			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+		verify(mockExtensionApi, times(0))
+			.setSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_whenHashedNamespaceConfigured_storesDigest() {
+		// setup
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(
+				new HashMap<String, Object>() {
+					{
+						put(
+							IdentityConstants.SharedState.Configuration.HASHED_NAMESPACES,
+							new HashMap<String, Object>() {
+								{
+									put("Email", "lowercase");
+								}
+							}
+						);
+					}
+				}
+			);
+		extension.handleHubSharedState(buildConfigurationSharedStateEvent());
+
+		// test
+		Event updateIdentityEvent = buildUpdateIdentityRequest(
+			createXDMIdentityMap(new TestItem("Email", " User@Example.com"), new TestItem("UserId", "secretID"))
+		);
+		extension.handleUpdateIdentities(updateIdentityEvent);
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), eq(updateIdentityEvent), any(ExtensionErrorCallback.class));
+		Map<String, String> sharedState = flattenMap(sharedStateCaptor.getValue());
+		assertEquals(
+			"b4c9a289323b21a01c3e940f150eb9b8c542587f1abfd8f0e1cc1ffc5e475514",
+			sharedState.get("identityMap.Email[0].id")
+		);
+		assertEquals("secretID", sharedState.get("identityMap.UserId[0].id"));
+
+		// removing the unhashed identifier removes its digest
+		Event removeIdentityEvent = buildRemoveIdentityRequest(
+			createXDMIdentityMap(new TestItem("Email", "user@example.com"))
+		);
+		extension.handleRemoveIdentity(removeIdentityEvent);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(sharedStateCaptor.capture(), eq(removeIdentityEvent), any(ExtensionErrorCallback.class));
+		assertNull(flattenMap(sharedStateCaptor.getValue()).get("identityMap.Email[0].id"));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_sharesIdentityMapJson() throws Exception {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+
+		// test
+		Event updateIdentityEvent = buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")));
+		extension.handleUpdateIdentities(updateIdentityEvent);
+
+		// verify
+		final ArgumentCaptor<Map> xdmSharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(xdmSharedStateCaptor.capture(), eq(updateIdentityEvent), any(ExtensionErrorCallback.class));
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setSharedEventState(sharedStateCaptor.capture(), eq(updateIdentityEvent), any(ExtensionErrorCallback.class));
+
+		final String identityMapJson = (String) sharedStateCaptor
+			.getValue()
+			.get(IdentityConstants.SharedState.EdgeIdentity.IDENTITY_MAP_JSON);
+		assertNotNull(identityMapJson);
+		assertEquals(
+			flattenMap((Map<String, Object>) xdmSharedStateCaptor.getValue().get("identityMap")),
+			flattenMap(Utils.toMap(new JSONObject(identityMapJson)))
+		);
+		assertEquals("secretID", flattenMap(Utils.toMap(new JSONObject(identityMapJson))).get("UserId[0].id"));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_xdmSharedStateFailed_doesNotShareIdentityMapJson() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(false);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+		verify(mockExtensionApi, times(0))
+			.setSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_identityMapUnchanged_doesNotShareIdentityMapJsonAgain() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		verify(mockExtensionApi, times(2))
+			.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+		verify(mockExtensionApi, times(1))
+			.setSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_identityMapChanged_sharesIdentityMapJsonAgain() throws Exception {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "otherID")))
+		);
+
+		// verify
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(2))
+			.setSharedEventState(sharedStateCaptor.capture(), any(Event.class), any(ExtensionErrorCallback.class));
+		final String identityMapJson = (String) sharedStateCaptor
+			.getValue()
+			.get(IdentityConstants.SharedState.EdgeIdentity.IDENTITY_MAP_JSON);
+		assertEquals("otherID", flattenMap(Utils.toMap(new JSONObject(identityMapJson))).get("UserId[1].id"));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_sealsPendingReadsOfRequestCoalescer() {
+		// setup
+		final RequestCoalescer coalescer = new RequestCoalescer();
+		extension = new IdentityExtension(mockExtensionApi, coalescer);
+		extension.bootupIfReady();
+		assertNotNull(coalescer.join(ApiLatencyMetrics.GET_IDENTITIES, null, null, null));
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify a request made after the update does not join the request in flight
+		assertNotNull(coalescer.join(ApiLatencyMetrics.GET_IDENTITIES, null, null, null));
 	}
 
 	// ========================================================================================
@@ -732,6 +1387,26 @@ public class IdentityExtensionTests {
 		MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class));
 	}
 
+	@Test
+	public void test_handleRemoveIdentity_whenEncodedData_decodesEncodedForm() {
+		// setup
+		MockIdentityState mockIdentityState = new MockIdentityState(
+			new IdentityProperties(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+		extension.state = mockIdentityState;
+		IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("secretID"), "UserId");
+		Map<String, Object> eventData = identityMap.asEventData();
+		eventData.put(IdentityConstants.XDMKeys.IDENTITY_MAP, new HashMap<String, Object>());
+
+		// test
+		extension.handleRemoveIdentity(buildRemoveIdentityRequest(eventData));
+
+		// verify
+		assertEquals(1, mockIdentityState.removeCustomerIdentifiersCalledTimes);
+		assertEquals(identityMap.asXDMMap(), mockIdentityState.removeCustomerIdentifiersParams.get(0).asXDMMap());
+	}
+
 	@Test
 	public void test_handleRemoveIdentity_whenNullData_returns() {
 		// setup
@@ -751,6 +1426,51 @@ public class IdentityExtensionTests {
 			.setXDMSharedEventState(any(Map.class), eq(removeIdentityEvent), any(ExtensionErrorCallback.class));
 	}
 
+	@Test
+	public void test_handleRemoveIdentity_whenNamespace_removesAllIdentifiersInNamespace_updatesSharedState() {
+		// setup
+		Map<String, Object> identityXDM = createXDMIdentityMap(
+			new TestItem("UserId", "secretID"),
+			new TestItem("UserId", "otherSecretID"),
+			new TestItem("PushId", "token")
+		);
+		extension.state.getIdentityProperties().updateCustomerIdentifiers(IdentityMap.fromXDMMap(identityXDM));
+
+		// test
+		Event removeIdentityEvent = buildRemoveIdentityForNamespaceRequest("UserId");
+		extension.handleRemoveIdentity(removeIdentityEvent);
+
+		// verify shared state
+		final ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(mockExtensionApi, times(1))
+			.setXDMSharedEventState(
+				sharedStateCaptor.capture(),
+				eq(removeIdentityEvent),
+				any(ExtensionErrorCallback.class)
+			);
+		Map<String, String> sharedState = flattenMap(sharedStateCaptor.getValue());
+		assertNull(sharedState.get("identityMap.UserId[0].id"));
+		assertEquals("token", sharedState.get("identityMap.PushId[0].id"));
+		assertNotNull(sharedState.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_handleRemoveIdentity_whenNamespaceNotFound_doesNotUpdateSharedState() {
+		// setup
+		Map<String, Object> identityXDM = createXDMIdentityMap(new TestItem("PushId", "token"));
+		MockIdentityState mockIdentityState = new MockIdentityState(new IdentityProperties(identityXDM));
+		extension.state = mockIdentityState;
+
+		// test
+		Event removeIdentityEvent = buildRemoveIdentityForNamespaceRequest("UserId");
+		extension.handleRemoveIdentity(removeIdentityEvent);
+
+		// verify removeCustomerIdentifiers is not used and no shared state is created
+		assertEquals(0, mockIdentityState.removeCustomerIdentifiersCalledTimes);
+		verify(mockExtensionApi, times(0))
+			.setXDMSharedEventState(any(Map.class), eq(removeIdentityEvent), any(ExtensionErrorCallback.class));
+	}
+
 	@Test
 	public void test_processCachedEvents_returnsWhenNotBooted() {
 		Map<String, Object> identityXDM = createXDMIdentityMap(new TestItem("space", "moon"));
@@ -875,10 +1595,234 @@ public class IdentityExtensionTests {
 		assertEquals("y", consentEventData.get("consents.adID.val"));
 	}
 
+	// ========================================================================================
+	// identity change listeners
+	// ========================================================================================
+
+	@Test
+	public void test_handleUpdateIdentities_notifiesChangeListenerWithSnapshot() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityMap> snapshots = new ArrayList<>();
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(snapshots, changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+		assertEquals(IdentityChangeType.UPDATE, changeTypes.get(0));
+		Map<String, String> snapshot = flattenMap(snapshots.get(0).asXDMMap());
+		assertEquals("secretID", snapshot.get("identityMap.UserId[0].id"));
+		assertNotNull(snapshot.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_identitiesUnchanged_doesNotNotifyChangeListenerAgain() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_snapshotChangedByListener_doesNotChangeState() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityMap> snapshots = new ArrayList<>();
+		Identity.changeRegistry.register(
+			recordingListener(snapshots, new ArrayList<IdentityChangeType>()),
+			DIRECT_EXECUTOR
+		);
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// test
+		snapshots.get(0).addItem(new IdentityItem("otherID"), "UserId");
+
+		// verify the snapshot is read only
+		assertEquals(1, snapshots.get(0).getIdentityItemsForNamespace("UserId").size());
+		Map<String, String> identities = flattenMap(extension.state.getIdentityProperties().toXDMData(false));
+		assertEquals("secretID", identities.get("identityMap.UserId[0].id"));
+		assertNull(identities.get("identityMap.UserId[1].id"));
+	}
+
+	@Test
+	public void test_handleRemoveIdentity_whenNamespaceNotFound_doesNotNotifyChangeListener() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleRemoveIdentity(buildRemoveIdentityForNamespaceRequest("UserId"));
+
+		// verify
+		assertTrue(changeTypes.isEmpty());
+	}
+
+	@Test
+	public void test_handleRequestReset_notifiesChangeListener() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleRequestReset(
+			new Event.Builder(
+				"Test event",
+				IdentityConstants.EventType.GENERIC_IDENTITY,
+				IdentityConstants.EventSource.REQUEST_RESET
+			)
+				.build()
+		);
+
+		// verify
+		assertEquals(1, changeTypes.size());
+		assertEquals(IdentityChangeType.RESET, changeTypes.get(0));
+	}
+
+	@Test
+	public void test_handleRequestContent_adIdChanged_notifiesChangeListener() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityMap> snapshots = new ArrayList<>();
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(snapshots, changeTypes), DIRECT_EXECUTOR);
+		final Event event = new Event.Builder(
+			"Test Ad ID event",
+			IdentityConstants.EventType.GENERIC_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_CONTENT
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.ADVERTISING_IDENTIFIER, "adId");
+					}
+				}
+			)
+			.build();
+
+		// test
+		extension.handleRequestContent(event);
+		extension.handleRequestContent(event);
+
+		// verify only the first event changed the ad ID
+		assertEquals(1, changeTypes.size());
+		assertEquals(IdentityChangeType.AD_ID, changeTypes.get(0));
+		assertEquals("adId", flattenMap(snapshots.get(0).asXDMMap()).get("identityMap.GAID[0].id"));
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_unregisteredListener_notNotified() {
+		// setup
+		when(mockExtensionApi.setXDMSharedEventState(any(Map.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenReturn(true);
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		final IdentityChangeListener listener = recordingListener(new ArrayList<IdentityMap>(), changeTypes);
+		Identity.changeRegistry.register(listener, DIRECT_EXECUTOR);
+		Identity.changeRegistry.unregister(listener);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		assertTrue(changeTypes.isEmpty());
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_xdmSharedStateNotSet_doesNotNotifyChangeListener() {
+		// setup
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		assertTrue(changeTypes.isEmpty());
+	}
+
+	@Test
+	public void test_handleUpdateIdentities_identitiesUnchangedSinceBootup_doesNotNotifyChangeListener() {
+		// setup
+		when(
+			mockExtensionApi.setXDMSharedEventState(any(Map.class), nullable(Event.class), any(ExtensionErrorCallback.class))
+		)
+			.thenReturn(true);
+		final IdentityProperties persistedProps = new IdentityProperties();
+		persistedProps.setECID(new ECID());
+		persistedProps.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES, null))
+			.thenReturn(new JSONObject(persistedProps.toXDMData(false)).toString());
+		extension = new IdentityExtension(mockExtensionApi);
+		extension.bootupIfReady();
+
+		final List<IdentityChangeType> changeTypes = new ArrayList<>();
+		Identity.changeRegistry.register(recordingListener(new ArrayList<IdentityMap>(), changeTypes), DIRECT_EXECUTOR);
+
+		// test
+		extension.handleUpdateIdentities(
+			buildUpdateIdentityRequest(createXDMIdentityMap(new TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		assertTrue(changeTypes.isEmpty());
+	}
+
 	// ========================================================================================
 	// private helper methods
 	// ========================================================================================
 
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		@Override
+		public void execute(final Runnable runnable) {
+			runnable.run();
+		}
+	};
+
+	private IdentityChangeListener recordingListener(
+		final List<IdentityMap> snapshots,
+		final List<IdentityChangeType> changeTypes
+	) {
+		return new IdentityChangeListener() {
+			@Override
+			public void onIdentitiesChanged(final IdentityMap identityMap, final IdentityChangeType changeType) {
+				snapshots.add(identityMap);
+				changeTypes.add(changeType);
+			}
+		};
+	}
+
 	private void setupExistingIdentityProps(final ECID ecid) {
 		IdentityProperties persistedProps = new IdentityProperties();
 		persistedProps.setECID(ecid);
@@ -889,6 +1833,77 @@ public class IdentityExtensionTests {
 			.thenReturn(propsJSON);
 	}
 
+	private void addCustomerIdentifierUpdatedAt(final long lastUpdated, final String namespace, final String id) {
+		final IdentityProperties properties = extension.state.getIdentityProperties();
+		properties.updateCustomerIdentifiers(IdentityMap.fromXDMMap(createXDMIdentityMap(new TestItem(namespace, id))));
+
+		final Map<String, Object> lastUpdatedData = properties.getLastUpdatedData();
+		((Map<String, Object>) lastUpdatedData.get(namespace)).put(id, lastUpdated);
+		properties.setLastUpdatedData(lastUpdatedData);
+	}
+
+	private Event buildConfigurationSharedStateEvent() {
+		return new Event.Builder("Test event", IdentityConstants.EventType.HUB, IdentityConstants.EventSource.SHARED_STATE)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.STATE_OWNER, IdentityConstants.SharedState.Configuration.NAME);
+					}
+				}
+			)
+			.build();
+	}
+
+	private void setNamespaceTimeToLiveConfiguration(final Map<String, Object> namespaceTimeToLive) {
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.SharedState.Configuration.NAMESPACE_TTL, namespaceTimeToLive);
+					}
+				}
+			);
+	}
+
+	private void setHashedNamespacesConfiguration(final Map<String, Object> hashedNamespaces) {
+		when(
+			mockExtensionApi.getSharedEventState(
+				eq(IdentityConstants.SharedState.Configuration.NAME),
+				any(Event.class),
+				any(ExtensionErrorCallback.class)
+			)
+		)
+			.thenReturn(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.SharedState.Configuration.HASHED_NAMESPACES, hashedNamespaces);
+					}
+				}
+			);
+	}
+
+	private Event buildRemoveIdentityForNamespaceRequest(final String namespace) {
+		return new Event.Builder(
+			IdentityConstants.EventNames.REMOVE_IDENTITIES_FOR_NAMESPACE,
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REMOVE_IDENTITY
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.NAMESPACE, namespace);
+					}
+				}
+			)
+			.build();
+	}
+
 	private void setIdentityDirectSharedState(final String ecid) {
 		when(
 			mockExtensionApi.getSharedEventState(
@@ -906,6 +1921,40 @@ public class IdentityExtensionTests {
 			);
 	}
 
+	private Event buildUrlVariablesRequest() {
+		return new Event.Builder(
+			"Test event",
+			IdentityConstants.EventType.EDGE_IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put("urlvariables", true);
+					}
+				}
+			)
+			.build();
+	}
+
+	private static Event withTimestamp(final Event event, final long timestamp) {
+		final Event eventWithTimestamp = PowerMockito.spy(event);
+		Mockito.doReturn(timestamp).when(eventWithTimestamp).getTimestamp();
+		return eventWithTimestamp;
+	}
+
+	private String getDispatchedUrlVariables() {
+		final ArgumentCaptor<Event> responseEventCaptor = ArgumentCaptor.forClass(Event.class);
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchResponseEvent(
+			responseEventCaptor.capture(),
+			any(Event.class),
+			any(ExtensionErrorCallback.class)
+		);
+
+		return (String) responseEventCaptor.getValue().getEventData().get("urlvariables");
+	}
+
 	private void setConfigurationSharedState(final String orgId) {
 		when(
 			mockExtensionApi.getSharedEventState(
@@ -0,0 +1,326 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.adobe.marketing.mobile.AdobeError;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentityFutureTests {
+
+	private IdentityFuture<String> future;
+	private List<IdentityFuture<String>> notified;
+
+	@Before
+	public void setup() {
+		future = new IdentityFuture<>();
+		notified = new ArrayList<>();
+	}
+
+	@Test
+	public void testGet_afterCall_returnsValue() throws Exception {
+		future.asCallback().call("ecid");
+
+		assertTrue(future.isDone());
+		assertFalse(future.isCancelled());
+		assertEquals("ecid", future.get());
+		assertNull(future.getError());
+	}
+
+	@Test
+	public void testGet_afterFail_throwsExecutionException() throws Exception {
+		future.asCallback().fail(AdobeError.CALLBACK_TIMEOUT);
+
+		try {
+			future.get();
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertSame(AdobeError.CALLBACK_TIMEOUT, future.getError());
+		}
+	}
+
+	@Test
+	public void testGet_withTimeout_notCompleted_throwsTimeoutException() throws Exception {
+		try {
+			future.get(20, TimeUnit.MILLISECONDS);
+			fail("Expected TimeoutException");
+		} catch (TimeoutException e) {
+			assertFalse(future.isDone());
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testGet_completedFromOtherThread_unblocksWaiter() throws Exception {
+		final Thread completer = new Thread(
+			new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					future.asCallback().call("ecid");
+				}
+			}
+		);
+		completer.start();
+
+		assertEquals("ecid", future.get(2, TimeUnit.SECONDS));
+		completer.join();
+	}
+
+	@Test
+	public void testCancel_ignoresLateResult() throws Exception {
+		assertTrue(future.cancel(false));
+		future.asCallback().call("ecid");
+
+		assertTrue(future.isCancelled());
+		assertFalse(future.cancel(false));
+
+		try {
+			future.get();
+			fail("Expected CancellationException");
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCall_afterCompletion_keepsFirstResult() throws Exception {
+		future.asCallback().call("first");
+		future.asCallback().call("second");
+		future.asCallback().fail(AdobeError.UNEXPECTED_ERROR);
+
+		assertEquals("first", future.get());
+		assertNull(future.getError());
+	}
+
+	@Test
+	public void testAddListener_beforeCompletion_notifiedOnceOnCompletion() {
+		future.addListener(recordingListener()).addListener(recordingListener());
+		assertTrue(notified.isEmpty());
+
+		future.asCallback().call("ecid");
+		future.asCallback().call("ecid");
+
+		assertEquals(2, notified.size());
+		assertSame(future, notified.get(0));
+	}
+
+	@Test
+	public void testAddListener_afterCompletion_notifiedImmediately() {
+		future.cancel(false);
+
+		future.addListener(recordingListener());
+
+		assertEquals(1, notified.size());
+		assertTrue(notified.get(0).isCancelled());
+	}
+
+	@Test
+	public void testAddListener_withExecutor_notifiedOnExecutor() {
+		final List<Runnable> queued = new ArrayList<>();
+		future.addListener(
+			recordingListener(),
+			new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					queued.add(runnable);
+				}
+			}
+		);
+
+		future.asCallback().call("ecid");
+		assertTrue(notified.isEmpty());
+
+		queued.get(0).run();
+		assertEquals(1, notified.size());
+	}
+
+	@Test
+	public void testAddListener_failingListener_otherListenersStillNotified() {
+		future.addListener(
+			new IdentityFuture.Listener<String>() {
+				@Override
+				public void onComplete(final IdentityFuture<String> completed) {
+					throw new IllegalStateException("listener failure");
+				}
+			}
+		);
+		future.addListener(recordingListener());
+
+		future.asCallback().call("ecid");
+
+		assertEquals(1, notified.size());
+	}
+
+	@Test
+	public void testThenApply_afterCall_returnsTransformedValue() throws Exception {
+		final IdentityFuture<Integer> length = future.thenApply(
+			new IdentityFuture.Function<String, Integer>() {
+				@Override
+				public Integer apply(final String value) {
+					return value.length();
+				}
+			}
+		);
+
+		assertFalse(length.isDone());
+		future.asCallback().call("ecid");
+
+		assertEquals(Integer.valueOf(4), length.get());
+	}
+
+	@Test
+	public void testThenApply_afterFail_failsWithSameError() {
+		future.asCallback().fail(AdobeError.CALLBACK_TIMEOUT);
+
+		final IdentityFuture<Integer> length = future.thenApply(
+			new IdentityFuture.Function<String, Integer>() {
+				@Override
+				public Integer apply(final String value) {
+					throw new AssertionError("not called on failure");
+				}
+			}
+		);
+
+		assertTrue(length.isDone());
+		assertSame(AdobeError.CALLBACK_TIMEOUT, length.getError());
+	}
+
+	@Test
+	public void testThenApply_failingFunction_failsWithUnexpectedError() {
+		final IdentityFuture<Integer> length = future.thenApply(
+			new IdentityFuture.Function<String, Integer>() {
+				@Override
+				public Integer apply(final String value) throws Exception {
+					throw new Exception("function failure");
+				}
+			}
+		);
+
+		future.asCallback().call("ecid");
+
+		assertTrue(length.isDone());
+		assertSame(AdobeError.UNEXPECTED_ERROR, length.getError());
+	}
+
+	@Test
+	public void testThenApply_cancelled_cancelsTransformedOnly() {
+		final IdentityFuture<String> transformed = future.thenApply(
+			new IdentityFuture.Function<String, String>() {
+				@Override
+				public String apply(final String value) {
+					return value;
+				}
+			}
+		);
+
+		transformed.cancel(false);
+		assertFalse(future.isDone());
+
+		future.cancel(false);
+		final IdentityFuture<String> afterCancel = future.thenApply(
+			new IdentityFuture.Function<String, String>() {
+				@Override
+				public String apply(final String value) {
+					return value;
+				}
+			}
+		);
+
+		assertTrue(afterCancel.isCancelled());
+	}
+
+	@Test
+	public void testThenCompose_afterCalls_returnsResultOfNextFuture() throws Exception {
+		final IdentityFuture<String> next = new IdentityFuture<>();
+		final List<String> values = new ArrayList<>();
+
+		final IdentityFuture<String> composed = future.thenCompose(
+			new IdentityFuture.Function<String, IdentityFuture<String>>() {
+				@Override
+				public IdentityFuture<String> apply(final String value) {
+					values.add(value);
+					return next;
+				}
+			}
+		);
+
+		future.asCallback().call("ecid");
+		assertEquals(1, values.size());
+		assertFalse(composed.isDone());
+
+		next.asCallback().call("ecid-urlvariables");
+
+		assertEquals("ecid-urlvariables", composed.get());
+	}
+
+	@Test
+	public void testThenCompose_nextFutureFails_failsWithSameError() {
+		final IdentityFuture<String> next = new IdentityFuture<>();
+		final IdentityFuture<String> composed = future.thenCompose(
+			new IdentityFuture.Function<String, IdentityFuture<String>>() {
+				@Override
+				public IdentityFuture<String> apply(final String value) {
+					return next;
+				}
+			}
+		);
+
+		future.asCallback().call("ecid");
+		next.asCallback().fail(AdobeError.CALLBACK_TIMEOUT);
+
+		assertSame(AdobeError.CALLBACK_TIMEOUT, composed.getError());
+	}
+
+	@Test
+	public void testThenCompose_nullNextFuture_failsWithUnexpectedError() {
+		final IdentityFuture<String> composed = future.thenCompose(
+			new IdentityFuture.Function<String, IdentityFuture<String>>() {
+				@Override
+				public IdentityFuture<String> apply(final String value) {
+					return null;
+				}
+			}
+		);
+
+		future.asCallback().call("ecid");
+
+		assertSame(AdobeError.UNEXPECTED_ERROR, composed.getError());
+	}
+
+	private IdentityFuture.Listener<String> recordingListener() {
+		return new IdentityFuture.Listener<String>() {
+			@Override
+			public void onComplete(final IdentityFuture<String> completed) {
+				notified.add(completed);
+			}
+		};
+	}
+}
@@ -0,0 +1,236 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentityHasherTests {
+
+	// SHA-256 of "user@example.com"
+	private static final String EMAIL_DIGEST = "b4c9a289323b21a01c3e940f150eb9b8c542587f1abfd8f0e1cc1ffc5e475514";
+	// SHA-256 of "15551234567"
+	private static final String PHONE_DIGEST = "d6736136ea896c1bfdc553e0e86e702c70d060d805696ca3e4e9e0961353860a";
+
+	private IdentityHasher hasher;
+
+	@Before
+	public void setup() {
+		hasher = new IdentityHasher(2);
+		hasher.setPolicy(
+			new HashMap<String, IdentityHasher.Normalization>() {
+				{
+					put("Email", IdentityHasher.Normalization.LOWERCASE);
+					put("Phone", IdentityHasher.Normalization.DIGITS);
+				}
+			}
+		);
+	}
+
+	@Test
+	public void testHash_noHashedNamespace_returnsSameMap() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("user"), "UserId");
+
+		assertSame(map, hasher.hash(map));
+		assertNull(hasher.hash(null));
+	}
+
+	@Test
+	public void testHash_hashedNamespace_normalizesAndHashes() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("  User@Example.com ", AuthenticatedState.AUTHENTICATED, true), "email");
+		map.addItem(new IdentityItem("user"), "UserId");
+
+		final IdentityMap hashedMap = hasher.hash(map);
+
+		final List<IdentityItem> emails = hashedMap.getIdentityItemsForNamespace("email");
+		assertEquals(1, emails.size());
+		assertEquals(EMAIL_DIGEST, emails.get(0).getId());
+		assertEquals(AuthenticatedState.AUTHENTICATED, emails.get(0).getAuthenticatedState());
+		assertTrue(emails.get(0).isPrimary());
+		assertEquals("user", hashedMap.getIdentityItemsForNamespace("UserId").get(0).getId());
+		// the original map is not modified
+		assertEquals("  User@Example.com ", map.getIdentityItemsForNamespace("email").get(0).getId());
+	}
+
+	@Test
+	public void testHash_digitsNormalization_removesNonDigits() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("+1 (555) 123-4567"), "Phone");
+
+		assertEquals(PHONE_DIGEST, hasher.hash(map).getIdentityItemsForNamespace("Phone").get(0).getId());
+	}
+
+	@Test
+	public void testHash_alreadyHashed_notAccepted_hashedAgain() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(EMAIL_DIGEST), "Email");
+
+		final String hashedId = hasher.hash(map).getIdentityItemsForNamespace("Email").get(0).getId();
+
+		assertEquals(64, hashedId.length());
+		assertFalse(EMAIL_DIGEST.equals(hashedId));
+		assertEquals(1, hasher.getCacheSize());
+	}
+
+	@Test
+	public void testHash_alreadyHashed_accepted_keptAsIs() {
+		hasher.setPolicy(Collections.singletonMap("Email", IdentityHasher.Normalization.LOWERCASE), true);
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(EMAIL_DIGEST.toUpperCase()), "Email");
+
+		assertEquals(EMAIL_DIGEST, hasher.hash(map).getIdentityItemsForNamespace("Email").get(0).getId());
+		assertEquals(0, hasher.getCacheSize());
+	}
+
+	@Test
+	public void testHash_digitsDigest_accepted_keptAsIs() {
+		final String digitsDigest = "1234567890123456789012345678901234567890123456789012345678901234";
+		hasher.setPolicy(Collections.singletonMap("Phone", IdentityHasher.Normalization.DIGITS), false);
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(digitsDigest), "Phone");
+
+		assertFalse(digitsDigest.equals(hasher.hash(map).getIdentityItemsForNamespace("Phone").get(0).getId()));
+
+		hasher.setPolicy(Collections.singletonMap("Phone", IdentityHasher.Normalization.DIGITS), true);
+
+		assertEquals(digitsDigest, hasher.hash(map).getIdentityItemsForNamespace("Phone").get(0).getId());
+	}
+
+	@Test
+	public void testHash_sameNormalizedValue_deduplicated() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("user@example.com"), "Email");
+		map.addItem(new IdentityItem("USER@example.com"), "Email");
+
+		final IdentityMap hashedMap = hasher.hash(map);
+
+		assertEquals(1, hashedMap.getIdentityItemsForNamespace("Email").size());
+		assertEquals(1, hasher.getCacheSize());
+	}
+
+	@Test
+	public void testHash_emptyAfterNormalization_dropped() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("no digits"), "Phone");
+		map.addItem(new IdentityItem("user"), "UserId");
+
+		final IdentityMap hashedMap = hasher.hash(map);
+
+		assertTrue(hashedMap.getIdentityItemsForNamespace("Phone").isEmpty());
+		assertFalse(hashedMap.getIdentityItemsForNamespace("UserId").isEmpty());
+	}
+
+	@Test
+	public void testHash_cacheBounded_evictsLeastRecentlyUsed() {
+		hasher.hash(mapWithEmail("a@example.com"));
+		hasher.hash(mapWithEmail("b@example.com"));
+		hasher.hash(mapWithEmail("a@example.com"));
+		hasher.hash(mapWithEmail("c@example.com"));
+
+		assertEquals(2, hasher.getCacheSize());
+	}
+
+	@Test
+	public void testHash_cacheDisabled_stillHashes() {
+		final IdentityHasher uncachedHasher = new IdentityHasher(0);
+		uncachedHasher.setPolicy(
+			new HashMap<String, IdentityHasher.Normalization>() {
+				{
+					put("email", IdentityHasher.Normalization.LOWERCASE);
+				}
+			}
+		);
+
+		final IdentityMap hashedMap = uncachedHasher.hash(mapWithEmail("user@example.com"));
+
+		assertEquals(EMAIL_DIGEST, hashedMap.getIdentityItemsForNamespace("Email").get(0).getId());
+		assertEquals(0, uncachedHasher.getCacheSize());
+	}
+
+	@Test
+	public void testSetPolicy_empty_disablesHashing() {
+		final IdentityMap map = mapWithEmail("user@example.com");
+
+		hasher.setPolicy(null);
+
+		assertSame(map, hasher.hash(map));
+	}
+
+	@Test
+	public void testHashStoredIdentifiers_hashesNotSkippedNamespaces_keepsLastUpdated() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(
+			new IdentityItem(new IdentityItem("User@Example.com", AuthenticatedState.LOGGED_OUT, false), 100L),
+			"Email"
+		);
+		map.addItem(new IdentityItem("+1 (555) 123-4567"), "Phone");
+		map.addItem(new IdentityItem("user"), "UserId");
+
+		assertTrue(hasher.hashStoredIdentifiers(map, new HashSet<>(Collections.singletonList("phone"))));
+
+		final List<IdentityItem> emails = map.getIdentityItemsForNamespace("Email");
+		assertEquals(1, emails.size());
+		assertEquals(EMAIL_DIGEST, emails.get(0).getId());
+		assertEquals(AuthenticatedState.LOGGED_OUT, emails.get(0).getAuthenticatedState());
+		assertEquals(100L, emails.get(0).getLastUpdated());
+		assertEquals("+1 (555) 123-4567", map.getIdentityItemsForNamespace("Phone").get(0).getId());
+		assertEquals("user", map.getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void testHashStoredIdentifiers_notHashable_removed() {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("no digits"), "Phone");
+		map.addItem(new IdentityItem("user"), "UserId");
+
+		assertTrue(hasher.hashStoredIdentifiers(map, new HashSet<String>()));
+
+		assertFalse(map.getItemsByNamespace().containsKey("Phone"));
+		assertEquals("user", map.getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void testHashStoredIdentifiers_noNamespaceToHash_returnsFalse() {
+		final IdentityMap map = mapWithEmail("user@example.com");
+
+		assertFalse(hasher.hashStoredIdentifiers(map, new HashSet<>(Collections.singletonList("email"))));
+		assertEquals("user@example.com", map.getIdentityItemsForNamespace("Email").get(0).getId());
+
+		hasher.setPolicy(null);
+
+		assertFalse(hasher.hashStoredIdentifiers(map, new HashSet<String>()));
+	}
+
+	@Test
+	public void testGetHashedNamespaces_lowercased() {
+		assertEquals(new HashSet<>(Arrays.asList("email", "phone")), hasher.getHashedNamespaces());
+	}
+
+	private static IdentityMap mapWithEmail(final String email) {
+		final IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(email), "Email");
+		return map;
+	}
+}
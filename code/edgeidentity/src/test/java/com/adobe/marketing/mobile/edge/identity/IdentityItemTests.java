@@ -16,7 +16,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
 public class IdentityItemTests {
@@ -122,4 +124,48 @@ public class IdentityItemTests {
 
 		assertFalse(item1.equals(item2));
 	}
+
+	@Test
+	public void testIdentityItem_mixedCaseIds_equalWithSameHashCode() {
+		IdentityItem item1 = new IdentityItem("User@Example.COM", AuthenticatedState.AMBIGUOUS, false);
+		IdentityItem item2 = new IdentityItem("user@example.com", AuthenticatedState.AUTHENTICATED, true);
+
+		assertTrue(item1.equals(item2));
+		assertTrue(item2.equals(item1));
+		assertEquals(item1.hashCode(), item2.hashCode());
+	}
+
+	@Test
+	public void testIdentityItem_nonAsciiMixedCaseIds_equalWithSameHashCode() {
+		// ids which are only equal ignoring case after converting to upper case, then to lower case
+		String[][] pairs = { { "\u0130d", "iD" }, { "\u03a3igma", "\u03c2IGMA" }, { "\u01c5", "\u01c6" } };
+
+		for (String[] pair : pairs) {
+			IdentityItem item1 = new IdentityItem(pair[0]);
+			IdentityItem item2 = new IdentityItem(pair[1]);
+
+			assertTrue(item1.equals(item2));
+			assertEquals(item1.hashCode(), item2.hashCode());
+		}
+	}
+
+	@Test
+	public void testIdentityItem_mixedCaseIds_dedupeInHashSet() {
+		Set<IdentityItem> items = new HashSet<>();
+		items.add(new IdentityItem("ABC"));
+		items.add(new IdentityItem("abc"));
+		items.add(new IdentityItem("AbC"));
+		items.add(new IdentityItem("abd"));
+
+		assertEquals(2, items.size());
+		assertTrue(items.contains(new IdentityItem("aBc")));
+	}
+
+	@Test
+	public void testIdentityItem_copy_keepsHashCode() {
+		IdentityItem item = new IdentityItem("MixedCase");
+
+		assertEquals(item.hashCode(), new IdentityItem(item).hashCode());
+		assertEquals(item.hashCode(), new IdentityItem(item, 100).hashCode());
+	}
 }
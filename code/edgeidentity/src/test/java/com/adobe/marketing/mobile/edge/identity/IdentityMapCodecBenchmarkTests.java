@@ -0,0 +1,139 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Benchmarks the transfer of an {@link IdentityMap} in a response event through its XDM form, as read with
+ * {@link IdentityMap#fromXDMMap(Map)}, against its {@link IdentityMapCodec} form, for maps of 1 to 500 items.
+ * The copy of the event data made by the event hub is simulated with a deep copy of the data.
+ * The time per transfer of each form is written to the {@link PerformanceReport}.
+ * Excluded from the default unit test run, see {@link PerformanceTests}.
+ */
+@Category(PerformanceTests.class)
+public class IdentityMapCodecBenchmarkTests {
+
+	private static final int[] ITEM_COUNTS = { 1, 10, 100, 500 };
+	private static final int NAMESPACE_COUNT = 5;
+	private static final int WARMUP_ITERATIONS = 200;
+	private static final int ITERATIONS = 2000;
+
+	@Rule
+	public final PerformanceReport report = new PerformanceReport();
+
+	@Test
+	public void benchmarkResponseTransfer() {
+		for (final int itemCount : ITEM_COUNTS) {
+			final IdentityMap identityMap = createIdentityMap(itemCount);
+
+			// verify both forms carry the same identities
+			assertEquals(
+				IdentityMap.fromXDMMap(copy(identityMap.asXDMMap(false))).asXDMMap(),
+				IdentityMapCodec.decode(copy(IdentityMapCodec.encode(identityMap))).asXDMMap()
+			);
+
+			runXDMPath(identityMap, WARMUP_ITERATIONS);
+			runCodecPath(identityMap, WARMUP_ITERATIONS);
+
+			final long xdmNanos = runXDMPath(identityMap, ITERATIONS);
+			final long codecNanos = runCodecPath(identityMap, ITERATIONS);
+
+			report.record(
+				String.format(
+					Locale.US,
+					"%d items: xdm %.1f us/op, codec %.1f us/op (%.1fx)",
+					itemCount,
+					xdmNanos / 1000.0 / ITERATIONS,
+					codecNanos / 1000.0 / ITERATIONS,
+					(double) xdmNanos / Math.max(1, codecNanos)
+				)
+			);
+		}
+	}
+
+	private static long runXDMPath(final IdentityMap identityMap, final int iterations) {
+		int namespaces = 0;
+		final long start = System.nanoTime();
+
+		for (int i = 0; i < iterations; i++) {
+			namespaces += IdentityMap.fromXDMMap(copy(identityMap.asXDMMap(false))).getNamespaces().size();
+		}
+
+		final long elapsed = System.nanoTime() - start;
+		assertEquals(iterations * identityMap.getNamespaces().size(), namespaces);
+		return elapsed;
+	}
+
+	private static long runCodecPath(final IdentityMap identityMap, final int iterations) {
+		int namespaces = 0;
+		final long start = System.nanoTime();
+
+		for (int i = 0; i < iterations; i++) {
+			namespaces += IdentityMapCodec.decode(copy(IdentityMapCodec.encode(identityMap))).getNamespaces().size();
+		}
+
+		final long elapsed = System.nanoTime() - start;
+		assertEquals(iterations * identityMap.getNamespaces().size(), namespaces);
+		return elapsed;
+	}
+
+	private static IdentityMap createIdentityMap(final int itemCount) {
+		final IdentityMap identityMap = new IdentityMap();
+
+		for (int i = 0; i < itemCount; i++) {
+			identityMap.addItem(
+				new IdentityItem("identifier-" + i, AuthenticatedState.values()[i % 3], i == 0),
+				"Namespace" + (i % NAMESPACE_COUNT)
+			);
+		}
+
+		return identityMap;
+	}
+
+	/**
+	 * Deep copies event data values like the event hub does when dispatching an event.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(final T value) {
+		if (value instanceof Map) {
+			final Map<String, Object> copy = new HashMap<>();
+
+			for (final Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+				copy.put(entry.getKey(), copy(entry.getValue()));
+			}
+
+			return (T) copy;
+		}
+
+		if (value instanceof List) {
+			final List<Object> copy = new ArrayList<>();
+
+			for (final Object item : (List<Object>) value) {
+				copy.add(copy(item));
+			}
+
+			return (T) copy;
+		}
+
+		return value;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class IdentityMapCodecTests {
+
+	@Test
+	public void testEncode_format() {
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user@test.com", AuthenticatedState.AUTHENTICATED, true), "Email");
+
+		assertEquals("1;5:Email1;13:user@test.coma1", IdentityMapCodec.encode(identityMap));
+	}
+
+	@Test
+	public void testEncodeDecode_roundTrip() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1", AuthenticatedState.AUTHENTICATED, true), "UserId");
+		identityMap.addItem(new IdentityItem("user2", AuthenticatedState.LOGGED_OUT, false), "UserId");
+		identityMap.addItem(new IdentityItem("token"), "PushId");
+		identityMap.addItem(new IdentityItem("with;separators:1;2:ab", AuthenticatedState.AMBIGUOUS, true), "Odd:Namespace;");
+		identityMap.addItem(new IdentityItem("üñíçødé"), "Unicode");
+
+		// test
+		final IdentityMap decoded = IdentityMapCodec.decode(IdentityMapCodec.encode(identityMap));
+
+		// verify
+		assertNotNull(decoded);
+		assertEquals(identityMap.asXDMMap(), decoded.asXDMMap());
+		final List<IdentityItem> userIds = decoded.getIdentityItemsForNamespace("UserId");
+		assertEquals("user1", userIds.get(0).getId());
+		assertEquals(AuthenticatedState.AUTHENTICATED, userIds.get(0).getAuthenticatedState());
+		assertTrue(userIds.get(0).isPrimary());
+		assertEquals(AuthenticatedState.LOGGED_OUT, userIds.get(1).getAuthenticatedState());
+		assertFalse(userIds.get(1).isPrimary());
+	}
+
+	@Test
+	public void testEncodeDecode_emptyMap() {
+		final IdentityMap decoded = IdentityMapCodec.decode(IdentityMapCodec.encode(new IdentityMap()));
+
+		assertNotNull(decoded);
+		assertTrue(decoded.isEmpty());
+	}
+
+	@Test
+	public void testEncode_withQuery_onlyEncodesMatchingIdentities() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1", AuthenticatedState.AUTHENTICATED, false), "UserId");
+		identityMap.addItem(new IdentityItem("user2", AuthenticatedState.AMBIGUOUS, false), "UserId");
+		identityMap.addItem(new IdentityItem("token", AuthenticatedState.AUTHENTICATED, false), "PushId");
+		final IdentityQuery query = new IdentityQuery.Builder()
+			.setNamespaces("UserId")
+			.setAuthenticatedStates(AuthenticatedState.AUTHENTICATED)
+			.build();
+
+		// test
+		final IdentityMap decoded = IdentityMapCodec.decode(IdentityMapCodec.encode(identityMap, query));
+
+		// verify
+		assertEquals(1, decoded.getNamespaces().size());
+		assertEquals(1, decoded.getIdentityItemsForNamespace("UserId").size());
+		assertEquals("user1", decoded.getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void testEventData_roundTrip_keepsXDMForm() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1", AuthenticatedState.AUTHENTICATED, true), "UserId");
+
+		// test
+		final Map<String, Object> eventData = identityMap.asEventData();
+
+		// verify
+		assertEquals(identityMap.asXDMMap(false).get("identityMap"), eventData.get("identityMap"));
+		assertEquals(identityMap.asXDMMap(), IdentityMap.fromEventData(eventData).asXDMMap());
+	}
+
+	@Test
+	public void testFromEventData_malformedEncoding_readsXDMForm() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1"), "UserId");
+		final Map<String, Object> eventData = identityMap.asXDMMap(false);
+		eventData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, "1;malformed");
+
+		// test
+		final IdentityMap read = IdentityMap.fromEventData(eventData);
+
+		// verify
+		assertEquals(identityMap.asXDMMap(), read.asXDMMap());
+		assertNull(IdentityMap.fromEventData(null));
+	}
+
+	@Test
+	public void testFromEventData_oversizedItemCount_readsXDMForm() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1"), "UserId");
+		final Map<String, Object> eventData = identityMap.asXDMMap(false);
+		eventData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, "1;6:UserId2000000000;5:user1u0");
+
+		// test
+		final IdentityMap read = IdentityMap.fromEventData(eventData);
+
+		// verify
+		assertEquals(identityMap.asXDMMap(), read.asXDMMap());
+	}
+
+	@Test
+	public void testFromEventData_encodingNotMatchingXDMForm_readsXDMForm() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1"), "UserId");
+		final Map<String, Object> eventData = identityMap.asXDMMap(false);
+		eventData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, "1;5:Email1;13:user@test.coma1");
+
+		// test
+		final IdentityMap read = IdentityMap.fromEventData(eventData);
+
+		// verify
+		assertEquals(identityMap.asXDMMap(), read.asXDMMap());
+	}
+
+	@Test
+	public void testDecode_invalidInput_returnsNull() {
+		assertNull(IdentityMapCodec.decode(null));
+		assertNull(IdentityMapCodec.decode(""));
+		assertNull(IdentityMapCodec.decode("2;5:Email1;13:user@test.coma1"));
+		assertNull(IdentityMapCodec.decode("1;5:Email1;13:user@test"));
+		assertNull(IdentityMapCodec.decode("1;5:Email1;13:user@test.comx1"));
+		assertNull(IdentityMapCodec.decode("1;5:Emailx;"));
+		assertNull(IdentityMapCodec.decode("1;-5:Email"));
+		assertNull(IdentityMapCodec.decode("1;1:a2000000000;"));
+		assertNull(IdentityMapCodec.decode("1;5:Email2;13:user@test.coma1"));
+		assertNull(IdentityMapCodec.decode("1;5:Email0;"));
+		assertNull(IdentityMapCodec.decode("1;0:1;4:usera1"));
+		assertNull(IdentityMapCodec.decode("1;5:Email1;4:usera2"));
+		assertNull(IdentityMapCodec.decode("1;5:Email1;4:usera15:Email1;4:usera1"));
+	}
+}
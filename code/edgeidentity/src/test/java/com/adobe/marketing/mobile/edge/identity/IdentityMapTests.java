@@ -12,10 +12,13 @@
 package com.adobe.marketing.mobile.edge.identity;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import org.json.JSONObject;
@@ -221,6 +224,32 @@ public class IdentityMapTests {
 		assertTrue(emptyMap.asXDMMap().isEmpty());
 	}
 
+	@Test
+	public void test_removeNamespaces_caseInsensitive() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("id1"), "ECID");
+		map.addItem(new IdentityItem("id2"), "ecid");
+		map.addItem(new IdentityItem("id3"), "Gaid");
+		map.addItem(new IdentityItem("id4"), "UserId");
+
+		// test
+		List<String> removedNamespaces = map.removeNamespaces(new HashSet<>(Arrays.asList("ecid", "gaid", "idfa")));
+
+		// verify
+		assertEquals(3, removedNamespaces.size());
+		assertTrue(removedNamespaces.containsAll(Arrays.asList("ECID", "ecid", "Gaid")));
+		assertEquals(Arrays.asList("UserId"), map.getNamespaces());
+	}
+
+	@Test
+	public void test_removeNamespaces_noneMatching_returnsEmpty() {
+		IdentityMap sampleUserMap = buildSampleIdentityMap(); // 2 items with namespace "location", 3 items with namespace "login"
+
+		assertTrue(sampleUserMap.removeNamespaces(new HashSet<>(Arrays.asList("ecid"))).isEmpty());
+		assertEquals(2, sampleUserMap.getNamespaces().size());
+	}
+
 	@Test
 	public void test_remove() {
 		// setup
@@ -402,6 +431,354 @@ public class IdentityMapTests {
 		assertEquals(new HashMap<>(), xdmMap.get(IdentityConstants.XDMKeys.IDENTITY_MAP));
 	}
 
+	@Test
+	public void test_setLastUpdated() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("id1"), "namespace");
+		map.addItem(new IdentityItem(new IdentityItem("id2"), 100), "namespace");
+
+		// test
+		assertTrue(map.setLastUpdated(200, false));
+
+		// verify only the item without a timestamp is updated
+		List<IdentityItem> items = map.getIdentityItemsForNamespace("namespace");
+		assertEquals(200, items.get(0).getLastUpdated());
+		assertEquals(100, items.get(1).getLastUpdated());
+
+		// test overwrite
+		assertTrue(map.setLastUpdated(300, true));
+		items = map.getIdentityItemsForNamespace("namespace");
+		assertEquals(300, items.get(0).getLastUpdated());
+		assertEquals(300, items.get(1).getLastUpdated());
+		assertFalse(map.setLastUpdated(400, false));
+	}
+
+	@Test
+	public void test_merge_keepsLastUpdatedOfNewItem() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem(new IdentityItem("id1"), 100), "namespace");
+
+		IdentityMap newMap = new IdentityMap();
+		newMap.addItem(new IdentityItem(new IdentityItem("ID1"), 200), "namespace");
+
+		// test
+		baseMap.merge(newMap);
+
+		// verify
+		List<IdentityItem> items = baseMap.getIdentityItemsForNamespace("namespace");
+		assertEquals(1, items.size());
+		assertEquals(200, items.get(0).getLastUpdated());
+	}
+
+	@Test
+	public void test_removeItemsUpdatedBefore() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(new IdentityItem("expired"), 100), "session");
+		map.addItem(new IdentityItem(new IdentityItem("valid"), 200), "session");
+		map.addItem(new IdentityItem("unknown"), "session");
+		map.addItem(new IdentityItem(new IdentityItem("other"), 100), "otherNamespace");
+
+		// test
+		assertEquals(1, map.removeItemsUpdatedBefore("SESSION", 150));
+
+		// verify
+		List<IdentityItem> items = map.getIdentityItemsForNamespace("session");
+		assertEquals(2, items.size());
+		assertEquals("valid", items.get(0).getId());
+		assertEquals("unknown", items.get(1).getId()); // items without timestamp never expire
+		assertEquals(1, map.getIdentityItemsForNamespace("otherNamespace").size());
+	}
+
+	@Test
+	public void test_removeItemsUpdatedBefore_removesEmptyNamespace() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(new IdentityItem("expired"), 100), "session");
+
+		// test
+		assertEquals(1, map.removeItemsUpdatedBefore("session", 150));
+		assertEquals(0, map.removeItemsUpdatedBefore(null, 150));
+
+		// verify
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void test_lastUpdatedData_roundTrip() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(new IdentityItem("id1"), 100), "namespace");
+		map.addItem(new IdentityItem("id2"), "namespace");
+
+		// test
+		Map<String, Object> data = map.getLastUpdatedData();
+
+		// verify items without timestamp are not included
+		assertEquals(1, data.size());
+		assertEquals(1, ((Map<String, Object>) data.get("namespace")).size());
+		assertEquals(100L, ((Map<String, Object>) data.get("namespace")).get("id1"));
+
+		// test applying the data on a map without timestamps
+		IdentityMap loadedMap = new IdentityMap();
+		loadedMap.addItem(new IdentityItem("id1"), "namespace");
+		loadedMap.addItem(new IdentityItem("id2"), "namespace");
+		loadedMap.setLastUpdatedData(data);
+
+		List<IdentityItem> items = loadedMap.getIdentityItemsForNamespace("namespace");
+		assertEquals(100, items.get(0).getLastUpdated());
+		assertEquals(0, items.get(1).getLastUpdated());
+	}
+
+	@Test
+	public void test_setLastUpdatedData_invalidData() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("id1"), "namespace");
+
+		// test
+		map.setLastUpdatedData(null);
+		map.setLastUpdatedData(
+			new HashMap<String, Object>() {
+				{
+					put("namespace", "invalid");
+				}
+			}
+		);
+
+		// verify
+		assertEquals(0, map.getIdentityItemsForNamespace("namespace").get(0).getLastUpdated());
+	}
+
+	@Test
+	public void test_asXDMMap_doesNotIncludeLastUpdated() {
+		// setup
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(new IdentityItem("id1"), 100), "namespace");
+
+		// verify
+		Map<String, String> flatMap = IdentityTestUtil.flattenMap(map.asXDMMap());
+		assertEquals(3, flatMap.size());
+		assertEquals("id1", flatMap.get("identityMap.namespace[0].id"));
+	}
+
+	@Test
+	public void test_mergeWithCapacity_evictsLeastRecentlyUpdatedPerNamespace() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem(new IdentityItem("newest"), 300), "session");
+		baseMap.addItem(new IdentityItem(new IdentityItem("oldest"), 100), "session");
+		baseMap.addItem(new IdentityItem(new IdentityItem("middle"), 200), "session");
+
+		IdentityMap newMap = new IdentityMap();
+		newMap.addItem(new IdentityItem(new IdentityItem("added"), 400), "session");
+		newMap.addItem(new IdentityItem(new IdentityItem("user"), 400), "login");
+
+		final Map<String, Integer> evicted = new HashMap<>();
+
+		// test
+		int evictedCount = baseMap.merge(
+			newMap,
+			new IdentityMapCapacity(2, IdentityMapCapacity.UNLIMITED),
+			null,
+			new IdentityDiagnosticsCallback() {
+				@Override
+				public void onIdentitiesEvicted(final String namespace, final int evictedCount) {
+					evicted.put(namespace, evictedCount);
+				}
+			}
+		);
+
+		// verify
+		assertEquals(2, evictedCount);
+		assertEquals(1, evicted.size());
+		assertEquals(2, (int) evicted.get("session"));
+		List<IdentityItem> sessionItems = baseMap.getIdentityItemsForNamespace("session");
+		assertEquals(2, sessionItems.size());
+		assertEquals("newest", sessionItems.get(0).getId());
+		assertEquals("added", sessionItems.get(1).getId());
+		assertEquals(1, baseMap.getIdentityItemsForNamespace("login").size());
+	}
+
+	@Test
+	public void test_mergeWithCapacity_evictsLeastRecentlyUpdatedAcrossNamespaces() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem(new IdentityItem("ecid"), 0), "ECID");
+		baseMap.addItem(new IdentityItem(new IdentityItem("session1"), 100), "session");
+		baseMap.addItem(new IdentityItem(new IdentityItem("user1"), 200), "login");
+
+		IdentityMap newMap = new IdentityMap();
+		newMap.addItem(new IdentityItem(new IdentityItem("session2"), 300), "session");
+		newMap.addItem(new IdentityItem(new IdentityItem("user2"), 300), "login");
+
+		// test
+		int evictedCount = baseMap.merge(
+			newMap,
+			new IdentityMapCapacity(IdentityMapCapacity.UNLIMITED, 3),
+			Arrays.asList("ecid"),
+			null
+		);
+
+		// verify protected namespace is never evicted, but counts towards the total
+		assertEquals(2, evictedCount);
+		assertEquals("ecid", baseMap.getIdentityItemsForNamespace("ECID").get(0).getId());
+		assertEquals("session2", baseMap.getIdentityItemsForNamespace("session").get(0).getId());
+		assertEquals("user2", baseMap.getIdentityItemsForNamespace("login").get(0).getId());
+		assertEquals(1, baseMap.getIdentityItemsForNamespace("session").size());
+		assertEquals(1, baseMap.getIdentityItemsForNamespace("login").size());
+	}
+
+	@Test
+	public void test_mergeWithCapacity_largeOverflow_evictsOldestAndRemovesEmptiedNamespaces() {
+		// setup
+		final int itemCount = 1000;
+		IdentityMap baseMap = new IdentityMap();
+
+		for (int i = 0; i < itemCount; i++) {
+			baseMap.addItem(new IdentityItem(new IdentityItem("old" + i), i), "old");
+			baseMap.addItem(new IdentityItem(new IdentityItem("mixed" + i), i % 2 == 0 ? i : itemCount + i), "mixed");
+		}
+
+		IdentityMap newMap = new IdentityMap();
+		newMap.addItem(new IdentityItem(new IdentityItem("new"), 3 * itemCount), "new");
+
+		// test
+		int evictedCount = baseMap.merge(
+			newMap,
+			new IdentityMapCapacity(IdentityMapCapacity.UNLIMITED, itemCount / 2 + 1),
+			null,
+			null
+		);
+
+		// verify the oldest items are evicted, keeping the order of the remaining items
+		assertEquals(itemCount + itemCount / 2, evictedCount);
+		assertTrue(baseMap.getIdentityItemsForNamespace("old").isEmpty());
+		assertFalse(baseMap.getNamespaces().contains("old"));
+		List<IdentityItem> mixedItems = baseMap.getIdentityItemsForNamespace("mixed");
+		assertEquals(itemCount / 2, mixedItems.size());
+
+		for (int i = 0; i < mixedItems.size(); i++) {
+			assertEquals("mixed" + (2 * i + 1), mixedItems.get(i).getId());
+		}
+
+		assertEquals(1, baseMap.getIdentityItemsForNamespace("new").size());
+	}
+
+	@Test
+	public void test_mergeWithCapacity_onlyProtectedNamespaces_evictsNothing() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem("ecid1"), "ECID");
+		baseMap.addItem(new IdentityItem("ecid2"), "ECID");
+
+		// test
+		int evictedCount = baseMap.merge(new IdentityMap(), new IdentityMapCapacity(1, 1), Arrays.asList("ECID"), null);
+
+		// verify
+		assertEquals(0, evictedCount);
+		assertEquals(2, baseMap.getIdentityItemsForNamespace("ECID").size());
+	}
+
+	@Test
+	public void test_mergeWithCapacity_noLimits_evictsNothing() {
+		// setup
+		IdentityMap baseMap = buildSampleIdentityMap();
+
+		// test
+		int evictedCount = baseMap.merge(buildSampleIdentityMap(), IdentityMapCapacity.NO_LIMITS, null, null);
+
+		// verify
+		assertEquals(0, evictedCount);
+		assertEquals(3, baseMap.getIdentityItemsForNamespace("login").size());
+		assertEquals(2, baseMap.getIdentityItemsForNamespace("location").size());
+	}
+
+	@Test
+	public void test_merge_mixedCaseIds_replacesExistingItemInPlace() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem("First"), "namespace");
+		baseMap.addItem(new IdentityItem("User@Example.com", AuthenticatedState.AMBIGUOUS, false), "namespace");
+		baseMap.addItem(new IdentityItem("Last"), "namespace");
+
+		IdentityMap newMap = new IdentityMap();
+		newMap.addItem(new IdentityItem("user@EXAMPLE.com", AuthenticatedState.AUTHENTICATED, true), "namespace");
+		newMap.addItem(new IdentityItem("new"), "namespace");
+
+		// test
+		baseMap.merge(newMap);
+
+		// verify
+		List<IdentityItem> items = baseMap.getIdentityItemsForNamespace("namespace");
+		assertEquals(4, items.size());
+		assertEquals("First", items.get(0).getId());
+		assertEquals("user@EXAMPLE.com", items.get(1).getId());
+		assertEquals(AuthenticatedState.AUTHENTICATED, items.get(1).getAuthenticatedState());
+		assertTrue(items.get(1).isPrimary());
+		assertEquals("Last", items.get(2).getId());
+		assertEquals("new", items.get(3).getId());
+	}
+
+	@Test
+	public void test_remove_mixedCaseIds() {
+		// setup
+		IdentityMap baseMap = new IdentityMap();
+		baseMap.addItem(new IdentityItem("ABC"), "namespace");
+		baseMap.addItem(new IdentityItem("def"), "namespace");
+		baseMap.addItem(new IdentityItem("ghi"), "other");
+
+		IdentityMap removeMap = new IdentityMap();
+		removeMap.addItem(new IdentityItem("abc"), "namespace");
+		removeMap.addItem(new IdentityItem("GHI"), "other");
+
+		// test
+		baseMap.remove(removeMap);
+
+		// verify
+		List<IdentityItem> items = baseMap.getIdentityItemsForNamespace("namespace");
+		assertEquals(1, items.size());
+		assertEquals("def", items.get(0).getId());
+		assertTrue(baseMap.getIdentityItemsForNamespace("other").isEmpty());
+	}
+
+	@Test
+	public void test_mergeAndRemove_largeNamespaces() {
+		// Merges and removes large namespaces which overlap by half, using ids differing in case.
+		final int itemCount = 5000;
+		IdentityMap baseMap = new IdentityMap();
+		IdentityMap newMap = new IdentityMap();
+
+		for (int i = 0; i < itemCount; i++) {
+			baseMap.addItem(new IdentityItem("id" + i), "large");
+			newMap.addItem(new IdentityItem("ID" + (i + itemCount / 2)), "large");
+		}
+
+		// test
+		baseMap.merge(newMap);
+
+		// verify overlapping items are replaced in place and the other new items are appended
+		List<IdentityItem> items = baseMap.getIdentityItemsForNamespace("large");
+		assertEquals(itemCount + itemCount / 2, items.size());
+
+		for (int i = 0; i < items.size(); i++) {
+			assertEquals((i < itemCount / 2 ? "id" : "ID") + i, items.get(i).getId());
+		}
+
+		// test
+		baseMap.remove(newMap);
+
+		// verify only the items not in the new map are left, in order
+		items = baseMap.getIdentityItemsForNamespace("large");
+		assertEquals(itemCount / 2, items.size());
+
+		for (int i = 0; i < items.size(); i++) {
+			assertEquals("id" + i, items.get(i).getId());
+		}
+	}
+
 	private Map<String, List<IdentityItem>> getCastedIdentityMap(final IdentityMap map) {
 		final Map<String, Object> xdmMap = map.asXDMMap();
 		return (Map<String, List<IdentityItem>>) xdmMap.get(IdentityConstants.XDMKeys.IDENTITY_MAP);
@@ -13,8 +13,13 @@ package com.adobe.marketing.mobile.edge.identity;
 
 import static com.adobe.marketing.mobile.edge.identity.IdentityTestUtil.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.HashMap;
 import java.util.Map;
 import org.junit.Test;
 
@@ -144,6 +149,22 @@ public class IdentityPropertiesTests {
 		assertEquals("test-ad-id", flatMap.get("identityMap.GAID[0].id"));
 	}
 
+	@Test
+	public void testConstruct_FromXDMData_ECIDsReturnSameInstance() {
+		// setup
+		Map<String, Object> persistedIdentifiers = createXDMIdentityMap(
+			new TestECIDItem("primaryECID"),
+			new TestECIDItem("secondaryECID")
+		);
+
+		// test
+		IdentityProperties props = new IdentityProperties(persistedIdentifiers);
+
+		// verify ECIDs are not re-derived from the identity map on each read
+		assertSame(props.getECID(), props.getECID());
+		assertSame(props.getECIDSecondary(), props.getECIDSecondary());
+	}
+
 	@Test
 	public void testConstruct_FromXDMData_NothingFromPersistence() {
 		// test
@@ -183,6 +204,20 @@ public class IdentityPropertiesTests {
 		assertEquals("primaryAgain", props.getECID().toString());
 	}
 
+	@Test
+	public void test_setECID_ReturnsSameInstance() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		ECID ecid = new ECID();
+
+		// test
+		props.setECID(ecid);
+
+		// verify
+		assertSame(ecid, props.getECID());
+		assertEquals(ecid.toString(), flattenMap(props.toXDMData(false)).get("identityMap.ECID[0].id"));
+	}
+
 	@Test
 	public void test_setECID_NullRemovesFromIdentityMap() {
 		// setup
@@ -342,4 +377,195 @@ public class IdentityPropertiesTests {
 	// Tests for "removeCustomerIdentifiers" is already covered in handleRemoveRequest tests in IdentityExtensionTests
 	// ======================================================================================================================
 
+	// ======================================================================================================================
+	// Tests for method : removeCustomerIdentifiersForNamespace(final String namespace)
+	// ======================================================================================================================
+
+	@Test
+	public void test_removeCustomerIdentifiersForNamespace_removesAllItemsInNamespace() {
+		// setup
+		IdentityProperties props = new IdentityProperties(
+			createXDMIdentityMap(
+				new TestItem("UserId", "secretID"),
+				new TestItem("UserId", "otherSecretID"),
+				new TestItem("PushId", "token")
+			)
+		);
+		props.setECID(new ECID());
+
+		// test
+		assertTrue(props.removeCustomerIdentifiersForNamespace("userid"));
+
+		// verify
+		Map<String, String> flatMap = flattenMap(props.toXDMData(false));
+		assertNull(flatMap.get("identityMap.UserId[0].id"));
+		assertEquals("token", flatMap.get("identityMap.PushId[0].id"));
+		assertEquals(props.getECID().toString(), flatMap.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_removeCustomerIdentifiersForNamespace_unknownNamespace_returnsFalse() {
+		// setup
+		IdentityProperties props = new IdentityProperties(createXDMIdentityMap(new TestItem("PushId", "token")));
+
+		// test
+		assertFalse(props.removeCustomerIdentifiersForNamespace("UserId"));
+
+		// verify
+		assertEquals("token", flattenMap(props.toXDMData(false)).get("identityMap.PushId[0].id"));
+	}
+
+	@Test
+	public void test_removeCustomerIdentifiersForNamespace_reservedNamespaces_notRemoved() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		props.setAdId("adId");
+
+		// test
+		assertFalse(props.removeCustomerIdentifiersForNamespace("ECID"));
+		assertFalse(props.removeCustomerIdentifiersForNamespace("gaid"));
+		assertFalse(props.removeCustomerIdentifiersForNamespace("IDFA"));
+
+		// verify
+		assertNotNull(props.getECID());
+		assertEquals("adId", props.getAdId());
+	}
+
+	@Test
+	public void test_updateCustomerIdentifiers_reservedNamespacesAnyCase_filtered() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("ecid"), "ecid");
+		map.addItem(new IdentityItem("gaid"), "Gaid");
+		map.addItem(new IdentityItem("idfa"), "IDFA");
+		map.addItem(new IdentityItem("secretID"), "UserId");
+
+		// test
+		props.updateCustomerIdentifiers(map);
+
+		// verify
+		Map<String, String> xdmData = flattenMap(props.toXDMData(false));
+		assertEquals("secretID", xdmData.get("identityMap.UserId[0].id"));
+		assertNull(xdmData.get("identityMap.ecid[0].id"));
+		assertNull(xdmData.get("identityMap.Gaid[0].id"));
+		assertNull(xdmData.get("identityMap.IDFA[0].id"));
+		assertEquals(props.getECID().toString(), xdmData.get("identityMap.ECID[0].id"));
+	}
+
+	@Test
+	public void test_removeCustomerIdentifiers_reservedNamespacesAnyCase_notRemoved() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem(props.getECID().toString()), "ecid");
+
+		// test
+		props.removeCustomerIdentifiers(map);
+
+		// verify
+		assertNotNull(props.getECID());
+		assertEquals(props.getECID().toString(), flattenMap(props.toXDMData(false)).get("identityMap.ECID[0].id"));
+	}
+
+	// ======================================================================================================================
+	// Tests for method : removeExpiredCustomerIdentifiers(final Map<String, Long> timeToLiveByNamespace, final long now)
+	// ======================================================================================================================
+
+	@Test
+	public void test_updateCustomerIdentifiers_setsLastUpdated() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		final long before = Utils.getUnixTimeInSeconds();
+
+		// test
+		props.updateCustomerIdentifiers(IdentityMap.fromXDMMap(createXDMIdentityMap(new TestItem("UserId", "secretID"))));
+
+		// verify
+		Map<String, Object> lastUpdatedData = props.getLastUpdatedData();
+		long lastUpdated = (long) ((Map<String, Object>) lastUpdatedData.get("UserId")).get("secretID");
+		assertTrue(lastUpdated >= before);
+		assertTrue(lastUpdated <= Utils.getUnixTimeInSeconds());
+	}
+
+	@Test
+	public void test_removeExpiredCustomerIdentifiers() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		props.setAdId("adId");
+		props.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(
+				createXDMIdentityMap(new TestItem("SessionId", "session"), new TestItem("UserId", "secretID"))
+			)
+		);
+		props.setLastUpdatedIfMissing(Utils.getUnixTimeInSeconds()); // stamps the ECID and GAID items
+
+		Map<String, Long> timeToLive = new HashMap<>();
+		timeToLive.put("sessionid", 60L);
+		timeToLive.put("ECID", 60L);
+		timeToLive.put("GAID", 60L);
+
+		// test
+		assertEquals(0, props.removeExpiredCustomerIdentifiers(timeToLive, Utils.getUnixTimeInSeconds()));
+		assertEquals(1, props.removeExpiredCustomerIdentifiers(timeToLive, Utils.getUnixTimeInSeconds() + 61));
+
+		// verify reserved namespaces never expire
+		Map<String, String> flatMap = flattenMap(props.toXDMData(false));
+		assertNull(flatMap.get("identityMap.SessionId[0].id"));
+		assertEquals("secretID", flatMap.get("identityMap.UserId[0].id"));
+		assertNotNull(props.getECID());
+		assertEquals("adId", props.getAdId());
+	}
+
+	@Test
+	public void test_updateCustomerIdentifiers_withCapacity_neverEvictsReservedNamespaces() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		props.setAdId("adId");
+		final int[] evictedCount = { 0 };
+
+		// test
+		int evicted = props.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(
+				createXDMIdentityMap(
+					new TestItem("UserId", "secretID"),
+					new TestItem("UserId", "otherSecretID"),
+					new TestItem("PushId", "token")
+				)
+			),
+			new IdentityMapCapacity(IdentityMapCapacity.UNLIMITED, 3),
+			new IdentityDiagnosticsCallback() {
+				@Override
+				public void onIdentitiesEvicted(final String namespace, final int count) {
+					evictedCount[0] += count;
+				}
+			}
+		);
+
+		// verify
+		assertEquals(2, evicted);
+		assertEquals(2, evictedCount[0]);
+		assertNotNull(props.getECID());
+		assertEquals("adId", props.getAdId());
+		Map<String, String> flatMap = flattenMap(props.toXDMData(false));
+		assertEquals(9, flatMap.size()); // ECID, GAID and one customer identifier
+	}
+
+	@Test
+	public void test_removeExpiredCustomerIdentifiers_nullTimeToLive() {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.updateCustomerIdentifiers(IdentityMap.fromXDMMap(createXDMIdentityMap(new TestItem("UserId", "secretID"))));
+
+		// test
+		assertEquals(0, props.removeExpiredCustomerIdentifiers(null, Utils.getUnixTimeInSeconds() + 1000));
+
+		// verify
+		assertEquals("secretID", flattenMap(props.toXDMData(false)).get("identityMap.UserId[0].id"));
+	}
 }
@@ -0,0 +1,126 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class IdentityQueryTests {
+
+	@Test
+	public void testMatches_defaultQuery_matchesAll() {
+		final IdentityQuery query = new IdentityQuery.Builder().build();
+
+		assertTrue(query.matchesNamespace("UserId"));
+		assertTrue(query.matchesItem(new IdentityItem("id", AuthenticatedState.LOGGED_OUT, false)));
+	}
+
+	@Test
+	public void testMatchesNamespace_caseInsensitive() {
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces("UserId", null, "").build();
+
+		assertTrue(query.matchesNamespace("userid"));
+		assertTrue(query.matchesNamespace("USERID"));
+		assertFalse(query.matchesNamespace("PushId"));
+		assertFalse(query.matchesNamespace(null));
+	}
+
+	@Test
+	public void testMatchesNamespace_emptyNamespaces_matchesNone() {
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces().build();
+
+		assertFalse(query.matchesNamespace("UserId"));
+	}
+
+	@Test
+	public void testMatchesItem_authenticatedStatesAndPrimaryOnly() {
+		final IdentityQuery query = new IdentityQuery.Builder()
+			.setAuthenticatedStates(AuthenticatedState.AUTHENTICATED, AuthenticatedState.LOGGED_OUT)
+			.setPrimaryOnly(true)
+			.build();
+
+		assertTrue(query.matchesItem(new IdentityItem("id", AuthenticatedState.AUTHENTICATED, true)));
+		assertTrue(query.matchesItem(new IdentityItem("id", AuthenticatedState.LOGGED_OUT, true)));
+		assertFalse(query.matchesItem(new IdentityItem("id", AuthenticatedState.AUTHENTICATED, false)));
+		assertFalse(query.matchesItem(new IdentityItem("id", AuthenticatedState.AMBIGUOUS, true)));
+	}
+
+	@Test
+	public void testEventData_roundTrip() {
+		final IdentityQuery query = new IdentityQuery.Builder()
+			.setNamespaces("UserId", "PushId")
+			.setAuthenticatedStates(AuthenticatedState.AUTHENTICATED)
+			.setPrimaryOnly(true)
+			.build();
+
+		final IdentityQuery readQuery = IdentityQuery.fromEventData(query.toEventData());
+
+		assertEquals(query.getRequestKey(), readQuery.getRequestKey());
+	}
+
+	@Test
+	public void testFromEventData_noQuery_returnsNull() {
+		assertNull(IdentityQuery.fromEventData(null));
+		assertNull(IdentityQuery.fromEventData(new HashMap<String, Object>()));
+	}
+
+	@Test
+	public void testGetRequestKey_equalForSameCriteria() {
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces("UserId", "PushId").build();
+		final IdentityQuery sameQuery = new IdentityQuery.Builder().setNamespaces("pushid", "USERID").build();
+		final IdentityQuery otherQuery = new IdentityQuery.Builder()
+			.setNamespaces("UserId", "PushId")
+			.setPrimaryOnly(true)
+			.build();
+
+		assertEquals(query.getRequestKey(), sameQuery.getRequestKey());
+		assertNotEquals(query.getRequestKey(), otherQuery.getRequestKey());
+	}
+
+	@Test
+	public void testAsXDMMap_withQuery_onlyConvertsMatchingIdentities() {
+		// setup
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("user1", AuthenticatedState.AUTHENTICATED, true), "UserId");
+		identityMap.addItem(new IdentityItem("user2", AuthenticatedState.AUTHENTICATED, false), "UserId");
+		identityMap.addItem(new IdentityItem("token", AuthenticatedState.AUTHENTICATED, true), "PushId");
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces("UserId").setPrimaryOnly(true).build();
+
+		// test
+		final IdentityMap result = IdentityMap.fromXDMMap(identityMap.asXDMMap(query));
+
+		// verify
+		final List<IdentityItem> items = result.getIdentityItemsForNamespace("UserId");
+		assertEquals(1, items.size());
+		assertEquals("user1", items.get(0).getId());
+		assertEquals(1, result.getNamespaces().size());
+	}
+
+	@Test
+	public void testAsXDMMap_withQuery_noMatch_returnsEmptyIdentityMap() {
+		final IdentityMap identityMap = new IdentityMap();
+		identityMap.addItem(new IdentityItem("token"), "PushId");
+
+		final Map<String, Object> xdmMap = identityMap.asXDMMap(new IdentityQuery.Builder().setNamespaces("UserId").build());
+
+		assertTrue(xdmMap.containsKey(IdentityConstants.XDMKeys.IDENTITY_MAP));
+		assertTrue(IdentityMap.fromXDMMap(xdmMap).isEmpty());
+	}
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -34,6 +35,7 @@ import androidx.annotation.Nullable;
 import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.ExtensionErrorCallback;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.json.JSONObject;
@@ -344,6 +346,193 @@ public class IdentityStateTests {
 		assertEquals(1, setXDMSharedEventStateCalledTimes);
 	}
 
+	@Test
+	public void testBootupIfReady_whenLegacyEcidMigrated_doesNotWaitForDirectIdentityState() {
+		// setup
+		setLegacyEcidMigrationStatus(IdentityConstants.LegacyEcidMigrationStatus.MIGRATED);
+		setIdentityDirectRegistered(); // without the migration status, bootup would wait for the direct Identity state
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertNotNull(state.getIdentityProperties().getECID());
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS), any(String.class));
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+		assertEquals(1, setXDMSharedEventStateCalledTimes);
+	}
+
+	@Test
+	public void testBootupIfReady_whenLegacyEcidNotPresent_doesNotWaitForDirectIdentityState() {
+		// setup
+		setLegacyEcidMigrationStatus(IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT);
+		setIdentityDirectRegistered();
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertNotNull(state.getIdentityProperties().getECID());
+		assertEquals(1, setXDMSharedEventStateCalledTimes);
+	}
+
+	@Test
+	public void testBootupIfReady_whenLegacyEcidMigrated_propertiesLost_reusesDirectIdentityECID() {
+		// setup
+		setLegacyEcidMigrationStatus(IdentityConstants.LegacyEcidMigrationStatus.MIGRATED);
+		ECID ecid = new ECID();
+		Mockito
+			.when(mockContext.getSharedPreferences(IdentityConstants.DataStoreKey.IDENTITY_DIRECT_DATASTORE_NAME, 0))
+			.thenReturn(mockSharedPreference);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_DIRECT_ECID_KEY, null))
+			.thenReturn(ecid.toString());
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify the ECID is kept, and the stored migration status is unchanged
+		assertEquals(ecid, state.getIdentityProperties().getECID());
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS), any(String.class));
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+	}
+
+	@Test
+	public void testBootupIfReady_whenLegacyEcidMigrationPending_loadsDirectIdentityECID_savesMigrated() {
+		// setup
+		setLegacyEcidMigrationStatus(IdentityConstants.LegacyEcidMigrationStatus.PENDING);
+		ECID ecid = new ECID();
+		Mockito
+			.when(mockContext.getSharedPreferences(IdentityConstants.DataStoreKey.IDENTITY_DIRECT_DATASTORE_NAME, 0))
+			.thenReturn(mockSharedPreference);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_DIRECT_ECID_KEY, null))
+			.thenReturn(ecid.toString());
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertEquals(ecid, state.getIdentityProperties().getECID());
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(
+				IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+				IdentityConstants.LegacyEcidMigrationStatus.MIGRATED
+			);
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+	}
+
+	@Test
+	public void testBootupIfReady_whenNoDirectIdentity_savesNotPresent() {
+		// setup
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertNotNull(state.getIdentityProperties().getECID());
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(
+				IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+				IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT
+			);
+	}
+
+	@Test
+	public void testBootupIfReady_whenIdentityDirectRegistered_usesIdentityDirectECID_savesMigrated() {
+		// setup
+		setIdentityDirectRegistered();
+		identityDirectSharedState = new HashMap<>();
+		identityDirectSharedState.put("mid", "1234");
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(
+				IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+				IdentityConstants.LegacyEcidMigrationStatus.MIGRATED
+			);
+	}
+
+	@Test
+	public void testBootupIfReady_whenIdentityDirectRegistered_withoutECID_savesNotPresent() {
+		// setup
+		setIdentityDirectRegistered();
+		identityDirectSharedState = new HashMap<>(); // no mid key
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(
+				IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+				IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT
+			);
+	}
+
+	@Test
+	public void testBootupIfReady_whenWaitingForIdentityDirect_doesNotSaveMigrationStatus() {
+		// setup
+		setIdentityDirectRegistered();
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+
+		// test
+		assertFalse(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify the migration stays pending
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS), any(String.class));
+	}
+
+	@Test
+	public void testBootupIfReady_whenRegisteredExtensionsSet_doesNotReadHubState() {
+		// setup
+		setIdentityDirectRegistered(); // the Hub shared state is ignored once the registered extensions are known
+
+		IdentityState state = new IdentityState(new IdentityProperties());
+		state.setRegisteredExtensions(Collections.singleton(IdentityConstants.EXTENSION_NAME));
+
+		// test
+		assertTrue(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertNotNull(state.getIdentityProperties().getECID());
+	}
+
+	@Test
+	public void testBootupIfReady_whenRegisteredExtensionsContainIdentityDirect_waitsForIdentityDirectECID() {
+		// setup
+		IdentityState state = new IdentityState(new IdentityProperties());
+		state.setRegisteredExtensions(Collections.singleton(IdentityConstants.SharedState.IdentityDirect.NAME));
+
+		// test
+		assertFalse(state.bootupIfReady(mockSharedStateCallback));
+
+		// verify
+		assertTrue(state.isExtensionRegistered(IdentityConstants.SharedState.IdentityDirect.NAME));
+		assertNull(state.getIdentityProperties().getECID());
+		assertEquals(0, setXDMSharedEventStateCalledTimes);
+	}
+
 	// ======================================================================================================================
 	// Tests for method : resetIdentifiers()
 	// ======================================================================================================================
@@ -396,6 +585,72 @@ public class IdentityStateTests {
 		assertEquals("false", persistedData.get("identityMap.UserId[0].primary"));
 	}
 
+	@Test
+	public void testUpdateCustomerIdentifiers_withoutTimeToLiveOrCapacity_doesNotSaveLastUpdated() throws Exception {
+		// setup
+		IdentityState state = new IdentityState(new IdentityProperties());
+		state.setHasConfiguration(true);
+		Mockito
+			.when(mockSharedPreference.contains(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED))
+			.thenReturn(true);
+
+		// test
+		state.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), anyString());
+		verify(mockSharedPreferenceEditor, times(1)).remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
+		verify(mockSharedPreferenceEditor, times(1)).apply();
+	}
+
+	@Test
+	public void testUpdateCustomerIdentifiers_configurationNotSet_keepsLastUpdated() throws Exception {
+		// setup
+		IdentityState state = new IdentityState(new IdentityProperties());
+		Mockito
+			.when(mockSharedPreference.contains(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED))
+			.thenReturn(true);
+
+		// test
+		state.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		final ArgumentCaptor<String> lastUpdatedCaptor = ArgumentCaptor.forClass(String.class);
+		verify(mockSharedPreferenceEditor, never()).remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
+		verify(mockSharedPreferenceEditor, times(1))
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), lastUpdatedCaptor.capture());
+		assertNotNull(flattenJSONString(lastUpdatedCaptor.getValue()).get("UserId.secretID"));
+	}
+
+	@Test
+	public void testUpdateCustomerIdentifiers_withTimeToLive_savesLastUpdated() throws Exception {
+		// setup
+		IdentityState state = new IdentityState(new IdentityProperties());
+		state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("UserId", 60L);
+				}
+			}
+		);
+
+		// test
+		state.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID")))
+		);
+
+		// verify
+		final ArgumentCaptor<String> lastUpdatedCaptor = ArgumentCaptor.forClass(String.class);
+		verify(mockSharedPreferenceEditor, times(1))
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), lastUpdatedCaptor.capture());
+		assertNotNull(flattenJSONString(lastUpdatedCaptor.getValue()).get("UserId.secretID"));
+	}
+
 	@Test
 	public void testUpdateCustomerIdentifiers_doesNotUpdateReservedNamespace() throws Exception {
 		// setup
@@ -511,6 +766,126 @@ public class IdentityStateTests {
 		assertEquals("someIDFA", persistedData.get("identityMap.IDFA[0].id"));
 	}
 
+	// ======================================================================================================================
+	// Tests for method : removeExpiredIdentifiers(final long now)
+	// ======================================================================================================================
+
+	@Test
+	public void testRemoveExpiredIdentifiers_removesExpiredAndSaves() throws Exception {
+		// setup
+		IdentityProperties properties = new IdentityProperties();
+		properties.setECID(new ECID("internalECID"));
+		properties.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("SessionId", "session")))
+		);
+		properties.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID")))
+		);
+		IdentityState state = new IdentityState(properties);
+		state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("sessionid", 60L);
+					put("ECID", 60L);
+				}
+			}
+		);
+
+		// test
+		assertTrue(state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds() + 61));
+
+		// verify
+		final ArgumentCaptor<String> persistenceValueCaptor = ArgumentCaptor.forClass(String.class);
+		verify(mockSharedPreferenceEditor, times(1))
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES), persistenceValueCaptor.capture());
+		Map<String, String> persistedData = flattenJSONString(persistenceValueCaptor.getAllValues().get(0));
+		assertEquals(6, persistedData.size()); // UserId and ECID
+		assertNull(persistedData.get("identityMap.SessionId[0].id"));
+		assertEquals("secretID", persistedData.get("identityMap.UserId[0].id"));
+		assertEquals("internalECID", persistedData.get("identityMap.ECID[0].id")); // reserved namespaces never expire
+	}
+
+	@Test
+	public void testRemoveExpiredIdentifiers_whenNotExpired_doesNotSave() throws Exception {
+		// setup
+		IdentityProperties properties = new IdentityProperties();
+		properties.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("SessionId", "session")))
+		);
+		IdentityState state = new IdentityState(properties);
+		state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("SessionId", 60L);
+				}
+			}
+		);
+
+		// test
+		assertFalse(state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds()));
+
+		// verify
+		verify(mockSharedPreferenceEditor, never()).apply();
+		assertEquals("session", flattenMap(state.getIdentityProperties().toXDMData(false)).get("identityMap.SessionId[0].id"));
+	}
+
+	@Test
+	public void testRemoveExpiredIdentifiers_whenNoTimeToLive_doesNotRemove() throws Exception {
+		// setup
+		IdentityProperties properties = new IdentityProperties();
+		properties.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(createXDMIdentityMap(new IdentityTestUtil.TestItem("SessionId", "session")))
+		);
+		IdentityState state = new IdentityState(properties);
+
+		// test
+		assertFalse(state.removeExpiredIdentifiers(Utils.getUnixTimeInSeconds() + 1000));
+
+		// verify
+		verify(mockSharedPreferenceEditor, never()).apply();
+		assertEquals("session", flattenMap(state.getIdentityProperties().toXDMData(false)).get("identityMap.SessionId[0].id"));
+	}
+
+	@Test
+	public void testBootupIfReady_removesExpiredIdentifiersFromPersistence() throws Exception {
+		// setup
+		final long now = Utils.getUnixTimeInSeconds();
+		IdentityState state = new IdentityState(new IdentityProperties());
+		state.setNamespaceTimeToLive(
+			new HashMap<String, Long>() {
+				{
+					put("SessionId", 60L);
+				}
+			}
+		);
+
+		IdentityProperties persistedProps = new IdentityProperties(
+			createXDMIdentityMap(
+				new IdentityTestUtil.TestItem("SessionId", "expired"),
+				new IdentityTestUtil.TestItem("UserId", "secretID")
+			)
+		);
+		persistedProps.setECID(new ECID());
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES, null))
+			.thenReturn(new JSONObject(persistedProps.toXDMData(false)).toString());
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null))
+			.thenReturn("{\"SessionId\":{\"expired\":" + (now - 120) + "},\"UserId\":{\"secretID\":" + (now - 120) + "}}");
+
+		// test
+		state.bootupIfReady(mockSharedStateCallback);
+
+		// verify
+		verify(mockSharedPreferenceEditor, times(1)).apply();
+		final Map<String, String> flatIdentityMap = flattenMap(state.getIdentityProperties().toXDMData(false));
+		assertEquals(6, flatIdentityMap.size()); // UserId and ECID
+		assertNull(flatIdentityMap.get("identityMap.SessionId[0].id"));
+		assertEquals("secretID", flatIdentityMap.get("identityMap.UserId[0].id"));
+		assertEquals(persistedProps.getECID().toString(), state.getIdentityProperties().getECID().toString());
+		assertEquals(1, setXDMSharedEventStateCalledTimes);
+	}
+
 	@Test
 	public void testUpdateLegacyExperienceCloudId() {
 		IdentityState state = new IdentityState(new IdentityProperties());
@@ -781,4 +1156,35 @@ public class IdentityStateTests {
 		assertEquals("ambiguous", flatIdentityMap.get("identityMap.ECID[0].authenticatedState"));
 		return;
 	}
+
+	private void setLegacyEcidMigrationStatus(final String status) {
+		Mockito
+			.when(
+				mockSharedPreference.getString(
+					IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+					IdentityConstants.LegacyEcidMigrationStatus.PENDING
+				)
+			)
+			.thenReturn(status);
+	}
+
+	private void setIdentityDirectRegistered() {
+		hubSharedState = new HashMap<>();
+		hubSharedState.put(
+			"extensions",
+			new HashMap<String, Object>() {
+				{
+					put(
+						"com.adobe.module.identity",
+						new HashMap<String, String>() {
+							{
+								put("friendlyName", "Identity");
+								put("version", "1.2.2");
+							}
+						}
+					);
+				}
+			}
+		);
+	}
 }
@@ -13,6 +13,9 @@ package com.adobe.marketing.mobile.edge.identity;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -20,10 +23,12 @@ import android.app.Application;
 import android.content.Context;
 import android.content.SharedPreferences;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.Map;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
@@ -116,6 +121,48 @@ public class IdentityStorageServiceTests {
 		assertEquals(persistedProps.toXDMData(false), props.toXDMData(false));
 	}
 
+	@Test
+	public void testLoadPropertiesFromPersistence_withLastUpdated() {
+		// setup
+		IdentityProperties persistedProps = new IdentityProperties(
+			IdentityTestUtil.createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID"))
+		);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES, null))
+			.thenReturn(new JSONObject(persistedProps.toXDMData(false)).toString());
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null))
+			.thenReturn("{\"UserId\":{\"secretID\":1234}}");
+
+		// test
+		IdentityProperties props = IdentityStorageService.loadPropertiesFromPersistence();
+
+		// verify
+		assertEquals(persistedProps.toXDMData(false), props.toXDMData(false));
+		assertEquals(1234L, ((Map<String, Object>) props.getLastUpdatedData().get("UserId")).get("secretID"));
+	}
+
+	@Test
+	public void testLoadPropertiesFromPersistence_invalidLastUpdatedJSON() {
+		// setup
+		IdentityProperties persistedProps = new IdentityProperties(
+			IdentityTestUtil.createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID"))
+		);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES, null))
+			.thenReturn(new JSONObject(persistedProps.toXDMData(false)).toString());
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null))
+			.thenReturn("{some invalid json");
+
+		// test
+		IdentityProperties props = IdentityStorageService.loadPropertiesFromPersistence();
+
+		// verify properties are still loaded
+		assertEquals(persistedProps.toXDMData(false), props.toXDMData(false));
+		assertTrue(props.getLastUpdatedData().isEmpty());
+	}
+
 	@Test
 	public void testSavePropertiesToPersistence_nullSharedPrefs() {
 		// setup
@@ -149,6 +196,7 @@ public class IdentityStorageServiceTests {
 
 		// verify
 		verify(mockSharedPreferenceEditor, Mockito.times(1)).remove(IdentityConstants.DataStoreKey.IDENTITY_PROPERTIES);
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
 		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
 	}
 
@@ -167,6 +215,147 @@ public class IdentityStorageServiceTests {
 		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
 	}
 
+	@Test
+	public void testSavePropertiesToPersistence_savesLastUpdated() throws Exception {
+		// test
+		IdentityProperties props = new IdentityProperties();
+		props.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(
+				IdentityTestUtil.createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID"))
+			)
+		);
+		IdentityStorageService.savePropertiesToPersistence(props);
+
+		// verify
+		final ArgumentCaptor<String> lastUpdatedCaptor = ArgumentCaptor.forClass(String.class);
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), lastUpdatedCaptor.capture());
+		Map<String, String> lastUpdatedData = IdentityTestUtil.flattenJSONString(lastUpdatedCaptor.getValue());
+		assertEquals(1, lastUpdatedData.size());
+		assertEquals(
+			String.valueOf(((Map<String, Object>) props.getLastUpdatedData().get("UserId")).get("secretID")),
+			lastUpdatedData.get("UserId.secretID")
+		);
+	}
+
+	@Test
+	public void testSavePropertiesToPersistence_lastUpdatedUnchanged_doesNotSaveLastUpdated() throws Exception {
+		// setup
+		IdentityProperties props = new IdentityProperties();
+		props.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(
+				IdentityTestUtil.createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID"))
+			)
+		);
+		Mockito
+			.when(mockSharedPreference.getString(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED, null))
+			.thenReturn(new JSONObject(props.getLastUpdatedData()).toString());
+
+		// test
+		IdentityStorageService.savePropertiesToPersistence(props);
+
+		// verify
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), anyString());
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+	}
+
+	@Test
+	public void testSavePropertiesToPersistence_withoutLastUpdated_removesStoredLastUpdated() throws Exception {
+		// setup
+		Mockito
+			.when(mockSharedPreference.contains(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED))
+			.thenReturn(true);
+		IdentityProperties props = new IdentityProperties();
+		props.updateCustomerIdentifiers(
+			IdentityMap.fromXDMMap(
+				IdentityTestUtil.createXDMIdentityMap(new IdentityTestUtil.TestItem("UserId", "secretID"))
+			)
+		);
+
+		// test
+		IdentityStorageService.savePropertiesToPersistence(props, null, false);
+
+		// verify
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), anyString());
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+	}
+
+	@Test
+	public void testSavePropertiesToPersistence_withoutLastUpdated_nothingStored_doesNotRemoveLastUpdated() {
+		// test
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		IdentityStorageService.savePropertiesToPersistence(props, null, false);
+
+		// verify
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED), anyString());
+		verify(mockSharedPreferenceEditor, never()).remove(IdentityConstants.DataStoreKey.IDENTITY_LAST_UPDATED);
+	}
+
+	@Test
+	public void testSavePropertiesToPersistence_withLegacyEcidMigrationStatus() {
+		// test
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		IdentityStorageService.savePropertiesToPersistence(
+			props,
+			IdentityConstants.LegacyEcidMigrationStatus.MIGRATED,
+			true
+		);
+
+		// verify
+		verify(mockSharedPreferenceEditor, Mockito.times(1))
+			.putString(
+				IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+				IdentityConstants.LegacyEcidMigrationStatus.MIGRATED
+			);
+		verify(mockSharedPreferenceEditor, Mockito.times(1)).apply();
+	}
+
+	@Test
+	public void testSavePropertiesToPersistence_withoutLegacyEcidMigrationStatus_keepsStoredStatus() {
+		// test
+		IdentityProperties props = new IdentityProperties();
+		props.setECID(new ECID());
+		IdentityStorageService.savePropertiesToPersistence(props);
+
+		// verify
+		verify(mockSharedPreferenceEditor, never())
+			.putString(eq(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS), anyString());
+		verify(mockSharedPreferenceEditor, never()).remove(IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS);
+	}
+
+	@Test
+	public void testLoadLegacyEcidMigrationStatus_loadsStoredStatus() {
+		Mockito
+			.when(
+				mockSharedPreference.getString(
+					IdentityConstants.DataStoreKey.LEGACY_ECID_MIGRATION_STATUS,
+					IdentityConstants.LegacyEcidMigrationStatus.PENDING
+				)
+			)
+			.thenReturn(IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT);
+
+		assertEquals(
+			IdentityConstants.LegacyEcidMigrationStatus.NOT_PRESENT,
+			IdentityStorageService.loadLegacyEcidMigrationStatus()
+		);
+	}
+
+	@Test
+	public void testLoadLegacyEcidMigrationStatus_nullSharedPrefs_returnsPending() {
+		Mockito.when(mockApplication.getApplicationContext()).thenReturn(null);
+
+		assertEquals(
+			IdentityConstants.LegacyEcidMigrationStatus.PENDING,
+			IdentityStorageService.loadLegacyEcidMigrationStatus()
+		);
+	}
+
 	@Test
 	public void testLoadEcidFromDirectIdentityPersistence_loadECID() {
 		ECID ecid = new ECID();
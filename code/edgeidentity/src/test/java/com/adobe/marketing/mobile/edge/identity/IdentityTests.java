@@ -12,8 +12,11 @@
 package com.adobe.marketing.mobile.edge.identity;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 
 import android.util.Log;
@@ -24,9 +27,11 @@ import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.ExtensionErrorCallback;
 import com.adobe.marketing.mobile.MobileCore;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.json.JSONObject;
 import org.junit.Before;
@@ -46,6 +51,8 @@ public class IdentityTests {
 	@Before
 	public void setup() {
 		PowerMockito.mockStatic(MobileCore.class);
+		Identity.requestCoalescer.clear();
+		Identity.timeoutWheel.setClock(TimeoutWheel.SYSTEM_CLOCK, true);
 	}
 
 	// ========================================================================================
@@ -484,7 +491,14 @@ public class IdentityTests {
 		assertEquals(IdentityConstants.EventNames.UPDATE_IDENTITIES, dispatchedEvent.getName());
 		assertEquals(IdentityConstants.EventType.EDGE_IDENTITY.toLowerCase(), dispatchedEvent.getType());
 		assertEquals(IdentityConstants.EventSource.UPDATE_IDENTITY.toLowerCase(), dispatchedEvent.getSource());
-		assertEquals(map.asXDMMap(), dispatchedEvent.getEventData());
+		// the XDM form is retained next to the encoded form
+		assertEquals(map.asXDMMap().get("identityMap"), dispatchedEvent.getEventData().get("identityMap"));
+		assertEquals(
+			map.asXDMMap(),
+			IdentityMapCodec
+				.decode((String) dispatchedEvent.getEventData().get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP))
+				.asXDMMap()
+		);
 	}
 
 	@Test
@@ -521,7 +535,14 @@ public class IdentityTests {
 		assertEquals(IdentityConstants.EventSource.REMOVE_IDENTITY.toLowerCase(), dispatchedEvent.getSource());
 		IdentityMap sampleInputIdentitymap = new IdentityMap();
 		sampleInputIdentitymap.addItem(sampleItem, "namespace");
-		assertEquals(sampleInputIdentitymap.asXDMMap(), dispatchedEvent.getEventData());
+		// the XDM form is retained next to the encoded form
+		assertEquals(sampleInputIdentitymap.asXDMMap().get("identityMap"), dispatchedEvent.getEventData().get("identityMap"));
+		assertEquals(
+			sampleInputIdentitymap.asXDMMap(),
+			IdentityMapCodec
+				.decode((String) dispatchedEvent.getEventData().get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP))
+				.asXDMMap()
+		);
 		// TODO - enable when ExtensionError creation is available
 		// should not crash on calling the callback
 		//extensionErrorCallback.error(ExtensionError.UNEXPECTED_ERROR);
@@ -542,6 +563,77 @@ public class IdentityTests {
 		MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class));
 	}
 
+	@Test
+	public void testRemoveIdentities() {
+		// setup
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("id", AuthenticatedState.AUTHENTICATED, true), "mainspace");
+		map.addItem(new IdentityItem("idtwo", AuthenticatedState.LOGGED_OUT, false), "mainspace");
+		map.addItem(new IdentityItem("idthree"), "secondspace");
+
+		// test
+		Identity.removeIdentities(map);
+
+		// verify a single event is dispatched for all the identities
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEvent(eventCaptor.capture(), any(ExtensionErrorCallback.class));
+
+		Event dispatchedEvent = eventCaptor.getValue();
+		assertEquals(IdentityConstants.EventNames.REMOVE_IDENTITIES, dispatchedEvent.getName());
+		assertEquals(IdentityConstants.EventType.EDGE_IDENTITY.toLowerCase(), dispatchedEvent.getType());
+		assertEquals(IdentityConstants.EventSource.REMOVE_IDENTITY.toLowerCase(), dispatchedEvent.getSource());
+		// the XDM form is retained next to the encoded form
+		assertEquals(map.asXDMMap().get("identityMap"), dispatchedEvent.getEventData().get("identityMap"));
+		assertEquals(
+			map.asXDMMap(),
+			IdentityMapCodec
+				.decode((String) dispatchedEvent.getEventData().get(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP))
+				.asXDMMap()
+		);
+	}
+
+	@Test
+	public void testRemoveIdentities_NullAndEmptyMap() {
+		// test
+		Identity.removeIdentities(new IdentityMap());
+		Identity.removeIdentities(null);
+
+		// verify none of these API calls dispatch an event
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(0));
+		MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
+	@Test
+	public void testRemoveAllIdentitiesForNamespace() {
+		// setup
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		Identity.removeAllIdentitiesForNamespace("mainspace");
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEvent(eventCaptor.capture(), any(ExtensionErrorCallback.class));
+
+		Event dispatchedEvent = eventCaptor.getValue();
+		assertEquals(IdentityConstants.EventNames.REMOVE_IDENTITIES_FOR_NAMESPACE, dispatchedEvent.getName());
+		assertEquals(IdentityConstants.EventType.EDGE_IDENTITY.toLowerCase(), dispatchedEvent.getType());
+		assertEquals(IdentityConstants.EventSource.REMOVE_IDENTITY.toLowerCase(), dispatchedEvent.getSource());
+		assertEquals("mainspace", dispatchedEvent.getEventData().get(IdentityConstants.EventDataKeys.NAMESPACE));
+	}
+
+	@Test
+	public void testRemoveAllIdentitiesForNamespace_WithInvalidInputs() {
+		// test
+		Identity.removeAllIdentitiesForNamespace("");
+		Identity.removeAllIdentitiesForNamespace(null);
+
+		// verify none of these API calls dispatch an event
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(0));
+		MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class));
+	}
+
 	// ========================================================================================
 	// getIdentities API
 	// ========================================================================================
@@ -578,7 +670,10 @@ public class IdentityTests {
 		assertEquals(IdentityConstants.EventNames.REQUEST_IDENTITIES, dispatchedEvent.getName());
 		assertEquals(IdentityConstants.EventType.EDGE_IDENTITY.toLowerCase(), dispatchedEvent.getType());
 		assertEquals(IdentityConstants.EventSource.REQUEST_IDENTITY.toLowerCase(), dispatchedEvent.getSource());
-		assertTrue(dispatchedEvent.getEventData().isEmpty());
+		assertEquals(
+			Collections.singletonMap(IdentityConstants.EventDataKeys.RETURN_ENCODED_IDENTITY_MAP, (Object) true),
+			dispatchedEvent.getEventData()
+		);
 
 		// verify callback responses
 		final ECID ecid = new ECID();
@@ -754,9 +849,645 @@ public class IdentityTests {
 		assertEquals(AdobeError.UNEXPECTED_ERROR, errorCapture.get(KEY_CAPTUREDERRORCALLBACK));
 	}
 
+	// ========================================================================================
+	// API latency histograms
+	// ========================================================================================
+	@Test
+	public void testGetIdentities_recordsSuccessLatency() {
+		// setup
+		Identity.resetApiLatencyHistograms();
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		Identity.getIdentities(
+			new AdobeCallback<IdentityMap>() {
+				@Override
+				public void call(IdentityMap identityMap) {}
+			}
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("ECID", new ArrayList<Object>());
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		// verify
+		assertEquals(
+			1,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.SUCCESS).getTotalCount()
+		);
+		assertEquals(
+			0,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.ERROR).getTotalCount()
+		);
+		assertEquals(1, Identity.getResponseHandlingLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES).getTotalCount());
+		assertEquals(
+			0,
+			Identity
+				.getApiLatencyHistogram(ApiLatencyMetrics.GET_EXPERIENCE_CLOUD_ID, ApiOutcome.SUCCESS)
+				.getTotalCount()
+		);
+	}
+
+	@Test
+	public void testGetUrlVariables_nullResponseEvent_recordsErrorLatency() {
+		// setup
+		Identity.resetApiLatencyHistograms();
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		Identity.getUrlVariables(
+			new AdobeCallback<String>() {
+				@Override
+				public void call(String urlVariables) {}
+			}
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		adobeCallbackCaptor.getValue().call(null);
+
+		// verify
+		assertEquals(
+			1,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_URL_VARIABLES, ApiOutcome.ERROR).getTotalCount()
+		);
+		assertEquals(
+			0,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_URL_VARIABLES, ApiOutcome.SUCCESS).getTotalCount()
+		);
+	}
+
+	@Test
+	public void testGetApiLatencyHistogram_unknownApi_returnsNull() {
+		assertNull(Identity.getApiLatencyHistogram("updateIdentities", ApiOutcome.SUCCESS));
+		assertNull(Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES, null));
+		assertNull(Identity.getResponseHandlingLatencyHistogram(null));
+	}
+
+	@Test
+	public void testGetIdentities_responseWithEncodedIdentityMap_decodesEncodedForm() {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<IdentityMap> identityMaps = new ArrayList<>();
+		final IdentityMap encodedMap = new IdentityMap();
+		encodedMap.addItem(new IdentityItem("secretID", AuthenticatedState.AUTHENTICATED, true), "UserId");
+
+		// test
+		Identity.getIdentities(
+			new AdobeCallback<IdentityMap>() {
+				@Override
+				public void call(IdentityMap identityMap) {
+					identityMaps.add(identityMap);
+				}
+			}
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		// the XDM form holds a different id in the same namespace to verify the encoded form is used
+		final IdentityMap xdmMap = new IdentityMap();
+		xdmMap.addItem(new IdentityItem("xdmID"), "UserId");
+		Map<String, Object> xdmData = xdmMap.asXDMMap(false);
+		xdmData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, IdentityMapCodec.encode(encodedMap));
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		// verify
+		assertEquals(1, identityMaps.size());
+		IdentityItem item = identityMaps.get(0).getIdentityItemsForNamespace("UserId").get(0);
+		assertEquals("secretID", item.getId());
+		assertEquals(AuthenticatedState.AUTHENTICATED, item.getAuthenticatedState());
+		assertTrue(item.isPrimary());
+	}
+
+	@Test
+	public void testGetIdentities_responseWithMalformedEncodedIdentityMap_readsXDMForm() {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<IdentityMap> identityMaps = new ArrayList<>();
+
+		// test
+		Identity.getIdentities(
+			new AdobeCallback<IdentityMap>() {
+				@Override
+				public void call(IdentityMap identityMap) {
+					identityMaps.add(identityMap);
+				}
+			}
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		Map<String, Object> itemDict = new HashMap<>();
+		itemDict.put("id", "token");
+		ArrayList<Object> itemArr = new ArrayList<>();
+		itemArr.add(itemDict);
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("PushId", itemArr);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		xdmData.put(IdentityConstants.EventDataKeys.ENCODED_IDENTITY_MAP, "99;malformed");
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		// verify
+		assertEquals(1, identityMaps.size());
+		assertEquals("token", identityMaps.get(0).getIdentityItemsForNamespace("PushId").get(0).getId());
+	}
+
+	@Test
+	public void testGetIdentities_withQuery_dispatchesQueryAndReturnsMatchingIdentities() {
+		// setup
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<IdentityMap> identityMaps = new ArrayList<>();
+		final IdentityQuery query = new IdentityQuery.Builder()
+			.setNamespaces("UserId")
+			.setAuthenticatedStates(AuthenticatedState.AUTHENTICATED)
+			.build();
+
+		// test
+		Identity.getIdentities(
+			query,
+			new AdobeCallback<IdentityMap>() {
+				@Override
+				public void call(IdentityMap identityMap) {
+					identityMaps.add(identityMap);
+				}
+			}
+		);
+
+		// verify the query is sent with the request
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			eventCaptor.capture(),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		IdentityQuery dispatchedQuery = IdentityQuery.fromEventData(eventCaptor.getValue().getEventData());
+		assertNotNull(dispatchedQuery);
+		assertEquals(query.getRequestKey(), dispatchedQuery.getRequestKey());
+
+		// verify the response is returned
+		Map<String, Object> itemDict = new HashMap<>();
+		itemDict.put("id", "secretID");
+		itemDict.put("authenticatedState", "authenticated");
+		ArrayList<Object> itemArr = new ArrayList<>();
+		itemArr.add(itemDict);
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("UserId", itemArr);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		assertEquals(1, identityMaps.size());
+		assertEquals("secretID", identityMaps.get(0).getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void testGetIdentities_withAndWithoutQuery_notCoalesced() {
+		// setup
+		final AdobeCallback<IdentityMap> callback = new AdobeCallback<IdentityMap>() {
+			@Override
+			public void call(IdentityMap identityMap) {}
+		};
+
+		// test
+		Identity.getIdentities(callback);
+		Identity.getIdentities(new IdentityQuery.Builder().setPrimaryOnly(true).build(), callback);
+		Identity.getIdentities(new IdentityQuery.Builder().setPrimaryOnly(true).build(), callback);
+
+		// verify the identical queries are coalesced
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			any(AdobeCallback.class),
+			any(ExtensionErrorCallback.class)
+		);
+		assertEquals(1, Identity.getCoalescedRequestCount());
+	}
+
+	// ========================================================================================
+	// Request coalescing
+	// ========================================================================================
+	@Test
+	public void testGetIdentities_concurrentCalls_dispatchOneEvent() {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<IdentityMap> callbackReturnValues = new ArrayList<>();
+		final AdobeCallback<IdentityMap> callback = new AdobeCallback<IdentityMap>() {
+			@Override
+			public void call(IdentityMap identityMap) {
+				callbackReturnValues.add(identityMap);
+			}
+		};
+
+		// test
+		Identity.getIdentities(callback);
+		Identity.getIdentities(callback);
+		Identity.getIdentities(callback);
+
+		// verify a single event is dispatched
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		assertEquals(2, Identity.getCoalescedRequestCount());
+
+		// verify the response is delivered to all callbacks
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("ECID", new ArrayList<Object>());
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+		assertEquals(3, callbackReturnValues.size());
+
+		// verify a call after the response dispatches a new event
+		Identity.getIdentities(callback);
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			any(AdobeCallback.class),
+			any(ExtensionErrorCallback.class)
+		);
+	}
+
+	@Test
+	public void testGetIdentities_differentApis_notCoalesced() {
+		// test
+		Identity.getIdentities(
+			new AdobeCallback<IdentityMap>() {
+				@Override
+				public void call(IdentityMap identityMap) {}
+			}
+		);
+		Identity.getExperienceCloudId(
+			new AdobeCallback<String>() {
+				@Override
+				public void call(String ecid) {}
+			}
+		);
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			any(AdobeCallback.class),
+			any(ExtensionErrorCallback.class)
+		);
+		assertEquals(0, Identity.getCoalescedRequestCount());
+	}
+
+	@Test
+	public void testGetIdentities_afterUpdateIdentities_notCoalesced() {
+		// setup
+		final AdobeCallback<IdentityMap> callback = new AdobeCallback<IdentityMap>() {
+			@Override
+			public void call(IdentityMap identityMap) {}
+		};
+		Identity.getIdentities(callback);
+
+		// test
+		IdentityMap map = new IdentityMap();
+		map.addItem(new IdentityItem("id"), "mynamespace");
+		Identity.updateIdentities(map);
+		Identity.getIdentities(callback);
+
+		// verify the request after the update is not answered with the identities from before the update
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			any(AdobeCallback.class),
+			any(ExtensionErrorCallback.class)
+		);
+		assertEquals(0, Identity.getCoalescedRequestCount());
+	}
+
+	@Test
+	public void testGetIdentities_joinedRequest_identitiesChangedInFlight_dispatchedAgain() {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<IdentityMap> callbackReturnValues = new ArrayList<>();
+		final AdobeCallback<IdentityMap> callback = new AdobeCallback<IdentityMap>() {
+			@Override
+			public void call(IdentityMap identityMap) {
+				callbackReturnValues.add(identityMap);
+			}
+		};
+		Identity.getIdentities(callback);
+		Identity.getIdentities(callback);
+
+		// test, the extension received a change to the identities not made through Identity, such as a reset
+		Identity.requestCoalescer.sealPendingRequests();
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", new HashMap<String, Object>());
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		// verify only the caller which dispatched the request is answered, the joined call dispatches a new event
+		assertEquals(1, callbackReturnValues.size());
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(2));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			any(AdobeCallback.class),
+			any(ExtensionErrorCallback.class)
+		);
+	}
+
+	// ========================================================================================
+	// Timeout overloads
+	// ========================================================================================
+	@Test
+	public void testGetIdentities_withTimeout_noResponse_failsWithCallbackTimeout() {
+		// setup
+		final long[] nowNanos = { 0 };
+		useManualClock(nowNanos);
+		Identity.resetApiLatencyHistograms();
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<AdobeError> errors = new ArrayList<>();
+		final List<IdentityMap> identityMaps = new ArrayList<>();
+
+		// test
+		Identity.getIdentities(
+			new AdobeCallbackWithError<IdentityMap>() {
+				@Override
+				public void fail(AdobeError adobeError) {
+					errors.add(adobeError);
+				}
+
+				@Override
+				public void call(IdentityMap identityMap) {
+					identityMaps.add(identityMap);
+				}
+			},
+			500
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		// verify no timeout before the deadline
+		nowNanos[0] = TimeUnit.MILLISECONDS.toNanos(499);
+		Identity.timeoutWheel.tick();
+		assertTrue(errors.isEmpty());
+
+		// verify timeout after the deadline
+		nowNanos[0] = TimeUnit.MILLISECONDS.toNanos(520);
+		Identity.timeoutWheel.tick();
+		assertEquals(1, errors.size());
+		assertEquals(AdobeError.CALLBACK_TIMEOUT, errors.get(0));
+		assertEquals(
+			1,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.TIMEOUT).getTotalCount()
+		);
+
+		// verify a late response does not call the callback
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("ECID", new ArrayList<Object>());
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+		assertTrue(identityMaps.isEmpty());
+		assertEquals(1, errors.size());
+		assertEquals(
+			0,
+			Identity.getApiLatencyHistogram(ApiLatencyMetrics.GET_IDENTITIES, ApiOutcome.SUCCESS).getTotalCount()
+		);
+	}
+
+	@Test
+	public void testGetExperienceCloudId_withTimeout_responseBeforeDeadline_cancelsTimeout() {
+		// setup
+		final long[] nowNanos = { 0 };
+		useManualClock(nowNanos);
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final List<AdobeError> errors = new ArrayList<>();
+		final List<String> ecids = new ArrayList<>();
+
+		// test
+		Identity.getExperienceCloudId(
+			new AdobeCallbackWithError<String>() {
+				@Override
+				public void fail(AdobeError adobeError) {
+					errors.add(adobeError);
+				}
+
+				@Override
+				public void call(String ecid) {
+					ecids.add(ecid);
+				}
+			},
+			500
+		);
+
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+
+		Map<String, Object> ecidItem = new HashMap<>();
+		ecidItem.put("id", "1234");
+		List<Object> ecidItems = new ArrayList<>();
+		ecidItems.add(ecidItem);
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("ECID", ecidItems);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		nowNanos[0] = TimeUnit.SECONDS.toNanos(1);
+		Identity.timeoutWheel.tick();
+
+		// verify
+		assertEquals(1, ecids.size());
+		assertEquals("1234", ecids.get(0));
+		assertTrue(errors.isEmpty());
+		assertEquals(0, Identity.timeoutWheel.getPendingCount());
+	}
+
+	@Test
+	public void testGetUrlVariables_withoutTimeout_schedulesNoTimeout() {
+		// setup
+		final long[] nowNanos = { 0 };
+		useManualClock(nowNanos);
+
+		// test
+		Identity.getUrlVariables(
+			new AdobeCallback<String>() {
+				@Override
+				public void call(String urlVariables) {}
+			},
+			0
+		);
+
+		// verify
+		assertEquals(0, Identity.timeoutWheel.getPendingCount());
+	}
+
+	// ========================================================================================
+	// Async APIs
+	// ========================================================================================
+	@Test
+	public void testGetExperienceCloudIdAsync_completesWithResponse() throws Exception {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		final IdentityFuture<String> future = Identity.getExperienceCloudIdAsync();
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		assertFalse(future.isDone());
+
+		ECID ecid = new ECID();
+		Map<String, Object> ecidDict = new HashMap<>();
+		ecidDict.put("id", ecid.toString());
+		ArrayList<Object> ecidArr = new ArrayList<>();
+		ecidArr.add(ecidDict);
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("ECID", ecidArr);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		assertTrue(future.isDone());
+		assertEquals(ecid.toString(), future.get(0, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testGetIdentitiesAsync_nullResponseEvent_failsWithError() throws Exception {
+		// setup
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		final IdentityFuture<IdentityMap> future = Identity.getIdentitiesAsync();
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			any(Event.class),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		adobeCallbackCaptor.getValue().call(null);
+
+		assertTrue(future.isDone());
+		assertEquals(AdobeError.UNEXPECTED_ERROR, future.getError());
+
+		try {
+			future.get();
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGetIdentitiesAsync_withQuery_dispatchesQueryAndReturnsMatchingIdentities() throws Exception {
+		// setup
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+		final ArgumentCaptor<AdobeCallback> adobeCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final IdentityQuery query = new IdentityQuery.Builder().setNamespaces("UserId").build();
+
+		// test
+		final IdentityFuture<IdentityMap> future = Identity.getIdentitiesAsync(query);
+
+		// verify
+		PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEventWithResponseCallback(
+			eventCaptor.capture(),
+			adobeCallbackCaptor.capture(),
+			any(ExtensionErrorCallback.class)
+		);
+		assertEquals(
+			query.getRequestKey(),
+			IdentityQuery.fromEventData(eventCaptor.getValue().getEventData()).getRequestKey()
+		);
+
+		Map<String, Object> itemDict = new HashMap<>();
+		itemDict.put("id", "secretID");
+		ArrayList<Object> itemArr = new ArrayList<>();
+		itemArr.add(itemDict);
+		Map<String, Object> identityMap = new HashMap<>();
+		identityMap.put("UserId", itemArr);
+		Map<String, Object> xdmData = new HashMap<>();
+		xdmData.put("identityMap", identityMap);
+		adobeCallbackCaptor.getValue().call(buildIdentityResponseEvent(xdmData));
+
+		assertEquals("secretID", future.get().getIdentityItemsForNamespace("UserId").get(0).getId());
+	}
+
+	@Test
+	public void testGetIdentitiesAsync_withTimeout_noResponse_failsWithCallbackTimeout() {
+		// setup
+		final long[] nowNanos = { 0 };
+		useManualClock(nowNanos);
+
+		// test
+		final IdentityFuture<IdentityMap> future = Identity.getIdentitiesAsync(500);
+		nowNanos[0] = TimeUnit.MILLISECONDS.toNanos(520);
+		Identity.timeoutWheel.tick();
+
+		// verify
+		assertTrue(future.isDone());
+		assertEquals(AdobeError.CALLBACK_TIMEOUT, future.getError());
+	}
+
 	// ========================================================================================
 	// Private method
 	// ========================================================================================
+	private void useManualClock(final long[] nowNanos) {
+		Identity.timeoutWheel.setClock(
+			new TimeoutWheel.Clock() {
+				@Override
+				public long nanoTime() {
+					return nowNanos[0];
+				}
+			},
+			false
+		);
+	}
+
 	private Event buildIdentityResponseEvent(final Map<String, Object> eventData) {
 		return new Event.Builder(
 			IdentityConstants.EventNames.IDENTITY_REQUEST_IDENTITY_ECID,
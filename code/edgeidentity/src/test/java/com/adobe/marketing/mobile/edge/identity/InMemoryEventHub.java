@@ -0,0 +1,420 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.Event;
+import com.adobe.marketing.mobile.ExtensionApi;
+import com.adobe.marketing.mobile.ExtensionErrorCallback;
+import com.adobe.marketing.mobile.ExtensionListener;
+import com.adobe.marketing.mobile.MobileCore;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+
+/**
+ * In-memory stand-in for the Mobile Core event hub, used to drive the real {@link IdentityExtension} on the JVM.
+ * <ul>
+ *     <li>Events are routed to the {@code Listener*} classes the extension registers, which process them on the
+ *     extension's executor.</li>
+ *     <li>Shared states are versioned by the dispatch order of the events they are set for, and each shared state
+ *     change dispatches a Hub shared state event.</li>
+ *     <li>Events dispatched through {@link MobileCore} are routed to this hub, and response events are delivered to
+ *     the callbacks of their request events.</li>
+ *     <li>The latency from the dispatch of an event to the response or shared state set for it is recorded.</li>
+ * </ul>
+ * The test using this hub must run with the {@code PowerMockRunner}, prepare {@link MobileCore} for test and call
+ * {@code PowerMockito.mockStatic(MobileCore.class)} before creating the hub.
+ */
+class InMemoryEventHub {
+
+	private final ExtensionApi extensionApi;
+	private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<>();
+	private final Map<String, TreeMap<Long, Map<String, Object>>> sharedStates = new HashMap<>(); // guarded by itself
+	private final Map<String, Long> eventVersions = new ConcurrentHashMap<>();
+	private final Map<String, Long> dispatchTimes = new ConcurrentHashMap<>();
+	private final Map<String, AdobeCallback<Event>> responseCallbacks = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+	private final AtomicLong lastVersion = new AtomicLong();
+	private final AtomicInteger unmatchedResponseCount = new AtomicInteger();
+	private volatile IdentityExtension extension;
+
+	InMemoryEventHub() {
+		// stub only, so the invocations of a load run are not recorded
+		extensionApi = Mockito.mock(ExtensionApi.class, Mockito.withSettings().stubOnly());
+		setupExtensionApi();
+		routeMobileCoreDispatch();
+	}
+
+	/**
+	 * Creates the {@link IdentityExtension}, which registers its listeners with this hub.
+	 *
+	 * @return the registered extension
+	 */
+	IdentityExtension registerExtension() {
+		extension = new IdentityExtension(extensionApi);
+		return extension;
+	}
+
+	/**
+	 * Sets the Hub shared state listing the registered extensions and dispatches the Hub booted event,
+	 * as Mobile Core does once all extensions are registered.
+	 */
+	void boot() {
+		final Map<String, Object> identityDetails = new HashMap<>();
+		identityDetails.put("version", IdentityConstants.EXTENSION_VERSION);
+		final Map<String, Object> extensions = new HashMap<>();
+		extensions.put(IdentityConstants.EXTENSION_NAME, identityDetails);
+		final Map<String, Object> hubState = new HashMap<>();
+		hubState.put(IdentityConstants.SharedState.Hub.EXTENSIONS, extensions);
+
+		dispatch(
+			new Event.Builder("EventHub Booted", IdentityConstants.EventType.HUB, IdentityConstants.EventSource.BOOTED)
+				.build()
+		);
+		setSharedState(IdentityConstants.SharedState.Hub.NAME, hubState);
+	}
+
+	/**
+	 * Sets a shared state for {@code stateOwner} and dispatches the Hub shared state change event.
+	 *
+	 * @param stateOwner the name of the shared state owner
+	 * @param state      the shared state
+	 */
+	void setSharedState(final String stateOwner, final Map<String, Object> state) {
+		storeSharedState(stateOwner, lastVersion.incrementAndGet(), state);
+		dispatchSharedStateChange(stateOwner);
+	}
+
+	/**
+	 * Dispatches the event to the listeners registered for its type and source.
+	 *
+	 * @param event the {@link Event} to dispatch
+	 */
+	void dispatch(final Event event) {
+		eventVersions.put(event.getUniqueIdentifier(), lastVersion.incrementAndGet());
+		dispatchTimes.put(event.getUniqueIdentifier(), System.nanoTime());
+
+		for (final ListenerRegistration registration : listeners) {
+			if (registration.matches(event)) {
+				registration.listener.hear(event);
+			}
+		}
+	}
+
+	/**
+	 * Dispatches the request event and delivers its response event to {@code responseCallback}.
+	 *
+	 * @param event            the request {@link Event} to dispatch
+	 * @param responseCallback the callback for the response event
+	 */
+	void dispatch(final Event event, final AdobeCallback<Event> responseCallback) {
+		responseCallbacks.put(event.getUniqueIdentifier(), responseCallback);
+		dispatch(event);
+	}
+
+	/**
+	 * Dispatches the request event and waits for its response event.
+	 *
+	 * @param event     the request {@link Event} to dispatch
+	 * @param timeoutMs the maximum time to wait, in milliseconds
+	 * @return the response event, or null if no response was received within {@code timeoutMs}
+	 */
+	Event dispatchAndWait(final Event event, final long timeoutMs) throws InterruptedException {
+		final AtomicReference<Event> response = new AtomicReference<>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		dispatch(
+			event,
+			new AdobeCallback<Event>() {
+				@Override
+				public void call(final Event responseEvent) {
+					response.set(responseEvent);
+					latch.countDown();
+				}
+			}
+		);
+		latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+		return response.get();
+	}
+
+	/**
+	 * @param stateOwner the name of the shared state owner
+	 * @return the latest shared state of {@code stateOwner}, or null if none was set
+	 */
+	Map<String, Object> getLatestSharedState(final String stateOwner) {
+		return getSharedState(stateOwner, null);
+	}
+
+	/**
+	 * @return the latencies, in nanoseconds, from the dispatch of an event to the first response event or shared state
+	 * set for it
+	 */
+	List<Long> getLatenciesNanos() {
+		return new ArrayList<>(latenciesNanos);
+	}
+
+	/**
+	 * @return the number of response events for which no request callback was pending
+	 */
+	int getUnmatchedResponseCount() {
+		return unmatchedResponseCount.get();
+	}
+
+	/**
+	 * @return the number of request events still waiting for a response event
+	 */
+	int getPendingResponseCount() {
+		return responseCallbacks.size();
+	}
+
+	private void dispatchSharedStateChange(final String stateOwner) {
+		final Map<String, Object> data = new HashMap<>();
+		data.put(IdentityConstants.EventDataKeys.STATE_OWNER, stateOwner);
+		dispatch(
+			new Event.Builder(
+				"Shared state change",
+				IdentityConstants.EventType.HUB,
+				IdentityConstants.EventSource.SHARED_STATE
+			)
+				.setEventData(data)
+				.build()
+		);
+	}
+
+	private void storeSharedState(final String stateOwner, final long version, final Map<String, Object> state) {
+		synchronized (sharedStates) {
+			TreeMap<Long, Map<String, Object>> versions = sharedStates.get(stateOwner);
+
+			if (versions == null) {
+				versions = new TreeMap<>();
+				sharedStates.put(stateOwner, versions);
+			}
+
+			versions.put(version, state);
+		}
+	}
+
+	/**
+	 * Returns the shared state of {@code stateOwner} for {@code event}, which is the latest state set at or
+	 * before the event was dispatched; the latest state if {@code event} is null or was not dispatched through this hub.
+	 */
+	private Map<String, Object> getSharedState(final String stateOwner, final Event event) {
+		final Long eventVersion = event != null ? eventVersions.get(event.getUniqueIdentifier()) : null;
+
+		synchronized (sharedStates) {
+			final TreeMap<Long, Map<String, Object>> versions = sharedStates.get(stateOwner);
+
+			if (versions == null || versions.isEmpty()) {
+				return null;
+			}
+
+			final Map.Entry<Long, Map<String, Object>> entry = versions.floorEntry(
+				eventVersion != null ? eventVersion : Long.MAX_VALUE
+			);
+			return entry != null ? entry.getValue() : null;
+		}
+	}
+
+	private void recordLatency(final Event event) {
+		if (event == null) {
+			return;
+		}
+
+		final Long dispatchTime = dispatchTimes.remove(event.getUniqueIdentifier());
+
+		if (dispatchTime != null) {
+			latenciesNanos.add(System.nanoTime() - dispatchTime);
+		}
+	}
+
+	/**
+	 * Creates the listener registered by the extension. The listener's parent extension is provided by this hub.
+	 */
+	private ExtensionListener createListener(final Class<?> listenerClass, final String type, final String source)
+		throws Exception {
+		final Constructor<?> constructor = listenerClass.getDeclaredConstructor(
+			ExtensionApi.class,
+			String.class,
+			String.class
+		);
+		constructor.setAccessible(true);
+		final ExtensionListener listener = (ExtensionListener) Mockito.spy(
+			constructor.newInstance(extensionApi, type, source)
+		);
+		final Method getIdentityExtension = listenerClass.getDeclaredMethod("getIdentityExtension");
+		getIdentityExtension.setAccessible(true);
+		getIdentityExtension.invoke(
+			Mockito
+				.doAnswer(
+					new Answer<IdentityExtension>() {
+						@Override
+						public IdentityExtension answer(final InvocationOnMock invocation) {
+							return extension;
+						}
+					}
+				)
+				.when(listener)
+		);
+		return listener;
+	}
+
+	private void setupExtensionApi() {
+		Mockito
+			.when(
+				extensionApi.registerEventListener(
+					anyString(),
+					anyString(),
+					any(Class.class),
+					any(ExtensionErrorCallback.class)
+				)
+			)
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) throws Exception {
+						final String type = invocation.getArgument(0);
+						final String source = invocation.getArgument(1);
+						final Class<?> listenerClass = invocation.getArgument(2);
+						listeners.add(new ListenerRegistration(type, source, createListener(listenerClass, type, source)));
+						return true;
+					}
+				}
+			);
+		Mockito
+			.when(extensionApi.getSharedEventState(anyString(), nullable(Event.class), any(ExtensionErrorCallback.class)))
+			.thenAnswer(
+				new Answer<Map<String, Object>>() {
+					@Override
+					public Map<String, Object> answer(final InvocationOnMock invocation) {
+						return getSharedState((String) invocation.getArgument(0), (Event) invocation.getArgument(1));
+					}
+				}
+			);
+		Mockito
+			.when(
+				extensionApi.setXDMSharedEventState(
+					any(Map.class),
+					nullable(Event.class),
+					any(ExtensionErrorCallback.class)
+				)
+			)
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						final Map<String, Object> state = invocation.getArgument(0);
+						final Event event = invocation.getArgument(1);
+						final Long eventVersion = event != null ? eventVersions.get(event.getUniqueIdentifier()) : null;
+						storeSharedState(
+							IdentityConstants.EXTENSION_NAME,
+							eventVersion != null ? eventVersion : lastVersion.incrementAndGet(),
+							state
+						);
+						recordLatency(event);
+						dispatchSharedStateChange(IdentityConstants.EXTENSION_NAME);
+						return true;
+					}
+				}
+			);
+	}
+
+	private void routeMobileCoreDispatch() {
+		PowerMockito
+			.when(MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						dispatch((Event) invocation.getArgument(0));
+						return true;
+					}
+				}
+			);
+		PowerMockito
+			.when(
+				MobileCore.dispatchEventWithResponseCallback(
+					any(Event.class),
+					any(AdobeCallback.class),
+					any(ExtensionErrorCallback.class)
+				)
+			)
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						dispatch((Event) invocation.getArgument(0), (AdobeCallback<Event>) invocation.getArgument(1));
+						return true;
+					}
+				}
+			);
+		PowerMockito
+			.when(MobileCore.dispatchResponseEvent(any(Event.class), any(Event.class), any(ExtensionErrorCallback.class)))
+			.thenAnswer(
+				new Answer<Boolean>() {
+					@Override
+					public Boolean answer(final InvocationOnMock invocation) {
+						final Event requestEvent = invocation.getArgument(1);
+						final AdobeCallback<Event> callback = responseCallbacks.remove(requestEvent.getUniqueIdentifier());
+
+						if (callback == null) {
+							unmatchedResponseCount.incrementAndGet();
+							return false;
+						}
+
+						recordLatency(requestEvent);
+						callback.call((Event) invocation.getArgument(0));
+						return true;
+					}
+				}
+			);
+	}
+
+	/**
+	 * A listener registered for an event type and source.
+	 */
+	private static final class ListenerRegistration {
+
+		private final String type;
+		private final String source;
+		private final ExtensionListener listener;
+
+		ListenerRegistration(final String type, final String source, final ExtensionListener listener) {
+			this.type = type;
+			this.source = source;
+			this.listener = listener;
+		}
+
+		boolean matches(final Event event) {
+			return type.equalsIgnoreCase(event.getType()) && source.equalsIgnoreCase(event.getSource());
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import android.content.SharedPreferences;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory {@link SharedPreferences} used by the load and stress tests instead of a mock,
+ * as a mock would record every one of their invocations.
+ */
+class InMemorySharedPreferences implements SharedPreferences {
+
+	private final Map<String, Object> values = new HashMap<>(); // guarded by itself
+
+	@Override
+	public Map<String, ?> getAll() {
+		synchronized (values) {
+			return new HashMap<>(values);
+		}
+	}
+
+	@Override
+	public String getString(final String key, final String defValue) {
+		final Object value = get(key);
+		return value instanceof String ? (String) value : defValue;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<String> getStringSet(final String key, final Set<String> defValues) {
+		final Object value = get(key);
+		return value instanceof Set ? new HashSet<>((Set<String>) value) : defValues;
+	}
+
+	@Override
+	public int getInt(final String key, final int defValue) {
+		final Object value = get(key);
+		return value instanceof Integer ? (Integer) value : defValue;
+	}
+
+	@Override
+	public long getLong(final String key, final long defValue) {
+		final Object value = get(key);
+		return value instanceof Long ? (Long) value : defValue;
+	}
+
+	@Override
+	public float getFloat(final String key, final float defValue) {
+		final Object value = get(key);
+		return value instanceof Float ? (Float) value : defValue;
+	}
+
+	@Override
+	public boolean getBoolean(final String key, final boolean defValue) {
+		final Object value = get(key);
+		return value instanceof Boolean ? (Boolean) value : defValue;
+	}
+
+	@Override
+	public boolean contains(final String key) {
+		synchronized (values) {
+			return values.containsKey(key);
+		}
+	}
+
+	@Override
+	public Editor edit() {
+		return new InMemoryEditor();
+	}
+
+	@Override
+	public void registerOnSharedPreferenceChangeListener(final OnSharedPreferenceChangeListener listener) {}
+
+	@Override
+	public void unregisterOnSharedPreferenceChangeListener(final OnSharedPreferenceChangeListener listener) {}
+
+	private Object get(final String key) {
+		synchronized (values) {
+			return values.get(key);
+		}
+	}
+
+	private final class InMemoryEditor implements Editor {
+
+		private final Map<String, Object> changes = new HashMap<>();
+		private boolean clear;
+
+		@Override
+		public Editor putString(final String key, final String value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public Editor putStringSet(final String key, final Set<String> values) {
+			changes.put(key, values != null ? new HashSet<>(values) : null);
+			return this;
+		}
+
+		@Override
+		public Editor putInt(final String key, final int value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public Editor putLong(final String key, final long value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public Editor putFloat(final String key, final float value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public Editor putBoolean(final String key, final boolean value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public Editor remove(final String key) {
+			changes.put(key, null);
+			return this;
+		}
+
+		@Override
+		public Editor clear() {
+			clear = true;
+			return this;
+		}
+
+		@Override
+		public boolean commit() {
+			apply();
+			return true;
+		}
+
+		@Override
+		public void apply() {
+			synchronized (values) {
+				if (clear) {
+					values.clear();
+				}
+
+				for (final Map.Entry<String, Object> change : changes.entrySet()) {
+					if (change.getValue() == null) {
+						values.remove(change.getKey());
+					} else {
+						values.put(change.getKey(), change.getValue());
+					}
+				}
+			}
+		}
+	}
+}
@@ -19,6 +19,7 @@ import static org.mockito.Mockito.verify;
 
 import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -54,12 +55,7 @@ public class ListenerHubSharedStateTests {
 	@Test
 	public void testHear() throws Exception {
 		// setup
-		Event event = new Event.Builder(
-			"Shared State Change",
-			IdentityConstants.EventType.HUB,
-			IdentityConstants.EventSource.SHARED_STATE
-		)
-			.build();
+		Event event = buildSharedStateChangeEvent(IdentityConstants.SharedState.Configuration.NAME);
 		doReturn(mockIdentityExtension).when(listener).getIdentityExtension();
 
 		// test
@@ -68,6 +64,23 @@ public class ListenerHubSharedStateTests {
 		// verify
 		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
 		verify(mockIdentityExtension, times(1)).handleHubSharedState(event);
+		verify(mockIdentityExtension, times(0)).onEventDropped();
+	}
+
+	@Test
+	public void testHear_WhenStateOwnerNotHandled_dropsEvent() throws Exception {
+		// setup
+		Event event = buildSharedStateChangeEvent("com.adobe.edge.consent");
+		doReturn(mockIdentityExtension).when(listener).getIdentityExtension();
+
+		// test
+		listener.hear(event);
+
+		// verify
+		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
+		verify(mockIdentityExtension, times(0)).getExecutor();
+		verify(mockIdentityExtension, times(0)).handleHubSharedState(any(Event.class));
+		verify(mockIdentityExtension, times(1)).onEventDropped();
 	}
 
 	@Test
@@ -102,4 +115,20 @@ public class ListenerHubSharedStateTests {
 		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
 		verify(mockIdentityExtension, times(0)).handleHubSharedState(any(Event.class));
 	}
+
+	private static Event buildSharedStateChangeEvent(final String stateOwner) {
+		return new Event.Builder(
+			"Shared State Change",
+			IdentityConstants.EventType.HUB,
+			IdentityConstants.EventSource.SHARED_STATE
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.STATE_OWNER, stateOwner);
+					}
+				}
+			)
+			.build();
+	}
 }
@@ -19,6 +19,7 @@ import static org.mockito.Mockito.verify;
 
 import com.adobe.marketing.mobile.Event;
 import com.adobe.marketing.mobile.MobileCore;
+import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +60,13 @@ public class ListenerIdentityRequestContentTests {
 			IdentityConstants.EventType.IDENTITY,
 			IdentityConstants.EventSource.REQUEST_IDENTITY
 		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put(IdentityConstants.EventDataKeys.ADVERTISING_IDENTIFIER, "adId");
+					}
+				}
+			)
 			.build();
 		doReturn(mockIdentityExtension).when(listener).getIdentityExtension();
 
@@ -68,6 +76,37 @@ public class ListenerIdentityRequestContentTests {
 		// verify
 		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
 		verify(mockIdentityExtension, times(1)).processAddEvent(event);
+		verify(mockIdentityExtension, times(1)).invalidatePendingReads();
+		verify(mockIdentityExtension, times(0)).onEventDropped();
+	}
+
+	@Test
+	public void testHear_WhenNotAdIdEvent_dropsEvent() throws Exception {
+		// setup
+		Event event = new Event.Builder(
+			"Request Identity",
+			IdentityConstants.EventType.IDENTITY,
+			IdentityConstants.EventSource.REQUEST_IDENTITY
+		)
+			.setEventData(
+				new HashMap<String, Object>() {
+					{
+						put("key", "value");
+					}
+				}
+			)
+			.build();
+		doReturn(mockIdentityExtension).when(listener).getIdentityExtension();
+
+		// test
+		listener.hear(event);
+
+		// verify
+		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
+		verify(mockIdentityExtension, times(0)).getExecutor();
+		verify(mockIdentityExtension, times(0)).processAddEvent(any(Event.class));
+		verify(mockIdentityExtension, times(0)).invalidatePendingReads();
+		verify(mockIdentityExtension, times(1)).onEventDropped();
 	}
 
 	@Test
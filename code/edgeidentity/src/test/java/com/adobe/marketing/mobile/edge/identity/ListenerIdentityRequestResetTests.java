@@ -68,6 +68,7 @@ public class ListenerIdentityRequestResetTests {
 		// verify
 		testExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
 		verify(mockIdentityExtension, times(1)).processAddEvent(event);
+		verify(mockIdentityExtension, times(1)).invalidatePendingReads();
 	}
 
 	@Test
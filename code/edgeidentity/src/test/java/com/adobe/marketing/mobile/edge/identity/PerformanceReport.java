@@ -0,0 +1,131 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+/**
+ * JUnit rule collecting the measurements of a {@link PerformanceTests} test. Once the test succeeded, its measurements
+ * are appended to {@code <test class>.txt} in the directory set by the {@code performanceReportDir} system property,
+ * or {@code build/reports/performance} if not set.
+ * <p>
+ * Use it as {@code @Rule public final PerformanceReport report = new PerformanceReport();}
+ */
+class PerformanceReport extends TestWatcher {
+
+	static final String REPORT_DIR_PROPERTY = "performanceReportDir";
+	private static final String DEFAULT_REPORT_DIR = "build/reports/performance";
+
+	private final List<String> measurements = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * Records the number of operations run in the elapsed time, and the resulting operations per second.
+	 *
+	 * @param name           the name of the measured operations
+	 * @param operationCount the number of operations run
+	 * @param elapsedNanos   the time taken to run them, in nanoseconds
+	 */
+	void recordThroughput(final String name, final int operationCount, final long elapsedNanos) {
+		record(
+			String.format(
+				Locale.US,
+				"%s: %d operations in %d ms (%.0f operations/s)",
+				name,
+				operationCount,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+				operationCount / (Math.max(1, elapsedNanos) / 1e9)
+			)
+		);
+	}
+
+	/**
+	 * Records the median, 99th percentile and maximum of the given latencies.
+	 *
+	 * @param name           the name of the measured operations
+	 * @param latenciesNanos the latency of each operation, in nanoseconds
+	 */
+	void recordLatencies(final String name, final List<Long> latenciesNanos) {
+		final List<Long> sorted = new ArrayList<>(latenciesNanos);
+		Collections.sort(sorted);
+
+		record(
+			String.format(
+				Locale.US,
+				"%s: latency p50 %d us, p99 %d us, max %d us over %d operations",
+				name,
+				TimeUnit.NANOSECONDS.toMicros(percentile(sorted, 0.50)),
+				TimeUnit.NANOSECONDS.toMicros(percentile(sorted, 0.99)),
+				TimeUnit.NANOSECONDS.toMicros(percentile(sorted, 1.0)),
+				sorted.size()
+			)
+		);
+	}
+
+	/**
+	 * Records a free form measurement.
+	 *
+	 * @param measurement the measurement line
+	 */
+	void record(final String measurement) {
+		measurements.add(measurement);
+	}
+
+	@Override
+	protected void starting(final Description description) {
+		measurements.clear();
+	}
+
+	@Override
+	protected void succeeded(final Description description) {
+		if (measurements.isEmpty()) {
+			return;
+		}
+
+		final File reportDir = new File(System.getProperty(REPORT_DIR_PROPERTY, DEFAULT_REPORT_DIR));
+
+		if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+			throw new IllegalStateException("Unable to create the performance report directory " + reportDir);
+		}
+
+		final File reportFile = new File(reportDir, description.getTestClass().getSimpleName() + ".txt");
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile, true), "UTF-8")) {
+			synchronized (measurements) {
+				for (final String measurement : measurements) {
+					writer.write(description.getMethodName() + " - " + measurement + System.lineSeparator());
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write the performance report " + reportFile, e);
+		}
+	}
+
+	private static long percentile(final List<Long> sortedValues, final double percentile) {
+		if (sortedValues.isEmpty()) {
+			return 0;
+		}
+
+		final int index = (int) Math.ceil(percentile * sortedValues.size()) - 1;
+		return sortedValues.get(Math.max(0, Math.min(index, sortedValues.size() - 1)));
+	}
+}
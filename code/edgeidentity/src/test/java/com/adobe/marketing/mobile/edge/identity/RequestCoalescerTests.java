@@ -0,0 +1,217 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.adobe.marketing.mobile.AdobeCallback;
+import com.adobe.marketing.mobile.Event;
+import com.adobe.marketing.mobile.ExtensionError;
+import com.adobe.marketing.mobile.ExtensionErrorCallback;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTests {
+
+	private static final String REQUEST_KEY = "getIdentities";
+
+	private RequestCoalescer coalescer;
+	private List<Event> responses;
+	private List<ExtensionError> errors;
+	private int retries;
+
+	@Before
+	public void setup() {
+		coalescer = new RequestCoalescer();
+		responses = new ArrayList<>();
+		errors = new ArrayList<>();
+		retries = 0;
+	}
+
+	@Test
+	public void testJoin_firstRequest_returnsPendingRequest() {
+		assertNotNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void testJoin_requestInFlight_joinsIt() {
+		// setup
+		final RequestCoalescer.PendingRequest pendingRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+
+		// test
+		assertNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+		assertNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+		final Event response = new Event.Builder("response", "type", "source").build();
+		coalescer.completeWithResponse(pendingRequest, response);
+
+		// verify
+		assertEquals(2, coalescer.getCoalescedCount());
+		assertEquals(3, responses.size());
+
+		for (final Event event : responses) {
+			assertSame(response, event);
+		}
+	}
+
+	@Test
+	public void testJoin_differentKeys_notCoalesced() {
+		assertNotNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+		assertNotNull(coalescer.join("getExperienceCloudId", responseCallback(), errorCallback(), retryCallback()));
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void testJoin_afterCompletion_returnsNewPendingRequest() {
+		// setup
+		final RequestCoalescer.PendingRequest pendingRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+		coalescer.completeWithResponse(pendingRequest, new Event.Builder("response", "type", "source").build());
+
+		// test
+		final RequestCoalescer.PendingRequest newRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+
+		// verify
+		assertNotNull(newRequest);
+		assertNotSame(pendingRequest, newRequest);
+	}
+
+	@Test
+	public void testCompleteWithResponse_calledTwice_callsCallbacksOnce() {
+		// setup
+		final RequestCoalescer.PendingRequest pendingRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+		final Event response = new Event.Builder("response", "type", "source").build();
+
+		// test
+		coalescer.completeWithResponse(pendingRequest, response);
+		coalescer.completeWithResponse(pendingRequest, response);
+
+		// verify
+		assertEquals(1, responses.size());
+	}
+
+	@Test
+	public void testSealPendingRequests_newRequestNotJoined_sealedRequestRetriesJoinedCallers() {
+		// setup
+		final RequestCoalescer.PendingRequest sealedRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+		assertNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+
+		// test
+		coalescer.sealPendingRequests();
+		final RequestCoalescer.PendingRequest newRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+
+		// verify
+		assertNotNull(newRequest);
+		coalescer.completeWithResponse(sealedRequest, new Event.Builder("response", "type", "source").build());
+		// the caller which dispatched the sealed request gets its response, the joined caller is retried
+		assertEquals(1, responses.size());
+		assertEquals(1, retries);
+
+		// the new request is still in flight
+		assertNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+		coalescer.completeWithResponse(newRequest, new Event.Builder("response", "type", "source").build());
+		assertEquals(3, responses.size());
+		assertEquals(1, retries);
+	}
+
+	@Test
+	public void testSealPendingRequests_withoutJoinedCallers_noRetry() {
+		// setup
+		final RequestCoalescer.PendingRequest sealedRequest = coalescer.join(
+			REQUEST_KEY,
+			responseCallback(),
+			errorCallback(),
+			retryCallback()
+		);
+
+		// test
+		coalescer.sealPendingRequests();
+		coalescer.completeWithResponse(sealedRequest, new Event.Builder("response", "type", "source").build());
+
+		// verify
+		assertEquals(1, responses.size());
+		assertEquals(0, retries);
+	}
+
+	@Test
+	public void testClear_resetsCoalescedCount() {
+		coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback());
+		coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback());
+
+		coalescer.clear();
+
+		assertEquals(0, coalescer.getCoalescedCount());
+		assertNotNull(coalescer.join(REQUEST_KEY, responseCallback(), errorCallback(), retryCallback()));
+	}
+
+	private AdobeCallback<Event> responseCallback() {
+		return new AdobeCallback<Event>() {
+			@Override
+			public void call(final Event event) {
+				responses.add(event);
+			}
+		};
+	}
+
+	private Runnable retryCallback() {
+		return new Runnable() {
+			@Override
+			public void run() {
+				retries++;
+			}
+		};
+	}
+
+	private ExtensionErrorCallback<ExtensionError> errorCallback() {
+		return new ExtensionErrorCallback<ExtensionError>() {
+			@Override
+			public void error(final ExtensionError extensionError) {
+				errors.add(extensionError);
+			}
+		};
+	}
+}
@@ -0,0 +1,237 @@
+/*
+  Copyright 2022 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.edge.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeoutWheelTests {
+
+	private static final long TICK_MILLIS = 10;
+	private static final int WHEEL_SIZE = 8;
+
+	private FakeClock clock;
+	private TimeoutWheel wheel;
+	private List<String> expired;
+
+	@Before
+	public void setup() {
+		clock = new FakeClock();
+		wheel = new TimeoutWheel(clock, TICK_MILLIS, WHEEL_SIZE, false);
+		expired = new ArrayList<>();
+	}
+
+	@Test
+	public void testTick_beforeDeadline_doesNotExpire() {
+		wheel.schedule(record("a"), 50);
+
+		clock.advanceMillis(49);
+		wheel.tick();
+
+		assertTrue(expired.isEmpty());
+		assertEquals(1, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testTick_afterDeadline_expiresOnce() {
+		wheel.schedule(record("a"), 50);
+
+		clock.advanceMillis(60);
+		wheel.tick();
+		clock.advanceMillis(60);
+		wheel.tick();
+
+		assertEquals(1, expired.size());
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testTick_expiresInDeadlineOrderAcrossTicks() {
+		wheel.schedule(record("late"), 40);
+		wheel.schedule(record("early"), 15);
+
+		clock.advanceMillis(20);
+		wheel.tick();
+		assertEquals(1, expired.size());
+		assertEquals("early", expired.get(0));
+
+		clock.advanceMillis(30);
+		wheel.tick();
+		assertEquals(2, expired.size());
+		assertEquals("late", expired.get(1));
+	}
+
+	@Test
+	public void testTick_deadlineBeyondWheelRotation_waitsForLaterRotation() {
+		// the wheel covers 80 ms, this timeout lands in the same bucket as a 30 ms timeout
+		wheel.schedule(record("a"), 110);
+
+		clock.advanceMillis(40);
+		wheel.tick();
+		assertTrue(expired.isEmpty());
+
+		clock.advanceMillis(80);
+		wheel.tick();
+		assertEquals(1, expired.size());
+	}
+
+	@Test
+	public void testTick_clockJumpBeyondWheelRotation_expiresAllDue() {
+		wheel.schedule(record("a"), 10);
+		wheel.schedule(record("b"), 70);
+		wheel.schedule(record("c"), 500);
+
+		clock.advanceMillis(300);
+		wheel.tick();
+
+		assertEquals(2, expired.size());
+		assertEquals(1, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testCancel_preventsExpiry() {
+		final TimeoutWheel.Timeout timeout = wheel.schedule(record("a"), 20);
+
+		timeout.cancel();
+		clock.advanceMillis(30);
+		wheel.tick();
+
+		assertTrue(expired.isEmpty());
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testCancel_removesFromPendingWithoutTick() {
+		final TimeoutWheel.Timeout timeout = wheel.schedule(record("a"), 20);
+		wheel.schedule(record("b"), 20);
+
+		timeout.cancel();
+		assertEquals(1, wheel.getPendingCount());
+
+		timeout.cancel();
+		assertEquals(1, wheel.getPendingCount());
+
+		clock.advanceMillis(30);
+		wheel.tick();
+
+		assertEquals(1, expired.size());
+		assertEquals("b", expired.get(0));
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testCancel_afterExpiry_doesNotChangePendingCount() {
+		final TimeoutWheel.Timeout timeout = wheel.schedule(record("a"), 20);
+		wheel.schedule(record("b"), 100);
+
+		clock.advanceMillis(30);
+		wheel.tick();
+		timeout.cancel();
+
+		assertEquals(1, expired.size());
+		assertEquals(1, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testSchedule_zeroDelay_expiresOnNextTick() {
+		wheel.schedule(record("a"), 0);
+
+		wheel.tick();
+		assertTrue(expired.isEmpty());
+
+		clock.advanceMillis(TICK_MILLIS);
+		wheel.tick();
+		assertEquals(1, expired.size());
+	}
+
+	@Test(timeout = 5000)
+	public void testTicker_expiresWithSystemClock() throws Exception {
+		final TimeoutWheel tickingWheel = new TimeoutWheel(TimeoutWheel.SYSTEM_CLOCK, TICK_MILLIS, WHEEL_SIZE, true);
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		tickingWheel.schedule(
+			new Runnable() {
+				@Override
+				public void run() {
+					latch.countDown();
+				}
+			},
+			20
+		);
+
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testTicker_allTimeoutsCancelled_stopsTicker() {
+		final TimeoutWheel tickingWheel = new TimeoutWheel(TimeoutWheel.SYSTEM_CLOCK, TICK_MILLIS, WHEEL_SIZE, true);
+		final TimeoutWheel.Timeout first = tickingWheel.schedule(record("a"), 60000);
+		final TimeoutWheel.Timeout second = tickingWheel.schedule(record("b"), 60000);
+		assertTrue(tickingWheel.isTickerRunning());
+
+		first.cancel();
+		assertTrue(tickingWheel.isTickerRunning());
+
+		second.cancel();
+		assertFalse(tickingWheel.isTickerRunning());
+		assertEquals(0, tickingWheel.getPendingCount());
+	}
+
+	@Test
+	public void testSetClock_dropsPendingTimeouts_stopsTicker_usesNewClock() {
+		final TimeoutWheel tickingWheel = new TimeoutWheel(TimeoutWheel.SYSTEM_CLOCK, TICK_MILLIS, WHEEL_SIZE, true);
+		tickingWheel.schedule(record("a"), 60000);
+		assertTrue(tickingWheel.isTickerRunning());
+
+		tickingWheel.setClock(clock, false);
+		assertFalse(tickingWheel.isTickerRunning());
+		assertEquals(0, tickingWheel.getPendingCount());
+
+		tickingWheel.schedule(record("b"), 50);
+		assertFalse(tickingWheel.isTickerRunning());
+		clock.advanceMillis(60);
+		tickingWheel.tick();
+		assertEquals(1, expired.size());
+		assertEquals("b", expired.get(0));
+	}
+
+	private Runnable record(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				expired.add(name);
+			}
+		};
+	}
+
+	private static final class FakeClock implements TimeoutWheel.Clock {
+
+		private long nanos = TimeUnit.SECONDS.toNanos(1000);
+
+		@Override
+		public long nanoTime() {
+			return nanos;
+		}
+
+		void advanceMillis(final long millis) {
+			nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+	}
+}
@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.Test;
 
 @SuppressWarnings("unchecked")
@@ -157,4 +160,193 @@ public class UtilsTests {
 		assertEquals(1, ((Map<String, Object>) list.get(0).get("nestedMap")).size());
 		assertEquals(2, ((Map<String, Object>) nestedDeepCopy.get(0).get("nestedMap")).size());
 	}
+
+	@Test
+	public void testUtils_deepCopyKeepsValueTypes() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("long", 123L);
+		map.put("int", 7);
+		map.put("double", 1.5);
+		map.put("boolean", true);
+		map.put("string", "value");
+		map.put("null", null);
+
+		Map<String, Object> deepCopy = Utils.deepCopy(map);
+
+		assertEquals(map, deepCopy);
+		assertTrue(deepCopy.get("long") instanceof Long);
+		assertTrue(deepCopy.get("int") instanceof Integer);
+		assertTrue(deepCopy.get("double") instanceof Double);
+		assertTrue(deepCopy.containsKey("null"));
+	}
+
+	@Test
+	public void testUtils_deepCopyNestedList() {
+		Map<String, Object> item = new HashMap<>();
+		item.put("id", "value");
+		List<Object> items = new ArrayList<>();
+		items.add(item);
+		Map<String, Object> map = new HashMap<>();
+		map.put("items", items);
+
+		Map<String, Object> deepCopy = Utils.deepCopy(map);
+		List<Object> copiedItems = (List<Object>) deepCopy.get("items");
+		((Map<String, Object>) copiedItems.get(0)).put("id", "changed");
+		copiedItems.add("new");
+
+		assertEquals(1, items.size());
+		assertEquals("value", item.get("id"));
+	}
+
+	@Test
+	public void testUtils_deepCopySharedReference_copiedTwice() {
+		Map<String, Object> shared = new HashMap<>();
+		shared.put("key", "value");
+		Map<String, Object> map = new HashMap<>();
+		map.put("first", shared);
+		map.put("second", shared);
+
+		Map<String, Object> deepCopy = Utils.deepCopy(map);
+
+		assertNotNull(deepCopy);
+		assertEquals(shared, deepCopy.get("first"));
+		assertEquals(shared, deepCopy.get("second"));
+		assertFalse(deepCopy.get("first") == deepCopy.get("second"));
+	}
+
+	@Test
+	public void testUtils_deepCopyCycle_returnsNull() {
+		Map<String, Object> map = new HashMap<>();
+		Map<String, Object> nested = new HashMap<>();
+		nested.put("parent", map);
+		map.put("nested", nested);
+
+		assertNull(Utils.deepCopy(map));
+	}
+
+	@Test
+	public void testUtils_deepCopyTooDeep_returnsNull() {
+		Map<String, Object> map = new HashMap<>();
+		Map<String, Object> current = map;
+
+		for (int i = 0; i < 100; i++) {
+			Map<String, Object> nested = new HashMap<>();
+			current.put("nested", nested);
+			current = nested;
+		}
+
+		assertNull(Utils.deepCopy(map));
+	}
+
+	@Test
+	public void testUtils_deepCopyUnsupportedType_returnsNull() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("key", new Object());
+
+		assertNull(Utils.deepCopy(map));
+	}
+
+	@Test
+	public void testUtils_deepCopyIdentityMap_matchesJsonRoundTrip() {
+		// setup, an identity map shaped payload
+		Map<String, Object> identityMap = new HashMap<>();
+
+		for (int n = 0; n < 10; n++) {
+			List<Object> items = new ArrayList<>();
+
+			for (int i = 0; i < 20; i++) {
+				Map<String, Object> item = new HashMap<>();
+				item.put("id", "identifier" + n + "_" + i);
+				item.put("authenticatedState", "ambiguous");
+				item.put("primary", false);
+				items.add(item);
+			}
+
+			identityMap.put("namespace" + n, items);
+		}
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("identityMap", identityMap);
+
+		// test
+		Map<String, Object> deepCopy = Utils.deepCopy(map);
+
+		// verify the structural copy is equal to the previous copy through a JSONObject, and independent of the source
+		assertEquals(map, deepCopy);
+		assertEquals(Utils.toMap(new JSONObject(map)), deepCopy);
+		((Map<String, Object>) deepCopy.get("identityMap")).remove("namespace0");
+		assertTrue(identityMap.containsKey("namespace0"));
+	}
+
+	@Test
+	public void testUtils_toMap_nestedObjectsAndArrays() throws JSONException {
+		JSONObject jsonObject = new JSONObject(
+			"{\"identityMap\":{\"Email\":[{\"id\":\"example@adobe.com\",\"primary\":false}]},\"count\":2,\"list\":[[1,2],[]]}"
+		);
+
+		Map<String, Object> map = Utils.toMap(jsonObject);
+
+		assertEquals(3, map.size());
+		assertEquals(2, map.get("count"));
+		Map<String, Object> identityMap = (Map<String, Object>) map.get("identityMap");
+		List<Object> items = (List<Object>) identityMap.get("Email");
+		assertEquals(1, items.size());
+		assertEquals("example@adobe.com", ((Map<String, Object>) items.get(0)).get("id"));
+		assertEquals(false, ((Map<String, Object>) items.get(0)).get("primary"));
+		List<Object> list = (List<Object>) map.get("list");
+		assertEquals(2, list.size());
+		assertEquals(2, ((List<Object>) list.get(0)).size());
+		assertEquals(0, ((List<Object>) list.get(1)).size());
+	}
+
+	@Test
+	public void testUtils_toMap_null() {
+		assertNull(Utils.toMap(null));
+		assertNull(Utils.toList(null));
+	}
+
+	@Test
+	public void testUtils_toList_nestedObjects() throws JSONException {
+		JSONArray jsonArray = new JSONArray("[{\"key\":\"value\"},\"string\",[true]]");
+
+		List<Object> list = Utils.toList(jsonArray);
+
+		assertEquals(3, list.size());
+		assertEquals("value", ((Map<String, Object>) list.get(0)).get("key"));
+		assertEquals("string", list.get(1));
+		assertEquals(true, ((List<Object>) list.get(2)).get(0));
+	}
+
+	@Test
+	public void testUtils_toMap_exceedsMaxDepth_returnsNull() throws JSONException {
+		JSONObject jsonObject = new JSONObject("{\"a\":{\"b\":{\"c\":\"value\"}}}");
+
+		assertNotNull(Utils.toMap(jsonObject, 3, 100));
+		assertNull(Utils.toMap(jsonObject, 2, 100));
+	}
+
+	@Test
+	public void testUtils_toList_exceedsMaxElements_returnsNull() throws JSONException {
+		JSONArray jsonArray = new JSONArray("[1,2,[3,4]]");
+
+		assertNotNull(Utils.toList(jsonArray, 2, 5));
+		assertNull(Utils.toList(jsonArray, 2, 4));
+	}
+
+	@Test
+	public void testUtils_toMap_deeplyNested_returnsNullWithoutStackOverflow() throws JSONException {
+		JSONObject jsonObject = new JSONObject();
+		JSONObject current = jsonObject;
+
+		for (int i = 0; i < 50000; i++) {
+			JSONObject nested = new JSONObject();
+			current.put("nested", nested);
+			current = nested;
+		}
+
+		// the default depth limit rejects the json
+		assertNull(Utils.toMap(jsonObject));
+		// the conversion does not recurse, so larger limits do not overflow the stack
+		assertNotNull(Utils.toMap(jsonObject, 100000, 100000));
+	}
 }